@@ -0,0 +1,83 @@
+package com.openhtmltopdf.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+
+/**
+ * Benchmarks the CSS parser alone, for a large style sheet and for many style attributes,
+ * which are parsed one declaration list at a time.
+ * <br><br>
+ * Run with: <code>java -jar benchmarks.jar CssParserBenchmarks</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CssParserBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Input {
+        @Param({ "5000" })
+        public int rules;
+
+        public String css;
+        public String[] styles;
+        public CSSParser parser;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < rules; i++) {
+                sb.append("div.c").append(i).append(" > p:first-child, #id").append(i).append(" span[data-x='").append(i).append("'] {");
+                sb.append(" margin: ").append(i % 10).append("px 2em; color: #").append(String.format("%06x", i));
+                sb.append("; font: bold 12px/1.4 Arial, sans-serif; border: 1px solid red; padding-left: 3.5mm; }\n");
+            }
+            css = sb.toString();
+
+            styles = new String[rules];
+            for (int i = 0; i < styles.length; i++) {
+                styles[i] = "color: #" + String.format("%06x", i * 7) + "; width: " + (i % 300) + "px; margin: 0 auto; " +
+                            "font-size: " + (i % 20) + "pt; background-color: rgb(1, 2, " + (i % 255) + ")";
+            }
+
+            // As with a renderer, one parser for all style attributes.
+            parser = new CSSParser((uri, message) -> { });
+        }
+    }
+
+    @Benchmark
+    public void parseStylesheetFromString(Input input, PipelineBenchmarks.EmptyRenderer empty, Blackhole bh) throws IOException {
+        bh.consume(input.parser.parseStylesheet("author.css", StylesheetInfo.AUTHOR, input.css));
+    }
+
+    @Benchmark
+    public void parseStylesheetFromReader(Input input, PipelineBenchmarks.EmptyRenderer empty, Blackhole bh) throws IOException {
+        bh.consume(input.parser.parseStylesheet("author.css", StylesheetInfo.AUTHOR, new StringReader(input.css)));
+    }
+
+    @Benchmark
+    public void parseStyleAttributes(Input input, PipelineBenchmarks.EmptyRenderer empty, Blackhole bh) {
+        for (String style : input.styles) {
+            bh.consume(input.parser.parseDeclaration(StylesheetInfo.AUTHOR, style));
+        }
+    }
+}
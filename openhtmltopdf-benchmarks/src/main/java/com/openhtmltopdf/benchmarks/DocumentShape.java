@@ -0,0 +1,116 @@
+package com.openhtmltopdf.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The synthetic documents benchmarked. Each shape stresses a different part of the pipeline
+ * and is repeated a given number of times to produce documents of different sizes.
+ */
+public enum DocumentShape {
+    PARAGRAPHS(
+        "p { font-family: sans-serif; text-align: justify; }",
+        i -> "<p>" + Lorem.TEXT + "</p>"),
+
+    TABLE(
+        "table { border-collapse: collapse; width: 100%; } td { border: 1px solid gray; padding: 2px; } " +
+        "tr:nth-child(odd) > td { background-color: orange; }",
+        i -> "<table><tr><td>One " + i + "</td><td>Two</td><td>Three</td><td>" + Lorem.TEXT + "</td></tr>" +
+             "<tr><td>Four</td><td>Five</td><td>Six</td><td>Seven</td></tr></table>"),
+
+    FLOATS(
+        ".left { float: left; width: 30%; margin: 0 5px 5px 0; background-color: #eee; } " +
+        ".right { float: right; width: 20%; margin: 0 0 5px 5px; background-color: #ddd; } " +
+        ".clear { clear: both; }",
+        i -> "<div class=\"left\">Left " + i + "</div><div class=\"right\">Right</div><p>" + Lorem.TEXT + "</p>" +
+             (i % 5 == 4 ? "<div class=\"clear\"></div>" : "")),
+
+    IMAGES(
+        "img { width: 64px; height: 64px; margin: 2px; }",
+        i -> "<div><img src=\"" + Images.DATA_URI + "\" /><img src=\"" + Images.DATA_URI + "\" /> Image row " + i + "</div>"),
+
+    FONTS(
+        ".serif { font-family: serif; } .mono { font-family: monospace; } .b { font-weight: bold; } .i { font-style: italic; }",
+        i -> "<p class=\"serif\">" + Lorem.TEXT + "</p><p class=\"mono b\">" + Lorem.TEXT + "</p>" +
+             "<p class=\"i\">" + Lorem.TEXT + " <span class=\"b\">bold</span> <span class=\"serif i b\">both</span></p>"),
+
+    SVG(
+        "svg { width: 100px; height: 100px; }",
+        i -> "<div><svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\" viewBox=\"0 0 100 100\">" +
+             "<circle cx=\"50\" cy=\"50\" r=\"40\" stroke=\"green\" stroke-width=\"4\" fill=\"yellow\" />" +
+             "<text x=\"10\" y=\"55\">SVG " + i + "</text></svg></div>"),
+
+    DEEP_SELECTORS(
+        // A large style sheet of descendant selectors, carried down a deep tree.
+        IntStream.range(0, 1000)
+            .mapToObj(i -> ".report" + i + " .totals" + i + " td { color: red; } #id" + i + " span.x { margin: 1px; } ")
+            .collect(Collectors.joining()),
+        i -> IntStream.range(0, 30).mapToObj(d -> "<div class=\"box l" + d + (d == 3 ? " report" + i : "") + "\">").collect(Collectors.joining()) +
+             "<table class=\"totals" + i + "\"><tr><td>One " + i + "</td><td><span class=\"x\">Two</span></td></tr></table>" +
+             IntStream.range(0, 30).mapToObj(d -> "</div>").collect(Collectors.joining()));
+
+    private interface Fragment {
+        String html(int index);
+    }
+
+    private static class Lorem {
+        private static final String TEXT =
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit. " +
+            "Etiam vulputate, nibh eget convallis vestibulum, ex ipsum ullamcorper ligula, " +
+            "eget bibendum nulla massa vel metus. Duis sed nunc ornare, convallis purus at, " +
+            "fringilla ipsum. Quisque ullamcorper hendrerit ipsum at eleifend.";
+    }
+
+    private static class Images {
+        private static final String DATA_URI = createDataUri();
+
+        private static String createDataUri() {
+            BufferedImage img = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = img.createGraphics();
+            g2d.setColor(Color.BLUE);
+            g2d.fillRect(0, 0, 64, 64);
+            g2d.setColor(Color.RED);
+            g2d.fillOval(8, 8, 48, 48);
+            g2d.dispose();
+
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ImageIO.write(img, "png", baos);
+                return "data:image/png;base64," + Base64.getEncoder().encodeToString(baos.toByteArray());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private final String css;
+    private final Fragment fragment;
+
+    private DocumentShape(String css, Fragment fragment) {
+        this.css = css;
+        this.fragment = fragment;
+    }
+
+    public String css() {
+        return css;
+    }
+
+    /**
+     * @param repeats how many times to repeat the shape's fragment in the body.
+     */
+    public String html(int repeats) {
+        return IntStream.range(0, repeats)
+                .mapToObj(fragment::html)
+                .collect(Collectors.joining("\n",
+                        "<html><head><style>" + css + "</style></head><body>", "</body></html>"));
+    }
+}
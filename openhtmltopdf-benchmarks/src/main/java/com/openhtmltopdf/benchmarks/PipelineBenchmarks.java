@@ -0,0 +1,323 @@
+package com.openhtmltopdf.benchmarks;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.openhtmltopdf.bidi.SimpleBidiReorderer;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.layout.BoxBuilder;
+import com.openhtmltopdf.layout.Layer;
+import com.openhtmltopdf.layout.LayoutContext;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.pdfboxout.PdfBoxFontContext;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfBoxTextRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.render.BlockBox;
+import com.openhtmltopdf.render.PageBox;
+import com.openhtmltopdf.render.RenderingContext;
+import com.openhtmltopdf.render.ViewportBox;
+import com.openhtmltopdf.render.displaylist.DisplayListCollector;
+import com.openhtmltopdf.resource.XMLResource;
+import com.openhtmltopdf.svgsupport.BatikSVGDrawer;
+import com.openhtmltopdf.util.Configuration;
+
+/**
+ * Benchmarks each stage of the rendering pipeline in isolation, plus the full pipeline.
+ * Each stage is measured on a freshly prepared renderer, with the preceding stages
+ * done in an untimed setup.
+ * <br><br>
+ * Run all with: <code>java -jar openhtmltopdf-benchmarks/target/benchmarks.jar</code><br>
+ * Run one stage for one shape with: <code>java -jar benchmarks.jar PipelineBenchmarks.layout -p shape=TABLE</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Input {
+        @Param
+        public DocumentShape shape;
+
+        @Param({ "10", "100" })
+        public int repeats;
+
+        public String html;
+        public String userAgentCss;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            html = shape.html(repeats);
+
+            String uri = Configuration.valueFor("xr.css.user-agent-default-css") + "XhtmlNamespaceHandler.css";
+            try (InputStream in = PipelineBenchmarks.class.getResourceAsStream(uri)) {
+                userAgentCss = readAll(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        }
+
+        public PdfBoxRenderer buildRenderer(OutputStream os) {
+            PdfRendererBuilder builder = new PdfRendererBuilder();
+            builder.useFastMode();
+            builder.useSVGDrawer(new BatikSVGDrawer());
+            builder.withHtmlContent(html, null);
+            builder.toStream(os);
+            return builder.buildPdfRenderer();
+        }
+    }
+
+    /**
+     * A renderer without a document, as parsing requires a renderer registered with the thread.
+     */
+    @State(Scope.Thread)
+    public static class EmptyRenderer {
+        public PdfBoxRenderer renderer;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            renderer = new PdfRendererBuilder().buildPdfRenderer();
+        }
+
+        @Setup(Level.Iteration)
+        public void register() {
+            renderer.getSharedContext().registerWithThread();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            renderer.getPdfDocument().close();
+            renderer.close();
+        }
+    }
+
+    /**
+     * A renderer with the document and stylesheets loaded, but nothing else done.
+     */
+    @State(Scope.Thread)
+    public static class LoadedRenderer {
+        public PdfBoxRenderer renderer;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) {
+            renderer = input.buildRenderer(NullOutputStream.INSTANCE);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            renderer.getPdfDocument().close();
+            renderer.close();
+        }
+
+        public LayoutContext newLayoutContext() {
+            SharedContext shared = renderer.getSharedContext();
+            LayoutContext c = shared.newLayoutContextInstance();
+            c.setFontContext(new PdfBoxFontContext());
+            ((PdfBoxTextRenderer) shared.getTextRenderer()).setup(c.getFontContext(), new SimpleBidiReorderer());
+            return c;
+        }
+    }
+
+    /**
+     * A renderer with the box tree built, but not yet laid out.
+     */
+    @State(Scope.Thread)
+    public static class BuiltRenderer {
+        public LayoutContext context;
+        public BlockBox root;
+
+        @Setup(Level.Invocation)
+        public void setup(LoadedRenderer loaded) {
+            context = loaded.newLayoutContext();
+            root = BoxBuilder.createRootBox(context, loaded.renderer.getDocument());
+        }
+    }
+
+    /**
+     * A renderer with the document laid out, ready to paint.
+     */
+    @State(Scope.Thread)
+    public static class LaidOutRenderer {
+        public PdfBoxRenderer renderer;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) {
+            renderer = input.buildRenderer(NullOutputStream.INSTANCE);
+            renderer.layout();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            renderer.getPdfDocument().close();
+            renderer.close();
+        }
+    }
+
+    /**
+     * A renderer with the document painted to a PDF document which has not yet been saved.
+     */
+    @State(Scope.Thread)
+    public static class PaintedRenderer {
+        public PdfBoxRenderer renderer;
+
+        @Setup(Level.Invocation)
+        public void setup(Input input) throws IOException {
+            renderer = input.buildRenderer(NullOutputStream.INSTANCE);
+            renderer.layout();
+            renderer.createPDFWithoutClosing();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            renderer.getPdfDocument().close();
+            renderer.close();
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        private static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[4096];
+        int read;
+        while ((read = reader.read(buf)) != -1) {
+            sb.append(buf, 0, read);
+        }
+        return sb.toString();
+    }
+
+    private static void collectElements(Node node, List<Element> elements) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                elements.add((Element) child);
+                collectElements(child, elements);
+            }
+        }
+    }
+
+    @Benchmark
+    public Document parseHtml(Input input, EmptyRenderer empty) {
+        return XMLResource.load(new StringReader(input.html)).getDocument();
+    }
+
+    @Benchmark
+    public void parseCss(Input input, Blackhole bh) throws IOException {
+        CSSParser parser = new CSSParser((uri, message) -> { });
+        bh.consume(parser.parseStylesheet("ua.css", StylesheetInfo.USER_AGENT, new StringReader(input.userAgentCss)));
+        bh.consume(parser.parseStylesheet("author.css", StylesheetInfo.AUTHOR, new StringReader(input.shape.css())));
+    }
+
+    /**
+     * Matches every element against the loaded stylesheets, in document order.
+     */
+    @Benchmark
+    public void cascade(LoadedRenderer loaded, Blackhole bh) {
+        List<Element> elements = new ArrayList<>();
+        collectElements(loaded.renderer.getDocument(), elements);
+
+        for (Element e : elements) {
+            bh.consume(loaded.renderer.getSharedContext().getCss().getCascadedStyle(e, true));
+        }
+    }
+
+    /**
+     * Builds the box tree, which includes the cascade.
+     */
+    @Benchmark
+    public BlockBox buildBoxes(LoadedRenderer loaded) {
+        return BoxBuilder.createRootBox(loaded.newLayoutContext(), loaded.renderer.getDocument());
+    }
+
+    /**
+     * Lays out an already built box tree into pages.
+     */
+    @Benchmark
+    public List<PageBox> layout(BuiltRenderer built) {
+        LayoutContext c = built.context;
+        BlockBox root = built.root;
+
+        PageBox first = Layer.createPageBox(c, "first");
+        root.setContainingBlock(new ViewportBox(new Rectangle(0, 0, first.getContentWidth(c), first.getContentHeight(c))));
+        root.layout(c);
+        root.getLayer().trimEmptyPages(c, root.getLayer().getPaintingDimension(c).height);
+        root.getLayer().layoutPages(c);
+        return root.getLayer().getPages();
+    }
+
+    @Benchmark
+    public Object collectDisplayList(LaidOutRenderer laidOut) {
+        PdfBoxRenderer renderer = laidOut.renderer;
+        Layer rootLayer = renderer.getRootBox().getLayer();
+
+        RenderingContext c = renderer.getSharedContext().newRenderingContextInstance();
+        c.setFontContext(new PdfBoxFontContext());
+        c.setOutputDevice(renderer.getOutputDevice());
+        c.setRootLayer(rootLayer);
+        c.setFastRenderer(true);
+
+        rootLayer.assignPagePaintingPositions(c, Layer.PAGED_MODE_PRINT);
+        return new DisplayListCollector(rootLayer.getPages()).collectRoot(c, rootLayer);
+    }
+
+    /**
+     * Paints a laid out document to a PDF document, including display list collection.
+     */
+    @Benchmark
+    public void paint(LaidOutRenderer laidOut) throws IOException {
+        laidOut.renderer.createPDFWithoutClosing();
+    }
+
+    @Benchmark
+    public void save(PaintedRenderer painted) throws IOException {
+        painted.renderer.getPdfDocument().save(NullOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public void fullPipeline(Input input) throws Exception {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.useSVGDrawer(new BatikSVGDrawer());
+        builder.withHtmlContent(input.html, null);
+        builder.toStream(NullOutputStream.INSTANCE);
+        builder.run();
+    }
+}
@@ -0,0 +1,204 @@
+package com.openhtmltopdf.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.util.ThreadCtx;
+
+/**
+ * Computes the style of every element of a document on several threads before box building,
+ * which then finds the styles in {@link SharedContext#getStyle(Element)} instead of computing
+ * them one element at a time.
+ * <br><br>
+ * An element's style derives from its parent's, so the parent is always styled first, after which
+ * its subtrees are independent. Large subtrees are forked and small ones styled inline.
+ * <br><br>
+ * The DOM is only read by the threads. As a deferred Xerces DOM builds nodes and attribute values
+ * on first access, the tree and its attributes are walked once on the calling thread beforehand.
+ * <br><br>
+ * The pool may be shared between renders, so each task registers the shared context of its render
+ * with the thread it runs on, and style attributes are parsed with a parser per thread and render.
+ */
+public class ParallelCascade {
+    /**
+     * Subtrees with fewer elements are styled by the thread that reaches them,
+     * as forking costs more than styling a few elements.
+     */
+    private static final int MIN_FORK_SIZE = 128;
+
+    /**
+     * The cascade whose task is running on the current thread, if any.
+     */
+    private static final ThreadLocal<ParallelCascade> CURRENT = new ThreadLocal<ParallelCascade>();
+
+    private final SharedContext _context;
+    private final ThreadLocal<CSSParser> _parsers = new ThreadLocal<CSSParser>();
+    private Element[] _elements = new Element[1024];
+    /**
+     * The index after the last element of the subtree of each element,
+     * which is also the index of its next sibling if any.
+     */
+    private int[] _subtreeEnd = new int[1024];
+    private int _count;
+
+    private ParallelCascade(SharedContext context) {
+        _context = context;
+    }
+
+    /**
+     * Styles all elements of the document on the given pool, waiting until done.
+     * The pool is not shut down, so may be used for other renders.
+     * Does nothing if the document has no root element.
+     */
+    public static void run(SharedContext context, Document doc, ForkJoinPool pool) {
+        Element root = doc.getDocumentElement();
+        if (root == null) {
+            return;
+        }
+
+        ParallelCascade cascade = new ParallelCascade(context);
+        cascade.collect(root);
+
+        pool.invoke(cascade.new StyleTask(0));
+    }
+
+    /**
+     * @return the parser for style attributes of the cascade running on this thread,
+     * or null if this thread is not running a cascade task.
+     */
+    static CSSParser getParser(StylesheetFactoryImpl factory) {
+        ParallelCascade cascade = CURRENT.get();
+        if (cascade == null) {
+            return null;
+        }
+
+        CSSParser parser = cascade._parsers.get();
+        if (parser == null) {
+            parser = factory.createParser();
+            cascade._parsers.set(parser);
+        }
+        return parser;
+    }
+
+    /**
+     * Lists the elements of the tree in document order, without recursion as trees may be deep.
+     */
+    private void collect(Element root) {
+        int[] open = new int[64];
+        int depth = 0;
+        Node node = root;
+
+        while (true) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = add((Element) node);
+
+                Node child = node.getFirstChild();
+                if (child != null) {
+                    node = child;
+                    continue;
+                }
+                _subtreeEnd[open[--depth]] = _count;
+            }
+
+            while (node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+                _subtreeEnd[open[--depth]] = _count;
+            }
+            if (node == root) {
+                break;
+            }
+            node = node.getNextSibling();
+        }
+    }
+
+    private int add(Element e) {
+        // Realize attribute values now, rather than on the threads.
+        if (e.hasAttributes()) {
+            NamedNodeMap attributes = e.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                attributes.item(i).getNodeValue();
+            }
+        }
+
+        if (_count == _elements.length) {
+            _elements = Arrays.copyOf(_elements, _count * 2);
+            _subtreeEnd = Arrays.copyOf(_subtreeEnd, _count * 2);
+        }
+        _elements[_count] = e;
+        return _count++;
+    }
+
+    /**
+     * Styles an element, then its children's subtrees.
+     */
+    private class StyleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int _index;
+
+        private StyleTask(int index) {
+            _index = index;
+        }
+
+        @Override
+        protected void compute() {
+            // A thread waiting in join may run tasks of another render sharing the pool,
+            // so what was registered before is restored after.
+            ParallelCascade previous = CURRENT.get();
+            SharedContext previousContext = ThreadCtx.get().getSharedContext();
+
+            CURRENT.set(ParallelCascade.this);
+            _context.registerWithThread();
+            try {
+                styleSubtree();
+            } finally {
+                ThreadCtx.get().setSharedContext(previousContext);
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        }
+
+        private void styleSubtree() {
+            _context.getStyle(_elements[_index]);
+
+            List<StyleTask> forked = null;
+            for (int child = _index + 1; child < _subtreeEnd[_index]; child = _subtreeEnd[child]) {
+                if (_subtreeEnd[child] - child >= MIN_FORK_SIZE) {
+                    if (forked == null) {
+                        forked = new ArrayList<StyleTask>();
+                    }
+                    StyleTask task = new StyleTask(child);
+                    task.fork();
+                    forked.add(task);
+                } else {
+                    // Document order styles each parent before its children.
+                    for (int i = child; i < _subtreeEnd[child]; i++) {
+                        _context.getStyle(_elements[i]);
+                    }
+                }
+            }
+
+            if (forked != null) {
+                for (StyleTask task : forked) {
+                    task.join();
+                }
+            }
+        }
+    }
+}
@@ -19,7 +19,6 @@
  */
 package com.openhtmltopdf.context;
 
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -39,10 +38,15 @@ import com.openhtmltopdf.css.parser.CSSPrimitiveValue;
 import com.openhtmltopdf.css.sheet.PropertyDeclaration;
 import com.openhtmltopdf.css.sheet.Stylesheet;
 import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Stage;
 import com.openhtmltopdf.extend.NamespaceHandler;
 import com.openhtmltopdf.extend.UserAgentCallback;
 import com.openhtmltopdf.extend.UserInterface;
 import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.util.RenderMetrics;
+import com.openhtmltopdf.util.RenderMetrics.StageTimer;
 import com.openhtmltopdf.util.XRLog;
 
 
@@ -72,6 +76,14 @@ public class StyleReference {
         _stylesheetFactory = new StylesheetFactoryImpl(userAgent);
     }
 
+    /**
+     * Use a cache of parsed stylesheets (by URI) which may be shared between renderers.
+     * @see StylesheetFactoryImpl#setSharedStylesheetCache(FSCacheEx)
+     */
+    public void setSharedStylesheetCache(FSCacheEx<String, FSCacheValue> cache) {
+        _stylesheetFactory.setSharedStylesheetCache(cache);
+    }
+
     /**
      * Sets the documentContext attribute of the StyleReference object
      *
@@ -86,9 +98,10 @@ public class StyleReference {
         _doc = doc;
         AttributeResolver attRes = new StandardAttributeResolver(_nsh, _uac, ui);
 
+        StageTimer timer = _context.getRenderMetrics().startStage(Stage.PARSE_CSS);
         List<StylesheetInfo> infos = getStylesheets();
         
-        XRLog.match("media = " + _context.getMedia());
+        XRLog.match(Level.INFO, () -> "media = " + _context.getMedia());
         
         _matcher = new com.openhtmltopdf.css.newmatch.Matcher(
                 new DOMTreeResolver(), 
@@ -96,6 +109,7 @@ public class StyleReference {
                 _stylesheetFactory, 
                 readAndParseAll(infos, _context.getMedia()), 
                 _context.getMedia());
+        timer.end();
     }
     
     private List<Stylesheet> readAndParseAll(List<StylesheetInfo> infos, String medium) {
@@ -181,6 +195,15 @@ public class StyleReference {
      */
     public CascadedStyle getCascadedStyle(Element e, boolean restyle) {
         if (e == null) return CascadedStyle.emptyCascadedStyle;
+
+        RenderMetrics metrics = _context.getRenderMetrics();
+        if (metrics.isEnabled()) {
+            long start = System.nanoTime();
+            CascadedStyle style = _matcher.getCascadedStyle(e, restyle);
+            metrics.addCascadeTime(System.nanoTime() - start);
+            return style;
+        }
+
         return _matcher.getCascadedStyle(e, restyle);
     }
     
@@ -240,8 +263,7 @@ public class StyleReference {
                     ref.setUri(uri);
                 } else {
                     ref.setUri(_uac.getBaseURL() + "#inline_style_" + (++inlineStyleCount));
-                    Stylesheet sheet = _stylesheetFactory.parse(
-                            new StringReader(ref.getContent()), ref);
+                    Stylesheet sheet = _stylesheetFactory.parse(ref.getContent(), ref);
                     ref.setStylesheet(sheet);
                     ref.setUri(null);
                 }
@@ -252,7 +274,7 @@ public class StyleReference {
         // TODO: here we should also get user stylesheet from userAgent
 
         long el = System.currentTimeMillis() - st;
-        XRLog.load("TIME: parse stylesheets  " + el + "ms");
+        XRLog.load(Level.INFO, () -> "TIME: parse stylesheets  " + el + "ms");
 
         return infos;
     }
@@ -29,6 +29,9 @@ import com.openhtmltopdf.css.parser.CSSParser;
 import com.openhtmltopdf.css.sheet.Ruleset;
 import com.openhtmltopdf.css.sheet.Stylesheet;
 import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.impl.FSNoOpCacheStore;
 import com.openhtmltopdf.extend.UserAgentCallback;
 import com.openhtmltopdf.resource.CSSResource;
 import com.openhtmltopdf.util.XRLog;
@@ -62,13 +65,30 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
             
     private CSSParser _cssParser;
 
+    private boolean _supportCMYKColors;
+
+    /**
+     * An optional cache of parsed sheets by URI, which may be shared between renderers.
+     */
+    private FSCacheEx<String, FSCacheValue> _sharedCache = FSNoOpCacheStore.INSTANCE;
+
     public StylesheetFactoryImpl(UserAgentCallback userAgentCallback) {
         _userAgentCallback = userAgentCallback;
-        _cssParser = new CSSParser(new CSSErrorHandler() {
+        _cssParser = createParser();
+    }
+
+    /**
+     * Creates a parser configured as the one used for all sheets, for threads
+     * that can't share it.
+     */
+    CSSParser createParser() {
+        CSSParser parser = new CSSParser(new CSSErrorHandler() {
             public void error(String uri, String message) {
                 XRLog.cssParse(Level.WARNING, "(" + uri + ") " + message);
             }
         });
+        parser.setSupportCMYKColors(_supportCMYKColors);
+        return parser;
     }
 
     public Stylesheet parse(Reader reader, StylesheetInfo info) {
@@ -80,6 +100,18 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
         }
     }
 
+    /**
+     * Parses a style sheet held in a string, such as an inline style element.
+     */
+    public Stylesheet parse(String css, StylesheetInfo info) {
+        try {
+            return _cssParser.parseStylesheet(info.getUri(), info.getOrigin(), css);
+        } catch (IOException e) {
+            XRLog.cssParse(Level.WARNING, "Couldn't parse stylesheet at URI " + info.getUri() + ": " + e.getMessage(), e);
+            return new Stylesheet(info.getUri(), info.getOrigin());
+        }
+    }
+
     /**
      * @return Returns null if uri could not be loaded
      */
@@ -106,6 +138,11 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
     }
 
     public Ruleset parseStyleDeclaration(int origin, String styleDeclaration) {
+        // Style attributes are parsed during the cascade, which may run on several threads.
+        CSSParser parser = ParallelCascade.getParser(this);
+        if (parser != null) {
+            return parser.parseDeclaration(origin, styleDeclaration);
+        }
         return _cssParser.parseDeclaration(origin, styleDeclaration);
     }
 
@@ -170,21 +207,55 @@ public class StylesheetFactoryImpl implements StylesheetFactory {
      */
     //TODO: this looks a bit odd
     public Stylesheet getStylesheet(StylesheetInfo info) {
-        XRLog.load("Requesting stylesheet: " + info.getUri());
+        XRLog.load(Level.INFO, () -> "Requesting stylesheet: " + info.getUri());
 
         Stylesheet s = getCachedStylesheet(info.getUri());
         if (s == null && !containsStylesheet(info.getUri())) {
-            s = parse(info);
+            s = getSharedStylesheet(info);
             putStylesheet(info.getUri(), s);
         }
         return s;
     }
 
+    /**
+     * The key of a parsed sheet in the shared stylesheet cache. Sheets are keyed by origin
+     * as well as URI, as the origin decides the cascade order of their rules.
+     * @param origin user-agent, user or author from <code>StylesheetInfo</code>
+     */
+    public static String getSharedCacheKey(int origin, String uri) {
+        return origin + ":" + uri;
+    }
+
+    private Stylesheet getSharedStylesheet(StylesheetInfo info) {
+        String key = getSharedCacheKey(info.getOrigin(), info.getUri());
+        FSCacheValue value = _sharedCache.get(key);
+
+        if (value instanceof Stylesheet) {
+            return (Stylesheet) value;
+        }
+
+        Stylesheet sheet = parse(info);
+        if (sheet != null) {
+            _sharedCache.put(key, sheet);
+        }
+        return sheet;
+    }
+
+    /**
+     * Use a cache of parsed sheets keyed by origin and URI (see {@link #getSharedCacheKey(int, String)}), which may be shared between renderers.
+     * Parsed sheets are not changed by matching, so they can be used by concurrent renders.
+     * Only sheets loaded by URI are cached, not inline style elements.
+     */
+    public void setSharedStylesheetCache(FSCacheEx<String, FSCacheValue> cache) {
+        _sharedCache = cache;
+    }
+
     public void setUserAgentCallback(UserAgentCallback userAgent) {
         _userAgentCallback = userAgent;
     }
     
     public void setSupportCMYKColors(boolean b) {
+        _supportCMYKColors = b;
         _cssParser.setSupportCMYKColors(b);
     }
 }
@@ -20,6 +20,7 @@
  */
 package com.openhtmltopdf.css.constants;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
@@ -117,6 +118,12 @@ public final class CSSName implements Comparable {
      */
     private static final Map ALL_PROPERTY_NAMES = new TreeMap();
 
+    /**
+     * The same as {@link #ALL_PROPERTY_NAMES}, for looking up properties while parsing,
+     * which a hash map does faster than comparing names one char at a time.
+     */
+    private static final Map<String, CSSName> PROPERTIES_BY_NAME = new HashMap<String, CSSName>();
+
     /**
      * Map of all non-shorthand CSS properties
      */
@@ -1516,6 +1523,19 @@ public final class CSSName implements Comparable {
                     new PrimitivePropertyBuilders.FSOverflowPagesDirection()
              );
 
+    /**
+     * The number of body rows of an auto layout table measured to find its
+     * column widths, or zero (default) to measure every row.
+     */
+    public final static CSSName FS_TABLE_LAYOUT_SAMPLE =
+            addProperty(
+                    "-fs-table-layout-sample",
+                    PRIMITIVE,
+                    "0",
+                    NOT_INHERITED,
+                    new PrimitivePropertyBuilders.FSTableLayoutSample()
+            );
+
 
     /**
      * Unique CSSName instance for CSS2 property.
@@ -1878,7 +1898,7 @@ public final class CSSName implements Comparable {
      */
     public static CSSName getByPropertyName(String propName) {
 
-        return (CSSName) ALL_PROPERTY_NAMES.get(propName);
+        return PROPERTIES_BY_NAME.get(propName);
     }
 
     public static CSSName getByID(int id) {
@@ -1918,6 +1938,7 @@ public final class CSSName implements Comparable {
                 propName, initialValue, (inherit == INHERITS), implemented, builder);
 
         ALL_PROPERTY_NAMES.put(propName, cssName);
+        PROPERTIES_BY_NAME.put(propName, cssName);
 
         if (type == PRIMITIVE) {
             ALL_PRIMITIVE_PROPERTY_NAMES.put(propName, cssName);
@@ -21,10 +21,10 @@ package com.openhtmltopdf.css.extend.lib;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import com.openhtmltopdf.css.extend.TreeResolver;
 
@@ -37,8 +37,10 @@ public class DOMTreeResolver implements TreeResolver {
     /**
      * We cache element positions for nth-child, odd and even condition matchers.
      * To avoid scaling with the square of the number of children elements.
+     * Concurrent, as elements may be matched on several threads, see
+     * {@link com.openhtmltopdf.context.ParallelCascade}.
      */
-    private final Map<Node, Map<Node, Integer>> cachedPositions = new HashMap<>();
+    private final Map<Node, Map<Node, Integer>> cachedPositions = new ConcurrentHashMap<>();
     
     public Object getParentElement(Object element) {
         Node parent = ((org.w3c.dom.Element) element).getParentNode();
@@ -108,15 +110,12 @@ public class DOMTreeResolver implements TreeResolver {
         Map<Node, Integer> positions = cachedPositions.get(parent);
         
         if (positions == null) {
-            NodeList nl = parent.getChildNodes();
-            int len = nl.getLength();
-            
+            // Walk the siblings rather than use getChildNodes, as the node list
+            // of a Xerces DOM caches into the parent.
             positions = new HashMap<>();
             
             int pos = 0;
-            for (int i = 0; i < len; i++) {
-                Node n = nl.item(i);
-                
+            for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
                 if (n.getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
                     positions.put(n, pos++);
                 }
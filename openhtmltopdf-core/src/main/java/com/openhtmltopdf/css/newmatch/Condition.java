@@ -19,14 +19,20 @@
  */
 package com.openhtmltopdf.css.newmatch;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.openhtmltopdf.css.extend.AttributeResolver;
 import com.openhtmltopdf.css.extend.TreeResolver;
 import com.openhtmltopdf.css.parser.CSSParseException;
+import com.openhtmltopdf.css.sheet.BinaryStylesheet;
 
 
 /**
@@ -38,6 +44,13 @@ abstract class Condition {
 
     abstract boolean matches(Object e, AttributeResolver attRes, TreeResolver treeRes);
 
+    /**
+     * @return the {@link SelectorFilter} bits an element needs to match this condition, or 0.
+     */
+    long getFilterBits() {
+        return 0;
+    }
+
     /**
      * the CSS condition [attribute]
      *
@@ -191,6 +204,148 @@ abstract class Condition {
     static Condition createUnsupportedCondition() {
         return new UnsupportedCondition();
     }
+
+    private static final int ATTRIBUTE_EXISTS = 1;
+    private static final int ATTRIBUTE_EQUALS = 2;
+    private static final int ATTRIBUTE_PREFIX = 3;
+    private static final int ATTRIBUTE_SUFFIX = 4;
+    private static final int ATTRIBUTE_SUBSTRING = 5;
+    private static final int ATTRIBUTE_MATCHES_LIST = 6;
+    private static final int ATTRIBUTE_MATCHES_FIRST_PART = 7;
+    private static final int CLASS = 8;
+    private static final int ID = 9;
+    private static final int LANG = 10;
+    private static final int FIRST_CHILD = 11;
+    private static final int LAST_CHILD = 12;
+    private static final int NTH_CHILD = 13;
+    private static final int EVEN_CHILD = 14;
+    private static final int ODD_CHILD = 15;
+    private static final int LINK = 16;
+    private static final int UNSUPPORTED = 17;
+
+    /**
+     * Writes a condition in the binary stylesheet format, see {@link #read(ByteBuffer, IntFunction)}.
+     * Strings are written as their index in the string table of the stylesheet,
+     * see {@link BinaryStylesheet}.
+     */
+    static void write(Condition c, DataOutput out, ToIntFunction<String> strings) throws IOException {
+        if (c instanceof AttributeCompareCondition) {
+            AttributeCompareCondition attr = (AttributeCompareCondition) c;
+            int type;
+            if (c instanceof AttributeExistsCondition) {
+                type = ATTRIBUTE_EXISTS;
+            } else if (c instanceof AttributeEqualsCondition) {
+                type = ATTRIBUTE_EQUALS;
+            } else if (c instanceof AttributePrefixCondition) {
+                type = ATTRIBUTE_PREFIX;
+            } else if (c instanceof AttributeSuffixCondition) {
+                type = ATTRIBUTE_SUFFIX;
+            } else if (c instanceof AttributeSubstringCondition) {
+                type = ATTRIBUTE_SUBSTRING;
+            } else if (c instanceof AttributeMatchesListCondition) {
+                type = ATTRIBUTE_MATCHES_LIST;
+            } else if (c instanceof AttributeMatchesFirstPartCondition) {
+                type = ATTRIBUTE_MATCHES_FIRST_PART;
+            } else {
+                throw new IllegalArgumentException("Unknown attribute condition: " + c.getClass());
+            }
+            out.writeByte(type);
+            BinaryStylesheet.writeVarInt(out, strings.applyAsInt(attr._namespaceURI));
+            BinaryStylesheet.writeVarInt(out, strings.applyAsInt(attr._name));
+            BinaryStylesheet.writeVarInt(out, strings.applyAsInt(attr._value));
+        } else if (c instanceof ClassCondition) {
+            String padded = ((ClassCondition) c)._paddedClassName;
+            out.writeByte(CLASS);
+            BinaryStylesheet.writeVarInt(out, strings.applyAsInt(padded.substring(1, padded.length() - 1)));
+        } else if (c instanceof IDCondition) {
+            out.writeByte(ID);
+            BinaryStylesheet.writeVarInt(out, strings.applyAsInt(((IDCondition) c)._id));
+        } else if (c instanceof LangCondition) {
+            out.writeByte(LANG);
+            BinaryStylesheet.writeVarInt(out, strings.applyAsInt(((LangCondition) c)._lang));
+        } else if (c instanceof NthChildCondition) {
+            out.writeByte(NTH_CHILD);
+            out.writeInt(((NthChildCondition) c).a);
+            out.writeInt(((NthChildCondition) c).b);
+        } else if (c instanceof FirstChildCondition) {
+            out.writeByte(FIRST_CHILD);
+        } else if (c instanceof LastChildCondition) {
+            out.writeByte(LAST_CHILD);
+        } else if (c instanceof EvenChildCondition) {
+            out.writeByte(EVEN_CHILD);
+        } else if (c instanceof OddChildCondition) {
+            out.writeByte(ODD_CHILD);
+        } else if (c instanceof LinkCondition) {
+            out.writeByte(LINK);
+        } else if (c instanceof UnsupportedCondition) {
+            out.writeByte(UNSUPPORTED);
+        } else {
+            throw new IllegalArgumentException("Unknown condition: " + c.getClass());
+        }
+    }
+
+    /**
+     * Reads a condition written by {@link #write(Condition, DataOutput, ToIntFunction)}.
+     */
+    static Condition read(ByteBuffer in, IntFunction<String> strings) {
+        int type = in.get();
+
+        switch (type) {
+        case ATTRIBUTE_EXISTS:
+        case ATTRIBUTE_EQUALS:
+        case ATTRIBUTE_PREFIX:
+        case ATTRIBUTE_SUFFIX:
+        case ATTRIBUTE_SUBSTRING:
+        case ATTRIBUTE_MATCHES_LIST:
+        case ATTRIBUTE_MATCHES_FIRST_PART: {
+            String namespaceURI = strings.apply(BinaryStylesheet.readVarInt(in));
+            String name = strings.apply(BinaryStylesheet.readVarInt(in));
+            String value = strings.apply(BinaryStylesheet.readVarInt(in));
+
+            switch (type) {
+            case ATTRIBUTE_EXISTS:
+                return createAttributeExistsCondition(namespaceURI, name);
+            case ATTRIBUTE_EQUALS:
+                return createAttributeEqualsCondition(namespaceURI, name, value);
+            case ATTRIBUTE_PREFIX:
+                return createAttributePrefixCondition(namespaceURI, name, value);
+            case ATTRIBUTE_SUFFIX:
+                return createAttributeSuffixCondition(namespaceURI, name, value);
+            case ATTRIBUTE_SUBSTRING:
+                return createAttributeSubstringCondition(namespaceURI, name, value);
+            case ATTRIBUTE_MATCHES_LIST:
+                return createAttributeMatchesListCondition(namespaceURI, name, value);
+            default:
+                return createAttributeMatchesFirstPartCondition(namespaceURI, name, value);
+            }
+        }
+        case CLASS:
+            return createClassCondition(strings.apply(BinaryStylesheet.readVarInt(in)));
+        case ID:
+            return createIDCondition(strings.apply(BinaryStylesheet.readVarInt(in)));
+        case LANG:
+            return createLangCondition(strings.apply(BinaryStylesheet.readVarInt(in)));
+        case NTH_CHILD: {
+            int a = in.getInt();
+            int b = in.getInt();
+            return new NthChildCondition(a, b);
+        }
+        case FIRST_CHILD:
+            return createFirstChildCondition();
+        case LAST_CHILD:
+            return createLastChildCondition();
+        case EVEN_CHILD:
+            return createEvenChildCondition();
+        case ODD_CHILD:
+            return createOddChildCondition();
+        case LINK:
+            return createLinkCondition();
+        case UNSUPPORTED:
+            return createUnsupportedCondition();
+        default:
+            throw new IllegalArgumentException("Unknown condition type: " + type);
+        }
+    }
     
     private static abstract class AttributeCompareCondition extends Condition {
         protected String _namespaceURI;
@@ -334,6 +489,11 @@ abstract class Condition {
             // in an XML DOM, space normalization in attributes is supposed to have happened already.
             return (" " + c + " ").indexOf(_paddedClassName) != -1;
         }
+
+        @Override
+        long getFilterBits() {
+            return SelectorFilter.classBits(_paddedClassName.substring(1, _paddedClassName.length() - 1));
+        }
     }
 
     private static class IDCondition extends Condition {
@@ -353,6 +513,11 @@ abstract class Condition {
             }
             return true;
         }
+
+        @Override
+        long getFilterBits() {
+            return SelectorFilter.bits(SelectorFilter.ID, _id);
+        }
     }
 
     private static class LangCondition extends Condition {
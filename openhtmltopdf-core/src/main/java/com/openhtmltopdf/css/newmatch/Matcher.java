@@ -28,6 +28,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 import com.openhtmltopdf.css.constants.MarginBoxName;
 import com.openhtmltopdf.css.extend.AttributeResolver;
@@ -150,22 +152,20 @@ public class Matcher {
     Mapper createDocumentMapper(List<Stylesheet> stylesheets, String medium) {
         java.util.TreeMap<String,Selector> sorter = new java.util.TreeMap<String,Selector>();
         addAllStylesheets(stylesheets, sorter, medium);
-        XRLog.match("Matcher created with " + sorter.size() + " selectors");
+        XRLog.match(Level.INFO, () -> "Matcher created with " + sorter.size() + " selectors");
         return new Mapper(sorter.values());
     }
     
     private void addAllStylesheets(List<Stylesheet> stylesheets, TreeMap<String, Selector> sorter, String medium) {
         int count = 0;
-        int pCount = 0;
         for (Stylesheet stylesheet : stylesheets) {
             for (Object obj : stylesheet.getContents()) {
                 if (obj instanceof Ruleset) {
                     for (Selector selector : ((Ruleset) obj).getFSSelectors()) {
-                        selector.setPos(++count);
-                        sorter.put(selector.getOrder(), selector);
+                        sorter.put(selector.getOrder(++count), selector);
                     }
                 } else if (obj instanceof PageRule) {
-                    ((PageRule) obj).setPos(++pCount);
+                    // NOTE: Position is given by the order in _pageRules, see sort below.
                     _pageRules.add((PageRule) obj);
                 } else if (obj instanceof MediaRule) {
                     MediaRule mediaRule = (MediaRule) obj;
@@ -174,8 +174,7 @@ public class Matcher {
                             Ruleset ruleset = (Ruleset) o;
                             for (Object o1 : ruleset.getFSSelectors()) {
                                 Selector selector = (Selector) o1;
-                                selector.setPos(++count);
-                                sorter.put(selector.getOrder(), selector);
+                                sorter.put(selector.getOrder(++count), selector);
                             }
                         }
                     }
@@ -185,6 +184,9 @@ public class Matcher {
             _fontFaceRules.addAll(stylesheet.getFontFaceRules());
         }
         
+        // We don't set positions on the rules themselves, as stylesheets may be
+        // shared between concurrent renders. Instead we rely on the sort being
+        // stable to keep page rules of equal specificity in document order.
         Collections.sort(_pageRules, new Comparator<PageRule>() {
             public int compare(PageRule p1, PageRule p2) {
                 if (p1.getOrder() - p2.getOrder() < 0) {
@@ -203,11 +205,13 @@ public class Matcher {
     }
 
     private void newMaps() {
-        _map = new java.util.HashMap<Object, Mapper>();
-        _hoverElements = new java.util.HashSet<Object>();
-        _activeElements = new java.util.HashSet<Object>();
-        _focusElements = new java.util.HashSet<Object>();
-        _visitElements = new java.util.HashSet<Object>();
+        // Concurrent, as elements may be matched on several threads, see
+        // com.openhtmltopdf.context.ParallelCascade.
+        _map = new ConcurrentHashMap<Object, Mapper>();
+        _hoverElements = ConcurrentHashMap.newKeySet();
+        _activeElements = ConcurrentHashMap.newKeySet();
+        _focusElements = ConcurrentHashMap.newKeySet();
+        _visitElements = ConcurrentHashMap.newKeySet();
     }
 
     private Mapper getMapper(Object e) {
@@ -257,7 +261,7 @@ public class Matcher {
         java.util.List<Selector> axes;
         private HashMap<String,List<Selector>> pseudoSelectors;
         private List<Selector> mappedSelectors;
-        private Map<String,Mapper> children;
+        private final Map<String,Mapper> children = new ConcurrentHashMap<String,Mapper>();
 
         Mapper(java.util.Collection<Selector> selectors) {
             axes = new java.util.ArrayList<Selector>(selectors);
@@ -279,6 +283,7 @@ public class Matcher {
             java.util.HashMap<String,List<Selector>> pseudoSelectors = new java.util.HashMap<String,List<Selector>>();
             java.util.List<Selector> mappedSelectors = new java.util.ArrayList<Selector>();
             StringBuilder key = new StringBuilder();
+            long signature = SelectorFilter.signature(e, _attRes, _treeRes);
             for (Selector sel : axes) {
                 if (sel.getAxis() == Selector.DESCENDANT_AXIS) {
                     //carry it forward to other descendants
@@ -286,7 +291,7 @@ public class Matcher {
                 } else if (sel.getAxis() == Selector.IMMEDIATE_SIBLING_AXIS) {
                     throw new RuntimeException();
                 }
-                if (!sel.matches(e, _attRes, _treeRes)) {
+                if (!sel.mayMatch(signature) || !sel.matches(e, _attRes, _treeRes)) {
                     continue;
                 }
                 //Assumption: if it is a pseudo-element, it does not also have dynamic pseudo-class
@@ -326,14 +331,18 @@ public class Matcher {
                     childAxes.add(chain);
                 }
             }
-            if (children == null) children = new HashMap<String,Mapper>();
-            Mapper childMapper = children.get(key.toString());
+            String childKey = key.toString();
+            Mapper childMapper = children.get(childKey);
             if (childMapper == null) {
                 childMapper = new Mapper();
                 childMapper.axes = childAxes;
                 childMapper.pseudoSelectors = pseudoSelectors;
                 childMapper.mappedSelectors = mappedSelectors;
-                children.put(key.toString(), childMapper);
+                // Another thread may have mapped a sibling with the same key meanwhile.
+                Mapper existing = children.putIfAbsent(childKey, childMapper);
+                if (existing != null) {
+                    childMapper = existing;
+                }
             }
             link(e, childMapper);
             return childMapper;
@@ -21,9 +21,16 @@ package com.openhtmltopdf.css.newmatch;
 
 import com.openhtmltopdf.css.extend.AttributeResolver;
 import com.openhtmltopdf.css.extend.TreeResolver;
+import com.openhtmltopdf.css.sheet.BinaryStylesheet;
 import com.openhtmltopdf.css.sheet.Ruleset;
 import com.openhtmltopdf.util.XRLog;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 
 
@@ -49,10 +56,15 @@ public class Selector {
     private int _specificityC;
     private int _specificityD;
 
-    private int _pos;//to distinguish between selectors of same specificity
+    private int _pos;//only kept for the deprecated setPos, the matcher passes positions to getOrder
 
     private java.util.List<Condition> conditions;
 
+    /**
+     * The {@link SelectorFilter} bits of the name and conditions of this selector.
+     */
+    private long _filterBits;
+
     public final static int DESCENDANT_AXIS = 0;
     public final static int CHILD_AXIS = 1;
     public final static int IMMEDIATE_SIBLING_AXIS = 2;
@@ -100,6 +112,16 @@ public class Selector {
         return false;
     }
 
+    /**
+     * A quick check before {@link #matches(Object, AttributeResolver, TreeResolver)}.
+     *
+     * @param signature the {@link SelectorFilter} signature of the element
+     * @return false if the element can't match this selector, true if it may.
+     */
+    boolean mayMatch(long signature) {
+        return (_filterBits & ~signature) == 0;
+    }
+
     /**
      * Check if the given Element matches this selector's dynamic properties.
      * Note: the parser should give all class
@@ -381,16 +403,18 @@ public class Selector {
      * returns "a number in a large base" with specificity and specification
      * order of selector
      *
+     * @param pos the position of this selector in the stylesheets being matched.
+     * This is passed in rather than set, as a stylesheet may be shared between matchers.
      * @return The order value
      */
-    String getOrder() {
+    String getOrder(int pos) {
         if (chainedSelector != null) {
-            return chainedSelector.getOrder();
+            return chainedSelector.getOrder(pos);
         }//only "deepest" value is correct
         String b = "000" + getSpecificityB();
         String c = "000" + getSpecificityC();
         String d = "000" + getSpecificityD();
-        String p = "00000" + _pos;
+        String p = "00000" + pos;
         return "0" + b.substring(b.length() - 3) + c.substring(c.length() - 3) + d.substring(d.length() - 3) + p.substring(p.length() - 5);
     }
 
@@ -420,13 +444,14 @@ public class Selector {
      */
     private void addCondition(Condition c) {
         if (conditions == null) {
-            conditions = new java.util.ArrayList<Condition>();
+            conditions = new ArrayList<Condition>();
         }
         if (_pe != null) {
             conditions.add(Condition.createUnsupportedCondition());
             XRLog.match(Level.WARNING, "Trying to append conditions to pseudoElement " + _pe);
         }
         conditions.add(c);
+        _filterBits |= c.getFilterBits();
     }
 
     /**
@@ -445,8 +470,16 @@ public class Selector {
     public void setName(String name) {
         _name = name;
         _specificityD++;
+        if (name != null) {
+            _filterBits |= SelectorFilter.bits(SelectorFilter.ELEMENT_NAME, name);
+        }
     }
     
+    /**
+     * @deprecated No longer used by the matcher, which passes the position to {@link #getOrder(int)}
+     * so that a stylesheet may be shared between matchers.
+     */
+    @Deprecated
     public void setPos(int pos) {
         _pos = pos;
         if (siblingSelector != null) {
@@ -488,5 +521,80 @@ public class Selector {
     public void setNamespaceURI(String namespaceURI) {
         _namespaceURI = namespaceURI;
     }
-}
 
+    /**
+     * Writes this selector, with its sibling and chained selectors, for
+     * {@link BinaryStylesheet}. Strings are written as their
+     * index in the string table of the stylesheet.
+     */
+    public void write(DataOutput out, ToIntFunction<String> strings) throws IOException {
+        BinaryStylesheet.writeVarInt(out, strings.applyAsInt(_name));
+        BinaryStylesheet.writeVarInt(out, strings.applyAsInt(_namespaceURI));
+        BinaryStylesheet.writeVarInt(out, strings.applyAsInt(_pe));
+        BinaryStylesheet.writeVarInt(out, _axis);
+        BinaryStylesheet.writeVarInt(out, _pc);
+        BinaryStylesheet.writeVarInt(out, _specificityB);
+        BinaryStylesheet.writeVarInt(out, _specificityC);
+        BinaryStylesheet.writeVarInt(out, _specificityD);
+
+        int conditionCount = conditions == null ? 0 : conditions.size();
+        BinaryStylesheet.writeVarInt(out, conditionCount);
+        for (int i = 0; i < conditionCount; i++) {
+            Condition.write(conditions.get(i), out, strings);
+        }
+
+        out.writeBoolean(siblingSelector != null);
+        if (siblingSelector != null) {
+            siblingSelector.write(out, strings);
+        }
+
+        out.writeBoolean(chainedSelector != null);
+        if (chainedSelector != null) {
+            chainedSelector.write(out, strings);
+        }
+    }
+
+    /**
+     * Reads a selector written by {@link #write(DataOutput, ToIntFunction)}. Specificity is
+     * restored as written, rather than recounted from the name and conditions.
+     */
+    public static Selector read(ByteBuffer in, IntFunction<String> strings, Ruleset parent) {
+        Selector s = new Selector();
+        s._parent = parent;
+        s._name = strings.apply(BinaryStylesheet.readVarInt(in));
+        s._namespaceURI = strings.apply(BinaryStylesheet.readVarInt(in));
+        s._pe = strings.apply(BinaryStylesheet.readVarInt(in));
+        s._axis = BinaryStylesheet.readVarInt(in);
+        s._pc = BinaryStylesheet.readVarInt(in);
+        s._specificityB = BinaryStylesheet.readVarInt(in);
+        s._specificityC = BinaryStylesheet.readVarInt(in);
+        s._specificityD = BinaryStylesheet.readVarInt(in);
+
+        int conditionCount = BinaryStylesheet.readVarInt(in);
+        if (conditionCount > 0) {
+            s.conditions = new ArrayList<Condition>(conditionCount);
+            for (int i = 0; i < conditionCount; i++) {
+                s.conditions.add(Condition.read(in, strings));
+            }
+        }
+
+        if (s._name != null) {
+            s._filterBits |= SelectorFilter.bits(SelectorFilter.ELEMENT_NAME, s._name);
+        }
+        if (s.conditions != null) {
+            for (Condition c : s.conditions) {
+                s._filterBits |= c.getFilterBits();
+            }
+        }
+
+        if (in.get() != 0) {
+            s.siblingSelector = read(in, strings, parent);
+        }
+
+        if (in.get() != 0) {
+            s.chainedSelector = read(in, strings, parent);
+        }
+
+        return s;
+    }
+}
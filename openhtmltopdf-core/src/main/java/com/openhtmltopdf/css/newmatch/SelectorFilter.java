@@ -0,0 +1,82 @@
+package com.openhtmltopdf.css.newmatch;
+
+import com.openhtmltopdf.css.extend.AttributeResolver;
+import com.openhtmltopdf.css.extend.TreeResolver;
+
+/**
+ * A 64 bit Bloom filter of the element name, id and classes of an element, so the
+ * {@link Matcher} can rule out most selectors with one mask test instead of calling
+ * {@link Selector#matches(Object, AttributeResolver, TreeResolver)}.
+ * <br><br>
+ * Each selector keeps the bits of the name, id and classes it requires, see
+ * {@link Selector#mayMatch(long)}. A required bit missing from the element signature means
+ * the selector can't match, while all bits present only means it may.
+ */
+final class SelectorFilter {
+    static final int ELEMENT_NAME = 1;
+    static final int ID = 2;
+    static final int CLASS = 3;
+
+    private SelectorFilter() {
+    }
+
+    /**
+     * @return two bits for a name, id or class.
+     */
+    static long bits(int kind, String value) {
+        int h = value.hashCode() * 31 + kind;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return (1L << (h & 63)) | (1L << ((h >>> 6) & 63));
+    }
+
+    /**
+     * @return the bits of a class name, or 0 if it can't be filtered.
+     */
+    static long classBits(String className) {
+        // A class condition matches a space separated item of the class attribute,
+        // so an escaped space in the class name spans items.
+        if (className.isEmpty() || className.indexOf(' ') != -1) {
+            return 0;
+        }
+        return bits(CLASS, className);
+    }
+
+    /**
+     * @return the signature of an element, which is the bits of its name, id and classes.
+     */
+    static long signature(Object e, AttributeResolver attRes, TreeResolver treeRes) {
+        long result = 0;
+
+        String name = treeRes.getElementName(e);
+        if (name != null) {
+            result |= bits(ELEMENT_NAME, name);
+        }
+
+        if (attRes != null) {
+            String id = attRes.getID(e);
+            if (id != null) {
+                result |= bits(ID, id);
+            }
+
+            String classes = attRes.getClass(e);
+            if (classes != null) {
+                int start = 0;
+                int length = classes.length();
+                while (start < length) {
+                    int end = classes.indexOf(' ', start);
+                    if (end == -1) {
+                        end = length;
+                    }
+                    if (end > start) {
+                        result |= bits(CLASS, classes.substring(start, end));
+                    }
+                    start = end + 1;
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -63,6 +63,8 @@ public class CSSParser {
     private Map _namespaces = new HashMap();
     private boolean _supportCMYKColors;
 
+    private final IdentifierCache _identifiers = new IdentifierCache();
+
     public CSSParser(CSSErrorHandler errorHandler) {
         _lexer = new Lexer(new StringReader(""));
         _errorHandler = errorHandler;
@@ -79,10 +81,26 @@ public class CSSParser {
         return result;
     }
 
+    /**
+     * Parses a style sheet held in a string, such as the content of a <code>style</code> element.
+     * This is faster than parsing from a reader, as the text does not have to be copied in
+     * chunks.
+     */
+    public Stylesheet parseStylesheet(String uri, int origin, String css)
+            throws IOException {
+        _URI = uri;
+        reset(css);
+
+        Stylesheet result = new Stylesheet(uri, origin);
+        stylesheet(result);
+
+        return result;
+    }
+
     public Ruleset parseDeclaration(int origin, String text) {
         try {
             _URI = ThreadCtx.get().sharedContext().getBaseURL();
-            reset(new StringReader(text));
+            reset(text);
 
             skip_whitespace();
 
@@ -104,7 +122,7 @@ public class CSSParser {
     public PropertyValue parsePropertyValue(CSSName cssName, int origin, String expr) {
         _URI = cssName + " property value";
         try {
-            reset(new StringReader(expr));
+            reset(expr);
             List values = expr(
                     cssName == CSSName.FONT_FAMILY ||
                     cssName == CSSName.FONT_SHORTHAND ||
@@ -1407,6 +1425,47 @@ public class CSSParser {
         return result;
     }
 
+    /**
+     * Parses the number at the start of the current token without creating a string for it.
+     * Numbers in CSS are digits with an optional fraction, so when the digits fit in the
+     * float mantissa, dividing by a power of ten gives the same (correctly rounded) result as
+     * {@link Float#parseFloat(String)}.
+     */
+    private float parseNumber() {
+        char[] ch = _lexer.yybuffer();
+        int start = _lexer.yystart();
+        int end = start + _lexer.yylength();
+
+        long mantissa = 0;
+        int fractionDigits = -1;
+        int i = start;
+        for (; i < end; i++) {
+            char c = ch[i];
+            if (c == '.' && fractionDigits == -1) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (mantissa < 1 << 24) {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (fractionDigits != -1) {
+                    fractionDigits++;
+                }
+            } else {
+                break;
+            }
+        }
+
+        if (mantissa >= 1 << 24 || fractionDigits >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(new String(ch, start, i - start));
+        }
+
+        return fractionDigits <= 0 ? mantissa : mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+    }
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+        1f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
     private String extractNumber(Token t) {
         String token = getTokenValue(t);
 
@@ -1439,8 +1498,8 @@ public class CSSParser {
         return getTokenValue(t).substring(s.length());
     }
 
-    private String sign(float sign) {
-        return sign == -1.0f ? "-" : "";
+    private static String signed(float sign, String text) {
+        return sign == -1.0f ? "-" + text : text;
     }
 
 //  term
@@ -1466,8 +1525,8 @@ public class CSSParser {
             case Token.NUMBER:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_NUMBER,
-                        sign*Float.parseFloat(getTokenValue(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
@@ -1484,80 +1543,80 @@ public class CSSParser {
             	
                 result = new PropertyValue(
                         type,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.PERCENTAGE:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_PERCENTAGE,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.EMS:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_EMS,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.EXS:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_EXS,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.PX:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_PX,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.CM:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_CM,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.MM:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_MM,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.IN:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_IN,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.PT:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_PT,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
             case Token.PC:
                 result = new PropertyValue(
                         CSSPrimitiveValue.CSS_PC,
-                        sign*Float.parseFloat(extractNumber(t)),
-                        sign(sign) + getTokenValue(t));
+                        sign*parseNumber(),
+                        signed(sign, getTokenValue(t)));
                 next();
                 skip_whitespace();
                 break;
@@ -1890,6 +1949,13 @@ public class CSSParser {
         _lexer.setyyline(0);
     }
 
+    public void reset(String text) {
+        _saved = null;
+        _namespaces.clear();
+        _lexer.yyreset(text);
+        _lexer.setyyline(0);
+    }
+
     public CSSErrorHandler getErrorHandler() {
         return _errorHandler;
     }
@@ -1906,19 +1972,22 @@ public class CSSParser {
         return getTokenValue(t, false);
     }
 
+    /**
+     * Returns the value of the current token. The token is read straight from the lexer buffer,
+     * and short tokens without escapes come from {@link #_identifiers}, so most calls
+     * do not create a new string.
+     */
     private String getTokenValue(Token t, boolean literal) {
-        int start;
-        int count;
+        char[] ch = _lexer.yybuffer();
+        int start = _lexer.yystart();
+        int limit = start + _lexer.yylength();
         switch (t.getType()) {
             case Token.STRING:
-                count = _lexer.yylength();
-                return processEscapes(_lexer.yytext().toCharArray(), 1, count-1);
+                return processEscapes(ch, start + 1, limit - 1, limit);
             case Token.HASH:
-                count = _lexer.yylength();
-                return processEscapes(_lexer.yytext().toCharArray(), 1, count);
+                return processEscapes(ch, start + 1, limit, limit);
             case Token.URI:
-                char[] ch = _lexer.yytext().toCharArray();
-                start = 4;
+                start += 4;
                 while (ch[start] == '\t' || ch[start] == '\r' ||
                         ch[start] == '\n' || ch[start] == '\f') {
                     start++;
@@ -1926,7 +1995,7 @@ public class CSSParser {
                 if (ch[start] == '\'' || ch[start] == '"') {
                     start++;
                 }
-                int end = ch.length-2;
+                int end = limit-2;
                 while (ch[end] == '\t' || ch[end] == '\r' ||
                         ch[end] == '\n' || ch[end] == '\f') {
                     end--;
@@ -1935,7 +2004,7 @@ public class CSSParser {
                     end--;
                 }
 
-                String uriResult = processEscapes(ch, start, end+1);
+                String uriResult = processEscapes(ch, start, end+1, limit);
                 String uriResolved = ThreadCtx.get().sharedContext().getUserAgentCallback().resolveUri(_URI, uriResult);
 
                 if (uriResolved == null) {
@@ -1946,21 +2015,31 @@ public class CSSParser {
             case Token.AT_RULE:
             case Token.IDENT:
             case Token.FUNCTION:
-                start = 0;
-                count = _lexer.yylength();
                 if (t.getType() == Token.AT_RULE) {
                     start++;
                 }
-                String result = processEscapes(_lexer.yytext().toCharArray(), start, count);
+                if (indexOf(ch, '\\', start, limit) == -1) {
+                    return _identifiers.get(ch, start, limit, ! literal);
+                }
+                String result = processEscapes(ch, start, limit, limit);
                 if (! literal) {
                     result = result.toLowerCase();
                 }
                 return result;
             default:
-                return _lexer.yytext();
+                return _identifiers.get(ch, start, limit, false);
         }
     }
 
+    private static int indexOf(char[] ch, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (ch[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private boolean isRelativeURI(String uri) {
         try {
             return uri.length() > 0 && (uri.charAt(0) != '/' && ! new URI(uri).isAbsolute());
@@ -1977,8 +2056,16 @@ public class CSSParser {
         return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
     }
 
-    private static String processEscapes(char[] ch, int start, int end) {
-        StringBuilder result = new StringBuilder(ch.length + 10);
+    /**
+     * Returns the text of <code>ch[start..end)</code> with escapes replaced. The limit is the
+     * end of the token, which an escape at the end of the range may look up to.
+     */
+    private static String processEscapes(char[] ch, int start, int end, int limit) {
+        if (indexOf(ch, '\\', start, end) == -1) {
+            return new String(ch, start, end - start);
+        }
+
+        StringBuilder result = new StringBuilder(end - start);
 
         for (int i = start; i < end; i++) {
             char c = ch[i];
@@ -1989,10 +2076,10 @@ public class CSSParser {
                     i += 2;
                     continue;
                 } else {
-                    if ((i+1) < ch.length && (ch[i+1] == '\n' || ch[i+1] == '\r' || ch[i+1] == '\f')) {
+                    if ((i+1) < limit && (ch[i+1] == '\n' || ch[i+1] == '\r' || ch[i+1] == '\f')) {
                         i++;
                         continue;
-                    } else if ((i+1) >= ch.length) {
+                    } else if ((i+1) >= limit) {
                        // process \ escaped (\\)
                        result.append(c);
                        continue;
@@ -0,0 +1,85 @@
+package com.openhtmltopdf.css.parser;
+
+/**
+ * Strings for short tokens, looked up by a range of the lexer buffer. Identifiers,
+ * units and numbers repeat a lot in style sheets and style attributes, so this saves
+ * creating a new string for each of them. Returned strings also have their hash code
+ * computed already, which speeds up the later lookups in {@link com.openhtmltopdf.css.constants.CSSName}
+ * and {@link com.openhtmltopdf.css.constants.IdentValue}.
+ * <br><br>
+ * Old entries are simply replaced when other tokens hash to the same slots, so the cache
+ * has a fixed size whatever the input.
+ */
+class IdentifierCache {
+    private static final int SIZE = 2048;
+    private static final int MAX_LENGTH = 40;
+
+    private final String[] _entries = new String[SIZE];
+
+    /**
+     * Returns the string for <code>ch[start..end)</code>, lower cased if asked. The caller
+     * must have checked there are no escapes in the range.
+     */
+    public String get(char[] ch, int start, int end, boolean lowerCase) {
+        int length = end - start;
+        if (length > MAX_LENGTH) {
+            return create(ch, start, end, lowerCase);
+        }
+
+        // Same as String.hashCode of the result.
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = ch[i];
+            if (lowerCase) {
+                if (c >= 0x80) {
+                    // Leave non-ASCII case mapping to String.
+                    return create(ch, start, end, lowerCase);
+                }
+                c = toLowerCase(c);
+            }
+            hash = 31 * hash + c;
+        }
+
+        // Each hash has two slots, with the most recently added entry first, so two common
+        // tokens with the same slot don't keep replacing each other.
+        int slot = (hash ^ (hash >>> 16)) & (SIZE - 2);
+        String entry = _entries[slot];
+        if (entry != null && matches(entry, ch, start, length, lowerCase)) {
+            return entry;
+        }
+        String second = _entries[slot + 1];
+        if (second != null && matches(second, ch, start, length, lowerCase)) {
+            return second;
+        }
+
+        _entries[slot + 1] = entry;
+        entry = create(ch, start, end, lowerCase);
+        _entries[slot] = entry;
+        return entry;
+    }
+
+    private static boolean matches(String entry, char[] ch, int start, int length, boolean lowerCase) {
+        if (entry.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = ch[start + i];
+            if (lowerCase) {
+                c = toLowerCase(c);
+            }
+            if (entry.charAt(i) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String create(char[] ch, int start, int end, boolean lowerCase) {
+        String result = new String(ch, start, end - start);
+        return lowerCase ? result.toLowerCase() : result;
+    }
+}
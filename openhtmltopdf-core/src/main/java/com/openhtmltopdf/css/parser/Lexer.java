@@ -1559,6 +1559,38 @@ class Lexer {
     	this.yyline = i;
 	}
 
+    /**
+     * Resets the scanner to read the given text. The text is copied to the buffer at once, so
+     * the scanner never has to refill the buffer from a reader.
+     */
+    public void yyreset(String text) {
+        yyreset((java.io.Reader) null);
+
+        int length = text.length();
+        if (length > ZZ_BUFFERSIZE) {
+            zzBuffer = new char[length];
+        } else if (zzBuffer.length != ZZ_BUFFERSIZE) {
+            // Don't keep a buffer grown for a large text.
+            zzBuffer = new char[ZZ_BUFFERSIZE];
+        }
+
+        text.getChars(0, length, zzBuffer, 0);
+        zzEndRead = length;
+        zzAtEOF = true;
+    }
+
+    /**
+     * The buffer holding the matched text, which starts at {@link #yystart()} and is
+     * {@link #yylength()} chars long. Only valid until the next call to {@link #yylex()}.
+     */
+    public char[] yybuffer() {
+        return zzBuffer;
+    }
+
+    public int yystart() {
+        return zzStartRead;
+    }
+
 
   /**
    * Creates a new scanner
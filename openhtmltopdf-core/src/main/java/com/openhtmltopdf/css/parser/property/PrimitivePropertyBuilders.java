@@ -1855,6 +1855,13 @@ public class PrimitivePropertyBuilders {
         }
     }
     
+    public static class FSTableLayoutSample extends PlainInteger {
+        @Override
+        protected boolean isNegativeValuesAllowed() {
+            return false;
+        }
+    }
+    
     public static class FSOverflowPagesDirection extends SingleIdent {
         private static final BitSet ALLOWED = setFor(new IdentValue[] { IdentValue.LTR, IdentValue.RTL });
         
@@ -0,0 +1,614 @@
+package com.openhtmltopdf.css.sheet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.constants.MarginBoxName;
+import com.openhtmltopdf.css.newmatch.Selector;
+import com.openhtmltopdf.css.parser.CounterData;
+import com.openhtmltopdf.css.parser.FSCMYKColor;
+import com.openhtmltopdf.css.parser.FSColor;
+import com.openhtmltopdf.css.parser.FSFunction;
+import com.openhtmltopdf.css.parser.FSRGBColor;
+import com.openhtmltopdf.css.parser.PropertyValue;
+import com.openhtmltopdf.css.parser.Token;
+
+/**
+ * Writes a parsed {@link Stylesheet} to a compact binary format and reads it back, so that large,
+ * rarely changing sheets (for example a corporate user agent sheet) do not have to be parsed for every
+ * render. Rulesets, selector chains, property declarations (as already built by the property builders)
+ * and <code>@media</code>, <code>@page</code>, <code>@font-face</code> and <code>@import</code> rules
+ * are kept.
+ * <br><br>
+ * All strings are written once to a string table at the start of the file and referred to by index,
+ * and likewise each distinct property declaration is written once, to a declaration table, and shared
+ * by the rulesets that use it when read back. Counts and indexes are written as variable length ints.
+ * Sheets written with another format version are rejected when read, so compile sheets as part of
+ * the build that uses them. To use a loaded sheet, put it in the shared stylesheet cache
+ * (the <code>CSS_STYLESHEETS</code> cache store of the PDF builder) under the key given by
+ * {@link com.openhtmltopdf.context.StylesheetFactoryImpl#getSharedCacheKey(int, String)}.
+ */
+public class BinaryStylesheet {
+    private static final int MAGIC = 0x46534353; // FSCS
+
+    /**
+     * The version of the format, so that a sheet written by another version is rejected rather
+     * than misread. It must be incremented whenever the writer or reader changes what is stored.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int RULESET = 1;
+    private static final int MEDIA_RULE = 2;
+    private static final int PAGE_RULE = 3;
+
+    private static final int COLOR_TRANSPARENT = 0;
+    private static final int COLOR_RGB = 1;
+    private static final int COLOR_CMYK = 2;
+
+    private final Map<String, Integer> _stringIndex = new HashMap<>();
+    private final List<String> _strings = new ArrayList<>();
+
+    // Keyed by the written form of the declaration.
+    private final Map<ByteBuffer, Integer> _declarationIndex = new HashMap<>();
+    private final ByteArrayOutputStream _declarations = new ByteArrayOutputStream();
+    private final DataOutputStream _declarationsOut = new DataOutputStream(_declarations);
+
+    private BinaryStylesheet() {
+    }
+
+    /**
+     * Writes the sheet in the binary format.
+     */
+    public static void write(Stylesheet sheet, OutputStream out) throws IOException {
+        BinaryStylesheet writer = new BinaryStylesheet();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writer.writeStylesheet(sheet, new DataOutputStream(body));
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        writeVarInt(data, writer._strings.size());
+        for (String s : writer._strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(data, bytes.length);
+            data.write(bytes);
+        }
+        writeVarInt(data, writer._declarationIndex.size());
+        writer._declarations.writeTo(data);
+        body.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * Loads a sheet by memory-mapping a file written by {@link #write(Stylesheet, OutputStream)}.
+     * @throws IOException if the file can not be read or was written with another format version.
+     */
+    public static Stylesheet load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a sheet written by {@link #write(Stylesheet, OutputStream)}, starting at the
+     * position of the buffer.
+     * @throws IOException if the data is truncated or was written with another format version.
+     */
+    public static Stylesheet read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a binary stylesheet");
+            }
+            if (in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Binary stylesheet was written by another version, please compile it again");
+            }
+
+            String[] strings = new String[readVarInt(in)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            Reader reader = new Reader(in, strings);
+            reader.readDeclarationTable();
+            return reader.readStylesheet();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt binary stylesheet", e);
+        }
+    }
+
+    /**
+     * Writes a non-negative int in one to five bytes, seven bits at a time, lowest first.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an int written by {@link #writeVarInt(DataOutput, int)}.
+     */
+    public static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length int");
+    }
+
+    /**
+     * @return the index of the string in the string table plus one, or zero for null.
+     */
+    private int string(String s) {
+        if (s == null) {
+            return 0;
+        }
+
+        Integer index = _stringIndex.get(s);
+        if (index == null) {
+            index = _strings.size();
+            _strings.add(s);
+            _stringIndex.put(s, index);
+        }
+        return index + 1;
+    }
+
+    private void writeString(String s, DataOutputStream out) throws IOException {
+        writeVarInt(out, string(s));
+    }
+
+    private void writeStrings(List<String> strings, DataOutputStream out) throws IOException {
+        writeVarInt(out, strings.size());
+        for (String s : strings) {
+            writeString(s, out);
+        }
+    }
+
+    private void writeStylesheet(Stylesheet sheet, DataOutputStream out) throws IOException {
+        writeString(sheet.getURI(), out);
+        writeVarInt(out, sheet.getOrigin());
+
+        writeVarInt(out, sheet.getImportRules().size());
+        for (StylesheetInfo info : sheet.getImportRules()) {
+            writeString(info.getUri(), out);
+            writeString(info.getTitle(), out);
+            writeString(info.getType(), out);
+            writeVarInt(out, info.getOrigin());
+            writeStrings(info.getMedia(), out);
+        }
+
+        writeVarInt(out, sheet.getFontFaceRules().size());
+        for (FontFaceRule rule : sheet.getFontFaceRules()) {
+            writeVarInt(out, rule.getOrigin());
+            writeRuleset(rule.getRuleset(), out);
+        }
+
+        writeVarInt(out, sheet.getContents().size());
+        for (Object content : sheet.getContents()) {
+            if (content instanceof Ruleset) {
+                out.writeByte(RULESET);
+                writeRuleset((Ruleset) content, out);
+            } else if (content instanceof MediaRule) {
+                MediaRule rule = (MediaRule) content;
+                out.writeByte(MEDIA_RULE);
+                writeVarInt(out, rule.getOrigin());
+                writeStrings(rule.getMediaTypes(), out);
+                writeVarInt(out, rule.getContents().size());
+                for (Ruleset ruleset : rule.getContents()) {
+                    writeRuleset(ruleset, out);
+                }
+            } else if (content instanceof PageRule) {
+                PageRule rule = (PageRule) content;
+                out.writeByte(PAGE_RULE);
+                writeVarInt(out, rule.getOrigin());
+                writeString(rule.getName(), out);
+                writeString(rule.getPseudoPage(), out);
+                writeRuleset(rule.getRuleset(), out);
+                writeVarInt(out, rule.getMarginBoxes().size());
+                for (Map.Entry<MarginBoxName, List<PropertyDeclaration>> entry : rule.getMarginBoxes().entrySet()) {
+                    writeString(entry.getKey().toString(), out);
+                    writeDeclarations(entry.getValue(), out);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown stylesheet content: " + content);
+            }
+        }
+    }
+
+    private void writeRuleset(Ruleset ruleset, DataOutputStream out) throws IOException {
+        out.writeBoolean(ruleset != null);
+        if (ruleset == null) {
+            return;
+        }
+
+        writeVarInt(out, ruleset.getOrigin());
+        writeDeclarations(ruleset.getPropertyDeclarations(), out);
+
+        writeVarInt(out, ruleset.getFSSelectors().size());
+        for (Selector selector : ruleset.getFSSelectors()) {
+            selector.write(out, this::string);
+        }
+    }
+
+    private void writeDeclarations(List<PropertyDeclaration> decls, DataOutputStream out) throws IOException {
+        writeVarInt(out, decls.size());
+        for (PropertyDeclaration decl : decls) {
+            writeVarInt(out, declaration(decl));
+        }
+    }
+
+    /**
+     * @return the index of the declaration in the declaration table, adding it if not there yet.
+     */
+    private int declaration(PropertyDeclaration decl) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(decl.getPropertyName(), out);
+        out.writeBoolean(decl.isImportant());
+        writeVarInt(out, decl.getOrigin());
+        writeValue((PropertyValue) decl.getValue(), out);
+
+        ByteBuffer key = ByteBuffer.wrap(bytes.toByteArray());
+        Integer index = _declarationIndex.get(key);
+        if (index == null) {
+            index = _declarationIndex.size();
+            _declarationIndex.put(key, index);
+            bytes.writeTo(_declarationsOut);
+        }
+        return index;
+    }
+
+    private void writeValues(List<PropertyValue> values, DataOutputStream out) throws IOException {
+        writeVarInt(out, values.size());
+        for (PropertyValue value : values) {
+            writeValue(value, out);
+        }
+    }
+
+    private void writeValue(PropertyValue value, DataOutputStream out) throws IOException {
+        short type = value.getPropertyValueType();
+        out.writeByte(type);
+
+        switch (type) {
+        case PropertyValue.VALUE_TYPE_NUMBER:
+        case PropertyValue.VALUE_TYPE_LENGTH:
+            writeVarInt(out, value.getPrimitiveType());
+            out.writeFloat(value.getFloatValue());
+            writeString(value.getCssText(), out);
+            break;
+        case PropertyValue.VALUE_TYPE_COLOR:
+            writeColor(value.getFSColor(), out);
+            break;
+        case PropertyValue.VALUE_TYPE_IDENT:
+        case PropertyValue.VALUE_TYPE_STRING:
+            writeVarInt(out, value.getPrimitiveType());
+            writeString(value.getStringValue(), out);
+            writeString(value.getCssText(), out);
+            writeString(value.getIdentValue() == null ? null : value.getIdentValue().toString(), out);
+            break;
+        case PropertyValue.VALUE_TYPE_LIST:
+            writeValues(value.getValues(), out);
+            break;
+        case PropertyValue.VALUE_TYPE_FUNCTION:
+            writeString(value.getFunction().getName(), out);
+            writeValues(value.getFunction().getParameters(), out);
+            break;
+        case PropertyValue.VALUE_TYPE_COUNTERS:
+            writeVarInt(out, value.getCounters().size());
+            for (CounterData counter : value.getCounters()) {
+                writeString(counter.getName(), out);
+                writeVarInt(out, counter.getValue());
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown property value type: " + type);
+        }
+
+        // Only commas and slashes separate values in declarations.
+        out.writeByte(value.getOperator() == null ? 0 : value.getOperator().getType());
+
+        String[] stringArray = value.getStringArrayValue();
+        writeVarInt(out, stringArray.length);
+        for (String s : stringArray) {
+            writeString(s, out);
+        }
+    }
+
+    private void writeColor(FSColor color, DataOutputStream out) throws IOException {
+        if (color == FSRGBColor.TRANSPARENT) {
+            out.writeByte(COLOR_TRANSPARENT);
+        } else if (color instanceof FSRGBColor) {
+            FSRGBColor rgb = (FSRGBColor) color;
+            out.writeByte(COLOR_RGB);
+            out.writeByte(rgb.getRed());
+            out.writeByte(rgb.getGreen());
+            out.writeByte(rgb.getBlue());
+        } else if (color instanceof FSCMYKColor) {
+            FSCMYKColor cmyk = (FSCMYKColor) color;
+            out.writeByte(COLOR_CMYK);
+            out.writeFloat(cmyk.getCyan());
+            out.writeFloat(cmyk.getMagenta());
+            out.writeFloat(cmyk.getYellow());
+            out.writeFloat(cmyk.getBlack());
+        } else {
+            throw new IllegalArgumentException("Unknown color: " + color);
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer in;
+        private final String[] strings;
+
+        private Reader(ByteBuffer in, String[] strings) {
+            this.in = in;
+            this.strings = strings;
+        }
+
+        private PropertyDeclaration[] declarations;
+
+        private String string(int index) {
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        private String readString() {
+            return string(readVarInt(in));
+        }
+
+        private List<String> readStrings() {
+            int count = readVarInt(in);
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(readString());
+            }
+            return result;
+        }
+
+        private Stylesheet readStylesheet() throws IOException {
+            String uri = readString();
+            Stylesheet sheet = new Stylesheet(uri, readVarInt(in));
+
+            int importCount = readVarInt(in);
+            for (int i = 0; i < importCount; i++) {
+                StylesheetInfo info = new StylesheetInfo();
+                info.setUri(readString());
+                info.setTitle(readString());
+                info.setType(readString());
+                info.setOrigin(readVarInt(in));
+                info.setMedia(readStrings());
+                sheet.addImportRule(info);
+            }
+
+            int fontFaceCount = readVarInt(in);
+            for (int i = 0; i < fontFaceCount; i++) {
+                FontFaceRule rule = new FontFaceRule(readVarInt(in));
+                Ruleset ruleset = readRuleset();
+                if (ruleset != null) {
+                    rule.addContent(ruleset);
+                }
+                sheet.addFontFaceRule(rule);
+            }
+
+            int contentCount = readVarInt(in);
+            for (int i = 0; i < contentCount; i++) {
+                int kind = in.get();
+
+                switch (kind) {
+                case RULESET:
+                    sheet.addContent(readRuleset());
+                    break;
+                case MEDIA_RULE: {
+                    MediaRule rule = new MediaRule(readVarInt(in));
+                    for (String medium : readStrings()) {
+                        rule.addMedium(medium);
+                    }
+                    int rulesetCount = readVarInt(in);
+                    for (int j = 0; j < rulesetCount; j++) {
+                        rule.addContent(readRuleset());
+                    }
+                    sheet.addContent(rule);
+                    break;
+                }
+                case PAGE_RULE: {
+                    PageRule rule = new PageRule(readVarInt(in));
+                    String name = readString();
+                    String pseudoPage = readString();
+                    if (name != null) {
+                        rule.setName(name);
+                    }
+                    if (pseudoPage != null) {
+                        rule.setPseudoPage(pseudoPage);
+                    }
+                    rule.setRuleset(readRuleset());
+                    int marginBoxCount = readVarInt(in);
+                    for (int j = 0; j < marginBoxCount; j++) {
+                        String marginBoxName = readString();
+                        MarginBoxName marginBox = MarginBoxName.valueOf(marginBoxName);
+                        if (marginBox == null) {
+                            throw new IOException("Unknown margin box in binary stylesheet: " + marginBoxName);
+                        }
+                        rule.addMarginBoxProperties(marginBox, readDeclarations());
+                    }
+                    sheet.addContent(rule);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown stylesheet content: " + kind);
+                }
+            }
+
+            return sheet;
+        }
+
+        private Ruleset readRuleset() throws IOException {
+            if (in.get() == 0) {
+                return null;
+            }
+
+            Ruleset ruleset = new Ruleset(readVarInt(in));
+            ruleset.addAllProperties(readDeclarations());
+
+            int selectorCount = readVarInt(in);
+            for (int i = 0; i < selectorCount; i++) {
+                ruleset.addFSSelector(Selector.read(in, this::string, ruleset));
+            }
+
+            return ruleset;
+        }
+
+        private void readDeclarationTable() throws IOException {
+            declarations = new PropertyDeclaration[readVarInt(in)];
+
+            for (int i = 0; i < declarations.length; i++) {
+                String propertyName = readString();
+                CSSName cssName = CSSName.getByPropertyName(propertyName);
+                if (cssName == null) {
+                    throw new IllegalArgumentException("Unknown property: " + propertyName);
+                }
+                boolean important = in.get() != 0;
+                int origin = readVarInt(in);
+                declarations[i] = new PropertyDeclaration(cssName, readValue(), important, origin);
+            }
+        }
+
+        private List<PropertyDeclaration> readDeclarations() throws IOException {
+            int count = readVarInt(in);
+            List<PropertyDeclaration> result = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                result.add(declarations[readVarInt(in)]);
+            }
+
+            return result;
+        }
+
+        private List<PropertyValue> readValues() throws IOException {
+            int count = readVarInt(in);
+            List<PropertyValue> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(readValue());
+            }
+            return result;
+        }
+
+        private PropertyValue readValue() throws IOException {
+            int type = in.get();
+            PropertyValue value;
+
+            switch (type) {
+            case PropertyValue.VALUE_TYPE_NUMBER:
+            case PropertyValue.VALUE_TYPE_LENGTH: {
+                short primitiveType = (short) readVarInt(in);
+                float floatValue = in.getFloat();
+                value = new PropertyValue(primitiveType, floatValue, readString());
+                break;
+            }
+            case PropertyValue.VALUE_TYPE_COLOR:
+                value = new PropertyValue(readColor());
+                break;
+            case PropertyValue.VALUE_TYPE_IDENT:
+            case PropertyValue.VALUE_TYPE_STRING: {
+                short primitiveType = (short) readVarInt(in);
+                String stringValue = readString();
+                value = new PropertyValue(primitiveType, stringValue, readString());
+                String ident = readString();
+                if (ident != null) {
+                    IdentValue identValue = IdentValue.valueOf(ident);
+                    if (identValue == null) {
+                        throw new IOException("Unknown identifier in binary stylesheet: " + ident);
+                    }
+                    value.setIdentValue(identValue);
+                }
+                break;
+            }
+            case PropertyValue.VALUE_TYPE_LIST:
+                value = new PropertyValue(readValues());
+                break;
+            case PropertyValue.VALUE_TYPE_FUNCTION: {
+                String name = readString();
+                value = new PropertyValue(new FSFunction(name, readValues()));
+                break;
+            }
+            case PropertyValue.VALUE_TYPE_COUNTERS: {
+                int count = readVarInt(in);
+                List<CounterData> counters = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String name = readString();
+                    counters.add(new CounterData(name, readVarInt(in)));
+                }
+                value = new PropertyValue(counters, true);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown property value type: " + type);
+            }
+
+            int operator = in.get();
+            if (operator == Token.COMMA) {
+                value.setOperator(Token.TK_COMMA);
+            } else if (operator == Token.VIRGULE) {
+                value.setOperator(Token.TK_VIRGULE);
+            } else if (operator != 0) {
+                throw new IllegalArgumentException("Unknown operator: " + operator);
+            }
+
+            int stringArrayLength = readVarInt(in);
+            if (stringArrayLength > 0) {
+                String[] stringArray = new String[stringArrayLength];
+                for (int i = 0; i < stringArrayLength; i++) {
+                    stringArray[i] = readString();
+                }
+                value.setStringArrayValue(stringArray);
+            }
+
+            return value;
+        }
+
+        private FSColor readColor() {
+            int kind = in.get();
+
+            switch (kind) {
+            case COLOR_TRANSPARENT:
+                return FSRGBColor.TRANSPARENT;
+            case COLOR_RGB: {
+                int red = in.get() & 0xFF;
+                int green = in.get() & 0xFF;
+                int blue = in.get() & 0xFF;
+                return new FSRGBColor(red, green, blue);
+            }
+            case COLOR_CMYK: {
+                float c = in.getFloat();
+                float m = in.getFloat();
+                float y = in.getFloat();
+                float k = in.getFloat();
+                return new FSCMYKColor(c, m, y, k);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown color type: " + kind);
+            }
+        }
+    }
+}
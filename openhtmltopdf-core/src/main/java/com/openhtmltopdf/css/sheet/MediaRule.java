@@ -35,6 +35,10 @@ public class MediaRule implements RulesetContainer {
     public void addMedium(String medium) {
         _mediaTypes.add(medium);
     }
+
+    public List<String> getMediaTypes() {
+        return _mediaTypes;
+    }
     
     public boolean matches(String medium) {
         if (medium.equalsIgnoreCase("all") || _mediaTypes.contains("all")) {
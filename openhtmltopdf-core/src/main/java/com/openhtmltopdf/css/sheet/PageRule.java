@@ -33,7 +33,7 @@ public class PageRule implements RulesetContainer {
     
     private final Map<MarginBoxName,List<PropertyDeclaration>> _marginBoxes = new HashMap<MarginBoxName,List<PropertyDeclaration>>();
     
-    private int _pos;
+    private int _pos; // Only kept for the deprecated getPos and setPos.
     
     private int _specificityF;
     private int _specificityG;
@@ -108,7 +108,6 @@ public class PageRule implements RulesetContainer {
         result |= (long)_specificityF << 32;
         result |= (long)_specificityG << 24;
         result |= (long)_specificityH << 16;
-        result |= _pos;
         
         return result;
     }
@@ -130,10 +129,19 @@ public class PageRule implements RulesetContainer {
         return false;
     }
 
+    /**
+     * @deprecated No longer used by the matcher, which keeps page rules of the same
+     * specificity in the order they were added, see {@link #getOrder()}.
+     */
+    @Deprecated
     public int getPos() {
         return _pos;
     }
 
+    /**
+     * @deprecated No longer used by the matcher, see {@link #getPos()}.
+     */
+    @Deprecated
     public void setPos(int pos) {
         _pos = pos;
     }
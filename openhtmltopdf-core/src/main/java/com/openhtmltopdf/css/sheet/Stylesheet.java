@@ -22,6 +22,8 @@ package com.openhtmltopdf.css.sheet;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.openhtmltopdf.extend.FSCacheValue;
+
 
 /**
  * A representation of a CSS style sheet. A Stylesheet has the sheet's rules in
@@ -30,11 +32,12 @@ import java.util.List;
  * would be the output of a SAC-compliant parser after parsing a CSS stream or
  * source. A Stylesheet is immutable; after instantiation, you can query the
  * origin and the {@link Ruleset}, but not modify either of them.
+ * As such, a parsed Stylesheet may be cached and shared between renderers.
  *
  * @author Torbjoern Gannholm
  * @author Patrick Wright
  */
-public class Stylesheet implements RulesetContainer {
+public class Stylesheet implements RulesetContainer, FSCacheValue {
 
 	private final String _uri;
     
@@ -51,6 +54,11 @@ public class Stylesheet implements RulesetContainer {
      */
     private final List<Object> _contents = new ArrayList<Object>();
 
+    /**
+     * Estimated weight, zero until computed.
+     */
+    private volatile int _weight;
+
     /**
      * Creates a new instance of Stylesheet
      *
@@ -114,6 +122,45 @@ public class Stylesheet implements RulesetContainer {
     public List<FontFaceRule> getFontFaceRules() {
         return _fontFaceRules;
     }
+
+    /**
+     * A rough estimate of the memory used by this sheet, from the number of
+     * rulesets, selectors and declarations it contains. Sheets are not modified once
+     * parsed, so the estimate is only made once.
+     */
+    @Override
+    public int weight() {
+        int weight = _weight;
+        if (weight == 0) {
+            weight = 256 + 128 * (_fontFaceRules.size() + _importRules.size());
+            for (Object content : _contents) {
+                if (content instanceof Ruleset) {
+                    weight += weightOf((Ruleset) content);
+                } else if (content instanceof MediaRule) {
+                    for (Ruleset ruleset : ((MediaRule) content).getContents()) {
+                        weight += weightOf(ruleset);
+                    }
+                } else if (content instanceof PageRule) {
+                    PageRule page = (PageRule) content;
+                    if (page.getRuleset() != null) {
+                        weight += weightOf(page.getRuleset());
+                    }
+                    for (List<PropertyDeclaration> props : page.getMarginBoxes().values()) {
+                        weight += DECLARATION_WEIGHT * props.size();
+                    }
+                }
+            }
+            _weight = weight;
+        }
+        return weight;
+    }
+
+    private static final int DECLARATION_WEIGHT = 96;
+
+    private static int weightOf(Ruleset ruleset) {
+        return 64 + 128 * ruleset.getFSSelectors().size() +
+               DECLARATION_WEIGHT * ruleset.getPropertyDeclarations().size();
+    }
 }
 
 /*
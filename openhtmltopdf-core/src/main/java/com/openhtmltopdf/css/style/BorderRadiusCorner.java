@@ -13,6 +13,12 @@ public class BorderRadiusCorner {
 	private float _left;
 	private float _right;
 	
+	/**
+	 * A corner without radius. Corners can not be changed once created, so this is shared
+	 * by the many borders without border-radius.
+	 */
+	public static final BorderRadiusCorner NONE = new BorderRadiusCorner();
+
 	// TODO: FIXME the way values are passed from the CSS to the border corners really sucks, improve it
 
 	public BorderRadiusCorner() {
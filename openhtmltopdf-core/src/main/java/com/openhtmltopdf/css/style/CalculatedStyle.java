@@ -720,11 +720,11 @@ public class CalculatedStyle {
                 result = BorderPropertySet.EMPTY_BORDER;
             }
 
-            style._border = result;
-
-            if (! allZeros && style._border.hasNegativeValues()) {
-                style._border.resetNegativeValues();
+            if (! allZeros) {
+                result = result.withoutNegativeValues();
             }
+
+            style._border = result;
         }
         return style._border;
     }
@@ -1042,6 +1042,10 @@ public class CalculatedStyle {
         return (int) asFloat(CSSName.FS_MAX_OVERFLOW_PAGES);
     }
 
+    public int fsTableLayoutSample() {
+        return (int) asFloat(CSSName.FS_TABLE_LAYOUT_SAMPLE);
+    }
+
 	/**
      * Determine if the element is visible. This is normaly the case
      * if visibility == visible. Only when visibilty is
@@ -28,11 +28,14 @@ import com.openhtmltopdf.util.XRRuntimeException;
 
 
 public abstract class DerivedValue implements FSDerivedValue {
-    private String _asString;
+    private final String _asString;
 
-    private short _cssSacUnitType;
+    private final short _cssSacUnitType;
 
-    protected DerivedValue() {}
+    protected DerivedValue() {
+        _asString = null;
+        _cssSacUnitType = 0;
+    }
 
     protected DerivedValue(
             CSSName name,
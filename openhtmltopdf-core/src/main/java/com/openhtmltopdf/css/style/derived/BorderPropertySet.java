@@ -83,10 +83,10 @@ public class BorderPropertySet extends RectPropertySet {
         this._bottom = bottom;
         this._left = left;
         
-        this._topLeft = new BorderRadiusCorner();
-        this._topRight = new BorderRadiusCorner();
-        this._bottomLeft = new BorderRadiusCorner();
-        this._bottomRight = new BorderRadiusCorner();
+        this._topLeft = BorderRadiusCorner.NONE;
+        this._topRight = BorderRadiusCorner.NONE;
+        this._bottomLeft = BorderRadiusCorner.NONE;
+        this._bottomRight = BorderRadiusCorner.NONE;
     }
     
     public BorderPropertySet(
@@ -110,10 +110,10 @@ public class BorderPropertySet extends RectPropertySet {
         this._bottomColor = bottom.color();
         this._leftColor = left.color();       
         
-        this._topLeft = new BorderRadiusCorner();
-        this._topRight = new BorderRadiusCorner();
-        this._bottomLeft = new BorderRadiusCorner();
-        this._bottomRight = new BorderRadiusCorner(); 
+        this._topLeft = BorderRadiusCorner.NONE;
+        this._topRight = BorderRadiusCorner.NONE;
+        this._bottomLeft = BorderRadiusCorner.NONE;
+        this._bottomRight = BorderRadiusCorner.NONE;
     }
 
     private BorderPropertySet(
@@ -260,34 +260,62 @@ public class BorderPropertySet extends RectPropertySet {
         return _bottomRight;
     }
 
-    public void setBottomRight(BorderRadiusCorner bottomRight) {
-        this._bottomRight = bottomRight;
-    }
-
     public BorderRadiusCorner getBottomLeft() {
         return _bottomLeft;
     }
 
-    public void setBottomLeft(BorderRadiusCorner bottomLeft) {
-        this._bottomLeft = bottomLeft;
-    }
-
     public BorderRadiusCorner getTopRight() {
         return _topRight;
     }
 
-    public void setTopRight(BorderRadiusCorner topRight) {
-        this._topRight = topRight;
-    }
-
     public BorderRadiusCorner getTopLeft() {
         return _topLeft;
     }
 
-    public void setTopLeft(BorderRadiusCorner topLeft) {
-        this._topLeft = topLeft;
+    // Border property sets are shared, such as EMPTY_BORDER and the borders of the cells
+    // of a collapsed border table, so can not be changed once created.
+
+    @Override
+    public void setTop(float top) {
+        throw new UnsupportedOperationException("BorderPropertySet is immutable");
     }
-    
+
+    @Override
+    public void setRight(float right) {
+        throw new UnsupportedOperationException("BorderPropertySet is immutable");
+    }
+
+    @Override
+    public void setBottom(float bottom) {
+        throw new UnsupportedOperationException("BorderPropertySet is immutable");
+    }
+
+    @Override
+    public void setLeft(float left) {
+        throw new UnsupportedOperationException("BorderPropertySet is immutable");
+    }
+
+    @Override
+    public void resetNegativeValues() {
+        throw new UnsupportedOperationException("BorderPropertySet is immutable, use withoutNegativeValues");
+    }
+
+    /**
+     * @return this if no side is negative, otherwise a copy with negative sides set to zero.
+     */
+    public BorderPropertySet withoutNegativeValues() {
+        if (!hasNegativeValues()) {
+            return this;
+        }
+
+        BorderPropertySet result = new BorderPropertySet(this);
+        result._top = Math.max(_top, 0);
+        result._right = Math.max(_right, 0);
+        result._bottom = Math.max(_bottom, 0);
+        result._left = Math.max(_left, 0);
+        return result;
+    }
+
     public BorderPropertySet normalizedInstance(Rectangle bounds) {
         float factor = 1;
         
@@ -20,6 +20,10 @@
  */
 package com.openhtmltopdf.css.style.derived;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.openhtmltopdf.css.constants.CSSName;
 import com.openhtmltopdf.css.constants.IdentValue;
 import com.openhtmltopdf.css.parser.CSSValue;
@@ -28,6 +32,17 @@ import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.css.style.FSDerivedValue;
 
 public class DerivedValueFactory {
+    /**
+     * Derived values that do not depend on the style they belong to can not be changed, so
+     * equal values (such as <code>1px</code> or <code>#ccc</code>) are shared by all styles
+     * of all documents, keyed by their CSS text. Bounded, as the keys come from documents.
+     */
+    private static final int MAX_SHARED_VALUES = 4096;
+
+    private static final Map<String, LengthValue> SHARED_LENGTHS = new ConcurrentHashMap<String, LengthValue>();
+    private static final Map<String, NumberValue> SHARED_NUMBERS = new ConcurrentHashMap<String, NumberValue>();
+    private static final Map<String, ColorValue> SHARED_COLORS = new ConcurrentHashMap<String, ColorValue>();
+
     public static FSDerivedValue newDerivedValue(
             CalculatedStyle style, CSSName cssName, PropertyValue value) {
         if (value.getCssValueType() == CSSValue.CSS_INHERIT) {
@@ -35,6 +50,9 @@ public class DerivedValueFactory {
         }
         switch (value.getPropertyValueType()) {
             case PropertyValue.VALUE_TYPE_LENGTH:
+                if (LengthValue.isStyleIndependent(value.getPrimitiveType())) {
+                    return sharedLength(cssName, value);
+                }
                 return new LengthValue(style, cssName, value);
             case PropertyValue.VALUE_TYPE_IDENT:
                 IdentValue ident = value.getIdentValue();
@@ -45,9 +63,9 @@ public class DerivedValueFactory {
             case PropertyValue.VALUE_TYPE_STRING:
                 return new StringValue(cssName, value);
             case PropertyValue.VALUE_TYPE_NUMBER:
-                return new NumberValue(cssName, value);
+                return sharedNumber(cssName, value);
             case PropertyValue.VALUE_TYPE_COLOR:
-                return new ColorValue(cssName, value);
+                return sharedColor(cssName, value);
             case PropertyValue.VALUE_TYPE_LIST:
                 return new ListValue(cssName, value);
             case PropertyValue.VALUE_TYPE_COUNTERS:
@@ -58,4 +76,55 @@ public class DerivedValueFactory {
                 throw new IllegalArgumentException();
         }
     }
+
+    private static <T> void share(Map<String, T> shared, String cssText, T derived) {
+        if (shared.size() < MAX_SHARED_VALUES) {
+            shared.putIfAbsent(cssText, derived);
+        }
+    }
+
+    private static LengthValue sharedLength(CSSName cssName, PropertyValue value) {
+        String cssText = value.getCssText();
+        LengthValue derived = cssText == null ? null : SHARED_LENGTHS.get(cssText);
+
+        if (derived != null &&
+            derived.getCssSacUnitType() == value.getPrimitiveType() &&
+            derived.asFloat() == value.getFloatValue()) {
+            return derived;
+        }
+
+        derived = new LengthValue(null, cssName, value);
+        share(SHARED_LENGTHS, cssText, derived);
+        return derived;
+    }
+
+    private static NumberValue sharedNumber(CSSName cssName, PropertyValue value) {
+        String cssText = value.getCssText();
+        NumberValue derived = cssText == null ? null : SHARED_NUMBERS.get(cssText);
+
+        if (derived != null &&
+            derived.getCssSacUnitType() == value.getPrimitiveType() &&
+            derived.asFloat() == value.getFloatValue()) {
+            return derived;
+        }
+
+        derived = new NumberValue(cssName, value);
+        share(SHARED_NUMBERS, cssText, derived);
+        return derived;
+    }
+
+    private static ColorValue sharedColor(CSSName cssName, PropertyValue value) {
+        String cssText = value.getCssText();
+        ColorValue derived = cssText == null ? null : SHARED_COLORS.get(cssText);
+
+        if (derived != null &&
+            derived.getCssSacUnitType() == value.getPrimitiveType() &&
+            Objects.equals(derived.asColor(), value.getFSColor())) {
+            return derived;
+        }
+
+        derived = new ColorValue(cssName, value);
+        share(SHARED_COLORS, cssText, derived);
+        return derived;
+    }
 }
@@ -25,7 +25,7 @@ import com.openhtmltopdf.css.parser.PropertyValue;
 import com.openhtmltopdf.css.style.DerivedValue;
 
 public class FunctionValue extends DerivedValue {
-    private FSFunction _function;
+    private final FSFunction _function;
     
     public FunctionValue(CSSName name, PropertyValue value) {
         super(name, value.getPrimitiveType(), value.getCssText(), value.getCssText());
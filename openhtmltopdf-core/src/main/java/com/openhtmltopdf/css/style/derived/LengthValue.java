@@ -40,14 +40,14 @@ public class LengthValue extends DerivedValue {
     /**
      * The specified length value, as a float; pulled from the CSS text
      */
-    private float _lengthAsFloat;
+    private final float _lengthAsFloat;
     
-    private CalculatedStyle _style;
+    private final CalculatedStyle _style;
 
     /**
      * The specified primitive SAC data type given for this length, from the CSS text
      */
-    private short _lengthPrimitiveType;
+    private final short _lengthPrimitiveType;
     
     public LengthValue(CalculatedStyle style, CSSName name, PropertyValue value) {
         super(name, value.getPrimitiveType(), value.getCssText(), value.getCssText());
@@ -61,6 +61,25 @@ public class LengthValue extends DerivedValue {
         return _lengthAsFloat;
     }
 
+    /**
+     * Whether lengths of this unit are converted without looking at the style they belong to,
+     * unlike em, ex and percentages of font size, line height and vertical align.
+     */
+    static boolean isStyleIndependent(short primitiveType) {
+        switch (primitiveType) {
+            case CSSPrimitiveValue.CSS_PX:
+            case CSSPrimitiveValue.CSS_IN:
+            case CSSPrimitiveValue.CSS_CM:
+            case CSSPrimitiveValue.CSS_MM:
+            case CSSPrimitiveValue.CSS_PT:
+            case CSSPrimitiveValue.CSS_PC:
+            case CSSPrimitiveValue.CSS_NUMBER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Computes a relative unit (e.g. percentage) as an absolute value, using
      * the input value. Used for such properties whose parent value cannot be
@@ -183,7 +202,7 @@ public class LengthValue extends DerivedValue {
         }
         //assert (new Float(absVal).intValue() >= 0);
 
-        if (XRLog.isLoggingEnabled()) {
+        if (XRLog.isLogLevelEnabled(XRLog.CASCADE, Level.FINEST)) {
             if (cssName == CSSName.FONT_SIZE) {
                 XRLog.cascade(Level.FINEST, cssName + ", relative= " +
                         relVal + " (" + stringValue + "), absolute= "
@@ -11,6 +11,47 @@ public class FontSpecification {
     public IdentValue fontStyle;
     public IdentValue variant;
 
+    public FontSpecification() {
+    }
+
+    public FontSpecification(FontSpecification spec) {
+        this.size = spec.size;
+        this.fontWeight = spec.fontWeight;
+        this.families = spec.families != null ? spec.families.clone() : null;
+        this.fontStyle = spec.fontStyle;
+        this.variant = spec.variant;
+    }
+
+    /**
+     * Font specifications are equal if they have the same families, size, weight, style and variant,
+     * so they resolve to the same font.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FontSpecification)) {
+            return false;
+        }
+        FontSpecification other = (FontSpecification) obj;
+        return Float.compare(size, other.size) == 0 &&
+               fontWeight == other.fontWeight &&
+               fontStyle == other.fontStyle &&
+               variant == other.variant &&
+               Arrays.equals(families, other.families);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(families);
+        result = 31 * result + Float.floatToIntBits(size);
+        result = 31 * result + (fontWeight != null ? fontWeight.hashCode() : 0);
+        result = 31 * result + (fontStyle != null ? fontStyle.hashCode() : 0);
+        result = 31 * result + (variant != null ? variant.hashCode() : 0);
+        return result;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("Font specification: ");
@@ -0,0 +1,69 @@
+package com.openhtmltopdf.extend;
+
+import java.util.Map;
+
+/**
+ * Receives timings and counters for a single render, for export to monitoring.
+ * A listener is called on the render thread, so should be quick and not block.
+ * If the same listener is used for concurrent renders it must be thread safe.
+ */
+public interface FSRenderMetricsListener {
+    public enum Stage {
+        /** Parsing the document (not including DOM mutators). */
+        PARSE_HTML,
+        /** Loading and parsing all the stylesheets for the document. */
+        PARSE_CSS,
+        /**
+         * Matching elements against rules. This happens lazily during box build and layout,
+         * so is also included in those stages. It is reported once at the end of the render,
+         * with the total time and without allocation information.
+         */
+        CASCADE,
+        /** Building the box tree from the document. */
+        BOX_BUILD,
+        /** Laying out the box tree into pages, including any relayouts for page breaks. */
+        LAYOUT,
+        /** Collecting the display list of operations for each page (fast renderer only). */
+        DISPLAY_LIST,
+        /** Painting the pages to the output document. */
+        PAINT,
+        /** Writing the output document to the output stream. */
+        SAVE;
+    }
+
+    public enum Counter {
+        /** Elements in the document. */
+        ELEMENTS,
+        /** Boxes in the laid out box tree. */
+        BOXES,
+        /** Pages in the output, not including overflow pages. */
+        PAGES,
+        /** Times a box was laid out again to honor a page break rule. */
+        PAGINATION_RELAYOUTS,
+        /** Fonts loaded for use in the document. */
+        FONTS_REALIZED,
+        /** Images read from their source. */
+        IMAGES_DECODED,
+        /** Lookups in the document image cache and the configured cache stores that found a value. */
+        CACHE_HITS,
+        /** Lookups in the document image cache and the configured cache stores that did not find a value. */
+        CACHE_MISSES,
+        /** Font lookups that found the font already resolved for an equal font specification. */
+        FONT_CACHE_HITS,
+        /** Font lookups that resolved a font specification from the font families. */
+        FONT_CACHE_MISSES;
+    }
+
+    /**
+     * Called when a stage is completed. A stage may be completed more than once per render.
+     * @param elapsedNanos wall clock time of the stage.
+     * @param allocatedBytes bytes allocated by the render thread during the stage or -1 if not available
+     * on this JVM.
+     */
+    public void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes);
+
+    /**
+     * Called once when the renderer is closed with the final value of every counter.
+     */
+    public void renderCompleted(Map<Counter, Long> counters);
+}
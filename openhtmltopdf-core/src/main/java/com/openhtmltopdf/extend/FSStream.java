@@ -10,4 +10,30 @@ import java.io.Reader;
 public interface FSStream {
 	public InputStream getStream();
 	public Reader getReader();
+
+	/**
+	 * Optional. The entity tag (HTTP ETag header) of the resource, so that a cached copy
+	 * can later be revalidated with {@link FSStreamFactory#getUrl(String, String, String)}.
+	 * @return the entity tag or null if not known.
+	 */
+	public default String getETag() {
+		return null;
+	}
+
+	/**
+	 * Optional. The last modified date (HTTP Last-Modified header) of the resource, so that a cached copy
+	 * can later be revalidated with {@link FSStreamFactory#getUrl(String, String, String)}.
+	 * @return the last modified date, as given by the server, or null if not known.
+	 */
+	public default String getLastModified() {
+		return null;
+	}
+
+	/**
+	 * Only meaningful for streams returned from {@link FSStreamFactory#getUrl(String, String, String)}.
+	 * @return true if the resource has not changed since the cached copy, in which case the stream should not be read.
+	 */
+	public default boolean isNotModified() {
+		return false;
+	}
 }
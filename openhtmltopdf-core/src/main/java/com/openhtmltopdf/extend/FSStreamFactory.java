@@ -7,4 +7,19 @@ package com.openhtmltopdf.extend;
 public interface FSStreamFactory 
 {
 	public FSStream getUrl(String url);
+
+	/**
+	 * Revalidates a cached resource, for example with a HTTP conditional GET using the
+	 * If-None-Match and If-Modified-Since headers. Only called for cached resources for which the
+	 * stream returned an entity tag or last modified date, so factories which never return these need not
+	 * implement this method.
+	 * 
+	 * @param eTag the entity tag of the cached copy or null.
+	 * @param lastModified the last modified date of the cached copy or null.
+	 * @return a stream for which {@link FSStream#isNotModified()} returns true if the cached copy
+	 * may be used, otherwise a stream of the changed resource.
+	 */
+	public default FSStream getUrl(String url, String eTag, String lastModified) {
+		return getUrl(url);
+	}
 }
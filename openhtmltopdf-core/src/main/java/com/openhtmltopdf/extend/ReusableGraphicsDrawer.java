@@ -0,0 +1,18 @@
+package com.openhtmltopdf.extend;
+
+/**
+ * An {@link OutputDeviceGraphicsDrawer} whose drawing depends only on its reuse key
+ * and the size it is drawn at.
+ *
+ * Output devices that can store drawings (such as the PDF fast renderer, which uses a form XObject)
+ * may call {@link #render(java.awt.Graphics2D)} once per document for each distinct key and size and then
+ * place the stored drawing for every later occurrence. Other output devices simply call render each time.
+ */
+public interface ReusableGraphicsDrawer extends OutputDeviceGraphicsDrawer {
+
+	/**
+	 * @return a key with proper equals and hashCode implementations. Drawers with equal keys
+	 * drawn at the same size must produce identical output.
+	 */
+	public Object getReuseKey();
+}
@@ -0,0 +1,100 @@
+package com.openhtmltopdf.extend.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.util.XRLog;
+
+/**
+ * A cache implementation bounded by the total weight of its values (see {@link FSCacheValue#weight()}).
+ * When a put takes the total weight over the bound, the least recently used values are evicted.
+ * Values of unknown weight count as zero, but are still evicted in least recently used order.
+ * <br><br>
+ * This implementation is thread safe, using a single lock. As with {@link FSDefaultCacheStore},
+ * {@link #get(String, Callable)} may call the loader multiple times if called in close succession.
+ */
+public class FSBoundedCacheStore implements FSCacheEx<String, FSCacheValue> {
+    private final Map<String, FSCacheValue> _store = new LinkedHashMap<String, FSCacheValue>(16, 0.75f, true);
+    private final long _maxWeight;
+    private long _weight;
+
+    /**
+     * @param maxWeight the maximum total weight, roughly in bytes, of the values in this cache.
+     */
+    public FSBoundedCacheStore(long maxWeight) {
+        _maxWeight = maxWeight;
+    }
+
+    private static long weightOf(FSCacheValue value) {
+        return Math.max(value.weight(), 0);
+    }
+
+    @Override
+    public synchronized void put(String key, FSCacheValue value) {
+        XRLog.load(Level.INFO, () -> "Putting key(" + key + ") in cache.");
+
+        FSCacheValue previous = _store.put(key, value);
+        if (previous != null) {
+            _weight -= weightOf(previous);
+        }
+        _weight += weightOf(value);
+
+        Iterator<Map.Entry<String, FSCacheValue>> it = _store.entrySet().iterator();
+        while (_weight > _maxWeight && it.hasNext()) {
+            Map.Entry<String, FSCacheValue> eldest = it.next();
+            if (eldest.getValue() == value) {
+                // Never evict the value just put, even if it is larger than the bound by itself.
+                continue;
+            }
+            _weight -= weightOf(eldest.getValue());
+            it.remove();
+            XRLog.load(Level.INFO, () -> "Evicted key(" + eldest.getKey() + ") from cache.");
+        }
+    }
+
+    @Override
+    public FSCacheValue get(String key, Callable<? extends FSCacheValue> loader) {
+        FSCacheValue value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        try {
+            value = loader.call();
+
+            if (value != null) {
+                put(key, value);
+            }
+        } catch (Exception e) {
+            XRLog.exception("Could not load cache value for key(" + key + ")", e);
+            value = null;
+        }
+
+        return value;
+    }
+
+    @Override
+    public FSCacheValue get(String key) {
+        FSCacheValue value;
+        synchronized (this) {
+            value = _store.get(key);
+        }
+
+        if (XRLog.isLogLevelEnabled(XRLog.LOAD, Level.INFO)) {
+            XRLog.load(Level.INFO, (value == null ? "Missed" : "Hit") + " key(" + key + ") from cache.");
+        }
+        return value;
+    }
+
+    /**
+     * @return the current total weight of the values in this cache.
+     */
+    public synchronized long getWeight() {
+        return _weight;
+    }
+}
@@ -20,7 +20,7 @@ public class FSDefaultCacheStore implements FSCacheEx<String, FSCacheValue> {
     
     @Override
     public void put(String key, FSCacheValue value) {
-        XRLog.load(Level.INFO, "Putting key(" + key + ") in cache.");
+        XRLog.load(Level.INFO, () -> "Putting key(" + key + ") in cache.");
         _store.put(key, value);
     }
 
@@ -42,14 +42,21 @@ public class FSDefaultCacheStore implements FSCacheEx<String, FSCacheValue> {
             value = null;
         }
         
-        XRLog.load(Level.INFO, (value == null ? "Missed" : "Hit") + " key(" + key + ") from cache.");
+        logLookup(key, value);
         return value;
     }
 
     @Override
     public FSCacheValue get(String key) {
         FSCacheValue value = _store.get(key);
-        XRLog.load(Level.INFO, (value == null ? "Missed" : "Hit") + " key(" + key + ") from cache.");
+        logLookup(key, value);
         return value;
     }
+
+    private void logLookup(String key, FSCacheValue value) {
+        // Cache lookups are frequent, so avoid building the message if it will not be logged.
+        if (XRLog.isLogLevelEnabled(XRLog.LOAD, Level.INFO)) {
+            XRLog.load(Level.INFO, (value == null ? "Missed" : "Hit") + " key(" + key + ") from cache.");
+        }
+    }
 }
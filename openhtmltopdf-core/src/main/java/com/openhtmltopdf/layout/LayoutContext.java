@@ -41,6 +41,7 @@ import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.css.style.CssContext;
 import com.openhtmltopdf.css.value.FontSpecification;
 import com.openhtmltopdf.extend.FSCanvas;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Counter;
 import com.openhtmltopdf.extend.FontContext;
 import com.openhtmltopdf.extend.NamespaceHandler;
 import com.openhtmltopdf.extend.ReplacedElementFactory;
@@ -240,6 +241,8 @@ public class LayoutContext implements CssContext {
     }
 
     public void restoreStateForRelayout(LayoutState layoutState) {
+        getSharedContext().getRenderMetrics().increment(Counter.PAGINATION_RELAYOUTS);
+
         _firstLines = layoutState.getFirstLines();
         _firstLetters = layoutState.getFirstLetters();
 
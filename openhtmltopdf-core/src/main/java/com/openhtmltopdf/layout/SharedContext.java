@@ -29,6 +29,7 @@ import com.openhtmltopdf.render.FSFont;
 import com.openhtmltopdf.render.FSFontMetrics;
 import com.openhtmltopdf.render.RenderingContext;
 import com.openhtmltopdf.swing.AWTFontResolver;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.ThreadCtx;
 import com.openhtmltopdf.util.XRLog;
 import org.w3c.dom.Document;
@@ -40,6 +41,8 @@ import java.text.BreakIterator;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 /**
  * The SharedContext stores pseudo global variables.
@@ -93,7 +96,8 @@ public class SharedContext {
     private float mmPerDot;
 
     private boolean print;
-    private Map<Element, CalculatedStyle> styleMap;
+    // Concurrent, as styles may be computed on several threads, see ParallelCascade.
+    private final Map<Element, CalculatedStyle> styleMap = new ConcurrentHashMap<Element, CalculatedStyle>(1024, 0.75f);
     private ReplacedElementFactory replacedElementFactory;
     private Rectangle tempCanvas;
     
@@ -121,6 +125,8 @@ public class SharedContext {
 	private FSTextTransformer _unicodeToUpperTransformer = new TextUtil.DefaultToUpperTransformer(Locale.US);
 	private FSTextTransformer _unicodeToTitleTransformer = new TextUtil.DefaultToTitleTransformer();
 
+	private RenderMetrics _renderMetrics = RenderMetrics.NONE;
+
 	public String _preferredTransformerFactoryImplementationClass = null;
 	public String _preferredDocumentBuilderFactoryImplementationClass = null;
     
@@ -139,7 +145,7 @@ public class SharedContext {
         setMedia("screen");
         this.uac = uac;
         setCss(new StyleReference(uac));
-        XRLog.render("Using CSS implementation from: " + getCss().getClass().getName());
+        XRLog.render(Level.INFO, () -> "Using CSS implementation from: " + getCss().getClass().getName());
         setTextRenderer(tr);
         setDPI(dpi);
     }
@@ -209,6 +215,17 @@ public class SharedContext {
         this.debug_draw_font_metrics = debug_draw_font_metrics;
     }
 
+    /**
+     * Metrics for this render, {@link RenderMetrics#NONE} if no one is listening.
+     */
+    public RenderMetrics getRenderMetrics() {
+        return _renderMetrics;
+    }
+
+    public void setRenderMetrics(RenderMetrics renderMetrics) {
+        _renderMetrics = renderMetrics;
+    }
+
     public StyleReference getCss() {
         return css;
     }
@@ -483,10 +500,6 @@ public class SharedContext {
     }
 
     public CalculatedStyle getStyle(Element e, boolean restyle) {
-        if (styleMap == null) {
-            styleMap = new HashMap<Element, CalculatedStyle>(1024, 0.75f);
-        }
-
         CalculatedStyle result = null;
         if (! restyle) {
             result = styleMap.get(e);
@@ -23,8 +23,11 @@ import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Level;
 
 import com.openhtmltopdf.css.constants.CSSName;
@@ -64,6 +67,9 @@ public class TableBox extends BlockBox {
     private int _extraSpaceTop;
     private int _extraSpaceBottom;
 
+    // Collapsed cell borders seen so far, only while calculating borders.
+    private Map<CollapsedBorderKey, BorderPropertySet> _collapsedBorders;
+
     public boolean isMarginAreaRoot() {
         return _marginAreaRoot;
     }
@@ -207,9 +213,69 @@ public class TableBox extends BlockBox {
 
     private void calcBorders(LayoutContext c) {
         ensureChildren(c);
-        for (Iterator i = getChildIterator(); i.hasNext(); ) {
-            TableSectionBox section = (TableSectionBox)i.next();
-            section.calcBorders(c);
+        _collapsedBorders = new HashMap<CollapsedBorderKey, BorderPropertySet>();
+        try {
+            for (Iterator i = getChildIterator(); i.hasNext(); ) {
+                TableSectionBox section = (TableSectionBox)i.next();
+                section.calcBorders(c);
+            }
+        } finally {
+            _collapsedBorders = null;
+        }
+    }
+
+    /**
+     * Returns an equal collapsed border already used by another cell of this table
+     * if there is one, so the cells of a large table with a handful of distinct
+     * borders do not each keep their own copies.
+     */
+    protected BorderPropertySet shareCollapsedBorder(BorderPropertySet border) {
+        if (_collapsedBorders == null) {
+            return border;
+        }
+
+        CollapsedBorderKey key = new CollapsedBorderKey(border);
+        BorderPropertySet shared = _collapsedBorders.get(key);
+        if (shared == null) {
+            _collapsedBorders.put(key, border);
+            return border;
+        }
+        return shared;
+    }
+
+    private static final class CollapsedBorderKey {
+        private final BorderPropertySet _border;
+        private final int _hash;
+
+        private CollapsedBorderKey(BorderPropertySet border) {
+            _border = border;
+            _hash = Objects.hash(
+                    border.top(), border.right(), border.bottom(), border.left(),
+                    border.topStyle(), border.rightStyle(), border.bottomStyle(), border.leftStyle(),
+                    border.topColor(), border.rightColor(), border.bottomColor(), border.leftColor());
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CollapsedBorderKey)) {
+                return false;
+            }
+            BorderPropertySet a = _border;
+            BorderPropertySet b = ((CollapsedBorderKey) obj)._border;
+            return a.top() == b.top() && a.right() == b.right() &&
+                   a.bottom() == b.bottom() && a.left() == b.left() &&
+                   a.topStyle() == b.topStyle() && a.rightStyle() == b.rightStyle() &&
+                   a.bottomStyle() == b.bottomStyle() && a.leftStyle() == b.leftStyle() &&
+                   Objects.equals(a.topColor(), b.topColor()) && Objects.equals(a.rightColor(), b.rightColor()) &&
+                   Objects.equals(a.bottomColor(), b.bottomColor()) && Objects.equals(a.leftColor(), b.leftColor());
         }
     }
 
@@ -1229,10 +1295,20 @@ public class TableBox extends BlockBox {
         private void recalcColumn(LayoutContext c, int effCol) {
             Layout l = _layoutStruct[effCol];
 
+            // With -fs-table-layout-sample only the first sample body rows (plus header
+            // and footer rows) are measured, as measuring every cell of a huge table is slow.
+            // Content wider than the sampled rows in later rows may overflow its column.
+            int sample = _table.getStyle().fsTableLayoutSample();
+            int sampledRows = 0;
+
             // first we iterate over all rows.
             for (Iterator j = _table.getChildIterator(); j.hasNext();) {
                 TableSectionBox section = (TableSectionBox) j.next();
                 int numRows = section.numRows();
+                if (sample > 0 && !section.isHeader() && !section.isFooter()) {
+                    numRows = Math.min(numRows, sample - sampledRows);
+                    sampledRows += numRows;
+                }
                 for (int i = 0; i < numRows; i++) {
                     TableCellBox cell = section.cellAt(i, effCol);
                     if (cell == TableCellBox.SPANNING_CELL || cell == null) {
@@ -105,7 +105,7 @@ public class TableCellBox extends BlockBox {
         CollapsedBorderValue bottom = collapsedBottomBorder(c);
         CollapsedBorderValue left = collapsedLeftBorder(c);
         
-        _collapsedPaintingBorder = new BorderPropertySet(top, right, bottom, left);
+        _collapsedPaintingBorder = getTable().shareCollapsedBorder(new BorderPropertySet(top, right, bottom, left));
         
         // Give the extra pixel to top and left.
         top.setWidth((top.width()+1)/2);
@@ -113,7 +113,7 @@ public class TableCellBox extends BlockBox {
         bottom.setWidth(bottom.width()/2);
         left.setWidth((left.width()+1)/2);
         
-        _collapsedLayoutBorder = new BorderPropertySet(top, right, bottom, left);
+        _collapsedLayoutBorder = getTable().shareCollapsedBorder(new BorderPropertySet(top, right, bottom, left));
         
         _collapsedBorderTop = top;
         _collapsedBorderRight = right;
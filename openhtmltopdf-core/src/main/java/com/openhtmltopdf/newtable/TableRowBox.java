@@ -46,6 +46,8 @@ public class TableRowBox extends BlockBox {
     private int _extraSpaceTop;
     private int _extraSpaceBottom;
     
+    private boolean _needCellWidthCalc = false;
+    
     public TableRowBox() {
     }
     
@@ -196,7 +198,10 @@ public class TableRowBox extends BlockBox {
         if (section.isNeedCellWidthCalc()) {
             section.setCellWidths(c);
             section.setNeedCellWidthCalc(false);
+        } else if (_needCellWidthCalc) {
+            section.setCellWidths(c, this);
         }
+        _needCellWidthCalc = false;
         
         if (getChildrenContentType() != CONTENT_EMPTY) {
             int cCol = 0;
@@ -484,7 +489,8 @@ public class TableRowBox extends BlockBox {
     public void reset(LayoutContext c) {
         super.reset(c);
         setHaveBaseline(false);
-        getSection().setNeedCellWidthCalc(true);
+        // Only this row's cells were reset, so only their widths need setting again.
+        _needCellWidthCalc = true;
         setContentLimitContainer(null);
     }
 
@@ -194,29 +194,53 @@ public class TableSectionBox extends BlockBox {
     void setCellWidths(LayoutContext c)
     {
         int[] columnPos = getTable().getColumnPos();
+        int hspacing = getTable().getStyle().getBorderHSpacing(c);
         
         for (Iterator i = _grid.iterator(); i.hasNext(); ) {
             RowData row = (RowData)i.next();
-            List cols = row.getRow();
-            int hspacing = getTable().getStyle().getBorderHSpacing(c);
-            for (int j = 0; j < cols.size(); j++) {
-                TableCellBox cell = (TableCellBox)cols.get(j);
-                
-                if (cell == null || cell == TableCellBox.SPANNING_CELL) {
-                    continue;
-                }
-                
-                int endCol = j;
-                int cspan = cell.getStyle().getColSpan();
-                while (cspan > 0 && endCol < cols.size()) {
-                    cspan -= getTable().spanOfEffCol(endCol);
-                    endCol++;
-                }
-                
-                int w = columnPos[endCol] - columnPos[j] - hspacing;
-                cell.setLayoutWidth(c, w);
-                cell.setX(columnPos[j] + hspacing);
+            setCellWidths(c, row.getRow(), columnPos, hspacing);
+        }
+    }
+    
+    /**
+     * Sets the cell widths of a single row, for when only that row has been reset
+     * (for example, to move it to the next page). Setting the widths of every row
+     * instead would make laying out a long paginated table quadratic.
+     */
+    void setCellWidths(LayoutContext c, TableRowBox row)
+    {
+        if (row.getChildCount() == 0) {
+            return;
+        }
+        
+        int rowIndex = ((TableCellBox) row.getChild(0)).getRow();
+        if (rowIndex < 0 || rowIndex >= _grid.size()) {
+            setCellWidths(c);
+            return;
+        }
+        
+        RowData data = (RowData) _grid.get(rowIndex);
+        setCellWidths(c, data.getRow(), getTable().getColumnPos(), getTable().getStyle().getBorderHSpacing(c));
+    }
+    
+    private void setCellWidths(LayoutContext c, List cols, int[] columnPos, int hspacing) {
+        for (int j = 0; j < cols.size(); j++) {
+            TableCellBox cell = (TableCellBox)cols.get(j);
+            
+            if (cell == null || cell == TableCellBox.SPANNING_CELL) {
+                continue;
+            }
+            
+            int endCol = j;
+            int cspan = cell.getStyle().getColSpan();
+            while (cspan > 0 && endCol < cols.size()) {
+                cspan -= getTable().spanOfEffCol(endCol);
+                endCol++;
             }
+            
+            int w = columnPos[endCol] - columnPos[j] - hspacing;
+            cell.setLayoutWidth(c, w);
+            cell.setX(columnPos[j] + hspacing);
         }
     }
     
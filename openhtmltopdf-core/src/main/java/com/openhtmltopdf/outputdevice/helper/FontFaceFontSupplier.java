@@ -1,10 +1,12 @@
 package com.openhtmltopdf.outputdevice.helper;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 import com.openhtmltopdf.extend.FSSupplier;
 import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.util.WoffDecoder;
 import com.openhtmltopdf.util.XRLog;
 
 public class FontFaceFontSupplier implements FSSupplier<InputStream> {
@@ -25,6 +27,11 @@ public class FontFaceFontSupplier implements FSSupplier<InputStream> {
             return null;
         }
         
-        return new ByteArrayInputStream(font1);
+        try {
+            return new ByteArrayInputStream(WoffDecoder.decodeIfWoff(font1));
+        } catch (IOException e) {
+            XRLog.exception("Could not decode @font-face font: " + src, e);
+            return null;
+        }
     }
 }
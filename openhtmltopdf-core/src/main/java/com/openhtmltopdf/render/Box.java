@@ -41,10 +41,13 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.logging.Level;
 
 public abstract class Box implements Styleable, DisplayListItem {
@@ -75,7 +78,10 @@ public abstract class Box implements Styleable, DisplayListItem {
 
     private Box _parent;
 
-    private List<Box> _boxes;
+    // Children are kept in an array grown as needed, rather than an ArrayList with its
+    // default capacity of ten, as most boxes have few children and there may be millions of boxes.
+    private Box[] _boxes;
+    private int _childCount;
 
     /**
      * Keeps track of the start of childrens containing block.
@@ -86,22 +92,56 @@ public abstract class Box implements Styleable, DisplayListItem {
     private CalculatedStyle _style;
     private Box _containingBlock;
 
-    private Dimension _relativeOffset;
-
     private PaintingInfo _paintingInfo;
 
     private RectPropertySet _workingMargin;
 
     private int _index;
 
-    private String _pseudoElementOrClass;
-
     private boolean _anonymous;
     
-    private Area _absoluteClipBox;
     private boolean _clipBoxCalculated = false;
     
-    private Object _accessibilityObject;
+    private RareData _rareData;
+    
+    /**
+     * Fields that are null for most boxes, kept out of line to keep boxes small.
+     */
+    private static class RareData {
+        private Dimension relativeOffset;
+        private String pseudoElementOrClass;
+        private Area absoluteClipBox;
+        private Object accessibilityObject;
+    }
+    
+    private RareData rareData() {
+        if (_rareData == null) {
+            _rareData = new RareData();
+        }
+        return _rareData;
+    }
+    
+    /**
+     * A live, read only (except for remove) view of the children of this box.
+     */
+    private class ChildList extends AbstractList<Box> implements RandomAccess {
+        @Override
+        public Box get(int index) {
+            return getChild(index);
+        }
+
+        @Override
+        public int size() {
+            return _childCount;
+        }
+
+        @Override
+        public Box remove(int index) {
+            Box removed = getChild(index);
+            removeChild(index);
+            return removed;
+        }
+    }
     
     protected Box() {
     }
@@ -172,17 +212,29 @@ public abstract class Box implements Styleable, DisplayListItem {
      * Cached as this will be needed on every box to check if the clip area is inside a page. 
      */
     public Area getAbsoluteClipBox(CssContext c) {
+        Area clip = getSharedAbsoluteClipBox(c);
+        return clip != null ? (Area) clip.clone() : null;
+    }
+    
+    /**
+     * As {@link #getAbsoluteClipBox(CssContext)} but not copied, so must not be modified.
+     * Boxes without their own clip share the area of their clip parent.
+     */
+    private Area getSharedAbsoluteClipBox(CssContext c) {
         if (!_clipBoxCalculated) {
-            _absoluteClipBox = calcAbsoluteClipBox(c);
+            Area clip = calcAbsoluteClipBox(c);
+            if (clip != null) {
+                rareData().absoluteClipBox = clip;
+            }
             _clipBoxCalculated = true;
         }
-        return _absoluteClipBox != null ? (Area) _absoluteClipBox.clone() : null;
+        return _rareData != null ? _rareData.absoluteClipBox : null;
     }
     
     private Area calcAbsoluteClipBox(CssContext c) {
         Rectangle localClip = getStyle() != null && getStyle().isIdent(CSSName.OVERFLOW, IdentValue.HIDDEN) ? getChildrenClipEdge(c) : null;
         Box parentBox = getClipParent();
-        Area parentClip = parentBox != null ? parentBox.getAbsoluteClipBox(c) : null;
+        Area parentClip = parentBox != null ? parentBox.getSharedAbsoluteClipBox(c) : null;
 
         if (localClip != null) {
             AffineTransform transform = getContainingLayer().getCurrentTransformMatrix();
@@ -228,15 +280,17 @@ public abstract class Box implements Styleable, DisplayListItem {
     }
 
     public void addChild(Box child) {
-        if (_boxes == null) {
-            _boxes = new ArrayList<Box>();
-        }
         if (child == null) {
             throw new NullPointerException("trying to add null child");
         }
+        if (_boxes == null) {
+            _boxes = new Box[1];
+        } else if (_childCount == _boxes.length) {
+            _boxes = Arrays.copyOf(_boxes, _boxes.length * 2);
+        }
         child.setParent(this);
-        child.setIndex(_boxes.size());
-        _boxes.add(child);
+        child.setIndex(_childCount);
+        _boxes[_childCount++] = child;
     }
 
     public void addAllChildren(List<Box> children) {
@@ -247,23 +301,26 @@ public abstract class Box implements Styleable, DisplayListItem {
 
     public void removeAllChildren() {
         if (_boxes != null) {
-            _boxes.clear();
+            Arrays.fill(_boxes, 0, _childCount, null);
+            _childCount = 0;
         }
     }
 
     public void removeChild(Box target) {
-        if (_boxes != null) {
-            boolean found = false;
-            for (Iterator<Box> i = getChildIterator(); i.hasNext(); ) {
-                Box child = i.next();
-                if (child.equals(target)) {
-                    i.remove();
-                    found = true;
-                } else if (found) {
-                    child.setIndex(child.getIndex()-1);
-                }
+        int removed = 0;
+        for (int i = 0; i < _childCount; i++) {
+            Box child = _boxes[i];
+            if (child.equals(target)) {
+                removed++;
+            } else if (removed > 0) {
+                child.setIndex(child.getIndex() - removed);
+                _boxes[i - removed] = child;
             }
         }
+        for (int i = _childCount - removed; i < _childCount; i++) {
+            _boxes[i] = null;
+        }
+        _childCount -= removed;
     }
 
     public Box getPreviousSibling() {
@@ -303,23 +360,22 @@ public abstract class Box implements Styleable, DisplayListItem {
     }
 
     public int getChildCount() {
-        return _boxes == null ? 0 : _boxes.size();
+        return _childCount;
     }
 
     public Box getChild(int i) {
-        if (_boxes == null) {
-            throw new IndexOutOfBoundsException();
-        } else {
-            return (Box) _boxes.get(i);
+        if (i < 0 || i >= _childCount) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + _childCount);
         }
+        return _boxes[i];
     }
 
     public Iterator<Box> getChildIterator() {
-        return (_boxes == null ? Collections.<Box>emptyIterator() : _boxes.iterator());
+        return _childCount == 0 ? Collections.<Box>emptyIterator() : getChildren().iterator();
     }
 
     public List<Box> getChildren() {
-        return _boxes == null ? Collections.<Box>emptyList() : _boxes;
+        return _childCount == 0 ? Collections.<Box>emptyList() : new ChildList();
     }
 
     public static final int NOTHING = 0;
@@ -556,11 +612,13 @@ public abstract class Box implements Styleable, DisplayListItem {
     }
     
     public void setAccessiblityObject(Object object) {
-        this._accessibilityObject = object;
+        if (object != null || _rareData != null) {
+            rareData().accessibilityObject = object;
+        }
     }
     
     public Object getAccessibilityObject() {
-        return this._accessibilityObject;
+        return _rareData != null ? _rareData.accessibilityObject : null;
     }
 
     public void paintRootElementBackground(RenderingContext c) {
@@ -806,11 +864,13 @@ public abstract class Box implements Styleable, DisplayListItem {
     }
 
     public Dimension getRelativeOffset() {
-        return _relativeOffset;
+        return _rareData != null ? _rareData.relativeOffset : null;
     }
 
     public void setRelativeOffset(Dimension relativeOffset) {
-        _relativeOffset = relativeOffset;
+        if (relativeOffset != null || _rareData != null) {
+            rareData().relativeOffset = relativeOffset;
+        }
     }
 
     public Box find(CssContext cssCtx, int absX, int absY, boolean findAnonymous) {
@@ -1028,11 +1088,13 @@ public abstract class Box implements Styleable, DisplayListItem {
     }
 
     public String getPseudoElementOrClass() {
-        return _pseudoElementOrClass;
+        return _rareData != null ? _rareData.pseudoElementOrClass : null;
     }
 
     public void setPseudoElementOrClass(String pseudoElementOrClass) {
-        _pseudoElementOrClass = pseudoElementOrClass;
+        if (pseudoElementOrClass != null || _rareData != null) {
+            rareData().pseudoElementOrClass = pseudoElementOrClass;
+        }
     }
 
     public void setX(int x) {
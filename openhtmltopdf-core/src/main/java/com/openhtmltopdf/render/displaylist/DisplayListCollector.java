@@ -41,20 +41,21 @@ public class DisplayListCollector {
 
 	/**
 	 * Adds a paint operation to a selection of pages, from pgStart to pgEnd inclusive.
+	 * The operand is shared by every page, so no per-page objects are created.
 	 */
-	protected void addItem(DisplayListOperation item, int pgStart, int pgEnd,
+	protected void addItem(int opcode, Object operand, int pgStart, int pgEnd,
 			DisplayListContainer dlPages) {
 		for (int i = pgStart; i <= pgEnd; i++) {
-			dlPages.getPageInstructions(i).addOp(item);
+			dlPages.getPageInstructions(i).addOp(opcode, operand);
 		}
 	}
 	
-	protected void addItem(DisplayListOperation item, List<PageInfo> pages, DisplayListContainer dlPages) {
+	protected void addItem(int opcode, Object operand, List<PageInfo> pages, DisplayListContainer dlPages) {
 	    for (PageInfo pg : pages) {
 	        if (pg.shadowPageNumber == PageInfo.BASE_PAGE) {
-	            dlPages.getPageInstructions(pg.pageNumber).addOp(item);
+	            dlPages.getPageInstructions(pg.pageNumber).addOp(opcode, operand);
 	        } else {
-	            dlPages.getPageInstructions(pg.pageNumber).getShadowPage(pg.shadowPageNumber).addOp(item);
+	            dlPages.getPageInstructions(pg.pageNumber).getShadowPage(pg.shadowPageNumber).addOp(opcode, operand);
 	        }
 	    }
 	}
@@ -62,9 +63,9 @@ public class DisplayListCollector {
 	protected void addTransformItem(Box master, List<PageInfo> pages, DisplayListContainer dlPages) {
 	    for (PageInfo pg : pages) {
 	        if (pg.shadowPageNumber == PageInfo.BASE_PAGE) {
-                dlPages.getPageInstructions(pg.pageNumber).addOp(new PaintPushTransformLayer(master, -1));
+                dlPages.getPageInstructions(pg.pageNumber).addOp(DisplayListPageContainer.OP_PUSH_TRANSFORM_LAYER, master, -1);
             } else {
-                dlPages.getPageInstructions(pg.pageNumber).getShadowPage(pg.shadowPageNumber).addOp(new PaintPushTransformLayer(master, pg.shadowPageNumber));
+                dlPages.getPageInstructions(pg.pageNumber).getShadowPage(pg.shadowPageNumber).addOp(DisplayListPageContainer.OP_PUSH_TRANSFORM_LAYER, master, pg.shadowPageNumber);
             }
 	    }
 	}
@@ -81,7 +82,24 @@ public class DisplayListCollector {
 		// We propagate any transformation matrixes recursively after layout has finished.
 		rootLayer.propagateCurrentTransformationMatrix(c);
 
-		DisplayListContainer displayList = new ArrayDisplayListContainer(0, _pages.size() - 1);
+		return collectPages(c, rootLayer, 0, _pages.size() - 1);
+	}
+
+	/**
+	 * Collects paint instructions for pages startPage to endPage inclusive only. Use this to collect and
+	 * paint a long document a window of pages at a time, so that only the display lists
+	 * for the current window are in memory.
+	 * <br><br>
+	 * Unlike {@link #collectRoot(RenderingContext, Layer)}, this does not propagate transforms,
+	 * so {@link Layer#propagateCurrentTransformationMatrix(RenderingContext)} must be called on the root
+	 * layer once before collecting the first window.
+	 */
+	public DisplayListContainer collectPages(RenderingContext c, Layer rootLayer, int startPage, int endPage) {
+		if (!rootLayer.isRootLayer()) {
+			return null;
+		}
+
+		DisplayListContainer displayList = new ArrayDisplayListContainer(startPage, endPage);
 
 		// Recursively collect boxes for root layer and any children layers. Don't include
 		// fixed boxes at this point. They are collected at the point of painting each page.
@@ -98,13 +116,12 @@ public class DisplayListCollector {
 			// We don't collect fixed layers or their children here, because we don't want to have
 			// to clone the entire subtree of the fixed box and all descendents.
 			// So just paint it at the last minute.
-		    DisplayListOperation dlo = new PaintFixedLayer(layer);
 		    for (int i = dlPages.getMinPage(); i <= dlPages.getMaxPage(); i++) {
 		        DisplayListPageContainer pageInstructions = dlPages.getPageInstructions(i);
-		        pageInstructions.addOp(dlo);
+		        pageInstructions.addOp(DisplayListPageContainer.OP_FIXED_LAYER, layer);
 		        
 		        for (int j = 0; j < pageInstructions.shadowPages().size(); j++) {
-		            pageInstructions.getShadowPage(j).addOp(dlo);
+		            pageInstructions.getShadowPage(j).addOp(DisplayListPageContainer.OP_FIXED_LAYER, layer);
 		        }
 		    }
 			return;
@@ -114,17 +131,26 @@ public class DisplayListCollector {
 		    return;
 		}
 
-		List<PageInfo> layerPages = PagedBoxCollector.findLayerPages(c, layer, _pages);
-		int layerPageStart = findStartPage(c, layer);
-		int layerPageEnd = findEndPage(c, layer);
+		// Only collect pages we are collecting for, all pages unless collecting a window of pages.
+		int layerPageStart = Math.max(findStartPage(c, layer), dlPages.getMinPage());
+		int layerPageEnd = Math.min(findEndPage(c, layer), dlPages.getMaxPage());
+		boolean onCollectedPages = layerPageStart <= layerPageEnd;
+
+		if (!onCollectedPages &&
+		    (layer.getChildren().isEmpty() || !(layer.isRootLayer() || layer.isStackingContext()))) {
+		    // Nothing to collect for this layer or its child layers (only stacking contexts collect their
+		    // child layers) when collecting a window of pages elsewhere in the document.
+		    return;
+		}
+
+		List<PageInfo> layerPages = PagedBoxCollector.findLayerPages(c, layer, _pages, dlPages.getMinPage(), dlPages.getMaxPage());
 		boolean pushedClip = false;
 
 		Rectangle parentClip = layer.getMaster().getParentClipBox(c, layer.getParent());
 
         if (parentClip != null) {
             // There is a clip in effect, so use it.
-		    DisplayListOperation dlo = new PaintPushClipRect(parentClip);
-		    addItem(dlo, layerPages, dlPages);
+		    addItem(DisplayListPageContainer.OP_PUSH_CLIP_RECT, parentClip, layerPages, dlPages);
 		    pushedClip = true;
 		}
 		
@@ -136,18 +162,19 @@ public class DisplayListCollector {
 
 			// IMPROVEMENT: If the background image doesn't cover every page,
 			// we could perhaps optimize this.
-			DisplayListOperation dlo = new PaintRootElementBackground(layer.getMaster());
-			addItem(dlo, dlPages.getMinPage(), dlPages.getMaxPage(), dlPages);
+			addItem(DisplayListPageContainer.OP_ROOT_ELEMENT_BACKGROUND, layer.getMaster(), dlPages.getMinPage(), dlPages.getMaxPage(), dlPages);
 		}
 		
 		if (!layer.isInline() && ((BlockBox) layer.getMaster()).isReplaced()) {
 			collectReplacedElementLayer(c, layer, dlPages, layerPageStart, layerPageEnd);
 		} else {
+			// Even if this layer is not on the pages being collected, its child layers may be.
+			PagedBoxCollector collector = onCollectedPages ? createBoundedBoxCollector(layerPageStart, layerPageEnd) : null;
 
-			PagedBoxCollector collector = createBoundedBoxCollector(layerPageStart, layerPageEnd);
-			
-			collector.collectFloats(c, layer);
-			collector.collect(c, layer);
+			if (onCollectedPages) {
+				collector.collectFloats(c, layer);
+				collector.collect(c, layer);
+			}
 
 			if (!layer.isInline() && layer.getMaster() instanceof BlockBox) {
 				collectLayerBackgroundAndBorder(c, layer, dlPages, layerPageStart, layerPageEnd);
@@ -174,13 +201,11 @@ public class DisplayListCollector {
 		}
 		
 		if (layer.hasLocalTransform()) {
-			DisplayListOperation dlo = new PaintPopTransformLayer(layer.getMaster());
-			addItem(dlo, layerPages, dlPages);
+			addItem(DisplayListPageContainer.OP_POP_TRANSFORM_LAYER, layer.getMaster(), layerPages, dlPages);
 		}
 		
         if (pushedClip) {
-		    DisplayListOperation dlo = new PaintPopClipRect();
-            addItem(dlo, layerPages, dlPages);
+            addItem(DisplayListPageContainer.OP_POP_CLIP_RECT, null, layerPages, dlPages);
 		}
 	}
 
@@ -192,8 +217,7 @@ public class DisplayListCollector {
         if (!pg.blocks().isEmpty()) {
             Map<TableCellBox, List<CollapsedBorderSide>> collapsedTableBorders = pg.tcells().isEmpty() ? null
                     : collectCollapsedTableBorders(c, pg.tcells());
-            DisplayListOperation dlo = new PaintBackgroundAndBorders(pg.blocks(), collapsedTableBorders);
-            dlPageList.addOp(dlo);
+            dlPageList.addBackgroundAndBorders(pg.blocks(), collapsedTableBorders);
         }
         
         if (includeFloats) {
@@ -203,18 +227,15 @@ public class DisplayListCollector {
         }
 
         if (!pg.listItems().isEmpty()) {
-            DisplayListOperation dlo = new PaintListMarkers(pg.listItems());
-            dlPageList.addOp(dlo);
+            dlPageList.addOp(DisplayListPageContainer.OP_LIST_MARKERS, pg.listItems());
         }
 
         if (!pg.inlines().isEmpty()) {
-            DisplayListOperation dlo = new PaintInlineContent(pg.inlines());
-            dlPageList.addOp(dlo);
+            dlPageList.addOp(DisplayListPageContainer.OP_INLINE_CONTENT, pg.inlines());
         }
 
         if (!pg.replaceds().isEmpty()) {
-            DisplayListOperation dlo = new PaintReplacedElements(pg.replaceds());
-            dlPageList.addOp(dlo);
+            dlPageList.addOp(DisplayListPageContainer.OP_REPLACED_ELEMENTS, pg.replaceds());
         }
     }
     
@@ -256,34 +277,28 @@ public class DisplayListCollector {
 
 	    if (clipBox != null) {
             // There is a clip in effect, so use it.
-            DisplayListOperation dlo = new PaintPushClipRect(clipBox);
-            pageInstructions.addOp(dlo);
+            pageInstructions.addOp(DisplayListPageContainer.OP_PUSH_CLIP_RECT, clipBox);
             pushedClip = true;
         }
 
 		processPage(c, layer, pageBoxes, pageInstructions, false, pageNumber, shadowPageNumber);
 
 		if (pushedClip) {
-		    DisplayListOperation dlo = new PaintPopClipRect();
-		    pageInstructions.addOp(dlo);
+		    pageInstructions.addOp(DisplayListPageContainer.OP_POP_CLIP_RECT, null);
 		}
 	}
 
 	private void collectLayerBackgroundAndBorder(RenderingContext c, Layer layer,
 			DisplayListContainer dlPages, int pgStart, int pgEnd) {
 
-		DisplayListOperation dlo = new PaintLayerBackgroundAndBorder(layer.getMaster());
-		addItem(dlo, pgStart, pgEnd, dlPages);
+		addItem(DisplayListPageContainer.OP_LAYER_BACKGROUND_AND_BORDER, layer.getMaster(), pgStart, pgEnd, dlPages);
 	}
 
 	private void collectReplacedElementLayer(RenderingContext c, Layer layer,
 			DisplayListContainer dlPages, int pgStart, int pgEnd) {
 
-		DisplayListOperation dlo = new PaintLayerBackgroundAndBorder(layer.getMaster());
-		addItem(dlo, pgStart, pgEnd, dlPages);
-
-		DisplayListOperation dlo2 = new PaintReplacedElement((BlockBox) layer.getMaster());
-		addItem(dlo2, pgStart, pgEnd, dlPages);
+		addItem(DisplayListPageContainer.OP_LAYER_BACKGROUND_AND_BORDER, layer.getMaster(), pgStart, pgEnd, dlPages);
+		addItem(DisplayListPageContainer.OP_REPLACED_ELEMENT, layer.getMaster(), pgStart, pgEnd, dlPages);
 	}
 
 	// Bit of a kludge here. We need to paint collapsed table borders according
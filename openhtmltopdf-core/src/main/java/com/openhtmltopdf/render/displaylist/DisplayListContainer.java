@@ -1,53 +1,213 @@
 package com.openhtmltopdf.render.displaylist;
 
+import java.awt.Rectangle;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.openhtmltopdf.layout.CollapsedBorderSide;
+import com.openhtmltopdf.layout.Layer;
+import com.openhtmltopdf.newtable.TableCellBox;
+import com.openhtmltopdf.render.BlockBox;
+import com.openhtmltopdf.render.Box;
+import com.openhtmltopdf.render.DisplayListItem;
 
 public abstract class DisplayListContainer {
+	/**
+	 * The paint operations for one page (or shadow page).
+	 * <br><br>
+	 * To keep the display list small for documents with thousands of pages, operations are not
+	 * stored as objects. Instead, each operation is encoded as one int (opcode in the low byte and an argument
+	 * above it) in a code array, with the box, layer or list it refers to at the same index of an operand array.
+	 * Use {@link #size()}, {@link #getOpcode(int)}, {@link #getOperand(int)} and {@link #getArgument(int)}
+	 * to iterate the operations without allocating.
+	 */
 	public static class DisplayListPageContainer {
-		private List<DisplayListOperation> ops = null;
+		/** Operand: the root {@link Box}. */
+		public static final int OP_ROOT_ELEMENT_BACKGROUND = 1;
+		/** Operand: the layer master {@link Box}. */
+		public static final int OP_LAYER_BACKGROUND_AND_BORDER = 2;
+		/** Operand: the replaced {@link BlockBox}. */
+		public static final int OP_REPLACED_ELEMENT = 3;
+		/** Operand: the list of blocks. See {@link #getCollapsedTableBorders(int)}. */
+		public static final int OP_BACKGROUND_AND_BORDERS = 4;
+		/** Operand: the list of blocks. */
+		public static final int OP_LIST_MARKERS = 5;
+		/** Operand: the list of inlines. */
+		public static final int OP_INLINE_CONTENT = 6;
+		/** Operand: the list of replaced elements. */
+		public static final int OP_REPLACED_ELEMENTS = 7;
+		/** Operand: the layer master {@link Box}. Argument: shadow page number or -1. */
+		public static final int OP_PUSH_TRANSFORM_LAYER = 8;
+		/** Operand: the layer master {@link Box}. */
+		public static final int OP_POP_TRANSFORM_LAYER = 9;
+		/** Operand: the fixed {@link Layer}. */
+		public static final int OP_FIXED_LAYER = 10;
+		/** Operand: the clip {@link Rectangle}. */
+		public static final int OP_PUSH_CLIP_RECT = 11;
+		/** No operand. */
+		public static final int OP_POP_CLIP_RECT = 12;
+
+		private static final int OPCODE_MASK = 0xFF;
+		private static final int ARGUMENT_SHIFT = 8;
+
+		private int[] code = null;
+		private Object[] operands = null;
+		private int opCount = 0;
+
 		private List<DisplayListPageContainer> shadowPages = null;
 		private final DisplayListPageContainer basePage;
-		
+
 		public DisplayListPageContainer(DisplayListPageContainer basePage) {
 		    this.basePage = basePage;
 		}
-		
+
 		public boolean isShadowPage() {
 		    return this.basePage != null;
 		}
-		
+
 		private DisplayListPageContainer getBasePage() {
 		    return this.basePage;
 		}
-		
+
+		private void add(int opcode, Object operand, int argument) {
+		    if (this.code == null) {
+		        this.code = new int[8];
+		        this.operands = new Object[8];
+		    } else if (this.opCount == this.code.length) {
+		        this.code = Arrays.copyOf(this.code, this.opCount * 2);
+		        this.operands = Arrays.copyOf(this.operands, this.opCount * 2);
+		    }
+		    // Arguments are -1 or a small non-negative number such as a shadow page number.
+		    this.code[this.opCount] = opcode | ((argument + 1) << ARGUMENT_SHIFT);
+		    this.operands[this.opCount] = operand;
+		    this.opCount++;
+		}
+
+		/**
+		 * Adds an operation with one operand (which may be null for {@link #OP_POP_CLIP_RECT}).
+		 */
+		public void addOp(int opcode, Object operand) {
+		    addOp(opcode, operand, -1);
+		}
+
+		public void addOp(int opcode, Object operand, int argument) {
+		    add(opcode, operand, argument);
+		}
+
+		public void addBackgroundAndBorders(List<DisplayListItem> blocks, Map<TableCellBox, List<CollapsedBorderSide>> collapsedTableBorders) {
+		    if (collapsedTableBorders == null) {
+		        add(OP_BACKGROUND_AND_BORDERS, blocks, -1);
+		    } else {
+		        // Collapsed borders are rare, so only then pay for a pair as operand.
+		        add(OP_BACKGROUND_AND_BORDERS, new Object[] { blocks, collapsedTableBorders }, 1);
+		    }
+		}
+
+		/**
+		 * Adds an operation object by encoding it. Prefer the <code>addOp</code> methods taking
+		 * an opcode, which do not need an object per operation.
+		 */
 		public void addOp(DisplayListOperation dlo) {
-			if (this.ops == null) {
-				this.ops = new ArrayList<DisplayListOperation>();
+			if (dlo instanceof PaintRootElementBackground) {
+			    addOp(OP_ROOT_ELEMENT_BACKGROUND, ((PaintRootElementBackground) dlo).getRoot());
+			} else if (dlo instanceof PaintLayerBackgroundAndBorder) {
+			    addOp(OP_LAYER_BACKGROUND_AND_BORDER, ((PaintLayerBackgroundAndBorder) dlo).getMaster());
+			} else if (dlo instanceof PaintReplacedElement) {
+			    addOp(OP_REPLACED_ELEMENT, ((PaintReplacedElement) dlo).getMaster());
+			} else if (dlo instanceof PaintBackgroundAndBorders) {
+			    PaintBackgroundAndBorders op = (PaintBackgroundAndBorders) dlo;
+			    addBackgroundAndBorders(op.getBlocks(), op.getCollapedTableBorders());
+			} else if (dlo instanceof PaintListMarkers) {
+			    addOp(OP_LIST_MARKERS, ((PaintListMarkers) dlo).getBlocks());
+			} else if (dlo instanceof PaintInlineContent) {
+			    addOp(OP_INLINE_CONTENT, ((PaintInlineContent) dlo).getInlines());
+			} else if (dlo instanceof PaintReplacedElements) {
+			    addOp(OP_REPLACED_ELEMENTS, ((PaintReplacedElements) dlo).getReplaceds());
+			} else if (dlo instanceof PaintPushTransformLayer) {
+			    PaintPushTransformLayer op = (PaintPushTransformLayer) dlo;
+			    addOp(OP_PUSH_TRANSFORM_LAYER, op.getMaster(), op.getShadowPageNumber());
+			} else if (dlo instanceof PaintPopTransformLayer) {
+			    addOp(OP_POP_TRANSFORM_LAYER, ((PaintPopTransformLayer) dlo).getMaster());
+			} else if (dlo instanceof PaintFixedLayer) {
+			    addOp(OP_FIXED_LAYER, ((PaintFixedLayer) dlo).getLayer());
+			} else if (dlo instanceof PaintPushClipRect) {
+			    addOp(OP_PUSH_CLIP_RECT, ((PaintPushClipRect) dlo).getClipBox());
+			} else if (dlo instanceof PaintPopClipRect) {
+			    addOp(OP_POP_CLIP_RECT, null);
+			} else {
+			    throw new IllegalArgumentException("Unknown display list operation: " + dlo);
 			}
-			this.ops.add(dlo);
 		}
-		
+
+		/**
+		 * @return the number of operations on this page.
+		 */
+		public int size() {
+		    return this.opCount;
+		}
+
+		public int getOpcode(int op) {
+		    return this.code[op] & OPCODE_MASK;
+		}
+
+		/**
+		 * @return the operand of the operation, or null if it has none.
+		 */
+		public Object getOperand(int op) {
+		    if (hasCollapsedTableBorders(op)) {
+		        return ((Object[]) this.operands[op])[0];
+		    }
+		    return this.operands[op];
+		}
+
+		public int getArgument(int op) {
+		    return (this.code[op] >>> ARGUMENT_SHIFT) - 1;
+		}
+
+		/**
+		 * Whether the operand is a pair of blocks and collapsed table borders. Other operations
+		 * use the argument for other things, such as the shadow page number, so check the opcode too.
+		 */
+		private boolean hasCollapsedTableBorders(int op) {
+		    return getOpcode(op) == OP_BACKGROUND_AND_BORDERS && getArgument(op) == 1;
+		}
+
+		/**
+		 * @return the collapsed table borders map of a {@link #OP_BACKGROUND_AND_BORDERS} operation, or null
+		 * for any other operation.
+		 */
+		@SuppressWarnings("unchecked")
+		public Map<TableCellBox, List<CollapsedBorderSide>> getCollapsedTableBorders(int op) {
+		    if (hasCollapsedTableBorders(op)) {
+		        return (Map<TableCellBox, List<CollapsedBorderSide>>) ((Object[]) this.operands[op])[1];
+		    }
+		    return null;
+		}
+
 		private void addShadowsUntil(int shadow) {
 		    for (int i = this.shadowPages.size(); i <= shadow; i++) {
 		        this.shadowPages.add(new DisplayListPageContainer(this));
 		    }
 		}
-		
+
 		public DisplayListPageContainer getShadowPage(int shadowNumber) {
 		    if (this.isShadowPage()) {
 		        return this.getBasePage().getShadowPage(shadowNumber);
 		    }
-		    
+
 		    if (this.shadowPages == null) {
 		        this.shadowPages = new ArrayList<DisplayListPageContainer>();
 		    }
 		    addShadowsUntil(shadowNumber);
-		    
+
 		    return this.shadowPages.get(shadowNumber);
 		}
-		
+
 		public List<DisplayListPageContainer> shadowPages() {
 		    if (this.isShadowPage()) {
 		        return this.basePage.shadowPages();
@@ -55,12 +215,75 @@ public abstract class DisplayListContainer {
 
 		    return this.shadowPages == null ? Collections.<DisplayListPageContainer>emptyList() : this.shadowPages;
 		}
-		
+
+		/**
+		 * Decodes an operation to an object.
+		 */
+		@SuppressWarnings("unchecked")
+		private DisplayListOperation decode(int op) {
+		    Object operand = getOperand(op);
+
+		    switch (getOpcode(op)) {
+		    case OP_ROOT_ELEMENT_BACKGROUND:
+		        return new PaintRootElementBackground((Box) operand);
+		    case OP_LAYER_BACKGROUND_AND_BORDER:
+		        return new PaintLayerBackgroundAndBorder((Box) operand);
+		    case OP_REPLACED_ELEMENT:
+		        return new PaintReplacedElement((BlockBox) operand);
+		    case OP_BACKGROUND_AND_BORDERS:
+		        return new PaintBackgroundAndBorders((List<DisplayListItem>) operand, getCollapsedTableBorders(op));
+		    case OP_LIST_MARKERS:
+		        return new PaintListMarkers((List<DisplayListItem>) operand);
+		    case OP_INLINE_CONTENT:
+		        return new PaintInlineContent((List<DisplayListItem>) operand);
+		    case OP_REPLACED_ELEMENTS:
+		        return new PaintReplacedElements((List<DisplayListItem>) operand);
+		    case OP_PUSH_TRANSFORM_LAYER:
+		        return new PaintPushTransformLayer((Box) operand, getArgument(op));
+		    case OP_POP_TRANSFORM_LAYER:
+		        return new PaintPopTransformLayer((Box) operand);
+		    case OP_FIXED_LAYER:
+		        return new PaintFixedLayer((Layer) operand);
+		    case OP_PUSH_CLIP_RECT:
+		        return new PaintPushClipRect((Rectangle) operand);
+		    case OP_POP_CLIP_RECT:
+		        return new PaintPopClipRect();
+		    default:
+		        throw new IllegalStateException("Unknown opcode: " + getOpcode(op));
+		    }
+		}
+
+		/**
+		 * @return a list view of the operations, decoding each to a new object as it is read.
+		 * @deprecated Allocates an object per operation, iterate with {@link #size()} and {@link #getOpcode(int)} instead.
+		 */
+		@Deprecated
 		public List<DisplayListOperation> getOperations() {
-			return this.ops == null ? Collections.<DisplayListOperation>emptyList() : this.ops;
+			return new OperationList(this);
+		}
+
+		private static class OperationList extends AbstractList<DisplayListOperation> implements RandomAccess {
+		    private final DisplayListPageContainer page;
+
+		    private OperationList(DisplayListPageContainer page) {
+		        this.page = page;
+		    }
+
+		    @Override
+		    public DisplayListOperation get(int index) {
+		        if (index < 0 || index >= page.size()) {
+		            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + page.size());
+		        }
+		        return page.decode(index);
+		    }
+
+		    @Override
+		    public int size() {
+		        return page.size();
+		    }
 		}
 	}
-	
+
 	public abstract DisplayListPageContainer getPageInstructions(int pg);
 	public abstract int getMinPage();
 	public abstract int getMaxPage();
@@ -214,83 +214,68 @@ public class DisplayListPainter {
         }
     }
 
+	@SuppressWarnings("unchecked")
 	public void paint(RenderingContext c, DisplayListPageContainer pageOperations) {
-		for (DisplayListOperation op : pageOperations.getOperations()) {
+		for (int op = 0; op < pageOperations.size(); op++) {
+			Object operand = pageOperations.getOperand(op);
 
-			if (op instanceof PaintRootElementBackground) {
+			switch (pageOperations.getOpcode(op)) {
+			case DisplayListPageContainer.OP_ROOT_ELEMENT_BACKGROUND: {
+				Box root = (Box) operand;
 
-				PaintRootElementBackground dlo = (PaintRootElementBackground) op;
-				
-				Object token = c.getOutputDevice().startStructure(StructureType.BACKGROUND, dlo.getRoot());
-				dlo.getRoot().paintRootElementBackground(c);
+				Object token = c.getOutputDevice().startStructure(StructureType.BACKGROUND, root);
+				root.paintRootElementBackground(c);
 				c.getOutputDevice().endStructure(token);
+				break;
+			}
+			case DisplayListPageContainer.OP_LAYER_BACKGROUND_AND_BORDER: {
+				Box master = (Box) operand;
 
-			} else if (op instanceof PaintLayerBackgroundAndBorder) {
+				Object outerToken = c.getOutputDevice().startStructure(StructureType.LAYER, master);
+				Object innerToken = c.getOutputDevice().startStructure(StructureType.BACKGROUND, master);
+
+				master.paintBackground(c);
+				master.paintBorder(c);
 
-				PaintLayerBackgroundAndBorder dlo = (PaintLayerBackgroundAndBorder) op;
-				
-				Object outerToken = c.getOutputDevice().startStructure(StructureType.LAYER, dlo.getMaster());
-		        Object innerToken = c.getOutputDevice().startStructure(StructureType.BACKGROUND, dlo.getMaster());
-				
-				dlo.getMaster().paintBackground(c);
-				dlo.getMaster().paintBorder(c);
-				
 				c.getOutputDevice().endStructure(innerToken);
 				c.getOutputDevice().endStructure(outerToken);
-
-			} else if (op instanceof PaintReplacedElement) {
-
-				PaintReplacedElement dlo = (PaintReplacedElement) op;
-				paintReplacedElement(c, dlo.getMaster());
-
-			} else if (op instanceof PaintBackgroundAndBorders) {
-
-				PaintBackgroundAndBorders dlo = (PaintBackgroundAndBorders) op;
-				paintBackgroundAndBorders(c, dlo.getBlocks(), dlo.getCollapedTableBorders());
-				//System.out.println("painting blocks: " + dlo.getBlocks());
-
-			} else if (op instanceof PaintListMarkers) {
-
-				PaintListMarkers dlo = (PaintListMarkers) op;
-				paintListMarkers(c, dlo.getBlocks());
-
-			} else if (op instanceof PaintInlineContent) {
-
-				PaintInlineContent dlo = (PaintInlineContent) op;
-				paintInlineContent(c, dlo.getInlines());
-				//System.out.println("painting inlines: " + dlo.getInlines());
-
-			} else if (op instanceof PaintReplacedElements) {
-
-				PaintReplacedElements dlo = (PaintReplacedElements) op;
-				paintReplacedElements(c, dlo.getReplaceds());
-
-			} else if (op instanceof PaintPushTransformLayer) {
-				
-				PaintPushTransformLayer dlo = (PaintPushTransformLayer) op;
-				pushTransform(c, dlo.getMaster(), dlo.getShadowPageNumber());
-				
-			} else if (op instanceof PaintPopTransformLayer) {
-				
-				PaintPopTransformLayer dlo = (PaintPopTransformLayer) op;
-				popTransform(c, dlo.getMaster());
-				
-			} else if (op instanceof PaintFixedLayer) {
-				
-				PaintFixedLayer dlo = (PaintFixedLayer) op;
-				Object token = c.getOutputDevice().startStructure(StructureType.RUNNING, dlo.getLayer().getMaster());
-				paintFixed(c, dlo.getLayer());
+				break;
+			}
+			case DisplayListPageContainer.OP_REPLACED_ELEMENT:
+				paintReplacedElement(c, (BlockBox) operand);
+				break;
+			case DisplayListPageContainer.OP_BACKGROUND_AND_BORDERS:
+				paintBackgroundAndBorders(c, (List<DisplayListItem>) operand, pageOperations.getCollapsedTableBorders(op));
+				break;
+			case DisplayListPageContainer.OP_LIST_MARKERS:
+				paintListMarkers(c, (List<DisplayListItem>) operand);
+				break;
+			case DisplayListPageContainer.OP_INLINE_CONTENT:
+				paintInlineContent(c, (List<DisplayListItem>) operand);
+				break;
+			case DisplayListPageContainer.OP_REPLACED_ELEMENTS:
+				paintReplacedElements(c, (List<DisplayListItem>) operand);
+				break;
+			case DisplayListPageContainer.OP_PUSH_TRANSFORM_LAYER:
+				pushTransform(c, (Box) operand, pageOperations.getArgument(op));
+				break;
+			case DisplayListPageContainer.OP_POP_TRANSFORM_LAYER:
+				popTransform(c, (Box) operand);
+				break;
+			case DisplayListPageContainer.OP_FIXED_LAYER: {
+				Layer layer = (Layer) operand;
+
+				Object token = c.getOutputDevice().startStructure(StructureType.RUNNING, layer.getMaster());
+				paintFixed(c, layer);
 				c.getOutputDevice().endStructure(token);
-				
-			} else if (op instanceof PaintPushClipRect) {
-			    
-			    PaintPushClipRect dlo = (PaintPushClipRect) op;
-			    pushClipRect(c, dlo.getClipBox());
-			    
-			} else if (op instanceof PaintPopClipRect) {
-			    
-			    popClipRect(c);
-			    
+				break;
+			}
+			case DisplayListPageContainer.OP_PUSH_CLIP_RECT:
+				pushClipRect(c, (Rectangle) operand);
+				break;
+			case DisplayListPageContainer.OP_POP_CLIP_RECT:
+				popClipRect(c);
+				break;
 			}
 		}
 	}
@@ -4,7 +4,6 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -250,6 +249,7 @@ public class PagedBoxCollector {
 	private final List<PageBox> pages;
 	private final PageFinder finder;
 	private final int startPage;
+	private final boolean partialRange;
 	
 	/**
 	 * A more efficient paged box collector that can only find boxes on pages minPage to
@@ -260,6 +260,7 @@ public class PagedBoxCollector {
 	    this.result = new ArrayList<PageResult>(maxPage - minPage + 1);
 	    this.finder = new PageFinder(pages);
 	    this.startPage = minPage;
+	    this.partialRange = minPage > 0 || maxPage < pages.size() - 1;
 	    
 	    for (int i = minPage; i <= maxPage; i++) {
 	        result.add(new PageResult());
@@ -284,7 +285,7 @@ public class PagedBoxCollector {
         	int pgStart = findStartPage(c, b, layer.getCurrentTransformMatrix());
         	int pgEnd = findEndPage(c, b, layer.getCurrentTransformMatrix());
         	
-        	for (int i = pgStart; i <= pgEnd; i++) {
+        	for (int i = getValidMinPageNumber(pgStart); i <= getValidMaxPageNumber(pgEnd); i++) {
         	    Shape pageClip = getPageResult(i).getContentWindowOnDocument(getPageBox(i), c);
         	
         		if (b.intersects(c, pageClip)) {
@@ -424,7 +425,10 @@ public class PagedBoxCollector {
                 if (container.getLayer() == null || container == layer.getMaster()) {
                     for (int i = 0; i < container.getChildCount(); i++) {
                         Box child = container.getChild(i);
-                        collect(c, layer, child, shadowPageNumber);
+
+                        if (!isOutsidePageRange(c, layer, child)) {
+                            collect(c, layer, child, shadowPageNumber);
+                        }
                     }
                 }
             }
@@ -614,7 +618,7 @@ public class PagedBoxCollector {
         
         AffineTransform ctm = container.getContainingLayer().getCurrentTransformMatrix();
         Rectangle bounds = container.getBorderBox(c);
-        FourPoint corners = ctm == null ? null : getCornersFromTransformedBounds(bounds, ctm);
+        double[] corners = ctm == null ? null : getCornersFromTransformedBounds(bounds, ctm);
 
         int maxShadowPages;
         if (basePageBox.getCutOffPageDirection() == IdentValue.LTR) { 
@@ -665,6 +669,25 @@ public class PagedBoxCollector {
         }
     }
 
+    /**
+     * Whether a box and all its descendants can be skipped because they paint entirely
+     * outside the pages this collector is collecting. This means a collector for a window of pages
+     * in a long document does not have to visit the whole box tree.
+     */
+    private boolean isOutsidePageRange(CssContext c, Layer layer, Box child) {
+        if (!this.partialRange || child instanceof TableSectionBox) {
+            // Repeating table headers and footers are moved for each page,
+            // so their current bounds tell us nothing.
+            return false;
+        }
+
+        int childStart = findStartPage(c, child, layer.getCurrentTransformMatrix());
+        int childEnd = findEndPage(c, child, layer.getCurrentTransformMatrix());
+
+        return childStart != -1 && childEnd != -1 &&
+               (childEnd < getMinPageNumber() || childStart > getMaxPageNumber());
+    }
+
     /**
      * Adds block box to appropriate flat box lists.
      */
@@ -765,32 +788,20 @@ public class PagedBoxCollector {
         return false;
     }
     
-    private static class FourPoint {
-        private final Point2D ul;
-        private final Point2D ur;
-        private final Point2D ll;
-        private final Point2D lr;
-        
-        private FourPoint(Point2D ul, Point2D ur, Point2D ll, Point2D lr) {
-            this.ul = ul;
-            this.ur = ur;
-            this.ll = ll;
-            this.lr = lr;
-        }
-    }
-    
-    private static FourPoint getCornersFromTransformedBounds(Rectangle bounds, AffineTransform transform) {
-        Point2D ul = new Point2D.Double(bounds.getMinX(), bounds.getMinY());
-        Point2D ur = new Point2D.Double(bounds.getMaxX(), bounds.getMinY());
-        Point2D ll = new Point2D.Double(bounds.getMinX(), bounds.getMaxY());
-        Point2D lr = new Point2D.Double(bounds.getMaxX(), bounds.getMaxY());
-        
-        Point2D ult = transform.transform(ul, null);
-        Point2D urt = transform.transform(ur, null);
-        Point2D llt = transform.transform(ll, null);
-        Point2D lrt = transform.transform(lr, null);
+    /**
+     * Transforms the four corners of the bounds. The corners are returned as x, y pairs in one array,
+     * rather than as point objects, as this is called for every box in a transformed layer.
+     */
+    private static double[] getCornersFromTransformedBounds(Rectangle bounds, AffineTransform transform) {
+        double minX = bounds.getMinX();
+        double minY = bounds.getMinY();
+        double maxX = bounds.getMaxX();
+        double maxY = bounds.getMaxY();
 
-        return new FourPoint(ult, urt, llt, lrt);
+        double[] corners = new double[] { minX, minY, maxX, minY, minX, maxY, maxX, maxY };
+        transform.transform(corners, 0, corners, 0, 4);
+
+        return corners;
     }
     
 	/**
@@ -798,14 +809,7 @@ public class PagedBoxCollector {
 	 * sits on. To do this we transform the four corners of the box.
 	 */
     private static double getMinYFromTransformedBox(Rectangle bounds, AffineTransform transform) {
-        FourPoint corners = getCornersFromTransformedBounds(bounds, transform);
-
-        // Now get the least Y.
-        double minY = Math.min(corners.ul.getY(), corners.ur.getY());
-        minY = Math.min(corners.ll.getY(), minY);
-        minY = Math.min(corners.lr.getY(), minY);
-        
-        return minY;
+        return getMinY(getCornersFromTransformedBounds(bounds, transform));
     }
     
 	/**
@@ -813,28 +817,14 @@ public class PagedBoxCollector {
 	 * sits on. To do this we transform the four corners of the box.
 	 */
     private static double getMaxYFromTransformedBox(Rectangle bounds, AffineTransform transform) {
-		FourPoint corners = getCornersFromTransformedBounds(bounds, transform);
-		
-		// Now get the max Y.
-		double maxY = Math.max(corners.ul.getY(), corners.ur.getY());
-		maxY = Math.max(corners.ll.getY(), maxY);
-		maxY = Math.max(corners.lr.getY(), maxY);
-		
-		return maxY;
+		return getMaxY(getCornersFromTransformedBounds(bounds, transform));
     }
     
     /**
      * There is a matrix in effect. We need the max x to see how many shadow pages need creating.
      */
     private static double getMaxXFromTransformedBox(Rectangle bounds, AffineTransform transform) {
-        FourPoint corners = getCornersFromTransformedBounds(bounds, transform);
-
-        // Now get the max X.
-        double maxX = Math.max(corners.ul.getX(), corners.ur.getX());
-        maxX = Math.max(corners.ll.getX(), maxX);
-        maxX = Math.max(corners.lr.getX(), maxX);
-        
-        return maxX;
+        return getMaxX(getCornersFromTransformedBounds(bounds, transform));
     }
     
     public static int findPageForY(CssContext c, double y, List<PageBox> pages) {
@@ -968,32 +958,20 @@ public class PagedBoxCollector {
         return bounds;
     }
     
-    private static double getMinY(FourPoint corners) {
-        double minY = Math.min(corners.ul.getY(), corners.ur.getY());
-        minY = Math.min(corners.ll.getY(), minY);
-        minY = Math.min(corners.lr.getY(), minY);
-        return minY;
+    private static double getMinY(double[] corners) {
+        return Math.min(Math.min(corners[1], corners[3]), Math.min(corners[5], corners[7]));
     }
 
-    private static double getMinX(FourPoint corners) {
-        double minX = Math.min(corners.ul.getX(), corners.ur.getX());
-        minX = Math.min(corners.ll.getX(), minX);
-        minX = Math.min(corners.lr.getX(), minX);
-        return minX;
+    private static double getMinX(double[] corners) {
+        return Math.min(Math.min(corners[0], corners[2]), Math.min(corners[4], corners[6]));
     }
     
-    private static double getMaxY(FourPoint corners) {
-        double maxY = Math.max(corners.ul.getY(), corners.ur.getY());
-        maxY = Math.max(corners.ll.getY(), maxY);
-        maxY = Math.max(corners.lr.getY(), maxY);
-        return maxY;
+    private static double getMaxY(double[] corners) {
+        return Math.max(Math.max(corners[1], corners[3]), Math.max(corners[5], corners[7]));
     }
     
-    private static double getMaxX(FourPoint corners) {
-        double maxX = Math.max(corners.ul.getX(), corners.ur.getX());
-        maxX = Math.max(corners.ll.getX(), maxX);
-        maxX = Math.max(corners.lr.getX(), maxX);
-        return maxX;
+    private static double getMaxX(double[] corners) {
+        return Math.max(Math.max(corners[0], corners[2]), Math.max(corners[4], corners[6]));
     }
     
     public static class PageInfo {
@@ -1009,7 +987,7 @@ public class PagedBoxCollector {
     
     private static void transformBounds(Rectangle bounds, AffineTransform transform) {
         if (transform != null) {
-            FourPoint corners = getCornersFromTransformedBounds(bounds, transform);
+            double[] corners = getCornersFromTransformedBounds(bounds, transform);
 
             double minX = getMinX(corners);
             double minY = getMinY(corners);
@@ -1035,6 +1013,13 @@ public class PagedBoxCollector {
      * Takes into account any transform and overflow hidden clipping.
      */
     public static List<PageInfo> findLayerPages(CssContext c, Layer layer, List<PageBox> pages) {
+        return findLayerPages(c, layer, pages, 0, pages.size() - 1);
+    }
+
+    /**
+     * As {@link #findLayerPages(CssContext, Layer, List)} but only returns pages from minPage to maxPage inclusive.
+     */
+    public static List<PageInfo> findLayerPages(CssContext c, Layer layer, List<PageBox> pages, int minPage, int maxPage) {
         PageFinder finder = new PageFinder(pages);
         Rectangle bounds = findLayerRect(c, layer);
         Box container = layer.getMaster();
@@ -1044,8 +1029,8 @@ public class PagedBoxCollector {
         transformBounds(bounds, transform);
         bounds = applyOverflowClip(bounds, overflowClip);
         
-        int firstPage = finder.findPageAdjusted(c, (int) bounds.getMinY());
-        int lastPage = finder.findPageAdjusted(c, (int) bounds.getMaxY());
+        int firstPage = Math.max(minPage, finder.findPageAdjusted(c, (int) bounds.getMinY()));
+        int lastPage = Math.min(maxPage, finder.findPageAdjusted(c, (int) bounds.getMaxY()));
         
         List<PageInfo> result = new ArrayList<PageInfo>();
         
@@ -278,7 +278,7 @@ public class XMLResource extends AbstractResource {
 
             target.setElapsedLoadTime(end - st);
 
-            XRLog.load("Loaded document in ~" + target.getElapsedLoadTime() + "ms");
+            XRLog.load(Level.INFO, () -> "Loaded document in ~" + target.getElapsedLoadTime() + "ms");
 
             target.setDocument((Document) output.getNode());
             return target;
@@ -410,7 +410,7 @@ public class XMLResource extends AbstractResource {
 
             target.setElapsedLoadTime(end - st);
 
-            XRLog.load("Loaded document in ~" + target.getElapsedLoadTime() + "ms");
+            XRLog.load(Level.INFO, () -> "Loaded document in ~" + target.getElapsedLoadTime() + "ms");
 
             target.setDocument((Document) output.getNode());
             return target;
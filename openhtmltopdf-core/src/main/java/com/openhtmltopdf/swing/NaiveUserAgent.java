@@ -182,6 +182,30 @@ public class NaiveUserAgent implements UserAgentCallback, DocumentListener {
         return is;
     }
 
+    /**
+     * Gets a stream for the resource identified by a resolved URI. If the entity tag or last
+     * modified date of a cached copy is given, the protocol's stream factory is asked to revalidate it.
+     * @return the stream, which may have a null input stream, or null if not available.
+     * @see FSStreamFactory#getUrl(String, String, String)
+     */
+    protected FSStream openStream(String uri, String eTag, String lastModified) {
+        try {
+            URI urlObj = new URI(uri);
+            String protocol = urlObj.getScheme();
+
+            if (hasProtocolFactory(protocol)) {
+                FSStreamFactory factory = getProtocolFactory(protocol);
+                return eTag == null && lastModified == null ? factory.getUrl(uri) : factory.getUrl(uri, eTag, lastModified);
+            }
+        } catch (URISyntaxException e1) {
+            XRLog.exception("bad URL given: " + uri, e1);
+            return null;
+        }
+
+        InputStream is = openStream(uri);
+        return is == null ? null : new DefaultHttpStream(is);
+    }
+
     /**
      * Gets a reader for the identified resource by a resolved URI.
      */
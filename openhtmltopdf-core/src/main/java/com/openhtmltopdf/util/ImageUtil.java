@@ -21,9 +21,12 @@ package com.openhtmltopdf.util;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -285,20 +288,122 @@ public class ImageUtil {
     }
     
     /**
-     * Get the binary content of an embedded base 64 image.
+     * Reads the characters of a string from a given index as bytes, for data URIs which
+     * should only contain ASCII. Avoids copying a (possibly very large) data URI before decoding it.
+     * Other characters are rejected, rather than read as a different ASCII character.
+     */
+    private static class AsciiCharSequenceInputStream extends InputStream {
+        private final CharSequence chars;
+        private int pos;
+
+        private AsciiCharSequenceInputStream(CharSequence chars, int start) {
+            this.chars = chars;
+            this.pos = start;
+        }
+
+        private byte next() throws IOException {
+            char c = chars.charAt(pos++);
+            if (c > 0x7F) {
+                throw new IOException("Non-ASCII character in data uri at index " + (pos - 1));
+            }
+            return (byte) c;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return pos < chars.length() ? next() : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= chars.length()) {
+                return -1;
+            }
+
+            int n = Math.min(len, chars.length() - pos);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = next();
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return chars.length() - pos;
+        }
+    }
+
+    private static int getBase64Start(String dataUri) {
+        int b64Index = dataUri.indexOf("base64,");
+        if (b64Index == -1) {
+            XRLog.load(Level.SEVERE, "Embedded data uris must be encoded in base 64.");
+            return -1;
+        }
+        return b64Index + "base64,".length();
+    }
+
+    /**
+     * Counts the bytes a base 64 encoded string will decode to, ignoring characters outside
+     * the base 64 alphabet as the MIME decoder does.
+     */
+    private static int getDecodedLength(String encoded, int start) {
+        long sextets = 0;
+        for (int i = start; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/') {
+                sextets++;
+            } else if (c == '=') {
+                break;
+            }
+        }
+        return (int) (sextets * 6 / 8);
+    }
+
+    /**
+     * Opens a stream of the decoded content of a base 64 data URI. The data URI is decoded as
+     * the stream is read, without copying it.
+     *
+     * @param dataUri a base 64 encoded data URI
+     * @return the stream or null if the data URI is not base 64 encoded.
+     */
+    public static InputStream openEmbeddedBase64Stream(String dataUri) {
+        int start = getBase64Start(dataUri);
+        return start == -1 ? null : Base64.getMimeDecoder().wrap(new AsciiCharSequenceInputStream(dataUri, start));
+    }
+
+    /**
+     * Get the binary content of an embedded base 64 image. The only allocation proportional
+     * to the size of the image is the returned array.
      *
      * @param imageDataUri URI of the embedded image
      * @return The binary content
      */
     public static byte[] getEmbeddedBase64Image(String imageDataUri) {
-        int b64Index = imageDataUri.indexOf("base64,");
-        if (b64Index != -1) {
-            String b64encoded = imageDataUri.substring(b64Index + "base64,".length());
-            return Base64.getMimeDecoder().decode(b64encoded);
-        } else {
-            XRLog.load(Level.SEVERE, "Embedded data uris must be encoded in base 64.");
+        int start = getBase64Start(imageDataUri);
+        if (start == -1) {
+            return null;
+        }
+
+        byte[] result = new byte[getDecodedLength(imageDataUri, start)];
+
+        try (InputStream in = Base64.getMimeDecoder().wrap(new AsciiCharSequenceInputStream(imageDataUri, start))) {
+            int read = 0;
+            while (read < result.length) {
+                int n = in.read(result, read, result.length - read);
+                if (n == -1) {
+                    break;
+                }
+                read += n;
+            }
+            return read == result.length ? result : Arrays.copyOf(result, read);
+        } catch (IOException e) {
+            // The MIME decoder throws if the padding is wrong, and the data uri stream if it is not ASCII.
+            XRLog.exception("Invalid base 64 data uri", e);
+            return null;
         }
-        return null;
     }
     
     public static byte[] getEmbeddedDataUri(String dataUri) {
@@ -306,22 +411,65 @@ public class ImageUtil {
     }
     
     /**
-     * Get the BufferedImage of an embedded base 64 image.
+     * Get the BufferedImage of an embedded base 64 image. The image is decoded straight from the
+     * data URI, without first decoding it to a byte array.
      *
      * @param imageDataUri URI of the embedded image
      * @return The BufferedImage
      */
     public static BufferedImage loadEmbeddedBase64Image(String imageDataUri) {
+        InputStream in = openEmbeddedBase64Stream(imageDataUri);
+        if (in == null) {
+            return null;
+        }
+
         try {
-            byte[] buffer = getEmbeddedBase64Image(imageDataUri);
-            if (buffer != null) {
-                return ImageIO.read(new ByteArrayInputStream(buffer));
-            }
+            return ImageIO.read(in);
         } catch (IOException ex) {
             XRLog.exception("Can't read XHTML embedded image", ex);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
         }
         return null;
     }
+
+    /**
+     * Returns a short cache key for a data URI, based on a SHA-256 hash of its content,
+     * so that caches do not have to hold on to very large data URI strings.
+     */
+    public static String getDataUriCacheKey(String dataUri) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+
+        // Both bytes of each char are hashed, so that URIs differing only in non-ASCII chars have different keys.
+        byte[] buf = new byte[8192];
+        int pos = 0;
+        while (pos < dataUri.length()) {
+            int n = Math.min(buf.length / 2, dataUri.length() - pos);
+            for (int i = 0; i < n; i++) {
+                char c = dataUri.charAt(pos + i);
+                buf[2 * i] = (byte) (c >> 8);
+                buf[2 * i + 1] = (byte) c;
+            }
+            digest.update(buf, 0, 2 * n);
+            pos += n;
+        }
+
+        StringBuilder key = new StringBuilder("data-sha256:");
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.append(':').append(dataUri.length()).toString();
+    }
     
     interface Scaler {
         /**
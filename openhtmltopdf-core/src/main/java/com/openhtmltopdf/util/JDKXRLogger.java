@@ -38,12 +38,21 @@ import java.util.Enumeration;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An {@link XRLogger} interface that uses <code>java.util.logging</code>.
  */
 public class JDKXRLogger implements XRLogger {
-    private static boolean initPending = true;
+    private static volatile boolean initPending = true;
+
+    /**
+     * Set while the thread holding the lock configures logging, which may itself log.
+     */
+    private static boolean initializing;
+
+    // Logger.getLogger takes a lock in the LogManager, so we keep our own lock free map.
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<String, Logger>();
     
     /* {@inheritdoc} */
     public void log(String where, Level level, String msg) {
@@ -63,6 +72,16 @@ public class JDKXRLogger implements XRLogger {
         getLogger(where).log(level, msg, th);
     }
 
+    /* {@inheritdoc} */
+    @Override
+    public boolean isLogLevelEnabled(String where, Level level) {
+        if (initPending) {
+            init();
+        }
+
+        return getLogger(where).isLoggable(level);
+    }
+
     /* {@inheritdoc} */
     public void setLevel(String logger, Level level) {
         getLogger(logger).setLevel(level);
@@ -77,16 +96,20 @@ public class JDKXRLogger implements XRLogger {
      * @return The logger value
      */
     private static Logger getLogger(String log) {
-        return Logger.getLogger(log);
+        Logger logger = LOGGERS.get(log);
+        if (logger == null) {
+            logger = Logger.getLogger(log);
+            LOGGERS.put(log, logger);
+        }
+        return logger;
     }
 
     private static void init() {
         synchronized (JDKXRLogger.class) {
-            if (!initPending) {
+            if (!initPending || initializing) {
                 return;
             }
-            //now change this immediately, in case something fails
-            initPending = false;
+            initializing = true;
             try {
                 Properties props = retrieveLoggingProperties();
 
@@ -103,6 +126,10 @@ public class JDKXRLogger implements XRLogger {
                 throw new XRRuntimeException("Could not initialize logs. " + e.getLocalizedMessage(), e);
             } catch (IOException e) {
                 throw new XRRuntimeException("Could not initialize logs. " + e.getLocalizedMessage(), e);
+            } finally {
+                // Other threads only skip init once configuration is done, even if it failed.
+                initializing = false;
+                initPending = false;
             }
         }
     }
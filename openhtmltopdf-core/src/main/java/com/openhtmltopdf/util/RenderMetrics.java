@@ -0,0 +1,169 @@
+package com.openhtmltopdf.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSRenderMetricsListener;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Counter;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Stage;
+
+/**
+ * Collects metrics for one render and reports them to a {@link FSRenderMetricsListener}.
+ * Like the rest of a render, this is not thread safe, except that cascade time and counters
+ * may be added from several threads, as with {@link com.openhtmltopdf.context.ParallelCascade}.
+ * <br><br>
+ * Use {@link #NONE} when there is no listener, in which case all methods do as little as possible
+ * and never allocate, so instrumentation can be left in hot code.
+ */
+public class RenderMetrics {
+    public static final RenderMetrics NONE = new RenderMetrics(null);
+
+    private static final boolean ALLOCATION_SUPPORTED = isAllocationSupported();
+
+    private final FSRenderMetricsListener _listener;
+    private final long[] _counters = new long[Counter.values().length];
+    private long _cascadeNanos;
+    private boolean _completed;
+
+    public RenderMetrics(FSRenderMetricsListener listener) {
+        _listener = listener;
+    }
+
+    /**
+     * Times a stage from creation until {@link #end()}.
+     */
+    public static class StageTimer {
+        private static final StageTimer NONE = new StageTimer(null, null);
+
+        private final RenderMetrics _metrics;
+        private final Stage _stage;
+        private final long _startNanos;
+        private final long _startAllocated;
+
+        private StageTimer(RenderMetrics metrics, Stage stage) {
+            _metrics = metrics;
+            _stage = stage;
+            _startAllocated = metrics != null ? currentThreadAllocatedBytes() : -1;
+            _startNanos = metrics != null ? System.nanoTime() : 0;
+        }
+
+        public void end() {
+            if (_metrics != null) {
+                long elapsed = System.nanoTime() - _startNanos;
+                long allocated = _startAllocated == -1 ? -1 : currentThreadAllocatedBytes() - _startAllocated;
+                _metrics._listener.stageCompleted(_stage, elapsed, allocated);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return _listener != null;
+    }
+
+    public StageTimer startStage(Stage stage) {
+        return isEnabled() ? new StageTimer(this, stage) : StageTimer.NONE;
+    }
+
+    /**
+     * Adds time spent in the cascade. Callers should only time the cascade if {@link #isEnabled()}.
+     */
+    public void addCascadeTime(long nanos) {
+        if (isEnabled()) {
+            synchronized (this) {
+                _cascadeNanos += nanos;
+            }
+        }
+    }
+
+    public void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    public void add(Counter counter, long value) {
+        // NONE is shared between threads, so must not be written to.
+        if (isEnabled()) {
+            synchronized (this) {
+                _counters[counter.ordinal()] += value;
+            }
+        }
+    }
+
+    /**
+     * Reports the cascade time and counters to the listener. Only the first call has an effect.
+     */
+    public void complete() {
+        if (!isEnabled() || _completed) {
+            return;
+        }
+        _completed = true;
+
+        _listener.stageCompleted(Stage.CASCADE, _cascadeNanos, -1);
+
+        Map<Counter, Long> counters = new EnumMap<Counter, Long>(Counter.class);
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, _counters[counter.ordinal()]);
+        }
+        _listener.renderCompleted(Collections.unmodifiableMap(counters));
+    }
+
+    /**
+     * Wraps a cache store so that lookups are counted as {@link Counter#CACHE_HITS} or
+     * {@link Counter#CACHE_MISSES}. If not enabled, returns the cache as is.
+     */
+    public FSCacheEx<String, FSCacheValue> countLookups(final FSCacheEx<String, FSCacheValue> cache) {
+        if (!isEnabled()) {
+            return cache;
+        }
+
+        return new FSCacheEx<String, FSCacheValue>() {
+            @Override
+            public void put(String key, FSCacheValue value) {
+                cache.put(key, value);
+            }
+
+            @Override
+            public FSCacheValue get(String key, final Callable<? extends FSCacheValue> loader) {
+                final boolean[] loaded = new boolean[1];
+                FSCacheValue value = cache.get(key, () -> {
+                    loaded[0] = true;
+                    return loader.call();
+                });
+                increment(value == null || loaded[0] ? Counter.CACHE_MISSES : Counter.CACHE_HITS);
+                return value;
+            }
+
+            @Override
+            public FSCacheValue get(String key) {
+                FSCacheValue value = cache.get(key);
+                increment(value == null ? Counter.CACHE_MISSES : Counter.CACHE_HITS);
+                return value;
+            }
+        };
+    }
+
+    private static boolean isAllocationSupported() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            return bean instanceof com.sun.management.ThreadMXBean &&
+                   ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() &&
+                   ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+        } catch (Throwable e) {
+            // Not a HotSpot based JVM or management not available.
+            return false;
+        }
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (!ALLOCATION_SUPPORTED) {
+            return -1;
+        }
+
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                   .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -34,6 +34,13 @@ public class ThreadCtx {
 			return this.sharedContext;
 		}
 		
+		/**
+		 * @return the registered shared context, or null if none.
+		 */
+		public SharedContext getSharedContext() {
+			return this.sharedContext;
+		}
+		
 		public void setSharedContext(SharedContext sharedContext) {
 			this.sharedContext = sharedContext;
 		}
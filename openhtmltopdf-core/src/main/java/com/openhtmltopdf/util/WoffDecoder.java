@@ -0,0 +1,165 @@
+package com.openhtmltopdf.util;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes WOFF 1.0 web fonts to the TrueType/OpenType (sfnt) fonts they wrap, so
+ * they can be loaded by the PDF font loader. See https://www.w3.org/TR/WOFF/
+ * <br><br>
+ * WOFF 2.0 fonts are detected, but not decoded as they are Brotli compressed and
+ * there is no Brotli decoder in the JDK.
+ */
+public class WoffDecoder {
+    private static final int WOFF_SIGNATURE = 0x774F4646;  // wOFF
+    private static final int WOFF2_SIGNATURE = 0x774F4632; // wOF2
+
+    private static final int WOFF_HEADER_SIZE = 44;
+    private static final int WOFF_TABLE_ENTRY_SIZE = 20;
+    private static final int SFNT_HEADER_SIZE = 12;
+    private static final int SFNT_TABLE_RECORD_SIZE = 16;
+
+    /**
+     * Larger than any real font, to not allocate whatever a corrupt or hostile header asks for.
+     */
+    private static final long MAX_SFNT_SIZE = 64L * 1024 * 1024;
+
+    private WoffDecoder() {
+    }
+
+    private static int signature(byte[] font) {
+        return font != null && font.length >= 4 ? ByteBuffer.wrap(font).getInt(0) : 0;
+    }
+
+    public static boolean isWoff(byte[] font) {
+        return signature(font) == WOFF_SIGNATURE;
+    }
+
+    public static boolean isWoff2(byte[] font) {
+        return signature(font) == WOFF2_SIGNATURE;
+    }
+
+    /**
+     * Decodes the font if it is a WOFF font, otherwise returns it unchanged.
+     * @throws IOException if the font is a WOFF 2.0 font or a corrupt WOFF font.
+     */
+    public static byte[] decodeIfWoff(byte[] font) throws IOException {
+        if (isWoff2(font)) {
+            throw new IOException("WOFF 2.0 fonts are not supported, please use a WOFF 1.0, TrueType or OpenType font instead");
+        }
+
+        return isWoff(font) ? decode(font) : font;
+    }
+
+    /**
+     * Decodes a WOFF 1.0 font.
+     * @return the sfnt font, with tables in the same order as the WOFF table directory.
+     * @throws IOException if the font is not a valid WOFF font.
+     */
+    public static byte[] decode(byte[] woff) throws IOException {
+        try {
+            return decode(ByteBuffer.wrap(woff));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated WOFF font", e);
+        }
+    }
+
+    private static byte[] decode(ByteBuffer in) throws IOException {
+        if (in.getInt(0) != WOFF_SIGNATURE) {
+            throw new IOException("Not a WOFF font");
+        }
+
+        int flavor = in.getInt(4);
+        int numTables = in.getShort(12) & 0xFFFF;
+        long totalSfntSize = in.getInt(16) & 0xFFFFFFFFL;
+
+        // Each table is padded to four bytes in the sfnt.
+        long minimumSfntSize = SFNT_HEADER_SIZE + (long) SFNT_TABLE_RECORD_SIZE * numTables;
+        if (numTables == 0 || totalSfntSize < minimumSfntSize || totalSfntSize > MAX_SFNT_SIZE || (totalSfntSize & 3) != 0) {
+            throw new IOException("Invalid WOFF header");
+        }
+
+        // The header size must be that of the tables, as otherwise it allocates more than needed.
+        long tablesSize = minimumSfntSize;
+        for (int i = 0; i < numTables; i++) {
+            long origLength = in.getInt(WOFF_HEADER_SIZE + i * WOFF_TABLE_ENTRY_SIZE + 12) & 0xFFFFFFFFL;
+            tablesSize += (origLength + 3) & ~3L;
+        }
+        if (tablesSize != totalSfntSize) {
+            throw new IOException("Invalid WOFF header");
+        }
+
+        byte[] sfnt = new byte[(int) totalSfntSize];
+        ByteBuffer out = ByteBuffer.wrap(sfnt);
+
+        int entrySelector = 31 - Integer.numberOfLeadingZeros(numTables);
+        int searchRange = (1 << entrySelector) * SFNT_TABLE_RECORD_SIZE;
+
+        out.putInt(flavor);
+        out.putShort((short) numTables);
+        out.putShort((short) searchRange);
+        out.putShort((short) entrySelector);
+        out.putShort((short) (numTables * SFNT_TABLE_RECORD_SIZE - searchRange));
+
+        int sfntOffset = (int) minimumSfntSize;
+        Inflater inflater = new Inflater();
+
+        try {
+            for (int i = 0; i < numTables; i++) {
+                int entry = WOFF_HEADER_SIZE + i * WOFF_TABLE_ENTRY_SIZE;
+                int tag = in.getInt(entry);
+                long offset = in.getInt(entry + 4) & 0xFFFFFFFFL;
+                long compLength = in.getInt(entry + 8) & 0xFFFFFFFFL;
+                long origLength = in.getInt(entry + 12) & 0xFFFFFFFFL;
+                int origChecksum = in.getInt(entry + 16);
+
+                if (offset + compLength > in.capacity() || compLength > origLength ||
+                    sfntOffset + origLength > sfnt.length) {
+                    throw new IOException("Invalid WOFF table directory");
+                }
+
+                out.putInt(tag);
+                out.putInt(origChecksum);
+                out.putInt(sfntOffset);
+                out.putInt((int) origLength);
+
+                if (compLength == origLength) {
+                    System.arraycopy(in.array(), (int) offset, sfnt, sfntOffset, (int) origLength);
+                } else {
+                    inflate(inflater, in.array(), (int) offset, (int) compLength, sfnt, sfntOffset, (int) origLength);
+                }
+
+                sfntOffset += (origLength + 3) & ~3;
+            }
+        } finally {
+            inflater.end();
+        }
+
+        return sfnt;
+    }
+
+    private static void inflate(Inflater inflater, byte[] in, int offset, int length, byte[] out, int outOffset, int outLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(in, offset, length);
+
+        try {
+            int read = 0;
+            while (read < outLength && !inflater.finished()) {
+                int n = inflater.inflate(out, outOffset + read, outLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+
+            if (read != outLength || !inflater.finished()) {
+                throw new IOException("WOFF table did not decompress to its original length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed WOFF table", e);
+        }
+    }
+}
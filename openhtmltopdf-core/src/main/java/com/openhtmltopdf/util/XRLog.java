@@ -22,6 +22,7 @@ package com.openhtmltopdf.util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 
@@ -29,6 +30,11 @@ import java.util.logging.Level;
  * Utility class for using the java.util.logging package. Relies on the standard
  * configuration for logging, but gives easier access to the various logs
  * (plumbing.load, .init, .render)
+ * <br><br>
+ * Logging does not take a lock once initialized, so it may be used freely by concurrent renders.
+ * Where building a message is expensive, use the {@link Supplier} overloads, which only
+ * build the message if the level is enabled for the category, or check
+ * {@link #isLogLevelEnabled(String, Level)} first.
  *
  * @author empty
  */
@@ -52,8 +58,8 @@ public class XRLog {
         return loggerName;
     }
 
-    private static boolean initPending = true;
-    private static XRLogger loggerImpl;
+    private static volatile boolean initPending = true;
+    private static volatile XRLogger loggerImpl;
 
     private static volatile Boolean loggingEnabled;
 
@@ -78,6 +84,10 @@ public class XRLog {
         log(CSS_PARSE, level, msg);
     }
 
+    public static void cssParse(Level level, Supplier<String> msg) {
+        log(CSS_PARSE, level, msg);
+    }
+
     public static void cssParse(Level level, String msg, Throwable th) {
         log(CSS_PARSE, level, msg, th);
     }
@@ -90,6 +100,10 @@ public class XRLog {
         log(XML_ENTITIES, level, msg);
     }
 
+    public static void xmlEntities(Level level, Supplier<String> msg) {
+        log(XML_ENTITIES, level, msg);
+    }
+
     public static void xmlEntities(Level level, String msg, Throwable th) {
         log(XML_ENTITIES, level, msg, th);
     }
@@ -102,6 +116,10 @@ public class XRLog {
         log(CASCADE, level, msg);
     }
 
+    public static void cascade(Level level, Supplier<String> msg) {
+        log(CASCADE, level, msg);
+    }
+
     public static void cascade(Level level, String msg, Throwable th) {
         log(CASCADE, level, msg, th);
     }
@@ -122,6 +140,10 @@ public class XRLog {
         log(GENERAL, level, msg);
     }
 
+    public static void general(Level level, Supplier<String> msg) {
+        log(GENERAL, level, msg);
+    }
+
     public static void general(Level level, String msg, Throwable th) {
         log(GENERAL, level, msg, th);
     }
@@ -134,6 +156,10 @@ public class XRLog {
         log(INIT, level, msg);
     }
 
+    public static void init(Level level, Supplier<String> msg) {
+        log(INIT, level, msg);
+    }
+
     public static void init(Level level, String msg, Throwable th) {
         log(INIT, level, msg, th);
     }
@@ -146,6 +172,10 @@ public class XRLog {
         log(JUNIT, level, msg);
     }
 
+    public static void junit(Level level, Supplier<String> msg) {
+        log(JUNIT, level, msg);
+    }
+
     public static void junit(Level level, String msg, Throwable th) {
         log(JUNIT, level, msg, th);
     }
@@ -158,6 +188,10 @@ public class XRLog {
         log(LOAD, level, msg);
     }
 
+    public static void load(Level level, Supplier<String> msg) {
+        log(LOAD, level, msg);
+    }
+
     public static void load(Level level, String msg, Throwable th) {
         log(LOAD, level, msg, th);
     }
@@ -170,6 +204,10 @@ public class XRLog {
         log(MATCH, level, msg);
     }
 
+    public static void match(Level level, Supplier<String> msg) {
+        log(MATCH, level, msg);
+    }
+
     public static void match(Level level, String msg, Throwable th) {
         log(MATCH, level, msg, th);
     }
@@ -182,6 +220,10 @@ public class XRLog {
         log(LAYOUT, level, msg);
     }
 
+    public static void layout(Level level, Supplier<String> msg) {
+        log(LAYOUT, level, msg);
+    }
+
     public static void layout(Level level, String msg, Throwable th) {
         log(LAYOUT, level, msg, th);
     }
@@ -194,26 +236,54 @@ public class XRLog {
         log(RENDER, level, msg);
     }
 
+    public static void render(Level level, Supplier<String> msg) {
+        log(RENDER, level, msg);
+    }
+
     public static void render(Level level, String msg, Throwable th) {
         log(RENDER, level, msg, th);
     }
 
-    public static synchronized void log(String where, Level level, String msg) {
-        if (initPending) {
-            init();
+    public static void log(String where, Level level, String msg) {
+        XRLogger logger = getInitializedLogger();
+        if (isLoggingEnabled()) {
+            logger.log(where, level, msg);
         }
+    }
+
+    public static void log(String where, Level level, String msg, Throwable th) {
+        XRLogger logger = getInitializedLogger();
         if (isLoggingEnabled()) {
-            loggerImpl.log(where, level, msg);
+            logger.log(where, level, msg, th);
         }
     }
 
-    public static synchronized void log(String where, Level level, String msg, Throwable th) {
+    /**
+     * Logs the message returned by <code>msg</code>, which is only called if
+     * the level is enabled for the category.
+     */
+    public static void log(String where, Level level, Supplier<String> msg) {
+        XRLogger logger = getInitializedLogger();
+        if (isLoggingEnabled() && logger.isLogLevelEnabled(where, level)) {
+            logger.log(where, level, msg.get());
+        }
+    }
+
+    /**
+     * Whether a message at this level for this category would be logged.
+     * Use this to guard building expensive log messages in hot code.
+     * @param where one of the category constants of this class, such as {@link #LAYOUT}.
+     */
+    public static boolean isLogLevelEnabled(String where, Level level) {
+        XRLogger logger = getInitializedLogger();
+        return isLoggingEnabled() && logger.isLogLevelEnabled(where, level);
+    }
+
+    private static XRLogger getInitializedLogger() {
         if (initPending) {
             init();
         }
-        if (isLoggingEnabled()) {
-            loggerImpl.log(where, level, msg, th);
-        }
+        return loggerImpl;
     }
 
     public static void main(String args[]) {
@@ -257,11 +327,8 @@ public class XRLog {
         }
     }
 
-    public static synchronized void setLevel(String log, Level level) {
-        if (initPending) {
-            init();
-        }
-        loggerImpl.setLevel(log, level);
+    public static void setLevel(String log, Level level) {
+        getInitializedLogger().setLevel(log, level);
     }
 
     /**
@@ -271,7 +338,8 @@ public class XRLog {
      * value passed to setLoggingEnabled(bool).
      */
     public static boolean isLoggingEnabled() {
-        return loggingEnabled == true;
+        Boolean enabled = loggingEnabled;
+        return enabled != null && enabled;
     }
 
     /**
@@ -285,11 +353,11 @@ public class XRLog {
         XRLog.loggingEnabled = loggingEnabled;
     }
 
-    public static synchronized XRLogger getLoggerImpl() {
+    public static XRLogger getLoggerImpl() {
         return loggerImpl;
     }
 
-    public static synchronized void setLoggerImpl(XRLogger loggerImpl) {
+    public static void setLoggerImpl(XRLogger loggerImpl) {
         XRLog.loggerImpl = loggerImpl;
     }
 }// end class
@@ -29,4 +29,13 @@ public interface XRLogger {
     public void log(String where, Level level, String msg, Throwable th);
     
     public void setLevel(String logger, Level level);
+
+    /**
+     * Whether a message for this logger and level would be logged. This is called
+     * for every message logged with a message supplier, so should be fast and not lock.
+     * The default implementation returns true so existing loggers keep working.
+     */
+    public default boolean isLogLevelEnabled(String logger, Level level) {
+        return true;
+    }
 }
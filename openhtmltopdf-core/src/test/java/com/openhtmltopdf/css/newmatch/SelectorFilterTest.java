@@ -0,0 +1,89 @@
+package com.openhtmltopdf.css.newmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.openhtmltopdf.css.extend.AttributeResolver;
+import com.openhtmltopdf.css.extend.TreeResolver;
+import com.openhtmltopdf.css.extend.lib.DOMStaticXhtmlAttributeResolver;
+import com.openhtmltopdf.css.extend.lib.DOMTreeResolver;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.sheet.Ruleset;
+import com.openhtmltopdf.css.sheet.Stylesheet;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.util.XMLUtil;
+
+public class SelectorFilterTest {
+    private static final String CSS =
+            "p, div.a, #main, .b.c, *.a, span#x.a, .a\\20 b, .report .totals td, div > p.c, p + span, [title] { color: red }";
+
+    private static final String HTML =
+            "<html><body id='main'><div class='a  b'><p class='c'>x</p><span id='x' class='a\tb'>y</span></div>" +
+            "<div class='a b c'><p title='t'>z</p><span class=''>w</span></div>" +
+            "<table class='report'><tr class='totals'><td>1</td></tr></table></body></html>";
+
+    private static void collect(Node node, List<Element> elements) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                elements.add((Element) child);
+                collect(child, elements);
+            }
+        }
+    }
+
+    private static void collect(Selector selector, List<Selector> selectors) {
+        for (Selector s = selector; s != null; s = s.getChainedSelector()) {
+            selectors.add(s);
+        }
+    }
+
+    @Test
+    public void testFilterNeverRejectsMatch() throws Exception {
+        Stylesheet sheet = new CSSParser((uri, message) -> { throw new IllegalArgumentException(message); })
+                .parseStylesheet(null, StylesheetInfo.AUTHOR, CSS);
+        List<Selector> selectors = new ArrayList<Selector>();
+        for (Selector s : ((Ruleset) sheet.getContents().get(0)).getFSSelectors()) {
+            collect(s, selectors);
+        }
+
+        Document doc = XMLUtil.documentFromString(HTML);
+        List<Element> elements = new ArrayList<Element>();
+        collect(doc, elements);
+
+        TreeResolver treeRes = new DOMTreeResolver();
+        AttributeResolver attRes = new DOMStaticXhtmlAttributeResolver();
+
+        int matched = 0;
+        int rejected = 0;
+        for (Element e : elements) {
+            long signature = SelectorFilter.signature(e, attRes, treeRes);
+            for (Selector s : selectors) {
+                if (s.matches(e, attRes, treeRes)) {
+                    assertTrue(s + " matches " + e.getTagName(), s.mayMatch(signature));
+                    matched++;
+                } else if (!s.mayMatch(signature)) {
+                    rejected++;
+                }
+            }
+        }
+
+        assertTrue(matched > 0);
+        assertTrue(rejected > 0);
+    }
+
+    @Test
+    public void testClassWithSpaceNotFiltered() {
+        assertEquals(0, SelectorFilter.classBits("a b"));
+        assertEquals(0, SelectorFilter.classBits(""));
+        assertNotEquals(0, SelectorFilter.classBits("a"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.openhtmltopdf.css.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.sheet.PropertyDeclaration;
+import com.openhtmltopdf.css.sheet.Ruleset;
+import com.openhtmltopdf.css.sheet.Stylesheet;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+
+public class CSSParserTest {
+    private static CSSParser createParser() {
+        return new CSSParser(new CSSErrorHandler() {
+            @Override
+            public void error(String uri, String message) {
+                throw new IllegalArgumentException(message);
+            }
+        });
+    }
+
+    private static List<PropertyDeclaration> declarations(Stylesheet sheet, int rule) {
+        return ((Ruleset) sheet.getContents().get(rule)).getPropertyDeclarations();
+    }
+
+    private static PropertyValue value(Stylesheet sheet, int rule, int declaration) {
+        return (PropertyValue) declarations(sheet, rule).get(declaration).getValue();
+    }
+
+    @Test
+    public void testStringMatchesReader() throws IOException {
+        StringBuilder css = new StringBuilder();
+        // Larger than the lexer buffer.
+        for (int i = 0; i < 1000; i++) {
+            css.append("DIV.c").append(i).append(" > P { MARGIN: ").append(i % 10).append(".25Px -2EM; ");
+            css.append("font-family: 'A\\\n B', Serif; content: '\\2192  x'; color: #").append(i % 10).append("aB; }\n");
+        }
+
+        Stylesheet fromString = createParser().parseStylesheet(null, StylesheetInfo.AUTHOR, css.toString());
+        Stylesheet fromReader = createParser().parseStylesheet(null, StylesheetInfo.AUTHOR, new StringReader(css.toString()));
+
+        assertEquals(fromReader.getContents().size(), fromString.getContents().size());
+        for (int i = 0; i < fromReader.getContents().size(); i++) {
+            List<PropertyDeclaration> expected = declarations(fromReader, i);
+            List<PropertyDeclaration> actual = declarations(fromString, i);
+
+            assertEquals(expected.size(), actual.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getFingerprint(), actual.get(j).getFingerprint());
+            }
+        }
+
+        // A later small text must not see the rest of the large one.
+        CSSParser parser = createParser();
+        parser.parseStylesheet(null, StylesheetInfo.AUTHOR, css.toString());
+        assertEquals(1, parser.parseStylesheet(null, StylesheetInfo.AUTHOR, "p { color: red }").getContents().size());
+    }
+
+    @Test
+    public void testIdentifiers() throws IOException {
+        Stylesheet sheet = createParser().parseStylesheet(null, StylesheetInfo.AUTHOR,
+                "P.Note { TEXT-ALIGN: Center; FONT-FAMILY: \\41 rial, 'Sans\\\" X', SERIF; content: 'a\\2192 b'; }" +
+                "p { text-align: CENTER } p { Text-Align: RIGHT }");
+
+        assertEquals(CSSName.TEXT_ALIGN, declarations(sheet, 0).get(0).getCSSName());
+        assertEquals(IdentValue.CENTER, declarations(sheet, 0).get(0).asIdentValue());
+        assertEquals(IdentValue.CENTER, declarations(sheet, 1).get(0).asIdentValue());
+        assertEquals(IdentValue.RIGHT, declarations(sheet, 2).get(0).asIdentValue());
+
+        // Escapes are replaced, and font family names keep their case.
+        assertEquals(Arrays.asList("Arial", "Sans\" X", "SERIF"),
+                Arrays.asList(value(sheet, 0, 1).getStringArrayValue()));
+        assertEquals("a\u2192b", ((PropertyValue) value(sheet, 0, 2).getValues().get(0)).getStringValue());
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        Random random = new Random(42);
+        StringBuilder css = new StringBuilder("p { ");
+        String[] numbers = new String[2000];
+        for (int i = 0; i < numbers.length; i++) {
+            switch (i % 4) {
+            case 0:
+                numbers[i] = Integer.toString(random.nextInt(1000));
+                break;
+            case 1:
+                numbers[i] = random.nextInt(100) + "." + random.nextInt(100000);
+                break;
+            case 2:
+                // Too many digits for the float mantissa.
+                numbers[i] = Long.toString(Math.abs(random.nextLong())) + "." + random.nextInt(1000);
+                break;
+            default:
+                numbers[i] = "." + Math.abs(random.nextLong()) + "0001";
+                break;
+            }
+            css.append("width: ").append(numbers[i]).append(i % 2 == 0 ? "px" : "pt").append("; ");
+        }
+        css.append("line-height: 007.50; z-index: -12 }");
+
+        Stylesheet sheet = createParser().parseStylesheet(null, StylesheetInfo.AUTHOR, css.toString());
+        for (int i = 0; i < numbers.length; i++) {
+            assertEquals(numbers[i], Float.parseFloat(numbers[i]), value(sheet, 0, i).getFloatValue(), 0f);
+        }
+        assertEquals(7.5f, value(sheet, 0, numbers.length).getFloatValue(), 0f);
+        assertEquals("-12", value(sheet, 0, numbers.length + 1).getCssText());
+        assertEquals(-12f, value(sheet, 0, numbers.length + 1).getFloatValue(), 0f);
+    }
+}
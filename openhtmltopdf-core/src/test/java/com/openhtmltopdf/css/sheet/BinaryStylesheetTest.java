@@ -0,0 +1,115 @@
+package com.openhtmltopdf.css.sheet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.openhtmltopdf.css.constants.MarginBoxName;
+import com.openhtmltopdf.css.newmatch.Selector;
+import com.openhtmltopdf.css.parser.CSSErrorHandler;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.parser.PropertyValue;
+
+public class BinaryStylesheetTest {
+    private static final String CSS =
+            "@font-face { font-family: 'Test Sans'; font-weight: bold; }\n" +
+            "@page :first { size: A4 landscape; margin: 1cm 2cm; @top-center { content: counter(page) ' of ' counter(pages); } }\n" +
+            "@page wide { size: 400mm 300mm; }\n" +
+            "@media print { p.note { color: rgb(10, 20, 30); } }\n" +
+            "html, body { font: italic bold 12px/1.5 'Test Sans', serif; }\n" +
+            "div > p + p.first:first-child, a[href^='http']:link::before { content: '\\2192' attr(title); counter-increment: item 2; }\n" +
+            "#main li:nth-child(2n+1)[lang|=en] { background: transparent no-repeat; border: 1px solid #abc !important; }\n" +
+            "td:nth-child(3), span:lang(de) { width: 50%; -fs-table-layout-sample: 10; }\n";
+
+    // URIs and CMYK colors are left out, as they need a renderer.
+    private static Stylesheet parse() throws IOException {
+        CSSParser parser = new CSSParser(new CSSErrorHandler() {
+            @Override
+            public void error(String uri, String message) {
+                throw new IllegalArgumentException(message);
+            }
+        });
+        return parser.parseStylesheet("http://example.com/test.css", StylesheetInfo.AUTHOR, new StringReader(CSS));
+    }
+
+    private static byte[] write(Stylesheet sheet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryStylesheet.write(sheet, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Stylesheet sheet = parse();
+        byte[] bytes = write(sheet);
+        Stylesheet read = BinaryStylesheet.read(ByteBuffer.wrap(bytes));
+
+        // Everything written must be read back.
+        assertArrayEquals(bytes, write(read));
+
+        assertEquals(sheet.getURI(), read.getURI());
+        assertEquals(sheet.getContents().size(), read.getContents().size());
+        assertEquals(true, read.getFontFaceRules().get(0).hasFontWeight());
+
+        PageRule page = (PageRule) read.getContents().get(0);
+        assertEquals(((PageRule) sheet.getContents().get(0)).getOrder(), page.getOrder());
+        assertNotNull(page.getMarginBoxProperties(MarginBoxName.TOP_CENTER));
+
+        for (int i = 0; i < sheet.getContents().size(); i++) {
+            if (sheet.getContents().get(i) instanceof Ruleset) {
+                Ruleset expected = (Ruleset) sheet.getContents().get(i);
+                Ruleset actual = (Ruleset) read.getContents().get(i);
+
+                assertEquals(expected.getPropertyDeclarations().size(), actual.getPropertyDeclarations().size());
+                for (int j = 0; j < expected.getPropertyDeclarations().size(); j++) {
+                    PropertyDeclaration decl = expected.getPropertyDeclarations().get(j);
+                    // The text of counter values includes identity hash codes.
+                    if (((PropertyValue) decl.getValue()).getPropertyValueType() != PropertyValue.VALUE_TYPE_COUNTERS) {
+                        assertEquals(decl.getFingerprint(), actual.getPropertyDeclarations().get(j).getFingerprint());
+                    }
+                    assertEquals(decl.getImportanceAndOrigin(), actual.getPropertyDeclarations().get(j).getImportanceAndOrigin());
+                }
+
+                for (int j = 0; j < expected.getFSSelectors().size(); j++) {
+                    Selector selector = expected.getFSSelectors().get(j);
+                    Selector actualSelector = actual.getFSSelectors().get(j);
+                    assertEquals(actual, actualSelector.getRuleset());
+                    assertEquals(selector.getSpecificityB(), actualSelector.getSpecificityB());
+                    assertEquals(selector.getSpecificityC(), actualSelector.getSpecificityC());
+                    assertEquals(selector.getSpecificityD(), actualSelector.getSpecificityD());
+                    assertEquals(selector.getPseudoElement(), actualSelector.getPseudoElement());
+                }
+            }
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoadMapped() throws IOException {
+        byte[] bytes = write(parse());
+        Path file = folder.newFile("test.fscss").toPath();
+        Files.write(file, bytes);
+
+        assertArrayEquals(bytes, write(BinaryStylesheet.load(file)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] bytes = write(parse());
+        BinaryStylesheet.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 10)));
+    }
+}
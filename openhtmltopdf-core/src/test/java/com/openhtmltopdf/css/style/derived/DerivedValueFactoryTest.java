@@ -0,0 +1,48 @@
+package com.openhtmltopdf.css.style.derived;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.parser.CSSErrorHandler;
+import com.openhtmltopdf.css.parser.CSSParser;
+import com.openhtmltopdf.css.parser.PropertyValue;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.css.style.FSDerivedValue;
+
+public class DerivedValueFactoryTest {
+    private static final CSSParser PARSER = new CSSParser(new CSSErrorHandler() {
+        @Override
+        public void error(String uri, String message) {
+            throw new IllegalArgumentException(message);
+        }
+    });
+
+    private static FSDerivedValue derive(CSSName cssName, String css) {
+        PropertyValue value = PARSER.parsePropertyValue(cssName, StylesheetInfo.AUTHOR, css);
+        return DerivedValueFactory.newDerivedValue(null, cssName, value);
+    }
+
+    @Test
+    public void testAbsoluteLengthsShared() {
+        FSDerivedValue first = derive(CSSName.PADDING_TOP, "12px");
+        assertSame(first, derive(CSSName.PADDING_TOP, "12px"));
+        assertSame(first, derive(CSSName.MARGIN_LEFT, "12px"));
+        assertEquals(12f, first.asFloat(), 0f);
+    }
+
+    @Test
+    public void testColorsShared() {
+        assertSame(derive(CSSName.COLOR, "#123456"), derive(CSSName.BACKGROUND_COLOR, "#123456"));
+    }
+
+    @Test
+    public void testFontRelativeLengthsNotShared() {
+        // These are converted with the font of the style they belong to.
+        assertNotSame(derive(CSSName.PADDING_TOP, "2em"), derive(CSSName.PADDING_TOP, "2em"));
+        assertNotSame(derive(CSSName.PADDING_TOP, "50%"), derive(CSSName.PADDING_TOP, "50%"));
+    }
+}
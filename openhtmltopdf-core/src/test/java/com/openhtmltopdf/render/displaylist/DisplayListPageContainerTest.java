@@ -0,0 +1,67 @@
+package com.openhtmltopdf.render.displaylist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.openhtmltopdf.render.DisplayListItem;
+import com.openhtmltopdf.render.displaylist.DisplayListContainer.DisplayListPageContainer;
+
+public class DisplayListPageContainerTest {
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testEncodeDecode() {
+        DisplayListPageContainer page = new DisplayListPageContainer(null);
+        Rectangle clip = new Rectangle(1, 2, 3, 4);
+        List<DisplayListItem> inlines = new ArrayList<>();
+
+        page.addOp(DisplayListPageContainer.OP_PUSH_CLIP_RECT, clip);
+        page.addOp(new PaintPushTransformLayer(null, 3));
+        page.addBackgroundAndBorders(inlines, null);
+        page.addBackgroundAndBorders(inlines, new HashMap<>());
+        // Enough operations to grow the arrays.
+        for (int i = 0; i < 20; i++) {
+            page.addOp(DisplayListPageContainer.OP_INLINE_CONTENT, inlines);
+        }
+        page.addOp(DisplayListPageContainer.OP_POP_CLIP_RECT, null);
+
+        assertEquals(25, page.size());
+        assertEquals(DisplayListPageContainer.OP_PUSH_CLIP_RECT, page.getOpcode(0));
+        assertSame(clip, page.getOperand(0));
+        assertEquals(DisplayListPageContainer.OP_PUSH_TRANSFORM_LAYER, page.getOpcode(1));
+        assertEquals(3, page.getArgument(1));
+        assertSame(inlines, page.getOperand(2));
+        assertNull(page.getCollapsedTableBorders(2));
+        assertSame(inlines, page.getOperand(3));
+        assertEquals(Collections.emptyMap(), page.getCollapsedTableBorders(3));
+        assertSame(inlines, page.getOperand(23));
+        assertEquals(DisplayListPageContainer.OP_POP_CLIP_RECT, page.getOpcode(24));
+        assertNull(page.getOperand(24));
+
+        assertTrue(page.getOperations().get(1) instanceof PaintPushTransformLayer);
+        assertEquals(3, ((PaintPushTransformLayer) page.getOperations().get(1)).getShadowPageNumber());
+        assertTrue(page.getOperations().get(24) instanceof PaintPopClipRect);
+    }
+
+    @Test
+    public void testArgumentOneIsOnlyCollapsedBordersForBackgroundAndBorders() {
+        DisplayListPageContainer page = new DisplayListPageContainer(null);
+        Rectangle master = new Rectangle();
+
+        // Shadow page 1 has the same argument as the collapsed borders pair.
+        page.addOp(DisplayListPageContainer.OP_PUSH_TRANSFORM_LAYER, master, 1);
+
+        assertEquals(1, page.getArgument(0));
+        assertSame(master, page.getOperand(0));
+        assertNull(page.getCollapsedTableBorders(0));
+    }
+}
@@ -1,6 +1,9 @@
 package com.openhtmltopdf.util;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Base64;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import org.junit.Test;
@@ -23,4 +26,39 @@ public class ImageUtilTest {
         Assert.assertThat(result.getWidth(), is(1));
     }
 
+    @Test
+    public void testGetEmbeddedBase64ImageMatchesMimeDecoder() {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        // MIME encoding adds line breaks, which must be skipped.
+        String encoded = Base64.getMimeEncoder().encodeToString(data);
+        
+        for (int length = 0; length <= 3; length++) {
+            byte[] expected = Arrays.copyOf(data, data.length - length);
+            String uri = "data:image/png;base64," + Base64.getMimeEncoder().encodeToString(expected);
+            Assert.assertArrayEquals(expected, ImageUtil.getEmbeddedBase64Image(uri));
+        }
+        
+        Assert.assertArrayEquals(data, ImageUtil.getEmbeddedBase64Image("data:image/png;base64, " + encoded + "\n"));
+    }
+
+    @Test
+    public void testGetDataUriCacheKey() {
+        String one = "data:image/png;base64,AAAA";
+        String two = "data:image/png;base64,AAAB";
+        Assert.assertEquals(ImageUtil.getDataUriCacheKey(one), ImageUtil.getDataUriCacheKey(new String(one)));
+        Assert.assertNotEquals(ImageUtil.getDataUriCacheKey(one), ImageUtil.getDataUriCacheKey(two));
+
+        // Chars with the same low byte.
+        Assert.assertNotEquals(ImageUtil.getDataUriCacheKey(one), ImageUtil.getDataUriCacheKey("data:image/png;base64,AAA\u0141"));
+    }
+
+    @Test
+    public void testNonAsciiDataUriRejected() {
+        // U+0141 would be read as 'A' if truncated to a byte.
+        Assert.assertNull(ImageUtil.getEmbeddedBase64Image("data:image/png;base64,AAA\u0141"));
+    }
+
 }
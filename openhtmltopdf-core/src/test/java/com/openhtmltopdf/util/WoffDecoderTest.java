@@ -0,0 +1,95 @@
+package com.openhtmltopdf.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+public class WoffDecoderTest {
+    private static final byte[] TABLE_ONE = "a table that compresses well, well, well, well, well, well".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TABLE_TWO = { 1, 2, 3, 4, 5 };
+
+    /**
+     * The sfnt font with the two tables, as the decoder should produce it.
+     */
+    private static byte[] sfnt() {
+        ByteBuffer out = ByteBuffer.allocate(12 + 2 * 16 + pad(TABLE_ONE.length) + pad(TABLE_TWO.length));
+        out.putInt(0x00010000).putShort((short) 2).putShort((short) 32).putShort((short) 1).putShort((short) 0);
+        out.putInt(0x61616161).putInt(11).putInt(44).putInt(TABLE_ONE.length);
+        out.putInt(0x62626262).putInt(22).putInt(44 + pad(TABLE_ONE.length)).putInt(TABLE_TWO.length);
+        out.put(TABLE_ONE);
+        // Buffer, as ByteBuffer.position(int) is missing on Java 8.
+        ((Buffer) out).position(44 + pad(TABLE_ONE.length));
+        out.put(TABLE_TWO);
+        return out.array();
+    }
+
+    /**
+     * A WOFF font with the first table compressed and the second stored.
+     */
+    private static byte[] woff() {
+        Deflater deflater = new Deflater();
+        deflater.setInput(TABLE_ONE);
+        deflater.finish();
+        byte[] buf = new byte[256];
+        byte[] compressed = Arrays.copyOf(buf, deflater.deflate(buf));
+        deflater.end();
+
+        int dataStart = 44 + 2 * 20;
+        ByteBuffer out = ByteBuffer.allocate(dataStart + pad(compressed.length) + TABLE_TWO.length);
+        out.putInt(0x774F4646).putInt(0x00010000).putInt(out.capacity()).putShort((short) 2).putShort((short) 0);
+        out.putInt(sfnt().length).putShort((short) 1).putShort((short) 0);
+        out.putInt(0).putInt(0).putInt(0).putInt(0).putInt(0);
+        out.putInt(0x61616161).putInt(dataStart).putInt(compressed.length).putInt(TABLE_ONE.length).putInt(11);
+        out.putInt(0x62626262).putInt(dataStart + pad(compressed.length)).putInt(TABLE_TWO.length).putInt(TABLE_TWO.length).putInt(22);
+        out.put(compressed);
+        ((Buffer) out).position(dataStart + pad(compressed.length));
+        out.put(TABLE_TWO);
+        return out.array();
+    }
+
+    private static int pad(int length) {
+        return (length + 3) & ~3;
+    }
+
+    @Test
+    public void testDecode() throws IOException {
+        byte[] woff = woff();
+        assertTrue(WoffDecoder.isWoff(woff));
+        assertArrayEquals(sfnt(), WoffDecoder.decode(woff));
+    }
+
+    @Test
+    public void testNotWoffUnchanged() throws IOException {
+        byte[] sfnt = sfnt();
+        assertFalse(WoffDecoder.isWoff(sfnt));
+        assertSame(sfnt, WoffDecoder.decodeIfWoff(sfnt));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] woff = woff();
+        WoffDecoder.decode(Arrays.copyOf(woff, woff.length - 4));
+    }
+
+    @Test(expected = IOException.class)
+    public void testSfntSizeNotTablesSize() throws IOException {
+        byte[] woff = woff();
+        ByteBuffer.wrap(woff).putInt(16, sfnt().length + 1024);
+        WoffDecoder.decode(woff);
+    }
+
+    @Test(expected = IOException.class)
+    public void testWoff2NotSupported() throws IOException {
+        WoffDecoder.decodeIfWoff(new byte[] { 0x77, 0x4F, 0x46, 0x32, 0, 0, 0, 0 });
+    }
+}
@@ -1,5 +1,7 @@
 package com.openhtmltopdf.util;
 
+import java.util.logging.Level;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -12,5 +14,15 @@ public class XRLogTest {
 		XRLog.load("First log");
 		Assert.assertFalse(XRLog.isLoggingEnabled());
 	}
+
+	@Test
+	public void testMessageSupplierNotCalledWhenDisabled() {
+		XRLog.setLoggingEnabled(false);
+		Assert.assertFalse(XRLog.isLogLevelEnabled(XRLog.LOAD, Level.SEVERE));
+		XRLog.load(Level.SEVERE, () -> {
+			Assert.fail("Message built while logging disabled");
+			return null;
+		});
+	}
 	
 }
@@ -0,0 +1,61 @@
+package com.openhtmltopdf.performance;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.openhtmltopdf.pdfboxout.PdfBatchRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+/**
+ * Measures documents per second rendered with {@link PdfBatchRenderer} as the number
+ * of worker threads increases from one to the number of available processors.
+ */
+public class BatchThroughputBenchmark {
+    private static final int DOCUMENTS_PER_RUN = 200;
+
+    private static double run(String html, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            PdfBatchRenderer batch = new PdfBatchRenderer(executor);
+            batch.withSharedConfiguration(PdfRendererBuilder::useFastMode);
+
+            List<Consumer<PdfRendererBuilder>> documents = new ArrayList<>(DOCUMENTS_PER_RUN);
+            for (int i = 0; i < DOCUMENTS_PER_RUN; i++) {
+                documents.add(builder -> {
+                    builder.withHtmlContent(html, null);
+                    builder.toStream(new ByteArrayOutputStream(0xffff));
+                });
+            }
+
+            // Warm up the shared caches and JIT before timing.
+            CompletableFuture.allOf(batch.submitAll(documents.subList(0, threads * 2)).toArray(new CompletableFuture[0])).join();
+
+            long start = System.nanoTime();
+            CompletableFuture.allOf(batch.submitAll(documents).toArray(new CompletableFuture[0])).join();
+            long elapsed = System.nanoTime() - start;
+
+            return DOCUMENTS_PER_RUN / (elapsed / 1_000_000_000d);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        String html = PerformanceCaseGenerator.tableRows(100);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            System.out.println(String.format("%d thread(s): %.1f documents/second", threads, run(html, threads)));
+        }
+
+        if (Integer.bitCount(cores) != 1) {
+            System.out.println(String.format("%d thread(s): %.1f documents/second", cores, run(html, cores)));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.openhtmltopdf.performance;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.Consumer;
+
+import com.openhtmltopdf.latexsupport.LaTeXDOMMutator;
+import com.openhtmltopdf.mathmlsupport.MathMLDrawer;
+import com.openhtmltopdf.objects.StandardObjectDrawerFactory;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartPrefetcher;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+/**
+ * Times repeated runs of the performance cases, unlike {@link ProfilingCaseRunner}
+ * which waits for a profiler to be attached.
+ */
+public class BenchmarkCaseRunner {
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private static long runOnce(String html, Consumer<PdfRendererBuilder> config) throws Exception {
+        long start = System.nanoTime();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(0xffff);
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.withHtmlContent(html, null);
+        builder.toStream(baos);
+        builder.useFastMode();
+        config.accept(builder);
+        builder.run();
+        return System.nanoTime() - start;
+    }
+
+    public static void run(String name, String html, Consumer<PdfRendererBuilder> config) throws Exception {
+        System.out.println("Starting benchmark case: " + name);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runOnce(html, config);
+        }
+
+        long total = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            total += runOnce(html, config);
+        }
+
+        System.out.println("Benchmark case " + name + " took an average of " + (total / MEASURED_RUNS / 1_000_000) + " milliseconds.");
+    }
+
+    public static void main(String... args) throws Exception {
+        run("formulas", PerformanceCaseGenerator.formulas(2_000), builder -> {
+            builder.useMathMLDrawer(new MathMLDrawer());
+            builder.addDOMMutator(LaTeXDOMMutator.INSTANCE);
+        });
+
+        run("charts", PerformanceCaseGenerator.charts(500), builder -> {
+            StandardObjectDrawerFactory factory = new StandardObjectDrawerFactory();
+            builder.useObjectDrawerFactory(factory);
+            builder.addDOMMutator(new JFreeChartPrefetcher(factory));
+        });
+
+        run("internal-links", PerformanceCaseGenerator.internalLinks(20_000), builder -> {});
+
+        run("table-rows", PerformanceCaseGenerator.tableRows(50_000), builder -> {});
+        run("table-rows-sampled", PerformanceCaseGenerator.tableRows(50_000, 100), builder -> {});
+
+        run("paginated-table", PerformanceCaseGenerator.paginatedTable(20_000), builder -> {});
+    }
+
+}
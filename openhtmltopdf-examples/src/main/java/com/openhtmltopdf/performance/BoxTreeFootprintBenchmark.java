@@ -0,0 +1,61 @@
+package com.openhtmltopdf.performance;
+
+import java.io.ByteArrayOutputStream;
+
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+/**
+ * Measures the heap retained by a laid out box tree for a large table, as a rough
+ * guide to the memory needed per box. Run with a fixed heap for stable results, for example
+ * <code>-Xms2g -Xmx2g</code>.
+ */
+public class BoxTreeFootprintBenchmark {
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        // GC until the used heap stops shrinking, as a single call is only a hint.
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+
+        return used;
+    }
+
+    public static void run(int rows) throws Exception {
+        run("Table of " + rows + " rows", PerformanceCaseGenerator.tableRows(rows), rows, "row");
+    }
+
+    public static void run(String description, String html, int count, String unit) throws Exception {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.withHtmlContent(html, null);
+        builder.toStream(new ByteArrayOutputStream());
+
+        try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+            long before = usedHeapAfterGc();
+            renderer.layout();
+            long after = usedHeapAfterGc();
+
+            long retained = after - before;
+            System.out.println(description + ": box tree retains " + (retained / 1024) + " KB, " +
+                    (retained / count) + " bytes per " + unit + ", " + renderer.getRootBox().getLayer().getPages().size() + " pages.");
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        run(1_000); // Warm up.
+        run(10_000);
+        run(50_000);
+
+        // Most of these elements have a style of their own.
+        run("Inline styles on 50000 elements", PerformanceCaseGenerator.inlineStyles(50_000), 50_000, "element");
+    }
+}
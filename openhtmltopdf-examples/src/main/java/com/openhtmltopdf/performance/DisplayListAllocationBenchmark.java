@@ -0,0 +1,51 @@
+package com.openhtmltopdf.performance;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import com.openhtmltopdf.extend.FSRenderMetricsListener;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+/**
+ * Measures the bytes allocated while collecting the display list for a document of
+ * many pages (see {@link PerformanceCaseGenerator#pages(int)}), using the render metrics listener.
+ * Both collecting all pages at once and a window of pages at a time are measured.
+ * Needs a JVM that supports thread allocation counting, such as HotSpot.
+ */
+public class DisplayListAllocationBenchmark {
+    private static void run(int pages, int window) throws Exception {
+        long[] allocated = new long[1];
+        long[] nanos = new long[1];
+
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.useIncrementalDisplayList(window);
+        builder.withHtmlContent(PerformanceCaseGenerator.pages(pages), null);
+        builder.toStream(new ByteArrayOutputStream());
+        builder.useRenderMetricsListener(new FSRenderMetricsListener() {
+            @Override
+            public void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes) {
+                if (stage == Stage.DISPLAY_LIST) {
+                    allocated[0] += allocatedBytes;
+                    nanos[0] += elapsedNanos;
+                }
+            }
+
+            @Override
+            public void renderCompleted(Map<Counter, Long> counters) {
+            }
+        });
+        builder.run();
+
+        System.out.println(pages + " pages, " + (window == 0 ? "all pages at once" : window + " pages at a time") +
+                ": display list allocated " + (allocated[0] / 1024) + " KB, " +
+                (allocated[0] / pages) + " bytes per page, in " + (nanos[0] / 1_000_000) + " ms.");
+    }
+
+    public static void main(String... args) throws Exception {
+        run(500, 0); // Warm up.
+        run(500, 50);
+        run(5_000, 0);
+        run(5_000, 50);
+    }
+}
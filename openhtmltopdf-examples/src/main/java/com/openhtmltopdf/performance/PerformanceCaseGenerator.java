@@ -23,7 +23,16 @@ public class PerformanceCaseGenerator {
     }
     
     public static String tableRows(int howMany) {
-        final String hdr = "<html><head><style>tr:nth-child(odd) > td { background-color: orange; } table { border-collapse: collapse; }" +
+        return tableRows(howMany, 0);
+    }
+
+    /**
+     * As {@link #tableRows(int)}, with column widths found from only the first
+     * <code>layoutSample</code> rows, or every row if zero.
+     */
+    public static String tableRows(int howMany, int layoutSample) {
+        final String hdr = "<html><head><style>tr:nth-child(odd) > td { background-color: orange; } table { border-collapse: collapse; " +
+                           "-fs-table-layout-sample: " + layoutSample + "; }" +
                            "</style></head><body><table>";
         final String tr = "<tr><td>One</td><td>Two</td><td>Three</td></tr>";
         final String ftr = "</table></body></html>";
@@ -33,4 +42,116 @@ public class PerformanceCaseGenerator {
                         .collect(Collectors.joining("\n", hdr, ftr));
     }
 
+    /**
+     * A long table paginated with -fs-table-paginate, with a multi-row header
+     * and a footer repeated on every page.
+     */
+    public static String paginatedTable(int howMany) {
+        final String hdr = "<html><head><style>table { -fs-table-paginate: paginate; border-collapse: collapse; } " +
+                           "th { border: 1px solid black; background-color: #ccc; } td { border: 1px solid gray; }</style></head><body><table><thead>";
+        final String heading = IntStream.range(0, 4)
+                                        .mapToObj(r -> IntStream.range(0, 6)
+                                                                .mapToObj(col -> "<th>Heading " + r + "." + col + " with some longer text</th>")
+                                                                .collect(Collectors.joining("", "<tr>", "</tr>")))
+                                        .collect(Collectors.joining("", "", "</thead><tfoot><tr><td colspan=\"6\">Footer</td></tr></tfoot><tbody>"));
+        final String ftr = "</tbody></table></body></html>";
+
+        return IntStream.range(0, howMany)
+                        .mapToObj(i -> IntStream.range(0, 6).mapToObj(col -> "<td>" + i + "</td>").collect(Collectors.joining("", "<tr>", "</tr>")))
+                        .collect(Collectors.joining("\n", hdr + heading, ftr));
+    }
+
+    /**
+     * Elements with inline styles that are mostly the same, but with enough variation
+     * that most elements need a style of their own.
+     */
+    public static String inlineStyles(int howMany) {
+        final String hdr = "<html><body>";
+        final String ftr = "</body></html>";
+
+        return IntStream.range(0, howMany)
+                        .mapToObj(i -> "<div style=\"border: 1px solid #ccc; padding: 2px 4px; margin: 0 0 2pt 0; color: #333; " +
+                                       "font-size: 10pt; width: " + (100 + i % 400) + "px; height: " + (10 + i % 37) + "px;\">" + i + "</div>")
+                        .collect(Collectors.joining("\n", hdr, ftr));
+    }
+
+    /**
+     * A formula heavy document, with a small set of distinct MathML and LaTeX formulas repeated many times.
+     * Requires the MathML drawer and LaTeX DOM mutator.
+     */
+    public static String formulas(int howMany) {
+        final String hdr = "<html><head><style>p { font-family: serif; }</style></head><body>";
+        final String[] formulas = new String[] {
+            "<p>Speed <math xmlns=\"http://www.w3.org/1998/Math/MathML\"><mfrac><mi>m</mi><mi>s</mi></mfrac></math> and " +
+            "area <math xmlns=\"http://www.w3.org/1998/Math/MathML\"><msup><mi>m</mi><mn>2</mn></msup></math>.</p>",
+            "<p>Root <math xmlns=\"http://www.w3.org/1998/Math/MathML\"><msqrt><mi>x</mi><mo>+</mo><mn>1</mn></msqrt></math></p>",
+            "<p>Energy <latex>$E = mc^2$</latex></p>",
+            "<p>Sum <latex>$\\sum_{i=0}^{n} x_i$</latex></p>"
+        };
+        final String ftr = "</body></html>";
+
+        return IntStream.range(0, howMany)
+                        .mapToObj(i -> formulas[i % formulas.length])
+                        .collect(Collectors.joining("\n", hdr, ftr));
+    }
+
+    /**
+     * A chart heavy report, with many small charts. Each distinct chart appears ten times.
+     * Requires the standard object drawer factory.
+     */
+    public static String charts(int howMany) {
+        final String hdr = "<html><head><style>object { width: 150px; height: 150px; float: left; }</style></head><body>";
+        final String ftr = "</body></html>";
+
+        return IntStream.range(0, howMany)
+                        .mapToObj(i -> (i % 2 == 0) ?
+                            "<object type=\"jfreechart/pie\" title=\"Pie " + (i % 10) + "\">" +
+                              "<data name=\"Apple\" value=\"" + (i % 10 + 1) + "\"/>" +
+                              "<data name=\"Pear\" value=\"43.2\" url=\"https://example.com/pear\"/>" +
+                              "<data name=\"Orange\" value=\"53.2\"/>" +
+                            "</object>" :
+                            "<object type=\"jfreechart/bar\" title=\"Bar " + (i % 10) + "\">" +
+                              "<data series=\"Value\" category=\"Apple\" value=\"" + (i % 10 + 1) + "\"/>" +
+                              "<data series=\"Value\" category=\"Pear\" value=\"43.2\"/>" +
+                              "<data series=\"Price\" category=\"Apple\" value=\"2.2\"/>" +
+                            "</object>")
+                        .collect(Collectors.joining("\n", hdr, ftr));
+    }
+
+    /**
+     * A long document with one short page per item, a fixed header on every page and
+     * a transformed, clipped element on each page.
+     */
+    public static String pages(int howMany) {
+        final String hdr = "<html><head><style>@page { size: A6; } .header { position: fixed; top: 0; } " +
+                           ".page { page-break-after: always; padding-top: 30px; } " +
+                           ".stamp { transform: rotate(-5deg); overflow: hidden; width: 100px; height: 20px; }" +
+                           "</style></head><body><div class=\"header\">Header</div>";
+        final String page = "<div class=\"page\"><p>" + LOREM + "</p><div class=\"stamp\">Approved</div></div>";
+        final String ftr = "</body></html>";
+
+        return IntStream.range(0, howMany)
+                        .mapToObj(i -> page)
+                        .collect(Collectors.joining("\n", hdr, ftr));
+    }
+
+    /**
+     * An index style document, with a dense table of contents of many internal links to a
+     * smaller number of targets, so each target is linked to ten times.
+     */
+    public static String internalLinks(int howMany) {
+        final String hdr = "<html><head><style>body { font-size: 8px; }</style></head><body>";
+        final String ftr = "</body></html>";
+        final int targets = Math.max(1, howMany / 10);
+
+        String links = IntStream.range(0, howMany)
+                                .mapToObj(i -> "<a href=\"#target-" + (i % targets) + "\">Entry " + i + "</a>")
+                                .collect(Collectors.joining(" ", "<p>", "</p>"));
+        String sections = IntStream.range(0, targets)
+                                   .mapToObj(i -> "<h2 id=\"target-" + i + "\">Target " + i + "</h2><p>" + LOREM + "</p>")
+                                   .collect(Collectors.joining("\n"));
+
+        return hdr + links + sections + ftr;
+    }
+
 }
@@ -1,22 +1,57 @@
 package com.openhtmltopdf.nonvisualregressiontests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
 import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageXYZDestination;
@@ -24,12 +59,36 @@ import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocume
 import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
 import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
 import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.util.Charsets;
 import org.hamcrest.CustomTypeSafeMatcher;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.openhtmltopdf.context.StylesheetFactoryImpl;
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.sheet.BinaryStylesheet;
+import com.openhtmltopdf.css.sheet.Stylesheet;
+import com.openhtmltopdf.css.sheet.StylesheetInfo;
+import com.openhtmltopdf.extend.FSRenderMetricsListener;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Counter;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Stage;
+import com.openhtmltopdf.extend.impl.FSBoundedCacheStore;
+import com.openhtmltopdf.latexsupport.LaTeXDOMMutator;
+import com.openhtmltopdf.mathmlsupport.MathMLDrawer;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartCache;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartDefinition;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartPieDiagramObjectDrawer;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartPrefetcher;
+import com.openhtmltopdf.pdfboxout.FontDirectoryIndex;
+import com.openhtmltopdf.pdfboxout.PdfBatchRenderer;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.CacheStore;
+import com.openhtmltopdf.render.DefaultObjectDrawerFactory;
 import com.openhtmltopdf.testcases.TestcaseRunner;
 import com.openhtmltopdf.visualtest.VisualTester.BuilderConfig;
 
@@ -683,6 +742,874 @@ public class NonVisualRegressionTest {
         remove("form-control-after-overflow-page", doc);
     }
     
+    /**
+     * Tests that a render metrics listener is told about every stage and receives the counters.
+     */
+    @Test
+    public void testRenderMetricsListener() throws IOException {
+        final Set<Stage> stages = EnumSet.noneOf(Stage.class);
+        final Map<Counter, Long> counters = new EnumMap<Counter, Long>(Counter.class);
+        
+        PDDocument doc = run("form-control-text", new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useRenderMetricsListener(new FSRenderMetricsListener() {
+                    @Override
+                    public void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes) {
+                        stages.add(stage);
+                    }
+
+                    @Override
+                    public void renderCompleted(Map<Counter, Long> completed) {
+                        counters.putAll(completed);
+                    }
+                });
+            }
+        });
+        
+        assertEquals(EnumSet.allOf(Stage.class), stages);
+        assertEquals(Long.valueOf(doc.getNumberOfPages()), counters.get(Counter.PAGES));
+        assertTrue(counters.get(Counter.ELEMENTS) > 0);
+        assertTrue(counters.get(Counter.BOXES) > 0);
+        assertTrue(counters.get(Counter.FONT_CACHE_HITS) > 0);
+        assertTrue(counters.get(Counter.FONT_CACHE_MISSES) > 0);
+        
+        remove("form-control-text", doc);
+    }
+    
+    @Test
+    public void testFontDirectoryIndex() throws IOException {
+        File fontDir = new File(OUT_PATH, "font-directory");
+        File indexFile = new File(OUT_PATH, "font-directory.idx");
+        FileUtils.deleteDirectory(fontDir);
+        indexFile.delete();
+        FileUtils.copyURLToFile(NonVisualRegressionTest.class.getResource(RES_PATH + "fonts/Karla-Bold.ttf"), new File(fontDir, "Karla-Bold.ttf"));
+        FileUtils.writeStringToFile(new File(fontDir, "Broken.ttf"), "Not a font", "UTF-8");
+        
+        FontDirectoryIndex index = FontDirectoryIndex.load(fontDir, indexFile);
+        assertEquals(1, index.getEntries().size());
+        assertEquals("Karla", index.getEntries().get(0).getFamily());
+        assertEquals(700, index.getEntries().get(0).getWeight());
+        assertEquals(IdentValue.NORMAL, index.getEntries().get(0).getStyle());
+        assertTrue(index.getEntries().get(0).hasUnicodeRange(0));
+        assertTrue(indexFile.isFile());
+        
+        // Second load should come from the index file, without trying the broken font again.
+        long indexModified = indexFile.lastModified();
+        FontDirectoryIndex reloaded = FontDirectoryIndex.load(fontDir, indexFile);
+        assertEquals(1, reloaded.getEntries().size());
+        assertEquals("Karla", reloaded.getEntries().get(0).getFamily());
+        assertEquals(700, reloaded.getEntries().get(0).getWeight());
+        assertEquals(indexModified, indexFile.lastModified());
+        
+        render("font-directory-index", "<html><body><p style=\"font-family: 'Karla'; font-weight: bold;\">Karla</p></body></html>", new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useFontDirectory(reloaded, true);
+            }
+        });
+        
+        PDDocument doc = load("font-directory-index");
+        boolean found = false;
+        for (COSName fontName : doc.getPage(0).getResources().getFontNames()) {
+            found |= doc.getPage(0).getResources().getFont(fontName).getName().contains("Karla");
+        }
+        assertTrue(found);
+        
+        remove("font-directory-index", doc);
+    }
+    
+    /**
+     * Serves a font with an entity tag, counting full and conditional requests
+     * and the streams opened and closed.
+     */
+    private static class ETagFontStreamFactory implements FSStreamFactory {
+        private final List<String> requests = new ArrayList<String>();
+        private int opened;
+        private int closed;
+        
+        private InputStream counting(InputStream in) {
+            opened++;
+            return new FilterInputStream(in) {
+                @Override
+                public void close() throws IOException {
+                    closed++;
+                    super.close();
+                }
+            };
+        }
+        
+        @Override
+        public FSStream getUrl(String url) {
+            requests.add("full");
+            return new FSStream() {
+                @Override
+                public InputStream getStream() {
+                    return counting(NonVisualRegressionTest.class.getResourceAsStream(RES_PATH + "fonts/Karla-Bold.ttf"));
+                }
+
+                @Override
+                public Reader getReader() {
+                    return null;
+                }
+
+                @Override
+                public String getETag() {
+                    return "\"v1\"";
+                }
+            };
+        }
+        
+        @Override
+        public FSStream getUrl(String url, String eTag, String lastModified) {
+            requests.add("conditional:" + eTag);
+            return new FSStream() {
+                @Override
+                public InputStream getStream() {
+                    // An empty response body, as with a 304 response.
+                    return counting(new ByteArrayInputStream(new byte[0]));
+                }
+
+                @Override
+                public Reader getReader() {
+                    return null;
+                }
+
+                @Override
+                public boolean isNotModified() {
+                    return true;
+                }
+            };
+        }
+    }
+    
+    @Test
+    public void testFontFaceCacheRevalidation() throws IOException {
+        final FSBoundedCacheStore cache = new FSBoundedCacheStore(10 * 1024 * 1024);
+        final ETagFontStreamFactory factory = new ETagFontStreamFactory();
+        final String html = 
+                "<html><head><style>@font-face { font-family: 'Remote'; src: url('fonttest://fonts/karla.ttf'); }</style></head>" +
+                "<body><p style=\"font-family: 'Remote';\">Remote font</p></body></html>";
+        
+        BuilderConfig config = new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useCacheStore(CacheStore.PDF_FONT_FACES, cache);
+                builder.useProtocolsStreamImplementation(factory, "fonttest");
+            }
+        };
+        
+        render("font-face-cache-1", html, config);
+        render("font-face-cache-2", html, config);
+        
+        assertEquals(Arrays.asList("full", "conditional:\"v1\""), factory.requests);
+        assertEquals(2, factory.opened);
+        assertEquals(2, factory.closed);
+        assertTrue(cache.getWeight() > 0);
+        
+        PDDocument doc = load("font-face-cache-2");
+        boolean found = false;
+        for (COSName fontName : doc.getPage(0).getResources().getFontNames()) {
+            found |= doc.getPage(0).getResources().getFont(fontName).getName().contains("Karla");
+        }
+        assertTrue(found);
+        
+        remove("font-face-cache-2", doc);
+        remove("font-face-cache-1", load("font-face-cache-1"));
+    }
+    
+    /**
+     * Tests that collecting the display list a few pages at a time paints the same as collecting all pages at once.
+     */
+    @Test
+    public void testIncrementalDisplayList() throws IOException {
+        StringBuilder html = new StringBuilder(
+                "<html><head><style>@page { size: 300px 300px; margin: 20px; } " +
+                ".header { position: fixed; top: -15px; } " +
+                "table { -fs-table-paginate: paginate; } " +
+                ".stamp { transform: rotate(5deg); overflow: hidden; width: 100px; height: 20px; } " +
+                ".float { float: right; width: 40px; height: 40px; background-color: orange; }" +
+                "</style></head><body><div class=\"header\">Header</div><table><thead><tr><td>Head</td></tr></thead>");
+        for (int i = 0; i < 60; i++) {
+            html.append("<tr><td><div class=\"float\"></div>Row ").append(i).append("<div class=\"stamp\">Stamp</div></td></tr>");
+        }
+        html.append("</table><p style=\"position: absolute; top: 20px;\">Absolute</p></body></html>");
+
+        render("incremental-display-list-all", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+        render("incremental-display-list-window", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useIncrementalDisplayList(2);
+            }
+        });
+
+        PDDocument all = load("incremental-display-list-all");
+        PDDocument window = load("incremental-display-list-window");
+
+        assertTrue(all.getNumberOfPages() > 5);
+        assertEquals(all.getNumberOfPages(), window.getNumberOfPages());
+
+        for (int i = 0; i < all.getNumberOfPages(); i++) {
+            assertTrue("Page " + i + " differs", Arrays.equals(
+                    IOUtils.toByteArray(all.getPage(i).getContents()),
+                    IOUtils.toByteArray(window.getPage(i).getContents())));
+        }
+
+        remove("incremental-display-list-all", all);
+        remove("incremental-display-list-window", window);
+    }
+    
+    /**
+     * Tests that computing styles on a pool of threads paints the same as computing them while building boxes.
+     */
+    @Test
+    public void testParallelCascade() throws IOException {
+        StringBuilder html = new StringBuilder(
+                "<html><head><style>@page { size: 300px 300px; margin: 20px; } " +
+                "tr:nth-child(odd) > td { background-color: orange; } li:first-child { color: blue; } " +
+                ".s2 td, .s4 td { border: 1px solid red; } .x > em { font-weight: bold; }" +
+                "</style></head><body>");
+        for (int i = 0; i < 6; i++) {
+            html.append("<div class=\"s").append(i).append("\">");
+            for (int j = 0; j < 8; j++) {
+                html.append("<table>");
+                for (int k = 0; k < 10; k++) {
+                    html.append("<tr><td style=\"padding: ").append(k).append("px;\">").append(i).append('.').append(j)
+                        .append("</td><td><span class=\"x\"><em>Em</em></span></td></tr>");
+                }
+                html.append("</table><ul><li>One</li><li style=\"font-size: 9px;\">Two</li></ul>");
+            }
+            html.append("</div>");
+        }
+        html.append("</body></html>");
+
+        render("parallel-cascade-serial", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+        render("parallel-cascade-threads", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useParallelCascade(4);
+            }
+        });
+
+        PDDocument serial = load("parallel-cascade-serial");
+        PDDocument threads = load("parallel-cascade-threads");
+
+        assertTrue(serial.getNumberOfPages() > 5);
+        assertEquals(serial.getNumberOfPages(), threads.getNumberOfPages());
+
+        for (int i = 0; i < serial.getNumberOfPages(); i++) {
+            assertTrue("Page " + i + " differs", Arrays.equals(
+                    IOUtils.toByteArray(serial.getPage(i).getContents()),
+                    IOUtils.toByteArray(threads.getPage(i).getContents())));
+        }
+
+        // Concurrent renders sharing one pool, which is not shut down by them.
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<ByteArrayOutputStream> outputs = Arrays.asList(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+
+        try {
+            PdfBatchRenderer batch = new PdfBatchRenderer(executor);
+            batch.withSharedConfiguration(builder -> {
+                builder.useFastMode();
+                builder.testMode(true);
+                builder.useParallelCascade(pool);
+            });
+
+            List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+            for (final ByteArrayOutputStream os : outputs) {
+                futures.add(batch.submit(builder -> {
+                    builder.withHtmlContent(html.toString(), null);
+                    builder.toStream(os);
+                }));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                future.get();
+            }
+            assertFalse(pool.isShutdown());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException(e);
+        } finally {
+            executor.shutdown();
+            pool.shutdown();
+        }
+
+        for (ByteArrayOutputStream os : outputs) {
+            PDDocument shared = PDDocument.load(os.toByteArray());
+            assertEquals(serial.getNumberOfPages(), shared.getNumberOfPages());
+            for (int i = 0; i < serial.getNumberOfPages(); i++) {
+                assertTrue("Page " + i + " differs with a shared pool", Arrays.equals(
+                        IOUtils.toByteArray(serial.getPage(i).getContents()),
+                        IOUtils.toByteArray(shared.getPage(i).getContents())));
+            }
+            shared.close();
+        }
+
+        remove("parallel-cascade-serial", serial);
+        remove("parallel-cascade-threads", threads);
+    }
+    
+    /**
+     * Tests that page sequences rendered concurrently and merged give the same pages as
+     * rendering them in one document, with per sequence page counts and running elements,
+     * a fixed footer before the first sequence and important edges on body.
+     */
+    @Test
+    public void testPageSequencesRenderedConcurrently() throws Exception {
+        StringBuilder html = new StringBuilder(
+                "<html><head><style>@page { size: 300px 300px; margin: 30px; " +
+                "@top-left { content: element(logo); } @top-right { content: element(hdr); } " +
+                "@bottom-center { content: 'Page ' counter(page) ' of ' counter(pages); } } " +
+                ".seq { -fs-page-sequence: start; page-break-before: always; } " +
+                ".hdr { position: running(hdr); } .logo { position: running(logo); } " +
+                ".footer { position: fixed; bottom: 0; font-size: 8px; } h1 { margin: 20px 0; } " +
+                "body { margin: 10px !important; padding: 5px 0 !important; border-top: 2px solid transparent !important; }" +
+                "</style></head><body><div class=\"logo\">Logo</div><div class=\"footer\">Footer</div>");
+        for (int i = 0; i < 3; i++) {
+            html.append("<div class=\"seq\"><div class=\"hdr\">Statement ").append(i).append("</div>")
+                .append("<h1 id=\"s").append(i).append("\">Statement ").append(i).append("</h1>");
+            for (int j = 0; j < (i + 1) * 6; j++) {
+                html.append("<p>Line ").append(j).append(" of <a href=\"#s").append(i).append("\">statement</a></p>");
+            }
+            html.append("</div>");
+        }
+        html.append("</body></html>");
+
+        render("page-sequences-serial", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+
+        final AtomicInteger renders = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try {
+            PdfBatchRenderer batch = new PdfBatchRenderer(executor);
+            batch.submitPageSequences(builder -> {
+                builder.withHtmlContent(html.toString(), NonVisualRegressionTest.class.getResource(RES_PATH).toString());
+                builder.useFastMode();
+                builder.testMode(true);
+                builder.useRenderMetricsListener(new FSRenderMetricsListener() {
+                    @Override
+                    public void stageCompleted(Stage stage, long elapsedNanos, long allocatedBytes) {
+                    }
+
+                    @Override
+                    public void renderCompleted(Map<Counter, Long> counters) {
+                        renders.incrementAndGet();
+                    }
+                });
+            }, actual).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // Once to split the document, then once for each page sequence.
+        assertEquals(4, renders.get());
+
+        PDDocument serial = load("page-sequences-serial");
+        PDDocument split = PDDocument.load(actual.toByteArray());
+
+        assertTrue(serial.getNumberOfPages() > 3);
+        assertEquals(serial.getNumberOfPages(), split.getNumberOfPages());
+
+        for (int i = 0; i < serial.getNumberOfPages(); i++) {
+            assertTrue("Page " + i + " differs", Arrays.equals(
+                    IOUtils.toByteArray(serial.getPage(i).getContents()),
+                    IOUtils.toByteArray(split.getPage(i).getContents())));
+        }
+
+        split.close();
+        remove("page-sequences-serial", serial);
+    }
+    
+    /**
+     * Tests that many links to the same targets are all written to their page,
+     * each linking to the top of its target.
+     */
+    @Test
+    public void testManyLinksToSameTarget() throws IOException {
+        StringBuilder html = new StringBuilder(
+                "<html><head><style>@page { size: 200px 200px; margin: 0; } " +
+                "body { margin: 0; font-size: 5px; } h2 { margin: 0; height: 200px; page-break-before: always; }" +
+                "</style></head><body><p style=\"margin: 0;\">");
+        for (int i = 0; i < 30; i++) {
+            html.append("<a href=\"#target-").append(i % 2).append("\">").append(i).append("</a> ");
+        }
+        html.append("</p><h2 id=\"target-0\">Zero</h2><h2 id=\"target-1\">One</h2></body></html>");
+
+        render("many-links-same-target", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+
+        PDDocument doc = load("many-links-same-target");
+        assertEquals(3, doc.getNumberOfPages());
+        assertEquals(30, doc.getPage(0).getAnnotations().size());
+
+        for (int i = 0; i < 30; i++) {
+            PDAnnotationLink link = (PDAnnotationLink) doc.getPage(0).getAnnotations().get(i);
+            PDPageXYZDestination dest = (PDPageXYZDestination) ((PDActionGoTo) link.getAction()).getDestination();
+
+            assertEquals(doc.getPage(1 + (i % 2)), dest.getPage());
+            assertEquals(cssPixelYToPdfPoints(0, 200), dest.getTop(), 1.0d);
+        }
+
+        remove("many-links-same-target", doc);
+    }
+    
+    /**
+     * Tests that with -fs-table-layout-sample only the sampled rows decide column widths,
+     * by checking where a link in the second column is placed.
+     */
+    @Test
+    public void testTableLayoutSample() throws IOException {
+        String html =
+                "<html><head><style>@page { size: 400px 200px; margin: 0; } body { margin: 0; font-size: 10px; } " +
+                "table { border-collapse: collapse; } td { padding: 0; }</style></head><body>" +
+                "<table style=\"-fs-table-layout-sample: %d;\">" +
+                "<tr><td>A</td><td><a href=\"#target\">Link</a></td></tr>" +
+                "<tr><td>WideWideWideWideWide</td><td>B</td></tr>" +
+                "</table><p id=\"target\">Target</p></body></html>";
+
+        render("table-layout-sample-all", String.format(html, 0), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+        render("table-layout-sample-one", String.format(html, 1), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+
+        PDDocument all = load("table-layout-sample-all");
+        PDDocument one = load("table-layout-sample-one");
+
+        float allLeft = all.getPage(0).getAnnotations().get(0).getRectangle().getLowerLeftX();
+        float oneLeft = one.getPage(0).getAnnotations().get(0).getRectangle().getLowerLeftX();
+
+        // The wide cell in the second row widens the first column only when every row is measured.
+        assertTrue(oneLeft + 20 < allLeft);
+
+        remove("table-layout-sample-all", all);
+        remove("table-layout-sample-one", one);
+    }
+    
+    /**
+     * Tests that rows of a paginated table moved to the next page keep their cell widths.
+     */
+    @Test
+    public void testPaginatedTableRowsKeepCellWidths() throws IOException {
+        StringBuilder html = new StringBuilder(
+                "<html><head><style>@page { size: 300px 200px; margin: 10px; } body { margin: 0; font-size: 10px; } " +
+                "table { -fs-table-paginate: paginate; border-collapse: collapse; } td, th { border: 1px solid black; padding: 2px; text-align: right; }" +
+                "</style></head><body><table><thead><tr><th>Name</th><th>Link</th></tr></thead><tbody>");
+        for (int i = 0; i < 40; i++) {
+            html.append("<tr><td>Row ").append(i).append("</td><td><a href=\"#target\">Go</a></td></tr>");
+        }
+        html.append("</tbody></table><p id=\"target\">Target</p></body></html>");
+
+        render("paginated-table-cell-widths", html.toString(), new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+            }
+        });
+
+        PDDocument doc = load("paginated-table-cell-widths");
+        assertTrue(doc.getNumberOfPages() > 2);
+
+        float expected = doc.getPage(0).getAnnotations().get(0).getRectangle().getLowerLeftX();
+        for (int i = 0; i < doc.getNumberOfPages(); i++) {
+            for (PDAnnotation annot : doc.getPage(i).getAnnotations()) {
+                assertEquals("Page " + i, expected, annot.getRectangle().getLowerLeftX(), 0.5f);
+            }
+        }
+
+        remove("paginated-table-cell-widths", doc);
+    }
+    
+    /**
+     * Serves a stylesheet, counting requests.
+     */
+    private static class CountingCssStreamFactory implements FSStreamFactory {
+        private final String css;
+        private final AtomicInteger requests = new AtomicInteger();
+        
+        private CountingCssStreamFactory(String css) {
+            this.css = css;
+        }
+        
+        @Override
+        public FSStream getUrl(String url) {
+            requests.incrementAndGet();
+            return new FSStream() {
+                @Override
+                public InputStream getStream() {
+                    return new ByteArrayInputStream(css.getBytes(Charsets.UTF_8));
+                }
+
+                @Override
+                public Reader getReader() {
+                    return new StringReader(css);
+                }
+            };
+        }
+    }
+    
+    /**
+     * Tests that a stylesheet compiled to the binary format and put in the stylesheet cache
+     * renders the same as the parsed sheet, without being requested.
+     */
+    @Test
+    public void testBinaryStylesheet() throws IOException {
+        final String uri = "csstest://sheets/test.css";
+        final CountingCssStreamFactory factory = new CountingCssStreamFactory(
+                "@page { size: 300px 200px; margin: 10px; @bottom-center { content: 'Page ' counter(page); } } " +
+                "@media print { p.note { color: rgb(200, 0, 0); } } " +
+                "body { font: italic 12px/1.5 serif; } " +
+                "div > p:first-child, p[title^='x'] { border: 2px solid #abc; padding: 2px 4px; } " +
+                "li:nth-child(2n+1)::before { content: '* '; } " +
+                "#last { text-align: right; background-color: #eee; }");
+        final String html =
+                "<html><head><link rel=\"stylesheet\" href=\"" + uri + "\"/></head><body>" +
+                "<div><p>First</p><p class=\"note\">Note</p><p title=\"xy\">Titled</p></div>" +
+                "<ul><li>One</li><li>Two</li><li>Three</li></ul><p id=\"last\">Last</p></body></html>";
+        
+        final FSBoundedCacheStore parsed = new FSBoundedCacheStore(10 * 1024 * 1024);
+        render("binary-stylesheet-parsed", html, new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useCacheStore(CacheStore.CSS_STYLESHEETS, parsed);
+                builder.useProtocolsStreamImplementation(factory, "csstest");
+            }
+        });
+        assertEquals(1, factory.requests.get());
+        
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        BinaryStylesheet.write((Stylesheet) parsed.get(StylesheetFactoryImpl.getSharedCacheKey(StylesheetInfo.AUTHOR, uri)), compiled);
+        
+        final FSBoundedCacheStore loaded = new FSBoundedCacheStore(10 * 1024 * 1024);
+        loaded.put(StylesheetFactoryImpl.getSharedCacheKey(StylesheetInfo.AUTHOR, uri), BinaryStylesheet.read(ByteBuffer.wrap(compiled.toByteArray())));
+        render("binary-stylesheet-loaded", html, new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useCacheStore(CacheStore.CSS_STYLESHEETS, loaded);
+                builder.useProtocolsStreamImplementation(factory, "csstest");
+            }
+        });
+        assertEquals(1, factory.requests.get());
+        
+        PDDocument expected = load("binary-stylesheet-parsed");
+        PDDocument actual = load("binary-stylesheet-loaded");
+        
+        assertEquals(expected.getNumberOfPages(), actual.getNumberOfPages());
+        for (int i = 0; i < expected.getNumberOfPages(); i++) {
+            assertTrue("Page " + i + " differs", Arrays.equals(
+                    IOUtils.toByteArray(expected.getPage(i).getContents()),
+                    IOUtils.toByteArray(actual.getPage(i).getContents())));
+        }
+        
+        remove("binary-stylesheet-parsed", expected);
+        remove("binary-stylesheet-loaded", actual);
+        
+        // Sheets written by another format version, or naming unknown identifiers, are rejected.
+        byte[] otherVersion = compiled.toByteArray();
+        otherVersion[7] ^= 1;
+        assertBinaryStylesheetRejected(otherVersion);
+        
+        byte[] unknownIdent = compiled.toByteArray();
+        int italic = new String(unknownIdent, Charsets.ISO_8859_1).indexOf("italic");
+        assertTrue(italic > 0);
+        unknownIdent[italic + 5] = 'x';
+        assertBinaryStylesheetRejected(unknownIdent);
+    }
+    
+    private static void assertBinaryStylesheetRejected(byte[] bytes) {
+        try {
+            BinaryStylesheet.read(ByteBuffer.wrap(bytes));
+            fail("Expected the binary stylesheet to be rejected");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+    
+    /**
+     * Tests that documents submitted concurrently to a batch renderer share its stylesheet cache
+     * with earlier renders, and that a document which fails does not fail the others.
+     */
+    @Test
+    public void testBatchRendererSharesCachesAndIsolatesFailures() throws Exception {
+        final String uri = "csstest://sheets/batch.css";
+        final CountingCssStreamFactory factory = new CountingCssStreamFactory(
+                "@page { size: 200px 100px; margin: 10px; } p { color: rgb(0, 0, 200); }");
+        final String html = "<html><head><link rel=\"stylesheet\" href=\"" + uri + "\"/></head>" +
+                "<body><p>Batch</p></body></html>";
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExecutorService submitters = Executors.newFixedThreadPool(3);
+
+        try {
+            final PdfBatchRenderer batch = new PdfBatchRenderer(executor);
+            batch.withSharedConfiguration(builder -> {
+                builder.useFastMode();
+                builder.testMode(true);
+                builder.useProtocolsStreamImplementation(factory, "csstest");
+            });
+
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            batch.submit(builder -> {
+                builder.withHtmlContent(html, null);
+                builder.toStream(first);
+            }).get();
+            assertEquals(1, factory.requests.get());
+
+            final int count = 6;
+            final int failing = 3;
+            final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+            List<Future<CompletableFuture<Void>>> submitted = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                final ByteArrayOutputStream os = i == failing ? null : new ByteArrayOutputStream();
+                outputs.add(os);
+
+                submitted.add(submitters.submit(() -> batch.submit(builder -> {
+                    builder.withHtmlContent(html, null);
+                    builder.toStream(os != null ? os : new OutputStream() {
+                        @Override
+                        public void write(int b) throws IOException {
+                            throw new IOException("Broken output");
+                        }
+                    });
+                })));
+            }
+
+            PDDocument expected = PDDocument.load(first.toByteArray());
+            byte[] expectedContents = IOUtils.toByteArray(expected.getPage(0).getContents());
+            expected.close();
+
+            for (int i = 0; i < count; i++) {
+                CompletableFuture<Void> future = submitted.get(i).get();
+                if (i == failing) {
+                    try {
+                        future.get();
+                        fail("Expected the document with a broken output to fail");
+                    } catch (ExecutionException e) {
+                        assertTrue(e.getCause() instanceof IOException);
+                    }
+                } else {
+                    future.get();
+                    PDDocument actual = PDDocument.load(outputs.get(i).toByteArray());
+                    assertArrayEquals(expectedContents, IOUtils.toByteArray(actual.getPage(0).getContents()));
+                    actual.close();
+                }
+            }
+
+            // Every later render was served the sheet parsed by the first.
+            assertEquals(1, factory.requests.get());
+        } finally {
+            submitters.shutdown();
+            executor.shutdown();
+        }
+    }
+    
+    private static int[] pageImage(PDDocument doc, int page) throws IOException {
+        BufferedImage image = new PDFRenderer(doc).renderImageWithDPI(page, 72);
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+    
+    private static List<COSBase> xObjects(PDPage page) throws IOException {
+        List<COSBase> result = new ArrayList<COSBase>();
+        for (COSName name : page.getResources().getXObjectNames()) {
+            result.add(page.getResources().getXObject(name).getCOSObject());
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that a repeated MathML or LaTeX formula is laid out and drawn once, with every
+     * later occurrence placing the same form XObject, and that each occurrence renders the same.
+     */
+    @Test
+    public void testRepeatedFormulaReused() throws IOException {
+        String mathMl = "<math xmlns=\"http://www.w3.org/1998/Math/MathML\"><mi>a</mi><mo>=</mo><msup><mi>b</mi><mn>2</mn></msup></math>";
+        String html = "<html><head><style>@page { size: 200px 100px; margin: 10px; } body { margin: 0; } div + div { page-break-before: always; }</style></head><body>" +
+                "<div>" + mathMl + "</div>" +
+                "<div>" + mathMl.replace("<mi>a</mi>", "<mi>\n  a\n</mi>") + "</div>" +
+                "<div>" + mathMl + "</div>" +
+                "<div><latex>$$ a^2 = b^2 + c^2 $$</latex></div>" +
+                "<div><latex>$$  a^2 = b^2 + c^2  $$</latex></div>" +
+                "</body></html>";
+
+        render("repeated-formula", html, new BuilderConfig() {
+            @Override
+            public void configure(PdfRendererBuilder builder) {
+                builder.useMathMLDrawer(new MathMLDrawer());
+                builder.addDOMMutator(LaTeXDOMMutator.INSTANCE);
+            }
+        });
+
+        PDDocument doc = load("repeated-formula");
+        assertEquals(5, doc.getNumberOfPages());
+
+        List<COSBase> mathMlXObjects = xObjects(doc.getPage(0));
+        assertEquals(1, mathMlXObjects.size());
+        int[] mathMlImage = pageImage(doc, 0);
+
+        for (int i = 1; i < 3; i++) {
+            assertEquals("Page " + i + " draws again", mathMlXObjects, xObjects(doc.getPage(i)));
+            assertTrue("Page " + i + " differs", Arrays.equals(mathMlImage, pageImage(doc, i)));
+        }
+
+        List<COSBase> latexXObjects = xObjects(doc.getPage(3));
+        assertEquals(1, latexXObjects.size());
+        assertEquals(latexXObjects, xObjects(doc.getPage(4)));
+        assertTrue(Arrays.equals(pageImage(doc, 3), pageImage(doc, 4)));
+
+        remove("repeated-formula", doc);
+    }
+    
+    /**
+     * Tests that identical charts are prefetched on the cache's executor and built once,
+     * and that the cache is shared between renders.
+     */
+    @Test
+    public void testChartCacheSharedBetweenRenders() throws Exception {
+        final List<Thread> builds = Collections.synchronizedList(new ArrayList<Thread>());
+        final AtomicInteger prefetches = new AtomicInteger();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // The chart may still be built on the render thread, if painted before the executor starts on it.
+            JFreeChartCache cache = new JFreeChartCache(JFreeChartCache.DEFAULT_MAX_CHARTS, task -> {
+                prefetches.incrementAndGet();
+                executor.execute(task);
+            });
+            final DefaultObjectDrawerFactory factory = new DefaultObjectDrawerFactory();
+            factory.registerDrawer("jfreechart/pie", new JFreeChartPieDiagramObjectDrawer(cache) {
+                @Override
+                protected JFreeChart buildChart(JFreeChartDefinition definition) {
+                    builds.add(Thread.currentThread());
+                    return super.buildChart(definition);
+                }
+            });
+
+            String chart = "<object type=\"jfreechart/pie\" style=\"width: 150px; height: 150px;\" title=\"Fruit\">" +
+                    "<data name=\"Apple\" value=\"23.2\"/><data name=\"Pear\" value=\"43.2\"/></object>";
+            String html = "<html><head><style>@page { size: 200px 200px; margin: 10px; } body { margin: 0; } " +
+                    "div + div { page-break-before: always; }</style></head><body>" +
+                    "<div>" + chart + "</div><div>" + chart + "</div></body></html>";
+
+            BuilderConfig config = new BuilderConfig() {
+                @Override
+                public void configure(PdfRendererBuilder builder) {
+                    builder.useObjectDrawerFactory(factory);
+                    builder.addDOMMutator(new JFreeChartPrefetcher(factory));
+                }
+            };
+            render("chart-cache-1", html, config);
+            render("chart-cache-2", html, config);
+
+            assertEquals(1, prefetches.get());
+            assertEquals(1, builds.size());
+
+            PDDocument first = load("chart-cache-1");
+            PDDocument second = load("chart-cache-2");
+
+            assertEquals(2, first.getNumberOfPages());
+            assertEquals(1, xObjects(first.getPage(0)).size());
+            assertEquals(xObjects(first.getPage(0)), xObjects(first.getPage(1)));
+            assertTrue(Arrays.equals(pageImage(first, 0), pageImage(first, 1)));
+            assertTrue(Arrays.equals(pageImage(first, 0), pageImage(second, 0)));
+
+            remove("chart-cache-1", first);
+            remove("chart-cache-2", second);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Tests that concurrent renders sharing a chart cache draw a cached chart one at a time,
+     * as JFreeChart is not thread safe.
+     */
+    @Test
+    public void testSharedChartDrawnOneAtATime() throws Exception {
+        final AtomicInteger drawing = new AtomicInteger();
+        final AtomicInteger draws = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+
+        JFreeChartCache cache = new JFreeChartCache(JFreeChartCache.DEFAULT_MAX_CHARTS, Runnable::run);
+        final DefaultObjectDrawerFactory factory = new DefaultObjectDrawerFactory();
+        factory.registerDrawer("jfreechart/pie", new JFreeChartPieDiagramObjectDrawer(cache) {
+            @Override
+            protected JFreeChart buildChart(JFreeChartDefinition definition) {
+                return new JFreeChart(super.buildChart(definition).getPlot()) {
+                    private static final long serialVersionUID = 1;
+
+                    @Override
+                    public void draw(Graphics2D g2, Rectangle2D area, Point2D anchor, ChartRenderingInfo info) {
+                        if (drawing.incrementAndGet() > 1) {
+                            overlapped.set(true);
+                        }
+                        try {
+                            // Long enough for draws to overlap if not serialized.
+                            Thread.sleep(20);
+                            super.draw(g2, area, anchor, info);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            drawing.decrementAndGet();
+                            draws.incrementAndGet();
+                        }
+                    }
+                };
+            }
+        });
+
+        final String html = "<html><head><style>@page { size: 200px 200px; margin: 10px; } body { margin: 0; }</style></head><body>" +
+                "<object type=\"jfreechart/pie\" style=\"width: 150px; height: 150px;\" title=\"Fruit\">" +
+                "<data name=\"Apple\" value=\"23.2\"/><data name=\"Pear\" value=\"43.2\"/></object></body></html>";
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            PdfBatchRenderer batch = new PdfBatchRenderer(executor);
+            batch.withSharedConfiguration(builder -> {
+                builder.useFastMode();
+                builder.testMode(true);
+                builder.useObjectDrawerFactory(factory);
+            });
+
+            List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(batch.submit(builder -> {
+                    builder.withHtmlContent(html, null);
+                    builder.toStream(new ByteArrayOutputStream());
+                }));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(draws.get() >= 8);
+        assertFalse(overlapped.get());
+    }
+    
     // TODO:
     // + More form controls.
     // + Custom meta info.
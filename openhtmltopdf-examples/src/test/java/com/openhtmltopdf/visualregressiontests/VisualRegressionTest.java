@@ -637,6 +637,15 @@ public class VisualRegressionTest {
         assertTrue(vt.runTest("table-cell-borders"));
     }
     
+    /**
+     * Tests that a collapsed border table with border radii, where cells share equal borders,
+     * renders the same as when each cell had its own border.
+     */
+    @Test
+    public void testTableCollapsedSharedBorders() throws IOException {
+        assertTrue(vt.runTest("table-collapsed-shared-borders"));
+    }
+    
     /**
      * Further tests on separated table cell borders.
      */
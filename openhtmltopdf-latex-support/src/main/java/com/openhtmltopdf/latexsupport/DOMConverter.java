@@ -3,6 +3,7 @@ package com.openhtmltopdf.latexsupport;
 import java.io.IOException;
 
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import uk.ac.ed.ph.snuggletex.DOMOutputOptions;
 import uk.ac.ed.ph.snuggletex.SnuggleEngine;
@@ -15,7 +16,7 @@ class DOMConverter {
 
 	void convert(Element latexElement) throws IOException {
 		String rawInputLaTeX = latexElement.getTextContent();
-		String inputLaTeX = rawInputLaTeX.replaceAll("(\r\n|\r|\n)", "\n");
+		String inputLaTeX = normalizeInput(rawInputLaTeX);
 
 		SnuggleEngine engine = createSnuggleEngine();
 		SnuggleSession session = engine.createSession();
@@ -39,6 +40,22 @@ class DOMConverter {
 		}
 	}
 
+	/**
+	 * Replaces the children of target with a deep copy of the children of the already
+	 * converted element, which must have had the same LaTeX input.
+	 */
+	void copyConverted(Element converted, Element target) {
+		while (target.getChildNodes().getLength() != 0)
+			target.removeChild(target.getFirstChild());
+
+		for (Node child = converted.getFirstChild(); child != null; child = child.getNextSibling())
+			target.appendChild(child.cloneNode(true));
+	}
+
+	static String normalizeInput(String rawInputLaTeX) {
+		return rawInputLaTeX.replaceAll("(\r\n|\r|\n)", "\n");
+	}
+
 	private StylesheetManager getStylesheetManager() {
 		return stylesheetManager;
 	}
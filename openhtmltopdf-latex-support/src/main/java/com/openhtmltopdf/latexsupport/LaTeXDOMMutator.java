@@ -1,6 +1,8 @@
 package com.openhtmltopdf.latexsupport;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -18,6 +20,7 @@ public class LaTeXDOMMutator implements FSDOMMutator {
 	 */
 	public final static LaTeXDOMMutator INSTANCE = new LaTeXDOMMutator();
 	private final DOMConverter converter = new DOMConverter();
+	private volatile String defaultStylesheet;
 
 	private LaTeXDOMMutator() {
 	}
@@ -26,15 +29,30 @@ public class LaTeXDOMMutator implements FSDOMMutator {
 	public void mutateDocument(org.w3c.dom.Document document) {
 		try {
 			NodeList latexNodes = document.getElementsByTagName("latex");
+
+			/*
+			 * Documents often repeat the same formula many times, so we only convert
+			 * each distinct input once and copy the result for the repeats.
+			 */
+			Map<String, Element> converted = new HashMap<String, Element>();
 			for (int i = 0; i < latexNodes.getLength(); i++) {
-				converter.convert((Element) latexNodes.item(i));
+				Element latexElement = (Element) latexNodes.item(i);
+				String inputLaTeX = DOMConverter.normalizeInput(latexElement.getTextContent());
+				Element previous = converted.get(inputLaTeX);
+
+				if (previous != null) {
+					converter.copyConverted(previous, latexElement);
+				} else {
+					converter.convert(latexElement);
+					converted.put(inputLaTeX, latexElement);
+				}
 			}
 			if (latexNodes.getLength() != 0) {
 				/*
 				 * We must append the style sheet, otherwise we wont get everything rendered
 				 * correctly
 				 */
-				String defaultCSS = CSSUtilities.writeDefaultStylesheet();
+				String defaultCSS = getDefaultStylesheet();
 				NodeList list = document.getElementsByTagName("head");
 				if (list.getLength() == 0)
 					list = document.getElementsByTagName("body");
@@ -52,4 +70,16 @@ public class LaTeXDOMMutator implements FSDOMMutator {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * The default stylesheet never changes, so we only write it once.
+	 */
+	private String getDefaultStylesheet() throws IOException {
+		String css = defaultStylesheet;
+		if (css == null) {
+			css = CSSUtilities.writeDefaultStylesheet();
+			defaultStylesheet = css;
+		}
+		return css;
+	}
 }
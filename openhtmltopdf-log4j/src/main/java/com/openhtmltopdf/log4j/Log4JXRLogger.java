@@ -60,6 +60,10 @@ public class Log4JXRLogger implements XRLogger {
         Logger.getLogger(getLoggerName(where)).log(toLog4JLevel(level), msg, th);
     }
     
+    public boolean isLogLevelEnabled(String where, Level level) {
+        return Logger.getLogger(getLoggerName(where)).isEnabledFor(toLog4JLevel(level));
+    }
+
     private org.apache.log4j.Level toLog4JLevel(Level level) {
         if (level == Level.SEVERE) {
             return org.apache.log4j.Level.ERROR;
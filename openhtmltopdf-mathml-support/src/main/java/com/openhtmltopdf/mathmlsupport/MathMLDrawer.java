@@ -6,6 +6,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -15,8 +16,12 @@ import java.util.logging.Level;
 
 import net.sourceforge.jeuclid.font.DefaultFontFactory;
 import net.sourceforge.jeuclid.font.FontFactory;
+import net.sourceforge.jeuclid.layout.JEuclidView;
 
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import com.openhtmltopdf.css.constants.CSSName;
 import com.openhtmltopdf.css.constants.IdentValue;
@@ -34,6 +39,7 @@ public class MathMLDrawer implements SVGDrawer {
 	private SharedContext _sharedCtx;
 	private final Set<String> _loadedFontFamilies = new HashSet<String>();
 	private final Map<String, List<String>> _availabelFontFamilies = new HashMap<String, List<String>>();
+	private final Map<ViewKey, JEuclidView> _viewCache = new HashMap<ViewKey, JEuclidView>();
 
 	public MathMLDrawer() {
 		this._fontFactory = new DefaultFontFactory();
@@ -117,13 +123,97 @@ public class MathMLDrawer implements SVGDrawer {
 		double cssMaxHeight = CalculatedStyle.getCSSMaxHeight(c, box);
 		List<String> fontList = Arrays.asList(fonts);
 		
-		MathMLImage img = new MathMLImage(mathMlElement, cssWidth, cssHeight, cssMaxWidth, cssMaxHeight, dotsPerPixel, fontList);
+		// Documents tend to repeat the same formulas (units, variables, etc.) many times,
+		// so we only layout each distinct formula once.
+		ViewKey key = new ViewKey(normalizedMarkup(mathMlElement), fontList, MathMLImage.MATH_SIZE);
+		JEuclidView view = _viewCache.get(key);
+		
+		if (view == null) {
+			view = MathMLImage.layoutView(mathMlElement, fontList, MathMLImage.MATH_SIZE);
+			_viewCache.put(key, view);
+		}
+		
+		MathMLImage img = new MathMLImage(view, key, cssWidth, cssHeight, cssMaxWidth, cssMaxHeight, dotsPerPixel);
 
 		return img;
 	}
+	
+	/**
+	 * Serializes the element to a string with insignificant whitespace collapsed, to be used
+	 * as a cache key.
+	 */
+	static String normalizedMarkup(Element element) {
+		StringBuilder sb = new StringBuilder();
+		appendNormalizedMarkup(element, sb);
+		return sb.toString();
+	}
+	
+	private static void appendNormalizedMarkup(Node node, StringBuilder sb) {
+		if (node.getNodeType() == Node.TEXT_NODE ||
+			node.getNodeType() == Node.CDATA_SECTION_NODE) {
+			String text = node.getNodeValue().trim();
+			if (!text.isEmpty()) {
+				sb.append(text.replaceAll("\\s+", " "));
+			}
+		} else if (node.getNodeType() == Node.ELEMENT_NODE) {
+			String name = node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+			sb.append('<').append(name);
+			
+			NamedNodeMap attrs = node.getAttributes();
+			List<String> attrList = new ArrayList<String>(attrs.getLength());
+			for (int i = 0; i < attrs.getLength(); i++) {
+				Attr attr = (Attr) attrs.item(i);
+				attrList.add(attr.getName() + "=\"" + attr.getValue() + '"');
+			}
+			// Attribute order is not significant.
+			Collections.sort(attrList);
+			for (String attr : attrList) {
+				sb.append(' ').append(attr);
+			}
+			sb.append('>');
+			
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+				appendNormalizedMarkup(child, sb);
+			}
+			
+			sb.append("</").append(name).append('>');
+		}
+	}
+	
+	private static class ViewKey {
+		private final String markup;
+		private final List<String> fonts;
+		private final float mathSize;
+		
+		private ViewKey(String markup, List<String> fonts, float mathSize) {
+			this.markup = markup;
+			this.fonts = fonts;
+			this.mathSize = mathSize;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (markup.hashCode() * 31 + fonts.hashCode()) * 31 + Float.floatToIntBits(mathSize);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ViewKey)) {
+				return false;
+			}
+			ViewKey other = (ViewKey) obj;
+			return mathSize == other.mathSize &&
+				   markup.equals(other.markup) &&
+				   fonts.equals(other.fonts);
+		}
+	}
 
 	@Override
 	public void close() throws IOException {
+		_viewCache.clear();
 		FontFactory.clearThreadFontFactory();
 	}
 }
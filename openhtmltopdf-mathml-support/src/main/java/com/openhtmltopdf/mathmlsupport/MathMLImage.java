@@ -12,15 +12,19 @@ import net.sourceforge.jeuclid.layout.JEuclidView;
 import org.w3c.dom.Element;
 
 import com.openhtmltopdf.extend.OutputDevice;
-import com.openhtmltopdf.extend.OutputDeviceGraphicsDrawer;
+import com.openhtmltopdf.extend.ReusableGraphicsDrawer;
 import com.openhtmltopdf.extend.SVGDrawer.SVGImage;
 import com.openhtmltopdf.render.RenderingContext;
 
 public class MathMLImage implements SVGImage {
+	/**
+	 * The default math size, used until we pick up font size from CSS.
+	 */
+	static final float MATH_SIZE = 16f;
+
 	private final JEuclidView _view;
-	private final DocumentElement _mathDoc;
+	private final Object _reuseKey;
 	private final double _dotsPerPixel;
-	private final MathLayoutContext _context = new MathLayoutContext();
 	private final double _scaledWidthInOutputDeviceDots;
 	private final double _scaledHeightInOutputDeviceDots;
 	private double _sx = 1;
@@ -42,22 +46,43 @@ public class MathMLImage implements SVGImage {
 		}
 	}
 	
+	/**
+	 * Lays out the MathML element with JEuclid. The resulting view can be shared
+	 * between all images with the same markup, fonts and math size.
+	 */
+	public static JEuclidView layoutView(Element mathMlElement, List<String> fonts, float mathSize) {
+		DocumentElement mathDoc = DOMBuilder.getInstance().createJeuclidDom(mathMlElement);
+		MathLayoutContext context = new MathLayoutContext();
+
+		context.setParameter(Parameter.FONTS_SERIF, fonts);
+		context.setParameter(Parameter.FONTS_DOUBLESTRUCK, fonts);
+		context.setParameter(Parameter.FONTS_FRAKTUR, fonts);
+		context.setParameter(Parameter.FONTS_MONOSPACED, fonts);
+		context.setParameter(Parameter.FONTS_SANSSERIF, fonts);
+		context.setParameter(Parameter.FONTS_SCRIPT, fonts);
+
+		context.setParameter(Parameter.MATHSIZE, mathSize);
+		return new JEuclidView(mathDoc, context, null);
+	}
+	
 	public MathMLImage(Element mathMlElement, double cssWidth,
 			double cssHeight, double cssMaxWidth, double cssMaxHeight,
 			double dotsPerPixel, List<String> fonts) {
+		// TODO: Proper font size pickup from CSS.
+		this(layoutView(mathMlElement, fonts, MATH_SIZE), new Object(), cssWidth, cssHeight, cssMaxWidth, cssMaxHeight, dotsPerPixel);
+	}
+	
+	/**
+	 * @param view an already laid out view, possibly shared with other images.
+	 * @param reuseKey a key identifying the view, so that output devices can reuse the drawing
+	 * for other images with the same key and size.
+	 */
+	public MathMLImage(JEuclidView view, Object reuseKey, double cssWidth,
+			double cssHeight, double cssMaxWidth, double cssMaxHeight,
+			double dotsPerPixel) {
 		this._dotsPerPixel = dotsPerPixel;
-		this._mathDoc = DOMBuilder.getInstance().createJeuclidDom(mathMlElement);
-		
-		this._context.setParameter(Parameter.FONTS_SERIF, fonts);
-		this._context.setParameter(Parameter.FONTS_DOUBLESTRUCK, fonts);
-		this._context.setParameter(Parameter.FONTS_FRAKTUR, fonts);
-		this._context.setParameter(Parameter.FONTS_MONOSPACED, fonts);
-		this._context.setParameter(Parameter.FONTS_SANSSERIF, fonts);
-		this._context.setParameter(Parameter.FONTS_SCRIPT, fonts);
-		
-		
-		this._context.setParameter(Parameter.MATHSIZE, 16f); // TODO: Proper font size pickup from CSS.
-		this._view = new JEuclidView(this._mathDoc, this._context, null);
+		this._view = view;
+		this._reuseKey = reuseKey;
 
 		if (this.getViewWidthInOutputDeviceDots() <= 0 || this.getViewHeightInOutputDeviceDots() <= 0) {
 			this._scaledWidthInOutputDeviceDots = 0;
@@ -140,7 +165,12 @@ public class MathMLImage implements SVGImage {
 	@Override
 	public void drawSVG(OutputDevice outputDevice, RenderingContext ctx,
 			double x, double y) {
-		outputDevice.drawWithGraphics((float) x, (float) y, (float) this._scaledWidthInOutputDeviceDots, (float) this._scaledHeightInOutputDeviceDots, new OutputDeviceGraphicsDrawer() {
+		outputDevice.drawWithGraphics((float) x, (float) y, (float) this._scaledWidthInOutputDeviceDots, (float) this._scaledHeightInOutputDeviceDots, new ReusableGraphicsDrawer() {
+			@Override
+			public Object getReuseKey() {
+				return _reuseKey;
+			}
+
 			@Override
 			public void render(Graphics2D g2d) {
 				g2d.scale(_sx, _sy);
@@ -1,6 +1,7 @@
 package com.openhtmltopdf.objects;
 
 import com.openhtmltopdf.objects.jfreechart.JFreeChartBarDiagramObjectDrawer;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartCache;
 import com.openhtmltopdf.objects.jfreechart.JFreeChartPieDiagramObjectDrawer;
 import com.openhtmltopdf.objects.pdf.MergeBackgroundPdfDrawer;
 import com.openhtmltopdf.render.DefaultObjectDrawerFactory;
@@ -11,12 +12,23 @@ import com.openhtmltopdf.render.DefaultObjectDrawerFactory;
 public class StandardObjectDrawerFactory extends DefaultObjectDrawerFactory {
 
 	public static void registerStandardObjects(DefaultObjectDrawerFactory factory) {
-		factory.registerDrawer("jfreechart/pie", new JFreeChartPieDiagramObjectDrawer());
-		factory.registerDrawer("jfreechart/bar", new JFreeChartBarDiagramObjectDrawer());
+		registerStandardObjects(factory, JFreeChartCache.getDefault());
+	}
+
+	/**
+	 * @param chartCache the cache of built charts, may be shared between factories (and renderers).
+	 */
+	public static void registerStandardObjects(DefaultObjectDrawerFactory factory, JFreeChartCache chartCache) {
+		factory.registerDrawer("jfreechart/pie", new JFreeChartPieDiagramObjectDrawer(chartCache));
+		factory.registerDrawer("jfreechart/bar", new JFreeChartBarDiagramObjectDrawer(chartCache));
 		factory.registerDrawer("pdf/background",new MergeBackgroundPdfDrawer());
 	}
 
 	public StandardObjectDrawerFactory() {
 		registerStandardObjects(this);
 	}
+
+	public StandardObjectDrawerFactory(JFreeChartCache chartCache) {
+		registerStandardObjects(this, chartCache);
+	}
 }
@@ -0,0 +1,197 @@
+package com.openhtmltopdf.objects.jfreechart;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
+
+/**
+ * Holds built charts keyed by their {@link JFreeChartDefinition}, so that identical charts are
+ * only built once. Charts can be built ahead of paint on an executor (see {@link JFreeChartPrefetcher}).
+ *
+ * This class is thread safe, so one cache may be shared between renderers, which then draw
+ * each chart one at a time. The least recently used charts are evicted once the cache holds
+ * more than the maximum number of charts.
+ * The chart drawers use the {@link #getDefault()} cache unless given another.
+ */
+public class JFreeChartCache {
+	/**
+	 * The default maximum number of charts held by a cache.
+	 */
+	public static final int DEFAULT_MAX_CHARTS = 256;
+
+	private final Executor executor;
+	private final Map<JFreeChartDefinition, CachedChart> charts;
+
+	private static class DefaultHolder {
+		private static final Executor EXECUTOR = createDefaultExecutor();
+		private static final JFreeChartCache CACHE = new JFreeChartCache();
+	}
+
+	/**
+	 * Building a chart can take a while, so prefetches get their own daemon threads rather than
+	 * blocking a shared pool. Threads end when idle.
+	 */
+	private static Executor createDefaultExecutor() {
+		final AtomicInteger count = new AtomicInteger();
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "openhtmltopdf-chart-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * @return the cache shared by chart drawers created without one.
+	 */
+	public static JFreeChartCache getDefault() {
+		return DefaultHolder.CACHE;
+	}
+
+	/**
+	 * A cache holding up to {@link #DEFAULT_MAX_CHARTS} charts, building prefetched charts
+	 * on a small pool of daemon threads shared by all such caches.
+	 */
+	public JFreeChartCache() {
+		this(DEFAULT_MAX_CHARTS, DefaultHolder.EXECUTOR);
+	}
+
+	/**
+	 * @param maxCharts the maximum number of charts to hold.
+	 * @param executor the executor to build prefetched charts on. The caller is responsible for shutting it down.
+	 */
+	public JFreeChartCache(final int maxCharts, Executor executor) {
+		this.executor = executor;
+		this.charts = new LinkedHashMap<JFreeChartDefinition, CachedChart>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<JFreeChartDefinition, CachedChart> eldest) {
+				return size() > maxCharts;
+			}
+		};
+	}
+
+	static class CachedChart {
+		private final FutureTask<JFreeChart> chart;
+
+		// Link maps from a previous draw, keyed by size, for when the output device reuses the drawing.
+		final Map<LinkMapKey, Map<Shape, String>> linkMaps = new ConcurrentHashMap<LinkMapKey, Map<Shape, String>>();
+
+		private CachedChart(FutureTask<JFreeChart> chart) {
+			this.chart = chart;
+		}
+
+		/**
+		 * Draws the chart. JFreeChart is not thread safe, and a cached chart may be drawn by
+		 * concurrent renders sharing the cache, so draws of a chart are serialized.
+		 */
+		void draw(Graphics2D graphics2D, Rectangle2D area, ChartRenderingInfo renderingInfo) {
+			JFreeChart built = getChart();
+			synchronized (this) {
+				built.draw(graphics2D, area, renderingInfo);
+			}
+		}
+
+		JFreeChart getChart() {
+			// Builds on the calling thread, if not yet started on the executor.
+			chart.run();
+			try {
+				return chart.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while building chart", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Could not build chart", e.getCause());
+			}
+		}
+	}
+
+	static class LinkMapKey {
+		private final double width;
+		private final double height;
+		private final int dotsPerPixel;
+
+		LinkMapKey(double width, double height, int dotsPerPixel) {
+			this.width = width;
+			this.height = height;
+			this.dotsPerPixel = dotsPerPixel;
+		}
+
+		@Override
+		public int hashCode() {
+			return (Double.valueOf(width).hashCode() * 31 + Double.valueOf(height).hashCode()) * 31 + dotsPerPixel;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof LinkMapKey)) {
+				return false;
+			}
+			LinkMapKey other = (LinkMapKey) obj;
+			return width == other.width && height == other.height && dotsPerPixel == other.dotsPerPixel;
+		}
+	}
+
+	private CachedChart getOrCreate(final JFreeChartDefinition definition, final JFreeChartObjectDrawer drawer, boolean prefetch) {
+		CachedChart cached;
+		boolean created = false;
+
+		synchronized (charts) {
+			cached = charts.get(definition);
+			if (cached == null) {
+				cached = new CachedChart(new FutureTask<JFreeChart>(new Callable<JFreeChart>() {
+					@Override
+					public JFreeChart call() throws Exception {
+						return drawer.buildChart(definition);
+					}
+				}));
+				charts.put(definition, cached);
+				created = true;
+			}
+		}
+
+		if (created && prefetch) {
+			executor.execute(cached.chart);
+		}
+
+		return cached;
+	}
+
+	/**
+	 * Starts building the chart on the executor, if it is not already cached.
+	 */
+	void prefetch(JFreeChartDefinition definition, JFreeChartObjectDrawer drawer) {
+		getOrCreate(definition, drawer, true);
+	}
+
+	/**
+	 * Gets the cached chart, waiting for it if it is being built on the executor
+	 * or building it on the calling thread if not yet started.
+	 */
+	CachedChart get(JFreeChartDefinition definition, JFreeChartObjectDrawer drawer) {
+		return getOrCreate(definition, drawer, false);
+	}
+}
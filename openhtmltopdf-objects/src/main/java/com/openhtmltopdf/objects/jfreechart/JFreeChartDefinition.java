@@ -0,0 +1,111 @@
+package com.openhtmltopdf.objects.jfreechart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The content of a chart object tag: its type, the chart attributes and the data rows.
+ * Two charts with equal definitions draw identically, so this is used as the key
+ * to build and draw a chart only once.
+ */
+public final class JFreeChartDefinition {
+	private final String type;
+	private final String[] attributes;
+	private final List<String[]> rows;
+	private final int hash;
+
+	private JFreeChartDefinition(String type, String[] attributes, List<String[]> rows) {
+		this.type = type;
+		this.attributes = attributes;
+		this.rows = rows;
+
+		int h = type.hashCode() * 31 + Arrays.hashCode(attributes);
+		for (String[] row : rows) {
+			h = h * 31 + Arrays.hashCode(row);
+		}
+		this.hash = h;
+	}
+
+	/**
+	 * Reads a definition from an object element.
+	 * @param attributeNames the chart attributes to read from the object element, such as title.
+	 * @param rowTagNames the tag names of child elements that hold data.
+	 * @param rowAttributeNames the attributes to read from each data element.
+	 */
+	public static JFreeChartDefinition fromElement(Element e, String[] attributeNames, String[] rowTagNames, String[] rowAttributeNames) {
+		String[] attributes = new String[attributeNames.length];
+		for (int i = 0; i < attributeNames.length; i++) {
+			attributes[i] = e.getAttribute(attributeNames[i]);
+		}
+
+		List<String[]> rows = new ArrayList<String[]>();
+		NodeList childNodes = e.getChildNodes();
+		for (int i = 0; i < childNodes.getLength(); i++) {
+			Node item = childNodes.item(i);
+			if (!(item instanceof Element))
+				continue;
+			Element childElement = (Element) item;
+			if (!Arrays.asList(rowTagNames).contains(childElement.getTagName()))
+				continue;
+			String[] row = new String[rowAttributeNames.length];
+			for (int j = 0; j < rowAttributeNames.length; j++) {
+				row[j] = childElement.getAttribute(rowAttributeNames[j]);
+			}
+			rows.add(row);
+		}
+
+		return new JFreeChartDefinition(e.getAttribute("type"), attributes, Collections.unmodifiableList(rows));
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return the chart attribute at the given index of the attribute names this definition was read with.
+	 */
+	public String getAttribute(int index) {
+		return attributes[index];
+	}
+
+	/**
+	 * @return the data rows, each with the values of the row attribute names this definition was read with.
+	 */
+	public List<String[]> getRows() {
+		return rows;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof JFreeChartDefinition)) {
+			return false;
+		}
+		JFreeChartDefinition other = (JFreeChartDefinition) obj;
+		if (hash != other.hash ||
+			!type.equals(other.type) ||
+			!Arrays.equals(attributes, other.attributes) ||
+			rows.size() != other.rows.size()) {
+			return false;
+		}
+		for (int i = 0; i < rows.size(); i++) {
+			if (!Arrays.equals(rows.get(i), other.rows.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
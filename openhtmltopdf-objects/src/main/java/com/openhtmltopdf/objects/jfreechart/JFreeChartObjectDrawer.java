@@ -0,0 +1,123 @@
+package com.openhtmltopdf.objects.jfreechart;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.entity.ChartEntity;
+import org.w3c.dom.Element;
+
+import com.openhtmltopdf.extend.FSObjectDrawer;
+import com.openhtmltopdf.extend.OutputDevice;
+import com.openhtmltopdf.extend.ReusableGraphicsDrawer;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartCache.CachedChart;
+import com.openhtmltopdf.objects.jfreechart.JFreeChartCache.LinkMapKey;
+import com.openhtmltopdf.render.RenderingContext;
+
+/**
+ * Base class for the JFreeChart object drawers. Charts are built once per distinct
+ * {@link JFreeChartDefinition} using a {@link JFreeChartCache} and drawn through a
+ * {@link ReusableGraphicsDrawer}, so the PDF output only contains one drawing for
+ * identical charts of the same size.
+ */
+public abstract class JFreeChartObjectDrawer implements FSObjectDrawer {
+	private final JFreeChartCache cache;
+
+	protected JFreeChartObjectDrawer(JFreeChartCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Reads the chart definition from the object element.
+	 */
+	protected abstract JFreeChartDefinition readDefinition(Element e);
+
+	/**
+	 * Builds the dataset and chart for a definition. May be called on any thread.
+	 */
+	protected abstract JFreeChart buildChart(JFreeChartDefinition definition);
+
+	/**
+	 * Starts building the chart for this object element ahead of paint.
+	 */
+	public void prefetch(Element e) {
+		cache.prefetch(readDefinition(e), this);
+	}
+
+	static Map<Shape, String> buildShapeLinkMap(ChartRenderingInfo renderingInfo, int dotsPerPixel) {
+		Map<Shape, String> linkShapes = null;
+		AffineTransform scaleTransform = new AffineTransform();
+		scaleTransform.scale(dotsPerPixel, dotsPerPixel);
+		for (Object entity : renderingInfo.getEntityCollection().getEntities()) {
+			if (!(entity instanceof ChartEntity))
+				continue;
+			ChartEntity chartEntity = (ChartEntity) entity;
+			Shape shape = chartEntity.getArea();
+			String url = chartEntity.getURLText();
+			if (url != null) {
+				if (linkShapes == null)
+					linkShapes = new HashMap<Shape, String>();
+				linkShapes.put(scaleTransform.createTransformedShape(shape), url);
+			}
+		}
+		return linkShapes;
+	}
+
+	private static void drawChart(CachedChart cached, Graphics2D graphics2D, double width, double height,
+			int dotsPerPixel, ChartRenderingInfo renderingInfo) {
+		cached.draw(graphics2D, new Rectangle2D.Float((float) 0, (float) 0,
+				(float) (width / dotsPerPixel), (float) (height / dotsPerPixel)), renderingInfo);
+	}
+
+	@Override
+	public Map<Shape, String> drawObject(Element e, final double x, final double y, final double width,
+			final double height, OutputDevice outputDevice, RenderingContext ctx, final int dotsPerPixel) {
+		final JFreeChartDefinition definition = readDefinition(e);
+		final CachedChart cached = cache.get(definition, this);
+		// Built before drawing, so a build failure isn't reported from within the output device.
+		cached.getChart();
+		final ChartRenderingInfo renderingInfo = new ChartRenderingInfo();
+		final boolean[] rendered = new boolean[1];
+
+		outputDevice.drawWithGraphics((float) x, (float) y, (float) width / dotsPerPixel, (float) height / dotsPerPixel,
+				new ReusableGraphicsDrawer() {
+					@Override
+					public Object getReuseKey() {
+						return definition;
+					}
+
+					@Override
+					public void render(Graphics2D graphics2D) {
+						drawChart(cached, graphics2D, width, height, dotsPerPixel, renderingInfo);
+						rendered[0] = true;
+					}
+				});
+
+		LinkMapKey linkKey = new LinkMapKey(width, height, dotsPerPixel);
+
+		if (!rendered[0]) {
+			// The output device reused an earlier drawing of this chart, so use the links from that drawing.
+			Map<Shape, String> links = cached.linkMaps.get(linkKey);
+			if (links != null) {
+				return links.isEmpty() ? null : links;
+			}
+
+			// Not available (cache was evicted), so draw to a scratch image to find the links.
+			BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g2d = scratch.createGraphics();
+			drawChart(cached, g2d, width, height, dotsPerPixel, renderingInfo);
+			g2d.dispose();
+		}
+
+		Map<Shape, String> links = buildShapeLinkMap(renderingInfo, dotsPerPixel);
+		cached.linkMaps.put(linkKey, links != null ? links : Collections.<Shape, String>emptyMap());
+		return links;
+	}
+}
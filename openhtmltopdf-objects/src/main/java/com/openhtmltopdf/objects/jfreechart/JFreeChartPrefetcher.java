@@ -0,0 +1,35 @@
+package com.openhtmltopdf.objects.jfreechart;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.openhtmltopdf.extend.FSDOMMutator;
+import com.openhtmltopdf.extend.FSObjectDrawer;
+import com.openhtmltopdf.extend.FSObjectDrawerFactory;
+
+/**
+ * A DOM mutator that does not change the document, but starts building all charts
+ * in the document on the chart cache executor, so they are ready by the time they are painted.
+ * Register with the builder's <code>addDOMMutator</code> method, passing the same factory
+ * given to <code>useObjectDrawerFactory</code>.
+ */
+public class JFreeChartPrefetcher implements FSDOMMutator {
+	private final FSObjectDrawerFactory factory;
+
+	public JFreeChartPrefetcher(FSObjectDrawerFactory factory) {
+		this.factory = factory;
+	}
+
+	@Override
+	public void mutateDocument(Document document) {
+		NodeList objects = document.getElementsByTagName("object");
+		for (int i = 0; i < objects.getLength(); i++) {
+			Element e = (Element) objects.item(i);
+			FSObjectDrawer drawer = factory.createDrawer(e);
+			if (drawer instanceof JFreeChartObjectDrawer) {
+				((JFreeChartObjectDrawer) drawer).prefetch(e);
+			}
+		}
+	}
+}
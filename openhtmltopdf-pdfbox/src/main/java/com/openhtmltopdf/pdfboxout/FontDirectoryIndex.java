@@ -0,0 +1,439 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.apache.fontbox.ttf.HeaderTable;
+import org.apache.fontbox.ttf.NameRecord;
+import org.apache.fontbox.ttf.NamingTable;
+import org.apache.fontbox.ttf.OS2WindowsMetricsTable;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeCollection;
+import org.apache.fontbox.ttf.TrueTypeFont;
+
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.util.XRLog;
+
+/**
+ * An index of the fonts (.ttf and .ttc) in a directory, with the family, weight and style
+ * of each font as read from its name and OS/2 tables.
+ * <br><br>
+ * Reading these tables is much cheaper than loading a font, and the index can be persisted
+ * to an index file so that only new or changed fonts are read on later loads. Fonts in the index are
+ * registered lazily with {@link PdfBoxFontResolver#addFontDirectory(FontDirectoryIndex, boolean)}, so
+ * a font file is only parsed if a document actually uses it.
+ * <br><br>
+ * Once loaded, an index is immutable and may be shared between renders and threads. Typically, load the
+ * index once at startup and pass it to {@link PdfRendererBuilder#useFontDirectory(FontDirectoryIndex, boolean)}
+ * for each render.
+ */
+public class FontDirectoryIndex {
+    private static final String INDEX_HEADER = "# openhtmltopdf font directory index v2";
+    private static final int NAME_TYPOGRAPHIC_FAMILY_NAME = 16;
+
+    private final File _directory;
+    private final List<Entry> _entries;
+
+    private FontDirectoryIndex(File directory, List<Entry> entries) {
+        _directory = directory;
+        _entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * A single font in the index. For font collections (.ttc) there is one entry per font in the collection.
+     */
+    public static class Entry {
+        private final File _file;
+        private final long _lastModified;
+        private final long _length;
+        private final String _postScriptName;
+        private final String _family;
+        private final int _weight;
+        private final IdentValue _style;
+        private final long[] _unicodeRanges;
+
+        private Entry(File file, long lastModified, long length, String postScriptName, String family, int weight, IdentValue style, long[] unicodeRanges) {
+            _file = file;
+            _lastModified = lastModified;
+            _length = length;
+            _postScriptName = postScriptName;
+            _family = family;
+            _weight = weight;
+            _style = style;
+            _unicodeRanges = unicodeRanges;
+        }
+
+        public File getFile() {
+            return _file;
+        }
+
+        public long getLastModified() {
+            return _lastModified;
+        }
+
+        /**
+         * The PostScript name, used to find the font in a collection.
+         */
+        public String getPostScriptName() {
+            return _postScriptName;
+        }
+
+        public String getFamily() {
+            return _family;
+        }
+
+        public int getWeight() {
+            return _weight;
+        }
+
+        /**
+         * One of {@link IdentValue#NORMAL}, {@link IdentValue#ITALIC} or {@link IdentValue#OBLIQUE}.
+         */
+        public IdentValue getStyle() {
+            return _style;
+        }
+
+        public boolean isCollection() {
+            return _file.getName().toLowerCase(Locale.US).endsWith(".ttc");
+        }
+
+        /**
+         * Whether the font claims to support the given Unicode range, as a bit number (0-127) of
+         * the OS/2 table ulUnicodeRange fields. For example, bit 0 is Basic Latin and bit 9 is Cyrillic.
+         * Fonts without an OS/2 table claim to support no ranges.
+         */
+        public boolean hasUnicodeRange(int bit) {
+            return (_unicodeRanges[bit / 32] & (1L << (bit % 32))) != 0;
+        }
+
+        private String toLine() {
+            return _file.getAbsolutePath() + '\t' + _lastModified + '\t' + _length + '\t' + _postScriptName + '\t' +
+                   _family + '\t' + _weight + '\t' + _style + '\t' +
+                   Long.toHexString(_unicodeRanges[0]) + ',' + Long.toHexString(_unicodeRanges[1]) + ',' +
+                   Long.toHexString(_unicodeRanges[2]) + ',' + Long.toHexString(_unicodeRanges[3]);
+        }
+
+        private static Entry fromLine(String[] parts) {
+            if (parts.length != 8) {
+                return null;
+            }
+
+            String[] ranges = parts[7].split(",");
+            if (ranges.length != 4) {
+                return null;
+            }
+
+            IdentValue style = IdentValue.valueOf(parts[6]);
+            if (style == null) {
+                return null;
+            }
+
+            try {
+                long[] unicodeRanges = new long[4];
+                for (int i = 0; i < 4; i++) {
+                    unicodeRanges[i] = Long.parseLong(ranges[i], 16);
+                }
+
+                return new Entry(new File(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3], parts[4],
+                        Integer.parseInt(parts[5]), style, unicodeRanges);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A font file as recorded in the index file, with the entries read from it.
+     * Files that could not be read are recorded with no entries, so they are not read
+     * again until they change.
+     */
+    private static class IndexedFile {
+        private final long _lastModified;
+        private final long _length;
+        private final List<Entry> _entries = new ArrayList<Entry>(1);
+
+        private IndexedFile(long lastModified, long length) {
+            _lastModified = lastModified;
+            _length = length;
+        }
+
+        private boolean isCurrent(File file) {
+            return file.lastModified() == _lastModified && file.length() == _length;
+        }
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    public List<Entry> getEntries() {
+        return _entries;
+    }
+
+    /**
+     * Indexes the fonts in a directory without persisting the index.
+     * @see #load(File, File)
+     */
+    public static FontDirectoryIndex load(File directory) {
+        return load(directory, null);
+    }
+
+    /**
+     * Indexes the fonts in a directory (not including sub-directories). If the index file exists,
+     * fonts which have not been modified since it was written are not read again. The index file is
+     * rewritten if any font was added, changed or removed.
+     * <br><br>
+     * Fonts that can not be read are logged and left out of the index, and are not read again until they
+     * change. Problems reading or writing the
+     * index file are logged, but do not stop the directory being indexed.
+     *
+     * @param directory the font directory.
+     * @param indexFile where to persist the index or null to not persist it.
+     */
+    public static FontDirectoryIndex load(File directory, File indexFile) {
+        Map<String, IndexedFile> previous = indexFile != null ? readIndexFile(indexFile) : Collections.<String, IndexedFile>emptyMap();
+
+        File[] files = directory.listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.US);
+            return lower.endsWith(".ttf") || lower.endsWith(".ttc");
+        });
+
+        if (files == null) {
+            XRLog.init(Level.WARNING, "Font directory (" + directory + ") is not a readable directory");
+            return new FontDirectoryIndex(directory, new ArrayList<Entry>());
+        }
+
+        // Sorted so that the index file and registration order do not depend on the file system.
+        Arrays.sort(files);
+
+        List<Entry> entries = new ArrayList<Entry>();
+        Map<String, IndexedFile> indexed = new LinkedHashMap<String, IndexedFile>();
+        // Failed files are in the index file too, so the same files give the same count.
+        boolean changed = files.length != previous.size();
+
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            IndexedFile existing = previous.get(path);
+
+            if (existing != null && existing.isCurrent(file)) {
+                indexed.put(path, existing);
+                entries.addAll(existing._entries);
+                continue;
+            }
+
+            changed = true;
+            IndexedFile current = new IndexedFile(file.lastModified(), file.length());
+            indexed.put(path, current);
+
+            try {
+                current._entries.addAll(readFontFile(file, current._lastModified, current._length));
+                entries.addAll(current._entries);
+            } catch (IOException e) {
+                XRLog.exception("Couldn't index font (" + path + "). Please check that it is a valid truetype font.", e);
+            }
+        }
+
+        if (indexFile != null && changed) {
+            writeIndexFile(indexFile, indexed);
+        }
+
+        return new FontDirectoryIndex(directory, entries);
+    }
+
+    private static List<Entry> readFontFile(File file, final long lastModified, final long length) throws IOException {
+        final List<Entry> entries = new ArrayList<Entry>();
+
+        if (file.getName().toLowerCase(Locale.US).endsWith(".ttc")) {
+            final File collectionFile = file;
+            try (TrueTypeCollection collection = new TrueTypeCollection(file)) {
+                collection.processAllFonts(ttf -> entries.add(createEntry(collectionFile, lastModified, length, ttf)));
+            }
+        } else {
+            // Parse on demand, so that only the tables we ask for are read.
+            TrueTypeFont ttf = new TTFParser(false, true).parse(file);
+            try {
+                entries.add(createEntry(file, lastModified, length, ttf));
+            } finally {
+                ttf.close();
+            }
+        }
+
+        return entries;
+    }
+
+    private static Entry createEntry(File file, long lastModified, long length, TrueTypeFont ttf) throws IOException {
+        NamingTable naming = ttf.getNaming();
+        OS2WindowsMetricsTable os2 = ttf.getOS2Windows();
+        HeaderTable head = ttf.getHeader();
+
+        String family = naming != null ? getPreferredFamily(naming) : null;
+        if (family == null) {
+            family = file.getName();
+        }
+
+        String postScriptName = naming != null && naming.getPostScriptName() != null ? naming.getPostScriptName() : family;
+
+        int weight = 400;
+        IdentValue style = IdentValue.NORMAL;
+        long[] unicodeRanges = new long[4];
+
+        if (os2 != null) {
+            if (os2.getWeightClass() >= 100 && os2.getWeightClass() <= 900) {
+                weight = os2.getWeightClass();
+            }
+
+            // fsSelection bit 0 is italic and bit 9 is oblique.
+            if ((os2.getFsSelection() & (1 << 9)) != 0) {
+                style = IdentValue.OBLIQUE;
+            } else if ((os2.getFsSelection() & 1) != 0) {
+                style = IdentValue.ITALIC;
+            }
+
+            unicodeRanges[0] = os2.getUnicodeRange1();
+            unicodeRanges[1] = os2.getUnicodeRange2();
+            unicodeRanges[2] = os2.getUnicodeRange3();
+            unicodeRanges[3] = os2.getUnicodeRange4();
+        } else if (head != null) {
+            if ((head.getMacStyle() & HeaderTable.MAC_STYLE_BOLD) != 0) {
+                weight = 700;
+            }
+            if ((head.getMacStyle() & HeaderTable.MAC_STYLE_ITALIC) != 0) {
+                style = IdentValue.ITALIC;
+            }
+        }
+
+        return new Entry(file.getAbsoluteFile(), lastModified, length, clean(postScriptName), clean(family), weight, style, unicodeRanges);
+    }
+
+    /**
+     * Prefers the typographic family name (name id 16), which groups all weights and styles of a
+     * family, over the legacy family name (name id 1), which often has the weight in it.
+     */
+    private static String getPreferredFamily(NamingTable naming) {
+        String typographic = naming.getName(NAME_TYPOGRAPHIC_FAMILY_NAME,
+                NameRecord.PLATFORM_WINDOWS, NameRecord.ENCODING_WINDOWS_UNICODE_BMP, NameRecord.LANGUGAE_WINDOWS_EN_US);
+
+        if (typographic == null) {
+            typographic = naming.getName(NAME_TYPOGRAPHIC_FAMILY_NAME,
+                    NameRecord.PLATFORM_MACINTOSH, NameRecord.ENCODING_MACINTOSH_ROMAN, NameRecord.LANGUGAE_MACINTOSH_ENGLISH);
+        }
+
+        return typographic != null && !typographic.trim().isEmpty() ? typographic.trim() : naming.getFontFamily();
+    }
+
+    private static String clean(String name) {
+        // The index file is tab and line separated.
+        return name.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ').trim();
+    }
+
+    private static Map<String, IndexedFile> readIndexFile(File indexFile) {
+        if (!indexFile.isFile()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, IndexedFile> byPath = new HashMap<String, IndexedFile>();
+
+        try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+
+            if (!INDEX_HEADER.equals(line)) {
+                XRLog.init(Level.INFO, "Font index file (" + indexFile + ") is from a different version and will be rebuilt");
+                return Collections.emptyMap();
+            }
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String[] parts = line.split("\t", -1);
+                Entry entry = null;
+                IndexedFile file = null;
+
+                try {
+                    if (parts.length == 3) {
+                        // A file that could not be read.
+                        file = new IndexedFile(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    } else {
+                        entry = Entry.fromLine(parts);
+                        file = entry != null ? new IndexedFile(entry._lastModified, entry._length) : null;
+                    }
+                } catch (NumberFormatException e) {
+                    file = null;
+                }
+
+                if (file == null) {
+                    XRLog.init(Level.WARNING, "Font index file (" + indexFile + ") is corrupt and will be rebuilt");
+                    return Collections.emptyMap();
+                }
+
+                IndexedFile existing = byPath.putIfAbsent(new File(parts[0]).getAbsolutePath(), file);
+                if (entry != null) {
+                    (existing != null ? existing : file)._entries.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            XRLog.exception("Couldn't read font index file (" + indexFile + ")", e);
+            return Collections.emptyMap();
+        }
+
+        return byPath;
+    }
+
+    private static void writeIndexFile(File indexFile, Map<String, IndexedFile> files) {
+        Path tmp = null;
+
+        try {
+            // A unique temporary file, so that concurrent writers don't write to the same file.
+            tmp = Files.createTempFile(indexFile.getAbsoluteFile().getParentFile().toPath(), indexFile.getName(), ".tmp");
+
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(INDEX_HEADER);
+                writer.newLine();
+
+                for (Map.Entry<String, IndexedFile> file : files.entrySet()) {
+                    IndexedFile indexed = file.getValue();
+
+                    if (indexed._entries.isEmpty()) {
+                        writer.write(file.getKey() + '\t' + indexed._lastModified + '\t' + indexed._length);
+                        writer.newLine();
+                    }
+
+                    for (Entry entry : indexed._entries) {
+                        writer.write(entry.toLine());
+                        writer.newLine();
+                    }
+                }
+            }
+
+            // Move into place, so that concurrent readers never see a half written index.
+            try {
+                Files.move(tmp, indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            XRLog.exception("Couldn't write font index file (" + indexFile + ")", e);
+
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+}
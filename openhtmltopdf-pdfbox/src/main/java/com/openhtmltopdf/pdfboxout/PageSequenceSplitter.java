@@ -0,0 +1,395 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.openhtmltopdf.context.StyleReference;
+import com.openhtmltopdf.css.constants.CSSName;
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.constants.PageElementPosition;
+import com.openhtmltopdf.css.newmatch.PageInfo;
+import com.openhtmltopdf.css.parser.PropertyValue;
+import com.openhtmltopdf.css.sheet.PropertyDeclaration;
+import com.openhtmltopdf.css.style.CalculatedStyle;
+import com.openhtmltopdf.layout.BoxBuilder;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.util.XRLog;
+
+/**
+ * Splits a document into its page sequences, each a document of its own, so that they can be laid out
+ * and painted concurrently and their pages merged in order, see
+ * {@link PdfBatchRenderer#submitPageSequences(java.util.function.Consumer, OutputStream)}.
+ * <br><br>
+ * A page sequence starts at a child of body with <code>-fs-page-sequence: start</code> and
+ * <code>page-break-before: always</code>. Its pages are numbered and counted on their own, so it lays out
+ * the same wherever it is in the document, unless something carries over from earlier pages. The document is
+ * only split if:
+ * <ul>
+ * <li>there are at least two page sequences,</li>
+ * <li>no counters are set on html, body or a child of body, so all counters are scoped to a page sequence,</li>
+ * <li>there are no <code>@page</code> rules for <code>:first</code>, <code>:left</code> or <code>:right</code> pages,</li>
+ * <li>fixed elements are children of body before the first page sequence,</li>
+ * <li>absolutely positioned elements have a positioned ancestor,</li>
+ * <li>running elements in a page sequence are defined at the start of every page sequence,
+ * and margin boxes don't show the <code>start</code> or <code>last-except</code> running element,</li>
+ * <li>no link goes from one page sequence to another, and there are no bookmarks or forms.</li>
+ * </ul>
+ * Content before the first page sequence goes with the first, while its fixed and running elements are
+ * also copied to the start of each later page sequence, unless it defines its own running element of the same name.
+ */
+final class PageSequenceSplitter {
+    private static final String[] PSEUDO_PAGES = { "first", "left", "right" };
+
+    private final SharedContext _context;
+
+    private final List<List<Node>> _sequences = new ArrayList<List<Node>>();
+    private final List<Element> _shared = new ArrayList<Element>();
+
+    private final Map<String, Integer> _ids = new HashMap<String, Integer>();
+    private final List<Set<String>> _links = new ArrayList<Set<String>>();
+
+    private final Set<String> _runningNames = new HashSet<String>();
+    private final List<Set<String>> _startRunningNames = new ArrayList<Set<String>>();
+    private boolean _hasRunning;
+    private boolean _atStart;
+
+    private final Set<String> _pageNames = new HashSet<String>();
+
+    private String _reason;
+
+    private PageSequenceSplitter(SharedContext context) {
+        _context = context;
+    }
+
+    /**
+     * @return a document for each page sequence of the renderer's document, or null if it can't be split.
+     */
+    static List<Document> split(PdfBoxRenderer renderer) {
+        PageSequenceSplitter splitter = new PageSequenceSplitter(renderer.getSharedContext());
+        Document doc = renderer.getDocument();
+
+        if (!splitter.collect(doc)) {
+            XRLog.general(Level.INFO, "Rendering page sequences as one document, as " + splitter._reason);
+            return null;
+        }
+
+        return splitter.createDocuments(doc);
+    }
+
+    /**
+     * Appends the pages of the page sequences to the first and saves it.
+     */
+    static void merge(List<byte[]> sequences, OutputStream os) throws IOException {
+        List<PDDocument> documents = new ArrayList<PDDocument>(sequences.size());
+
+        try {
+            for (byte[] sequence : sequences) {
+                documents.add(PDDocument.load(sequence));
+            }
+
+            PDDocument result = documents.get(0);
+            PDFMergerUtility merger = new PDFMergerUtility();
+
+            for (int i = 1; i < documents.size(); i++) {
+                merger.appendDocument(result, documents.get(i));
+            }
+
+            // The appended documents must stay open until saved.
+            result.save(os);
+        } finally {
+            for (PDDocument document : documents) {
+                document.close();
+            }
+        }
+    }
+
+    private boolean reject(String reason) {
+        _reason = reason;
+        return false;
+    }
+
+    private boolean collect(Document doc) {
+        Element html = doc.getDocumentElement();
+        Element head = html != null ? childElement(html, "head") : null;
+        Element body = html != null ? childElement(html, "body") : null;
+
+        if (body == null) {
+            return reject("there is no body");
+        }
+
+        if ((head != null && head.getElementsByTagName("bookmarks").getLength() > 0) ||
+            body.getElementsByTagName("form").getLength() > 0) {
+            return reject("there are bookmarks or forms");
+        }
+
+        if (hasCounters(_context.getStyle(html)) || hasCounters(_context.getStyle(body))) {
+            return reject("counters are set on html or body");
+        }
+
+        List<Node> before = new ArrayList<Node>();
+
+        for (Node child = body.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                CalculatedStyle style = _context.getStyle((Element) child);
+
+                if (hasCounters(style) || style.isListItem()) {
+                    return reject("counters are set on a child of body");
+                }
+
+                if (style.isIdent(CSSName.FS_PAGE_SEQUENCE, IdentValue.START) &&
+                    style.isIdent(CSSName.PAGE_BREAK_BEFORE, IdentValue.ALWAYS)) {
+                    _sequences.add(new ArrayList<Node>());
+                } else if (_sequences.isEmpty() && (style.isRunning() || style.isFixed())) {
+                    _shared.add((Element) child);
+                    _hasRunning |= style.isRunning();
+                }
+            }
+
+            (_sequences.isEmpty() ? before : _sequences.get(_sequences.size() - 1)).add(child);
+        }
+
+        if (_sequences.size() < 2) {
+            return reject("there are fewer than two page sequences");
+        }
+
+        _sequences.get(0).addAll(0, before);
+
+        for (int i = 0; i < _sequences.size(); i++) {
+            _links.add(new HashSet<String>());
+            _startRunningNames.add(new HashSet<String>());
+            _atStart = true;
+
+            for (Node node : _sequences.get(i)) {
+                if (!_shared.contains(node) && !scan(node, i, false)) {
+                    return false;
+                }
+            }
+        }
+
+        for (int i = 0; i < _sequences.size(); i++) {
+            for (String target : _links.get(i)) {
+                Integer sequence = _ids.get(target);
+                if (sequence != null && sequence != i) {
+                    return reject("a link goes from one page sequence to another");
+                }
+            }
+
+            if (i > 0 && !_startRunningNames.get(i).containsAll(_runningNames)) {
+                return reject("a running element is not defined at the start of every page sequence");
+            }
+        }
+
+        StyleReference css = _context.getCss();
+        _pageNames.add(null);
+
+        for (String pageName : _pageNames) {
+            PageInfo page = css.getPageStyle(pageName, null);
+            int declarations = countDeclarations(page);
+
+            for (String pseudoPage : PSEUDO_PAGES) {
+                if (countDeclarations(css.getPageStyle(pageName, pseudoPage)) != declarations) {
+                    return reject("there are @page rules for :first, :left or :right pages");
+                }
+            }
+
+            if (_hasRunning && showsRunningBeforePage(page)) {
+                return reject("a margin box shows the start or last-except running element");
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks an element of a page sequence and its descendants, in document order.
+     */
+    private boolean scan(Node node, int sequence, boolean positionedAncestor) {
+        if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+            if (!isWhitespace(node.getNodeValue())) {
+                _atStart = false;
+            }
+            return true;
+        } else if (node.getNodeType() != Node.ELEMENT_NODE) {
+            return true;
+        }
+
+        Element e = (Element) node;
+        CalculatedStyle style = _context.getStyle(e);
+
+        if (style.isRunning()) {
+            // Only shown in margin boxes, so its content doesn't matter.
+            _hasRunning = true;
+            _runningNames.add(style.getRunningName());
+            if (_atStart) {
+                _startRunningNames.get(sequence).add(style.getRunningName());
+            }
+            return true;
+        } else if (style.isFixed()) {
+            return reject("a fixed element is in a page sequence");
+        } else if (style.isAbsolute() && !positionedAncestor) {
+            return reject("an absolutely positioned element has no positioned ancestor");
+        }
+
+        if (!style.isIdent(CSSName.PAGE, IdentValue.AUTO)) {
+            _pageNames.add(style.getStringProperty(CSSName.PAGE));
+        }
+
+        String id = e.getAttribute("id");
+        if (!id.isEmpty()) {
+            _ids.put(id, sequence);
+        }
+
+        String href = e.getAttribute("href");
+        if (href.length() > 1 && href.charAt(0) == '#') {
+            _links.get(sequence).add(href.substring(1));
+        }
+
+        boolean positioned = positionedAncestor || style.isPositioned();
+        for (Node child = e.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!scan(child, sequence, positioned)) {
+                return false;
+            }
+        }
+
+        // A running element after this one may be pushed past the first page.
+        _atStart = false;
+        return true;
+    }
+
+    private List<Document> createDocuments(Document doc) {
+        Element html = doc.getDocumentElement();
+        Element head = childElement(html, "head");
+        Element body = childElement(html, "body");
+
+        List<Document> result = new ArrayList<Document>(_sequences.size());
+        int last = _sequences.size() - 1;
+
+        for (int i = 0; i <= last; i++) {
+            Document sequence = doc.getImplementation().createDocument(html.getNamespaceURI(), html.getTagName(), null);
+
+            Element htmlCopy = (Element) sequence.importNode(html, false);
+            sequence.replaceChild(htmlCopy, sequence.getDocumentElement());
+
+            if (head != null) {
+                htmlCopy.appendChild(sequence.importNode(head, true));
+            }
+
+            Element bodyCopy = (Element) sequence.importNode(body, false);
+            htmlCopy.appendChild(bodyCopy);
+
+            // Only the first page sequence starts with the top edges of html and body,
+            // and only the last ends with the bottom edges.
+            if (i > 0) {
+                removeEdge(htmlCopy, "top");
+                removeEdge(bodyCopy, "top");
+
+                for (Element shared : _shared) {
+                    CalculatedStyle style = _context.getStyle(shared);
+                    if (!style.isRunning() || !_startRunningNames.get(i).contains(style.getRunningName())) {
+                        bodyCopy.appendChild(sequence.importNode(shared, true));
+                    }
+                }
+            }
+
+            if (i < last) {
+                removeEdge(htmlCopy, "bottom");
+                removeEdge(bodyCopy, "bottom");
+            }
+
+            for (Node node : _sequences.get(i)) {
+                bodyCopy.appendChild(sequence.importNode(node, true));
+            }
+
+            result.add(sequence);
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes an edge with important inline declarations, as they are cascaded after
+     * important declarations of author stylesheets.
+     */
+    private static void removeEdge(Element e, String edge) {
+        String style = e.getAttribute("style");
+        e.setAttribute("style", (style.isEmpty() ? "" : style + ";") +
+                "margin-" + edge + ": 0 !important; padding-" + edge + ": 0 !important; border-" + edge + "-width: 0 !important");
+    }
+
+    private static boolean hasCounters(CalculatedStyle style) {
+        return style.getCounterReset() != null || style.getCounterIncrement() != null;
+    }
+
+    private static int countDeclarations(PageInfo page) {
+        int count = page.getProperties().size();
+        for (Object declarations : page.getMarginBoxes().values()) {
+            count += ((List<?>) declarations).size();
+        }
+        return count;
+    }
+
+    /**
+     * @return whether a margin box shows the running element in effect before the page,
+     * which for a page sequence would be from the one before.
+     */
+    private static boolean showsRunningBeforePage(PageInfo page) {
+        for (Object declarations : page.getMarginBoxes().values()) {
+            for (Object declaration : (List<?>) declarations) {
+                PropertyDeclaration decl = (PropertyDeclaration) declaration;
+                if (decl.getCSSName() != CSSName.CONTENT || !(decl.getValue() instanceof PropertyValue)) {
+                    continue;
+                }
+
+                List<PropertyValue> values = ((PropertyValue) decl.getValue()).getValues();
+                if (values == null) {
+                    continue;
+                }
+
+                for (PropertyValue value : values) {
+                    if (value.getPropertyValueType() == PropertyValue.VALUE_TYPE_FUNCTION &&
+                        BoxBuilder.isElementFunction(value.getFunction()) &&
+                        value.getFunction().getParameters().size() == 2) {
+                        PageElementPosition position = PageElementPosition.valueOf(
+                                value.getFunction().getParameters().get(1).getStringValue());
+                        if (PageElementPosition.START.equals(position) || PageElementPosition.LAST_EXCEPT.equals(position)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Element childElement(Element parent, String name) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE &&
+                name.equals(child.getLocalName() != null ? child.getLocalName() : child.getNodeName())) {
+                return (Element) child;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
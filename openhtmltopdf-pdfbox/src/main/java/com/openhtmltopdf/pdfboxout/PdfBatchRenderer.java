@@ -0,0 +1,270 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.w3c.dom.Document;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.impl.FSBoundedCacheStore;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder.FontStyle;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.CacheStore;
+
+/**
+ * Renders many documents concurrently on an executor, sharing immutable resources between the renders.
+ * <br><br>
+ * Each document is still rendered by its own {@link PdfRendererBuilder} on a single worker thread, as
+ * required by the renderer. What is shared between the workers:
+ * <ul>
+ * <li>All the {@link CacheStore} caches, which by default are a {@link FSBoundedCacheStore} per batch,
+ * each bounded to {@link #DEFAULT_MAX_CACHE_WEIGHT} unless given another bound.
+ * This includes font metrics, parsed stylesheets loaded by URI, image bytes and @font-face font bytes.</li>
+ * <li>Fonts added with {@link #useFont(File, String, Integer, FontStyle, boolean)}, which are read from disk once.</li>
+ * <li>The user-agent default stylesheet, which is always parsed only once per JVM.</li>
+ * </ul>
+ * Example:
+ * <pre>
+ * PdfBatchRenderer batch = new PdfBatchRenderer(Executors.newFixedThreadPool(4));
+ * batch.withSharedConfiguration(builder -&gt; builder.useFastMode());
+ * CompletableFuture&lt;Void&gt; done = batch.submit(builder -&gt; {
+ *     builder.withHtmlContent(html, baseUri);
+ *     builder.toStream(os);
+ * });
+ * </pre>
+ * On Java 21+, <code>Executors.newVirtualThreadPerTaskExecutor()</code> may be used as the executor.
+ * <br><br>
+ * The configuration methods are not thread safe and should be called before submitting documents.
+ */
+public class PdfBatchRenderer {
+    /**
+     * The default bound, roughly in bytes, of each cache of a batch.
+     */
+    public static final long DEFAULT_MAX_CACHE_WEIGHT = 64L * 1024 * 1024;
+
+    private final Executor _executor;
+    private final Map<CacheStore, FSCacheEx<String, FSCacheValue>> _caches = new EnumMap<CacheStore, FSCacheEx<String, FSCacheValue>>(CacheStore.class);
+    private final List<SharedFont> _fonts = new ArrayList<SharedFont>();
+    private Consumer<PdfRendererBuilder> _sharedConfiguration;
+
+    /**
+     * @param executor the executor to render documents on. The caller is responsible for shutting it down.
+     */
+    public PdfBatchRenderer(Executor executor) {
+        this(executor, DEFAULT_MAX_CACHE_WEIGHT);
+    }
+
+    /**
+     * @param executor the executor to render documents on. The caller is responsible for shutting it down.
+     * @param maxCacheWeight the bound, roughly in bytes, of each of the default caches.
+     */
+    public PdfBatchRenderer(Executor executor, long maxCacheWeight) {
+        _executor = executor;
+
+        for (CacheStore cacheStore : CacheStore.values()) {
+            _caches.put(cacheStore, new FSBoundedCacheStore(maxCacheWeight));
+        }
+    }
+
+    private static class SharedFont {
+        private final byte[] bytes;
+        private final String family;
+        private final Integer weight;
+        private final FontStyle style;
+        private final boolean subset;
+
+        private SharedFont(byte[] bytes, String family, Integer weight, FontStyle style, boolean subset) {
+            this.bytes = bytes;
+            this.family = family;
+            this.weight = weight;
+            this.style = style;
+            this.subset = subset;
+        }
+    }
+
+    /**
+     * Configuration applied to every builder in this batch, before the per-document configuration.
+     * @return this for method chaining
+     */
+    public PdfBatchRenderer withSharedConfiguration(Consumer<PdfRendererBuilder> configuration) {
+        _sharedConfiguration = configuration;
+        return this;
+    }
+
+    /**
+     * Use a specific cache for all documents in this batch instead of the default {@link FSBoundedCacheStore}.
+     * @return this for method chaining
+     * @see PdfRendererBuilder#useCacheStore(CacheStore, FSCacheEx)
+     */
+    public PdfBatchRenderer useCacheStore(CacheStore which, FSCacheEx<String, FSCacheValue> cache) {
+        _caches.put(which, cache);
+        return this;
+    }
+
+    /**
+     * Adds a TrueType or OpenType font (not a collection) to all documents in this batch.
+     * The font file is read once now and its bytes are shared by every render.
+     * @return this for method chaining
+     * @throws IOException if the font file can not be read
+     * @see PdfRendererBuilder#useFont(File, String, Integer, FontStyle, boolean)
+     */
+    public PdfBatchRenderer useFont(File fontFile, String fontFamily, Integer fontWeight, FontStyle fontStyle, boolean subset) throws IOException {
+        _fonts.add(new SharedFont(Files.readAllBytes(fontFile.toPath()), fontFamily, fontWeight, fontStyle, subset));
+        return this;
+    }
+
+    /**
+     * Simpler overload for {@link #useFont(File, String, Integer, FontStyle, boolean)}
+     */
+    public PdfBatchRenderer useFont(File fontFile, String fontFamily) throws IOException {
+        return useFont(fontFile, fontFamily, 400, FontStyle.NORMAL, true);
+    }
+
+    /**
+     * Creates a builder with the shared resources and configuration of this batch.
+     */
+    private PdfRendererBuilder createBuilder() {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+
+        for (Map.Entry<CacheStore, FSCacheEx<String, FSCacheValue>> entry : _caches.entrySet()) {
+            builder.useCacheStore(entry.getKey(), entry.getValue());
+        }
+
+        for (final SharedFont font : _fonts) {
+            builder.useFont(() -> new ByteArrayInputStream(font.bytes), font.family, font.weight, font.style, font.subset);
+        }
+
+        if (_sharedConfiguration != null) {
+            _sharedConfiguration.accept(builder);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Renders a document on the executor.
+     * @param document configures the builder for this document. At a minimum it should set
+     * the document content and the output stream. The caller is responsible for closing the output stream.
+     * @return a future which completes when the document has been written. If rendering failed, it
+     * completes exceptionally with the exception thrown by {@link PdfRendererBuilder#run()}.
+     */
+    public CompletableFuture<Void> submit(final Consumer<PdfRendererBuilder> document) {
+        return CompletableFuture.runAsync(() -> {
+            PdfRendererBuilder builder = createBuilder();
+            document.accept(builder);
+            render(builder);
+        }, _executor);
+    }
+
+    /**
+     * Renders a document on the executor, laying out and painting its page sequences concurrently
+     * when they are independent of each other. Each page sequence is then rendered as a document
+     * of its own and their pages are appended in order to the output.
+     * <br><br>
+     * Page sequences start at children of body with <code>-fs-page-sequence: start</code> and
+     * <code>page-break-before: always</code>, so their page numbers and counts are their own.
+     * If anything else carries over from one page sequence to the next, such as counters set on body
+     * or its children, <code>@page :first</code>, <code>:left</code> or <code>:right</code> rules,
+     * fixed elements within a page sequence, links between page sequences, bookmarks or forms,
+     * the document is rendered as with {@link #submit(Consumer)}. It also is if the builder is given
+     * a PDDocument or asked for PDF/A or PDF/UA output.
+     * <br><br>
+     * Fonts used by several page sequences are embedded once for each, so the output is larger,
+     * and render metrics are reported once for parsing and splitting the document, then for each page sequence
+     * or, if it is not split, for the whole document.
+     * @param document configures the builder for this document, but should not set the output stream.
+     * It is called once for the whole document and once for each page sequence, so it should not open
+     * resources such as input streams. It should set the document content with a base URI.
+     * @param os the output stream. The caller is responsible for closing it.
+     * @return a future which completes when the document has been written. If rendering failed, it
+     * completes exceptionally with the exception thrown.
+     */
+    public CompletableFuture<Void> submitPageSequences(final Consumer<PdfRendererBuilder> document, final OutputStream os) {
+        return CompletableFuture.supplyAsync(() -> {
+            PdfRendererBuilder builder = createBuilder();
+            document.accept(builder);
+            builder.toStream(os);
+
+            if (!builder.canRenderPageSequences()) {
+                render(builder);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            List<Document> sequences;
+            String baseUri;
+
+            try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+                sequences = PageSequenceSplitter.split(renderer);
+                baseUri = renderer.getSharedContext().getBaseURL();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+
+            if (sequences == null) {
+                render(builder);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+
+            List<CompletableFuture<byte[]>> parts = new ArrayList<CompletableFuture<byte[]>>(sequences.size());
+
+            for (final Document sequence : sequences) {
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    PdfRendererBuilder sequenceBuilder = createBuilder();
+                    document.accept(sequenceBuilder);
+                    render(sequenceBuilder.forPageSequence(sequence, baseUri, bytes));
+                    return bytes.toByteArray();
+                }, _executor));
+            }
+
+            return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+                List<byte[]> merged = new ArrayList<byte[]>(parts.size());
+                for (CompletableFuture<byte[]> part : parts) {
+                    merged.add(part.join());
+                }
+
+                try {
+                    PageSequenceSplitter.merge(merged, os);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, _executor);
+        }, _executor).thenCompose(Function.identity());
+    }
+
+    private static void render(PdfRendererBuilder builder) {
+        try {
+            builder.run();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Renders each document on the executor.
+     * @return a future for each document, in the same order.
+     * @see #submit(Consumer)
+     */
+    public List<CompletableFuture<Void>> submitAll(List<? extends Consumer<PdfRendererBuilder>> documents) {
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(documents.size());
+
+        for (Consumer<PdfRendererBuilder> document : documents) {
+            futures.add(submit(document));
+        }
+
+        return futures;
+    }
+}
@@ -42,6 +42,8 @@ public class PdfBoxFastLinkManager {
 	private final Box _root;
 	private final PdfBoxFastOutputDevice _od;
 	private final List<LinkDetails> _links;
+	private final Map<Box, PDPageXYZDestination> _destinations;
+	private final Map<PDPage, List<PDAnnotation>> _pageAnnotations;
         private PdfBoxAccessibilityHelper _pdfUa;
 
 	public PdfBoxFastLinkManager(SharedContext ctx, float dotsPerPoint, Box root, PdfBoxFastOutputDevice od) {
@@ -51,6 +53,8 @@ public class PdfBoxFastLinkManager {
 		this._od = od;
 		this._linkTargetAreas = new HashMap<PDPage, Set<String>>();
 		this._links = new ArrayList<LinkDetails>();
+		this._destinations = new HashMap<Box, PDPageXYZDestination>();
+		this._pageAnnotations = new LinkedHashMap<PDPage, List<PDAnnotation>>();
 	}
 
 	private Rectangle2D calcTotalLinkArea(RenderingContext c, Box box, float pageHeight, AffineTransform transform) {
@@ -342,26 +346,50 @@ public class PdfBoxFastLinkManager {
 		styleDict.setStyle(PDBorderStyleDictionary.STYLE_SOLID);
 		annot.setBorderStyle(styleDict);
 
-		try {
-			List<PDAnnotation> annots = page.getAnnotations();
+		// Annotations are added to the page in one go by writeAnnotations, as
+		// PDPage.getAnnotations wraps all existing annotations on every call.
+		List<PDAnnotation> annots = _pageAnnotations.get(page);
+		if (annots == null) {
+			annots = new ArrayList<PDAnnotation>();
+			_pageAnnotations.put(page, annots);
+		}
+		annots.add(annot);
 
-			if (annots == null) {
-				annots = new ArrayList<PDAnnotation>();
-				page.setAnnotations(annots);
-			}
+		if (_pdfUa != null) {
+		    _pdfUa.addLink(anchor, target, annot, page);
+		}
+	}
 
-			annots.add(annot);
-			
-			if (_pdfUa != null) {
-			    _pdfUa.addLink(anchor, target, annot, page);
+	private void writeAnnotations() {
+		try {
+			for (Entry<PDPage, List<PDAnnotation>> entry : _pageAnnotations.entrySet()) {
+				PDPage page = entry.getKey();
+				List<PDAnnotation> existing = page.getAnnotations();
+
+				if (existing == null || existing.isEmpty()) {
+					page.setAnnotations(entry.getValue());
+				} else {
+					existing.addAll(entry.getValue());
+				}
 			}
 		} catch (IOException e) {
 			throw new PdfContentStreamAdapter.PdfException("processLink", e);
 		}
+
+		_pageAnnotations.clear();
 	}
 
+	/**
+	 * Destinations are computed once per target box and shared by all links to it, as
+	 * an index or table of contents may link to the same target many times.
+	 */
 	private PDPageXYZDestination createDestination(RenderingContext c, Box box) {
-	    return PdfBoxBookmarkManager.createBoxDestination(c, _od.getWriter(), _od, _dotsPerPoint, _root, box);
+	    PDPageXYZDestination dest = _destinations.get(box);
+	    if (dest == null) {
+	        dest = PdfBoxBookmarkManager.createBoxDestination(c, _od.getWriter(), _od, _dotsPerPoint, _root, box);
+	        _destinations.put(box, dest);
+	    }
+	    return dest;
 	}
 
 	public static Rectangle2D createTargetArea(RenderingContext c, Box box, float pageHeight, AffineTransform transform,
@@ -418,5 +446,6 @@ public class PdfBoxFastLinkManager {
 		for (LinkDetails link : _links) {
 			processLink(link.c, link.box, link.page, link.pageHeight, link.transform);
 		}
+		writeAnnotations();
 	}
 }
@@ -31,6 +31,7 @@ import com.openhtmltopdf.css.value.FontSpecification;
 import com.openhtmltopdf.extend.FSImage;
 import com.openhtmltopdf.extend.OutputDevice;
 import com.openhtmltopdf.extend.OutputDeviceGraphicsDrawer;
+import com.openhtmltopdf.extend.ReusableGraphicsDrawer;
 import com.openhtmltopdf.extend.StructureType;
 import com.openhtmltopdf.layout.SharedContext;
 import com.openhtmltopdf.outputdevice.helper.FontResolverHelper;
@@ -105,6 +106,7 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
     }
     
     private static final AffineTransform IDENTITY = new AffineTransform();
+    private static final AffineTransform GRAPHICS2D_TO_CSS_PIXELS = AffineTransform.getScaleInstance(72f / 96f, 72f / 96f);
     private static final BasicStroke STROKE_ONE = new BasicStroke(1);
     private static final boolean ROUND_RECT_DIMENSIONS_DOWN = false;
 
@@ -194,12 +196,20 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
 
     // Font Mapping for the Graphics2D output
     private PdfBoxGraphics2DFontTextDrawer _fontTextDrawer;
+
+    // Form XObjects already drawn by a ReusableGraphicsDrawer, keyed by its reuse key and size.
+    private final Map<ReusableDrawingKey, PDFormXObject> _reusableDrawings = new HashMap<ReusableDrawingKey, PDFormXObject>();
     
     // If we are attempting to be PDF/UA compliant (ie tagged pdf), a helper, otherwise null.
     private PdfBoxAccessibilityHelper _pdfUa;
     private final boolean _pdfUaConform;
     
     private final boolean _pdfAConform;
+
+    // Page positions of elements with an id found so far, see findPagePositionsByID.
+    // Cleared whenever the root changes, that is on each layout and paint.
+    private final Map<String, PagePosition> _pagePositions = new HashMap<String, PagePosition>();
+    private static final PagePosition NO_PAGE_POSITION = new PagePosition();
     
     public PdfBoxFastOutputDevice(float dotsPerPoint, boolean testMode, boolean pdfUaConform, boolean pdfAConform) {
         _dotsPerPoint = dotsPerPoint;
@@ -1032,6 +1042,7 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
 
     public void setRoot(Box root) {
         _root = root;
+        _pagePositions.clear();
     }
 
     public int getStartPageNo() {
@@ -1057,65 +1068,20 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
     @Override
     public void drawWithGraphics(float x, float y, float width, float height, OutputDeviceGraphicsDrawer renderer) {
         try {
-            PdfBoxGraphics2D pdfBoxGraphics2D = new PdfBoxGraphics2D(_writer, (int) width, (int) height);
-			/*
-			 * Create and set the fontTextDrawer to perform the font mapping.
-			 */
-            if (_fontTextDrawer == null) {
-                _fontTextDrawer = new PdfBoxGraphics2DFontTextDrawer() {
-                    @Override
-                    protected PDFont mapFont(Font font, IFontTextDrawerEnv env) {
-                        FontSpecification spec = new FontSpecification();
-                        spec.size = font.getSize();
-                        spec.families = new String[] { font.getFamily() };
-                        spec.fontStyle = IdentValue.NORMAL;
-                        spec.fontWeight = IdentValue.NORMAL;
-                        spec.variant = IdentValue.NORMAL;
-                        if ((font.getStyle() & Font.BOLD) == Font.BOLD) {
-                            spec.fontWeight = IdentValue.FONT_WEIGHT_700;
-                        }
-                        if ((font.getStyle() & Font.ITALIC) == Font.ITALIC) {
-                            spec.fontStyle = IdentValue.ITALIC;
-                        }
-                        PdfBoxFSFont fsFont = (PdfBoxFSFont) getSharedContext().getFontResolver()
-                                .resolveFont(getSharedContext(), spec);
-                        FontDescription fontDescription = fsFont.getFontDescription().get(0);
-						/*
-						 * Detect the default fallback value
-						 */
-                        if (fsFont.getFontDescription().size() == 1) {
-                            if (fontDescription.getFont().getName().equals("Times-Roman")
-                                    && !(font.getFamily().equals("Times New Roman"))) {
-								/*
-								 * We did not find the font, this is the generic default fallback font.
-								 * So use the vectorized text shapes.
-								 */
-                                return null;
-                            }
-                        }
-                        return fontDescription.getFont();
-                    }
-                };
-            }
-            pdfBoxGraphics2D.setFontTextDrawer(_fontTextDrawer);
+            PDFormXObject xFormObject;
 
-            /*
-             * Do rendering
-             */
-            renderer.render(pdfBoxGraphics2D);
-            /*
-             * Dispose to close the XStream
-             */
-            pdfBoxGraphics2D.dispose();
+            if (renderer instanceof ReusableGraphicsDrawer) {
+                ReusableDrawingKey key = new ReusableDrawingKey(((ReusableGraphicsDrawer) renderer).getReuseKey(), width, height);
+                xFormObject = _reusableDrawings.get(key);
+
+                if (xFormObject == null) {
+                    xFormObject = drawToXForm(width, height, renderer);
+                    _reusableDrawings.put(key, xFormObject);
+                }
+            } else {
+                xFormObject = drawToXForm(width, height, renderer);
+            }
 
-            /*
-             * We convert from 72dpi of the Graphics2D device to our 96dpi
-             * using the output matrix of the XForm object.
-             * FIXME: Probably want to make this configurable.
-             */
-            PDFormXObject xFormObject = pdfBoxGraphics2D.getXFormObject();
-            xFormObject.setMatrix(AffineTransform.getScaleInstance(72f / 96f, 72f / 96f));
-            
             /*
              * Adjust the y to take into account that the y passed to placeXForm below
              * refers to the bottom left of the object while we were passed in y the 
@@ -1142,6 +1108,64 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
         }
     }
 
+    private PDFormXObject drawToXForm(float width, float height, OutputDeviceGraphicsDrawer renderer) throws IOException {
+        PdfBoxGraphics2D pdfBoxGraphics2D = new PdfBoxGraphics2D(_writer, (int) width, (int) height);
+		/*
+		 * Create and set the fontTextDrawer to perform the font mapping.
+		 */
+        if (_fontTextDrawer == null) {
+            _fontTextDrawer = new PdfBoxGraphics2DFontMapper(getSharedContext());
+        }
+        pdfBoxGraphics2D.setFontTextDrawer(_fontTextDrawer);
+
+        /*
+         * Do rendering
+         */
+        renderer.render(pdfBoxGraphics2D);
+        /*
+         * Dispose to close the XStream
+         */
+        pdfBoxGraphics2D.dispose();
+
+        /*
+         * We convert from 72dpi of the Graphics2D device to our 96dpi
+         * using the output matrix of the XForm object.
+         * FIXME: Probably want to make this configurable.
+         */
+        PDFormXObject xFormObject = pdfBoxGraphics2D.getXFormObject();
+        xFormObject.setMatrix(GRAPHICS2D_TO_CSS_PIXELS);
+        return xFormObject;
+    }
+
+    private static class ReusableDrawingKey {
+        private final Object key;
+        private final float width;
+        private final float height;
+
+        private ReusableDrawingKey(Object key, float width, float height) {
+            this.key = key;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int hashCode() {
+            return (key.hashCode() * 31 + Float.floatToIntBits(width)) * 31 + Float.floatToIntBits(height);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ReusableDrawingKey)) {
+                return false;
+            }
+            ReusableDrawingKey other = (ReusableDrawingKey) obj;
+            return key.equals(other.key) && width == other.width && height == other.height;
+        }
+    }
+
     public List<PagePosition> findPagePositionsByID(CssContext c, Pattern pattern) {
         Map<String, Box> idMap = _sharedContext.getIdMap();
         if (idMap == null) {
@@ -1150,10 +1174,9 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
 
         List<PagePosition> result = new ArrayList<PagePosition>();
         for (Entry<String, Box> entry : idMap.entrySet()) {
-            String id = (String) entry.getKey();
+            String id = entry.getKey();
             if (pattern.matcher(id).find()) {
-                Box box = (Box) entry.getValue();
-                PagePosition pos = calcPDFPagePosition(c, id, box);
+                PagePosition pos = getPagePosition(c, id, entry.getValue());
                 if (pos != null) {
                     result.add(pos);
                 }
@@ -1169,6 +1192,19 @@ public class PdfBoxFastOutputDevice extends AbstractOutputDevice implements Outp
         return result;
     }
 
+    /**
+     * Finding the page of a box is expensive and callers often search with several patterns,
+     * so positions are kept until the next layout or paint.
+     */
+    private PagePosition getPagePosition(CssContext c, String id, Box box) {
+        PagePosition pos = _pagePositions.get(id);
+        if (pos == null) {
+            pos = calcPDFPagePosition(c, id, box);
+            _pagePositions.put(id, pos != null ? pos : NO_PAGE_POSITION);
+        }
+        return pos != NO_PAGE_POSITION ? pos : null;
+    }
+
     private PagePosition calcPDFPagePosition(CssContext c, String id, Box box) {
         PageBox page = _root.getLayer().getLastPage(c, box);
         if (page == null) {
@@ -27,6 +27,7 @@ import com.openhtmltopdf.css.style.FSDerivedValue;
 import com.openhtmltopdf.css.value.FontSpecification;
 import com.openhtmltopdf.extend.FSCacheEx;
 import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Counter;
 import com.openhtmltopdf.extend.FSSupplier;
 import com.openhtmltopdf.extend.FontResolver;
 import com.openhtmltopdf.layout.SharedContext;
@@ -36,6 +37,7 @@ import com.openhtmltopdf.outputdevice.helper.FontResolverHelper;
 import com.openhtmltopdf.outputdevice.helper.MinimalFontDescription;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PdfAConformance;
 import com.openhtmltopdf.render.FSFont;
+import com.openhtmltopdf.util.RenderMetrics;
 import com.openhtmltopdf.util.XRLog;
 
 import org.apache.fontbox.ttf.TrueTypeCollection;
@@ -47,6 +49,7 @@ import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -61,9 +64,18 @@ import java.util.logging.Level;
 public class PdfBoxFontResolver implements FontResolver {
     private Map<String, FontFamily<FontDescription>> _fontFamilies;
     private Map<String, FontDescription> _fontCache = new HashMap<String, FontDescription>();
+    /**
+     * Fonts already resolved by font specification, so styles with the same font share one
+     * {@link PdfBoxFSFont} and a repeated lookup doesn't allocate.
+     */
+    private final Map<FontSpecification, FSFont> _resolvedFonts = new HashMap<FontSpecification, FSFont>();
     private final PDDocument _doc;
     private final SharedContext _sharedContext;
     private final List<TrueTypeCollection> _collectionsToClose = new ArrayList<TrueTypeCollection>();
+    /**
+     * Collections opened for indexed font directories, by file, so each is opened once for all its fonts.
+     */
+    private final Map<File, TrueTypeCollection> _openCollections = new HashMap<File, TrueTypeCollection>();
     private final FSCacheEx<String, FSCacheValue> _fontMetricsCache;
     private final PdfAConformance _pdfAConformance;
     private final boolean _pdfUaConform;
@@ -81,7 +93,19 @@ public class PdfBoxFontResolver implements FontResolver {
 
     @Override
     public FSFont resolveFont(SharedContext renderingContext, FontSpecification spec) {
-        return resolveFont(renderingContext, spec.families, spec.size, spec.fontWeight, spec.fontStyle, spec.variant);
+        FSFont font = _resolvedFonts.get(spec);
+
+        if (font != null) {
+            _sharedContext.getRenderMetrics().increment(Counter.FONT_CACHE_HITS);
+            return font;
+        }
+
+        _sharedContext.getRenderMetrics().increment(Counter.FONT_CACHE_MISSES);
+        font = resolveFont(renderingContext, spec.families, spec.size, spec.fontWeight, spec.fontStyle, spec.variant);
+
+        // Copied, as the caller's specification is mutable.
+        _resolvedFonts.put(new FontSpecification(spec), font);
+        return font;
     }
 
 	/**
@@ -90,6 +114,7 @@ public class PdfBoxFontResolver implements FontResolver {
 	 */
 	public void close() {
 		_fontCache.clear();
+		_resolvedFonts.clear();
 
 		// Close all still open TrueTypeCollections
 		for (TrueTypeCollection collection : _collectionsToClose) {
@@ -100,6 +125,7 @@ public class PdfBoxFontResolver implements FontResolver {
 			}
 		}
 		_collectionsToClose.clear();
+		_openCollections.clear();
 	}
 
     @Deprecated
@@ -113,6 +139,7 @@ public class PdfBoxFontResolver implements FontResolver {
     @Deprecated
     public void flushFontFaceFonts() {
         _fontCache = new HashMap<String, FontDescription>();
+        _resolvedFonts.clear();
 
         for (Iterator<FontFamily<FontDescription>> i = _fontFamilies.values().iterator(); i.hasNext(); ) {
             FontFamily<FontDescription> family = i.next();
@@ -165,7 +192,9 @@ public class PdfBoxFontResolver implements FontResolver {
     }
 
     /**
-     * Add all fonts in the given directory
+     * Add all fonts in the given directory. Each font is registered with its file name as the
+     * font family, with normal weight and style.
+     * @see #addFontDirectory(FontDirectoryIndex, boolean)
      */
     public void addFontDirectory(String dir, boolean embedded) throws IOException {
         File f = new File(dir);
@@ -184,6 +213,20 @@ public class PdfBoxFontResolver implements FontResolver {
         }
     }
 
+    /**
+     * Add all fonts in an indexed font directory, using the family, weight and style read from each font.
+     * Fonts are registered lazily, so a font file is only opened if a document uses the font.
+     */
+    public void addFontDirectory(FontDirectoryIndex index, boolean subset) {
+        for (FontDirectoryIndex.Entry entry : index.getEntries()) {
+            FSSupplier<PDFont> supplier = entry.isCollection() ?
+                    new CollectionPDFontSupplier(entry, _doc, subset, _openCollections, _collectionsToClose) :
+                    new FilePDFontSupplier(entry.getFile(), _doc);
+
+            addFontLazy(supplier, entry.getFamily(), entry.getWeight(), entry.getStyle(), subset);
+        }
+    }
+
     /**
      * Add a font using a FontBox TrueTypeFont.
      */
@@ -222,7 +265,8 @@ public class PdfBoxFontResolver implements FontResolver {
                 fontFamilyNameOverride,
                 false,   // isFromFontFace
                 subset,
-                _fontMetricsCache);
+                _fontMetricsCache,
+                _sharedContext.getRenderMetrics());
 
         if (!subset) {
             if (descr.realizeFont()) {
@@ -317,6 +361,51 @@ public class PdfBoxFontResolver implements FontResolver {
 	}
 
 
+	/**
+	 * Loads a Type0 font from a TrueTypeCollection on demand. The collection is
+	 * opened once for all the fonts used from it and kept open until the resolver
+	 * is closed, as subset fonts are read on save.
+	 */
+	private static class CollectionPDFontSupplier implements FSSupplier<PDFont> {
+		private final FontDirectoryIndex.Entry _entry;
+		private final PDDocument _doc;
+		private final boolean _subset;
+		private final Map<File, TrueTypeCollection> _openCollections;
+		private final List<TrueTypeCollection> _collectionsToClose;
+
+		CollectionPDFontSupplier(FontDirectoryIndex.Entry entry, PDDocument doc, boolean subset,
+				Map<File, TrueTypeCollection> openCollections, List<TrueTypeCollection> collectionsToClose) {
+			this._entry = entry;
+			this._doc = doc;
+			this._subset = subset;
+			this._openCollections = openCollections;
+			this._collectionsToClose = collectionsToClose;
+		}
+
+		@Override
+		public PDFont supply() {
+			try {
+				TrueTypeCollection collection = _openCollections.get(_entry.getFile());
+				if (collection == null) {
+					collection = new TrueTypeCollection(_entry.getFile());
+					_openCollections.put(_entry.getFile(), collection);
+					_collectionsToClose.add(collection);
+				}
+
+				TrueTypeFont ttf = collection.getFontByName(_entry.getPostScriptName());
+				if (ttf == null) {
+					XRLog.load(Level.WARNING, "Font (" + _entry.getPostScriptName() + ") was not found in collection (" + _entry.getFile().getAbsolutePath() + ")");
+					return null;
+				}
+
+				return PDType0Font.load(_doc, ttf, _subset);
+			} catch (IOException e) {
+				XRLog.exception("Couldn't load font (" + _entry.getFile().getAbsolutePath() + "). Please check that it is a valid truetype collection.", e);
+				return null;
+			}
+		}
+	}
+
 	/**
 	 * Add a font using a InputStream. The given file must be a TrueType Font
 	 * (.ttf). If you know the underlying stream is a .ttc file you should use
@@ -334,7 +423,8 @@ public class PdfBoxFontResolver implements FontResolver {
 		        fontFamilyNameOverride,
 		        false, // isFromFontFace
 		        subset,
-		        _fontMetricsCache);
+		        _fontMetricsCache,
+		        _sharedContext.getRenderMetrics());
 
 		if (!subset) {
 			if (descr.realizeFont()) {
@@ -358,7 +448,9 @@ public class PdfBoxFontResolver implements FontResolver {
     }
     
     private void addFontFaceFont(String fontFamilyName, IdentValue fontWeight, IdentValue fontStyle, String uri, boolean subset) {
-        FSSupplier<InputStream> fontSupplier = new FontFaceFontSupplier(_sharedContext, uri);
+        FSSupplier<InputStream> fontSupplier = _sharedContext.getUserAgentCallback() instanceof PdfBoxUserAgent ?
+                new CachedFontFaceFontSupplier((PdfBoxUserAgent) _sharedContext.getUserAgentCallback(), uri) :
+                new FontFaceFontSupplier(_sharedContext, uri);
         FontFamily<FontDescription> fontFamily = getFontFamily(fontFamilyName);
         
         FontDescription description = new FontDescription(
@@ -369,7 +461,8 @@ public class PdfBoxFontResolver implements FontResolver {
                     fontFamilyName,
                     true,  // isFromFontFace
                     subset,
-                    _fontMetricsCache);
+                    _fontMetricsCache,
+                    _sharedContext.getRenderMetrics());
         
         if (!subset) {
             if (description.realizeFont()) {
@@ -380,7 +473,35 @@ public class PdfBoxFontResolver implements FontResolver {
         }
     }
 
+    /**
+     * Supplies @font-face font bytes from the user agent's shared font face cache.
+     */
+    private static class CachedFontFaceFontSupplier implements FSSupplier<InputStream> {
+        private final PdfBoxUserAgent _userAgent;
+        private final String _src;
+
+        CachedFontFaceFontSupplier(PdfBoxUserAgent userAgent, String src) {
+            _userAgent = userAgent;
+            _src = src;
+        }
+
+        @Override
+        public InputStream supply() {
+            byte[] bytes = _userAgent.getFontFaceResource(_src);
+
+            if (bytes == null) {
+                XRLog.exception("Could not load @font-face font: " + _src);
+                return null;
+            }
+
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
     private FontFamily<FontDescription> getFontFamily(String fontFamilyName) {
+        // Only called to add a font, which may change how font specifications resolve.
+        _resolvedFonts.clear();
+
         FontFamily<FontDescription> fontFamily = _fontFamilies.get(fontFamilyName);
         if (fontFamily == null) {
             fontFamily = new FontFamily<FontDescription>();
@@ -638,6 +759,7 @@ public class PdfBoxFontResolver implements FontResolver {
         private final boolean _isSubset;
         private PdfBoxRawPDFontMetrics _metrics;
         private final FSCacheEx<String, FSCacheValue> _metricsCache;
+        private final RenderMetrics _renderMetrics;
 
         /**
          * Create a font description from one of the PDF built-in fonts.
@@ -655,7 +777,7 @@ public class PdfBoxFontResolver implements FontResolver {
                 PDDocument doc, FSSupplier<InputStream> supplier,
                 int weight, IdentValue style, String family,
                 boolean isFromFontFace, boolean isSubset,
-                FSCacheEx<String, FSCacheValue> metricsCache) {
+                FSCacheEx<String, FSCacheValue> metricsCache, RenderMetrics renderMetrics) {
             this._supplier = supplier;
             this._weight = weight;
             this._style = style;
@@ -664,6 +786,7 @@ public class PdfBoxFontResolver implements FontResolver {
             this._isFromFontFace = isFromFontFace;
             this._isSubset = isSubset;
             this._metricsCache = metricsCache;
+            this._renderMetrics = renderMetrics;
             this._metrics = getFontMetricsFromCache(family, weight, style);
         }
 
@@ -678,6 +801,7 @@ public class PdfBoxFontResolver implements FontResolver {
             _supplier = null;
             _doc = doc;
             _metricsCache = null;
+            _renderMetrics = RenderMetrics.NONE;
             _family = null;
             _isFromFontFace = false;
             _isSubset = false;
@@ -698,7 +822,7 @@ public class PdfBoxFontResolver implements FontResolver {
                 PDDocument doc, FSSupplier<PDFont> fontSupplier,
                 IdentValue style, int weight, String family, 
                 boolean isFromFontFace, boolean isSubset,
-                FSCacheEx<String, FSCacheValue> metricsCache) {
+                FSCacheEx<String, FSCacheValue> metricsCache, RenderMetrics renderMetrics) {
             _fontSupplier = fontSupplier;
             _style = style;
             _weight = weight;
@@ -708,6 +832,7 @@ public class PdfBoxFontResolver implements FontResolver {
             _isFromFontFace = isFromFontFace;
             _isSubset = isSubset;
             _metricsCache = metricsCache;
+            _renderMetrics = renderMetrics;
             _metrics = getFontMetricsFromCache(family, weight, style);
         }
 
@@ -738,9 +863,10 @@ public class PdfBoxFontResolver implements FontResolver {
 
         private boolean realizeFont() {
             if (_font == null && _fontSupplier != null) {
-                XRLog.load(Level.INFO, "Loading font(" + _family + ") from PDFont supplier now.");
+                XRLog.load(Level.INFO, () -> "Loading font(" + _family + ") from PDFont supplier now.");
                 
                 _font = _fontSupplier.supply();
+                _renderMetrics.increment(Counter.FONTS_REALIZED);
 		_fontSupplier = null;
 		
                 if (!isMetricsAvailable()) {
@@ -750,7 +876,7 @@ public class PdfBoxFontResolver implements FontResolver {
 	    }
             
             if (_font == null && _supplier != null) {
-                XRLog.load(Level.INFO, "Loading font(" + _family + ") from InputStream supplier now.");
+                XRLog.load(Level.INFO, () -> "Loading font(" + _family + ") from InputStream supplier now.");
                 
                 InputStream is = _supplier.supply();
                 _supplier = null; // We only try once.
@@ -761,6 +887,7 @@ public class PdfBoxFontResolver implements FontResolver {
                 
                 try {
                     _font = PDType0Font.load(_doc, is, _isSubset);
+                    _renderMetrics.increment(Counter.FONTS_REALIZED);
                     
                     if (!isMetricsAvailable()) {
                         return loadMetrics();
@@ -0,0 +1,100 @@
+package com.openhtmltopdf.pdfboxout;
+
+import java.awt.Font;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.value.FontSpecification;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.pdfboxout.PdfBoxFontResolver.FontDescription;
+
+import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2DFontTextDrawer;
+
+/**
+ * Maps AWT fonts used on a PdfBoxGraphics2D (by SVG, charts, MathML, etc.) to fonts
+ * from our font resolver. One instance is used per document, and as mapFont is called
+ * for every text draw, the result is cached by font family and style. The font size does
+ * not influence which font is resolved.
+ */
+class PdfBoxGraphics2DFontMapper extends PdfBoxGraphics2DFontTextDrawer {
+    private final SharedContext _sharedContext;
+    
+    // Values may be null, meaning the text should be drawn as vector shapes.
+    private final Map<FontKey, PDFont> _mappedFonts = new HashMap<FontKey, PDFont>();
+
+    PdfBoxGraphics2DFontMapper(SharedContext sharedContext) {
+        this._sharedContext = sharedContext;
+    }
+
+    private static class FontKey {
+        private final String family;
+        private final int style;
+
+        private FontKey(String family, int style) {
+            this.family = family;
+            this.style = style;
+        }
+
+        @Override
+        public int hashCode() {
+            return family.hashCode() * 31 + style;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FontKey)) {
+                return false;
+            }
+            FontKey other = (FontKey) obj;
+            return style == other.style && family.equals(other.family);
+        }
+    }
+
+    @Override
+    protected PDFont mapFont(Font font, IFontTextDrawerEnv env) {
+        FontKey key = new FontKey(font.getFamily(), font.getStyle() & (Font.BOLD | Font.ITALIC));
+
+        if (_mappedFonts.containsKey(key)) {
+            return _mappedFonts.get(key);
+        }
+
+        PDFont mapped = resolveFont(font);
+        _mappedFonts.put(key, mapped);
+        return mapped;
+    }
+
+    private PDFont resolveFont(Font font) {
+        FontSpecification spec = new FontSpecification();
+        spec.size = font.getSize();
+        spec.families = new String[] { font.getFamily() };
+        spec.fontStyle = IdentValue.NORMAL;
+        spec.fontWeight = IdentValue.NORMAL;
+        spec.variant = IdentValue.NORMAL;
+        if ((font.getStyle() & Font.BOLD) == Font.BOLD) {
+            spec.fontWeight = IdentValue.FONT_WEIGHT_700;
+        }
+        if ((font.getStyle() & Font.ITALIC) == Font.ITALIC) {
+            spec.fontStyle = IdentValue.ITALIC;
+        }
+        PdfBoxFSFont fsFont = (PdfBoxFSFont) _sharedContext.getFontResolver()
+                .resolveFont(_sharedContext, spec);
+        FontDescription fontDescription = fsFont.getFontDescription().get(0);
+        /*
+         * Detect the default fallback value
+         */
+        if (fsFont.getFontDescription().size() == 1) {
+            if (fontDescription.getFont().getName().equals("Times-Roman")
+                    && !(font.getFamily().equals("Times New Roman"))) {
+                /*
+                 * We did not find the font, this is the generic default fallback font.
+                 * So use the vectorized text shapes.
+                 */
+                return null;
+            }
+        }
+        return fontDescription.getFont();
+    }
+}
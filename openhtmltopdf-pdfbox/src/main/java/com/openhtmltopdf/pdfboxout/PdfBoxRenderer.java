@@ -23,10 +23,13 @@ import com.openhtmltopdf.bidi.BidiReorderer;
 import com.openhtmltopdf.bidi.BidiSplitter;
 import com.openhtmltopdf.bidi.BidiSplitterFactory;
 import com.openhtmltopdf.bidi.SimpleBidiReorderer;
+import com.openhtmltopdf.context.ParallelCascade;
 import com.openhtmltopdf.context.StyleReference;
 import com.openhtmltopdf.css.constants.IdentValue;
 import com.openhtmltopdf.css.style.CalculatedStyle;
 import com.openhtmltopdf.extend.*;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Counter;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Stage;
 import com.openhtmltopdf.layout.BoxBuilder;
 import com.openhtmltopdf.layout.Layer;
 import com.openhtmltopdf.layout.LayoutContext;
@@ -39,6 +42,8 @@ import com.openhtmltopdf.pdfboxout.PdfBoxSlowOutputDevice.Metadata;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.CacheStore;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PdfAConformance;
 import com.openhtmltopdf.render.BlockBox;
+import com.openhtmltopdf.render.Box;
+import com.openhtmltopdf.render.InlineLayoutBox;
 import com.openhtmltopdf.render.PageBox;
 import com.openhtmltopdf.render.RenderingContext;
 import com.openhtmltopdf.render.ViewportBox;
@@ -49,6 +54,8 @@ import com.openhtmltopdf.render.displaylist.DisplayListContainer.DisplayListPage
 import com.openhtmltopdf.resource.XMLResource;
 import com.openhtmltopdf.simple.extend.XhtmlNamespaceHandler;
 import com.openhtmltopdf.util.Configuration;
+import com.openhtmltopdf.util.RenderMetrics;
+import com.openhtmltopdf.util.RenderMetrics.StageTimer;
 import com.openhtmltopdf.util.ThreadCtx;
 import com.openhtmltopdf.util.XRLog;
 
@@ -83,6 +90,7 @@ import java.awt.geom.Rectangle2D;
 import java.io.*;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -127,6 +135,9 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
     private byte _defaultTextDirection = BidiSplitter.LTR;
     private BidiReorderer _reorderer;
     private final boolean _useFastMode;
+    private final int _displayListWindow;
+    private final ForkJoinPool _cascadePool;
+    private final boolean _ownsCascadePool;
 
     private PageSupplier _pageSupplier;
     
@@ -153,6 +164,9 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         _dotsPerPoint = DEFAULT_DOTS_PER_POINT;
         _testMode = state._testMode;
         _useFastMode = state._useFastRenderer;
+        _displayListWindow = state._displayListWindow;
+        _ownsCascadePool = state._cascadePool == null && state._cascadeThreads > 1;
+        _cascadePool = _ownsCascadePool ? new ForkJoinPool(state._cascadeThreads) : state._cascadePool;
         _outputDevice = state._useFastRenderer ? 
                 new PdfBoxFastOutputDevice(DEFAULT_DOTS_PER_POINT, _testMode,
                         state._pdfUaConform || state._pdfAConformance.getConformanceValue().equals("A"),
@@ -161,7 +175,12 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         _outputDevice.setWriter(_pdfDoc);
         _outputDevice.setStartPageNo(_pdfDoc.getNumberOfPages());
         
-        PdfBoxUserAgent userAgent = new PdfBoxUserAgent(_outputDevice);
+        RenderMetrics metrics = state._renderMetricsListener != null ?
+                new RenderMetrics(state._renderMetricsListener) : RenderMetrics.NONE;
+
+        PdfBoxUserAgent userAgent = new PdfBoxUserAgent(_outputDevice,
+                metrics.countLookups(state._caches.get(CacheStore.PDF_IMAGES)),
+                metrics.countLookups(state._caches.get(CacheStore.PDF_FONT_FACES)));
 
         userAgent.setProtocolsStreamFactory(state._streamFactoryMap);
         
@@ -171,16 +190,19 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         
         _sharedContext = new SharedContext();
         _sharedContext.registerWithThread();
+        _sharedContext.setRenderMetrics(metrics);
         
         _sharedContext._preferredTransformerFactoryImplementationClass = state._preferredTransformerFactoryImplementationClass;
         _sharedContext._preferredDocumentBuilderFactoryImplementationClass = state._preferredDocumentBuilderFactoryImplementationClass;
         
         _sharedContext.setUserAgentCallback(userAgent);
-        _sharedContext.setCss(new StyleReference(userAgent));
+        StyleReference styleReference = new StyleReference(userAgent);
+        styleReference.setSharedStylesheetCache(metrics.countLookups(state._caches.get(CacheStore.CSS_STYLESHEETS)));
+        _sharedContext.setCss(styleReference);
         userAgent.setSharedContext(_sharedContext);
         _outputDevice.setSharedContext(_sharedContext);
 
-        PdfBoxFontResolver fontResolver = new PdfBoxFontResolver(_sharedContext, _pdfDoc, state._caches.get(CacheStore.PDF_FONT_METRICS), state._pdfAConformance, state._pdfUaConform);
+        PdfBoxFontResolver fontResolver = new PdfBoxFontResolver(_sharedContext, _pdfDoc, metrics.countLookups(state._caches.get(CacheStore.PDF_FONT_METRICS)), state._pdfAConformance, state._pdfUaConform);
         _sharedContext.setFontResolver(fontResolver);
 
         PdfBoxReplacedElementFactory replacedElementFactory = new PdfBoxReplacedElementFactory(_outputDevice, state._svgImpl, state._objectDrawerFactory, state._mathmlImpl);
@@ -272,7 +294,10 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
     }
 
     private Document loadDocument(String uri) {
-        return _sharedContext.getUserAgentCallback().getXMLResource(uri).getDocument();
+        StageTimer timer = _sharedContext.getRenderMetrics().startStage(Stage.PARSE_HTML);
+        Document doc = _sharedContext.getUserAgentCallback().getXMLResource(uri).getDocument();
+        timer.end();
+        return doc;
     }
 
     private void setDocumentP(String uri) {
@@ -289,8 +314,10 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
     }
     
     private void setDocumentFromStringP(String content, String baseUrl) {
+        StageTimer timer = _sharedContext.getRenderMetrics().startStage(Stage.PARSE_HTML);
         InputSource is = new InputSource(new BufferedReader(new StringReader(content)));
         Document dom = XMLResource.load(is).getDocument();
+        timer.end();
         setDocumentP(dom, baseUrl);
     }
     
@@ -303,6 +330,10 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         for (FSDOMMutator domMutator : _domMutators)
             domMutator.mutateDocument(doc);
 
+        if (_sharedContext.getRenderMetrics().isEnabled()) {
+            _sharedContext.getRenderMetrics().add(Counter.ELEMENTS, doc.getElementsByTagName("*").getLength());
+        }
+
         getFontResolver().flushFontFaceFonts();
 
         if (Configuration.isTrue("xr.cache.stylesheets", true)) {
@@ -329,14 +360,50 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
     }
 
     public void layout() {
+        RenderMetrics metrics = _sharedContext.getRenderMetrics();
         LayoutContext c = newLayoutContext();
+
+        StageTimer boxTimer = metrics.startStage(Stage.BOX_BUILD);
+        if (_cascadePool != null) {
+            ParallelCascade.run(_sharedContext, _doc, _cascadePool);
+        }
         BlockBox root = BoxBuilder.createRootBox(c, _doc);
+        boxTimer.end();
+
+        StageTimer layoutTimer = metrics.startStage(Stage.LAYOUT);
         root.setContainingBlock(new ViewportBox(getInitialExtents(c)));
         root.layout(c);
         Dimension dim = root.getLayer().getPaintingDimension(c);
         root.getLayer().trimEmptyPages(c, dim.height);
         root.getLayer().layoutPages(c);
+        layoutTimer.end();
+
+        if (metrics.isEnabled()) {
+            metrics.add(Counter.BOXES, countBoxes(root));
+            metrics.add(Counter.PAGES, root.getLayer().getPages().size());
+        }
+
         _root = root;
+        // So that page positions found before painting are of this layout.
+        _outputDevice.setRoot(_root);
+    }
+
+    private static int countBoxes(Box box) {
+        int count = 1;
+
+        for (Box child : box.getChildren()) {
+            count += countBoxes(child);
+        }
+
+        if (box instanceof InlineLayoutBox) {
+            for (Object child : ((InlineLayoutBox) box).getInlineChildren()) {
+                if (child instanceof Box) {
+                    count += countBoxes((Box) child);
+                }
+            }
+        }
+
+        return count;
     }
 
     private Rectangle getInitialExtents(LayoutContext c) {
@@ -504,7 +571,9 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
             if (finish) {
                 fireOnClose();
                 if (success) {
+                    StageTimer timer = _sharedContext.getRenderMetrics().startStage(Stage.SAVE);
                     _pdfDoc.save(os);
+                    timer.end();
                 }
                 _pdfDoc.close();
                 _pdfDoc = null;
@@ -554,7 +623,9 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
             if (finish) {
                 fireOnClose();
                 if (success) {
+                    StageTimer timer = _sharedContext.getRenderMetrics().startStage(Stage.SAVE);
                     _pdfDoc.save(_os);
+                    timer.end();
                 }
                 _pdfDoc.close();
                 _pdfDoc = null;
@@ -602,11 +673,30 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         }
         
         DisplayListCollector dlCollector = new DisplayListCollector(_root.getLayer().getPages());
-        DisplayListContainer dlPages = dlCollector.collectRoot(c, _root.getLayer()); 
+        DisplayListContainer dlPages = null;
+        int windowSize = _displayListWindow > 0 ? _displayListWindow : pageCount;
+        _root.getLayer().propagateCurrentTransformationMatrix(c);
+
+        StageTimer paintTimer = null;
 
         int pdfPageIndex = 0;
         
         for (int i = 0; i < pageCount; i++) {
+            if (dlPages == null || i > dlPages.getMaxPage()) {
+                // Drop the previous window before collecting the next, so only one is in memory.
+                dlPages = null;
+
+                if (paintTimer != null) {
+                    paintTimer.end();
+                }
+
+                StageTimer dlTimer = _sharedContext.getRenderMetrics().startStage(Stage.DISPLAY_LIST);
+                dlPages = dlCollector.collectPages(c, _root.getLayer(), i, Math.min(i + windowSize, pageCount) - 1);
+                dlTimer.end();
+
+                paintTimer = _sharedContext.getRenderMetrics().startStage(Stage.PAINT);
+            }
+
             PageBox currentPage = pages.get(i);
             currentPage.setBasePagePdfPageIndex(pdfPageIndex);
             DisplayListPageContainer pageOperations = dlPages.getPageInstructions(i);
@@ -659,6 +749,10 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         }
         
         _outputDevice.finish(c, _root);
+
+        if (paintTimer != null) {
+            paintTimer.end();
+        }
     }
 
     private void writePDF(List<PageBox> pages, RenderingContext c, Rectangle2D firstPageSize, PDDocument doc) throws IOException {
@@ -680,6 +774,8 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
             addPdfASchema(doc, _pdfAConformance.getPart(), _pdfAConformance.getConformanceValue());
         }
 
+        StageTimer paintTimer = _sharedContext.getRenderMetrics().startStage(Stage.PAINT);
+
         for (int i = 0; i < pageCount; i++) {
             PageBox currentPage = pages.get(i);
             
@@ -699,6 +795,7 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         }
 
         _outputDevice.finish(c, _root);
+        paintTimer.end();
     }
 
     // Kindly provided by GurpusMaximus at:
@@ -1040,6 +1137,7 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
      */
     @Deprecated
     public void cleanup() {
+        _sharedContext.getRenderMetrics().complete();
         _outputDevice.close();
         _sharedContext.removeFromThread();
         ThreadCtx.cleanup();
@@ -1047,6 +1145,10 @@ public class PdfBoxRenderer implements Closeable, PageSupplier {
         // Close all still open font files
         ((PdfBoxFontResolver)getSharedContext().getFontResolver()).close();
 
+        if (_ownsCascadePool) {
+            _cascadePool.shutdown();
+        }
+
         if (_svgImpl != null) {
             try {
                 _svgImpl.close();
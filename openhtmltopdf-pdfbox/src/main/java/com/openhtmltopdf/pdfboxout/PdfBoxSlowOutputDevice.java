@@ -91,6 +91,7 @@ public class PdfBoxSlowOutputDevice extends AbstractOutputDevice implements Outp
     private static final int CLIP = 3;
 
     private static final AffineTransform IDENTITY = new AffineTransform();
+    private static final AffineTransform GRAPHICS2D_TO_CSS_PIXELS = AffineTransform.getScaleInstance(72f / 96f, 72f / 96f);
     private static final BasicStroke STROKE_ONE = new BasicStroke(1);
 
     private static final boolean ROUND_RECT_DIMENSIONS_DOWN = Configuration.isTrue("xr.pdf.round.rect.dimensions.down", false);
@@ -1239,40 +1240,7 @@ public class PdfBoxSlowOutputDevice extends AbstractOutputDevice implements Outp
 			 * Create and set the fontTextDrawer to perform the font mapping.
 			 */
             if (_fontTextDrawer == null) {
-                _fontTextDrawer = new PdfBoxGraphics2DFontTextDrawer() {
-                    @Override
-                    protected PDFont mapFont(Font font, IFontTextDrawerEnv env) {
-                        FontSpecification spec = new FontSpecification();
-                        spec.size = font.getSize();
-                        spec.families = new String[] { font.getFamily() };
-                        spec.fontStyle = IdentValue.NORMAL;
-                        spec.fontWeight = IdentValue.NORMAL;
-                        spec.variant = IdentValue.NORMAL;
-                        if ((font.getStyle() & Font.BOLD) == Font.BOLD) {
-                            spec.fontWeight = IdentValue.FONT_WEIGHT_700;
-                        }
-                        if ((font.getStyle() & Font.ITALIC) == Font.ITALIC) {
-                            spec.fontStyle = IdentValue.ITALIC;
-                        }
-                        PdfBoxFSFont fsFont = (PdfBoxFSFont) getSharedContext().getFontResolver()
-                                .resolveFont(getSharedContext(), spec);
-                        FontDescription fontDescription = fsFont.getFontDescription().get(0);
-						/*
-						 * Detect the default fallback value
-						 */
-                        if (fsFont.getFontDescription().size() == 1) {
-                            if (fontDescription.getFont().getName().equals("Times-Roman")
-                                    && !(font.getFamily().equals("Times New Roman"))) {
-								/*
-								 * We did not find the font, this is the generic default fallback font.
-								 * So use the vectorized text shapes.
-								 */
-                                return null;
-                            }
-                        }
-                        return fontDescription.getFont();
-                    }
-                };
+                _fontTextDrawer = new PdfBoxGraphics2DFontMapper(getSharedContext());
             }
             pdfBoxGraphics2D.setFontTextDrawer(_fontTextDrawer);
 
@@ -1291,7 +1259,7 @@ public class PdfBoxSlowOutputDevice extends AbstractOutputDevice implements Outp
              * FIXME: Probably want to make this configurable.
              */
             PDFormXObject xFormObject = pdfBoxGraphics2D.getXFormObject();
-            xFormObject.setMatrix(AffineTransform.getScaleInstance(72f / 96f, 72f / 96f));
+            xFormObject.setMatrix(GRAPHICS2D_TO_CSS_PIXELS);
             
             /*
              * Adjust the y to take into account that the y passed to placeXForm below
@@ -27,21 +27,90 @@ import java.net.URI;
 import java.util.Locale;
 import java.util.logging.Level;
 
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSRenderMetricsListener.Counter;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.impl.FSNoOpCacheStore;
 import com.openhtmltopdf.layout.SharedContext;
 import com.openhtmltopdf.resource.ImageResource;
 import com.openhtmltopdf.swing.FSCacheKey;
 import com.openhtmltopdf.swing.NaiveUserAgent;
 import com.openhtmltopdf.util.ImageUtil;
+import com.openhtmltopdf.util.RenderMetrics;
+import com.openhtmltopdf.util.WoffDecoder;
 import com.openhtmltopdf.util.XRLog;
 
 public class PdfBoxUserAgent extends NaiveUserAgent {
     private SharedContext _sharedContext;
 
     private final PdfBoxOutputDevice _outputDevice;
+    
+    // Image bytes and sizes, possibly shared with other renderers.
+    private final FSCacheEx<String, FSCacheValue> _sharedImageCache;
+    
+    // @font-face font bytes, possibly shared with other renderers.
+    private final FSCacheEx<String, FSCacheValue> _sharedFontFaceCache;
 
     public PdfBoxUserAgent(PdfBoxOutputDevice outputDevice) {
+        this(outputDevice, FSNoOpCacheStore.INSTANCE);
+    }
+
+    public PdfBoxUserAgent(PdfBoxOutputDevice outputDevice, FSCacheEx<String, FSCacheValue> sharedImageCache) {
+        this(outputDevice, sharedImageCache, FSNoOpCacheStore.INSTANCE);
+    }
+
+    public PdfBoxUserAgent(PdfBoxOutputDevice outputDevice, FSCacheEx<String, FSCacheValue> sharedImageCache, FSCacheEx<String, FSCacheValue> sharedFontFaceCache) {
 		super();
 		_outputDevice = outputDevice;
+		_sharedImageCache = sharedImageCache;
+		_sharedFontFaceCache = sharedFontFaceCache;
+    }
+    
+    /**
+     * The immutable part of an image that can be shared between renderers. 
+     */
+    private static class SharedImage implements FSCacheValue {
+        private final byte[] bytes;
+        private final float width;
+        private final float height;
+        private final boolean isJpeg;
+        
+        private SharedImage(PdfBoxImage image) {
+            this.bytes = image.getBytes();
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.isJpeg = image.isJpeg();
+        }
+        
+        @Override
+        public int weight() {
+            return bytes.length;
+        }
+    }
+
+    /**
+     * The bytes of a @font-face font, with the validators, if any, to revalidate them.
+     */
+    private static class SharedFontFace implements FSCacheValue {
+        private final byte[] bytes;
+        private final String eTag;
+        private final String lastModified;
+        
+        private SharedFontFace(byte[] bytes, String eTag, String lastModified) {
+            this.bytes = bytes;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+        
+        private boolean hasValidators() {
+            return eTag != null || lastModified != null;
+        }
+        
+        @Override
+        public int weight() {
+            return bytes.length;
+        }
     }
 
     private byte[] readStream(InputStream is) throws IOException {
@@ -56,14 +125,20 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
     }
     
     public ImageResource getImageResource(String uriStr) {
-        String uriResolved = resolveURI(uriStr);
+        // Data URIs need no resolving, as with NaiveUserAgent, and are cached by a hash
+        // of their content so the cache does not hold on to a possibly huge URI.
+        boolean isEmbedded = ImageUtil.isEmbeddedBase64Image(uriStr);
+        String uriResolved = isEmbedded ? uriStr : resolveURI(uriStr);
         
         if (uriResolved == null) {
            XRLog.load(Level.INFO, "URI resolver rejected loading image at (" + uriStr + ")");
            return new ImageResource(uriStr, null);
         }
         
-        ImageResource resource = _imageCache.get(uriResolved);
+        String cacheKey = isEmbedded ? ImageUtil.getDataUriCacheKey(uriStr) : uriResolved;
+        ImageResource resource = _imageCache.get(cacheKey);
+        RenderMetrics metrics = _sharedContext.getRenderMetrics();
+        metrics.increment(resource != null ? Counter.CACHE_HITS : Counter.CACHE_MISSES);
         
         if (resource != null && resource.getImage() instanceof PdfBoxImage) {
             // Make copy of PdfBoxImage so we don't stuff up the cache.
@@ -72,10 +147,20 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
             return new ImageResource(resource.getImageUri(), copy);
         }
         
-        if (ImageUtil.isEmbeddedBase64Image(uriResolved)) {
+        FSCacheValue shared = isEmbedded ? null : _sharedImageCache.get(uriResolved);
+        
+        if (isEmbedded) {
             resource = loadEmbeddedBase64ImageResource(uriResolved);
+            metrics.increment(Counter.IMAGES_DECODED);
             _outputDevice.realizeImage((PdfBoxImage) resource.getImage());
-            _imageCache.put(uriResolved, resource);
+            _imageCache.put(cacheKey, resource);
+        } else if (shared instanceof SharedImage) {
+            SharedImage sharedImage = (SharedImage) shared;
+            PdfBoxImage fsImage = new PdfBoxImage(sharedImage.bytes, uriStr, sharedImage.width, sharedImage.height, sharedImage.isJpeg, null);
+            scaleToOutputResolution(fsImage);
+            _outputDevice.realizeImage(fsImage);
+            resource = new ImageResource(uriResolved, fsImage);
+            _imageCache.put(cacheKey, resource);
         } else {
             InputStream is = openStream(uriResolved);
             
@@ -97,11 +182,13 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
                     } else {
                         byte[] imgBytes = readStream(is);
                         PdfBoxImage fsImage = new PdfBoxImage(imgBytes, uriStr);
+                        metrics.increment(Counter.IMAGES_DECODED);
+                        _sharedImageCache.put(uriResolved, new SharedImage(fsImage));
                         scaleToOutputResolution(fsImage);
                         _outputDevice.realizeImage(fsImage);
                         resource = new ImageResource(uriResolved, fsImage);
                     }
-                    _imageCache.put(uriResolved, resource);
+                    _imageCache.put(cacheKey, resource);
                 } catch (Exception e) {
                     XRLog.exception(
                             "Can't read image file; unexpected problem for URI '"
@@ -124,6 +211,75 @@ public class PdfBoxUserAgent extends NaiveUserAgent {
         return resource;
     }
     
+    /**
+     * Retrieves the font bytes for a @font-face src, using the shared font face cache.
+     * A cached font for which the stream gave an entity tag or last modified date is revalidated with
+     * the stream factory, otherwise it is used as is.
+     * <br><br>
+     * WOFF fonts are decoded before caching, so the cache holds TrueType/OpenType bytes.
+     * @return the font bytes or null if the font could not be loaded.
+     */
+    public byte[] getFontFaceResource(String uri) {
+        if (ImageUtil.isDataUri(uri)) {
+            byte[] bytes = getBinaryResource(uri);
+            try {
+                return bytes != null ? WoffDecoder.decodeIfWoff(bytes) : null;
+            } catch (IOException e) {
+                XRLog.exception("Can't decode embedded font", e);
+                return null;
+            }
+        }
+        
+        String resolved = resolveURI(uri);
+        
+        if (resolved == null) {
+            XRLog.load(Level.INFO, "URI resolver rejected loading font at (" + uri + ")");
+            return null;
+        }
+        
+        FSCacheValue cached = _sharedFontFaceCache.get(resolved);
+        SharedFontFace font = cached instanceof SharedFontFace ? (SharedFontFace) cached : null;
+        
+        if (font != null && !font.hasValidators()) {
+            return font.bytes;
+        }
+        
+        FSStream stream = font != null ? openStream(resolved, font.eTag, font.lastModified) : openStream(resolved, null, null);
+        
+        if (stream == null) {
+            return null;
+        }
+        
+        // Opened even if not modified, so that any response body is closed below.
+        InputStream is = stream.getStream();
+        
+        try {
+            if (font != null && stream.isNotModified()) {
+                XRLog.load(Level.INFO, () -> "Font at (" + resolved + ") not modified, using cached copy.");
+                return font.bytes;
+            }
+            
+            if (is == null) {
+                return null;
+            }
+            
+            byte[] bytes = WoffDecoder.decodeIfWoff(readStream(is));
+            _sharedFontFaceCache.put(resolved, new SharedFontFace(bytes, stream.getETag(), stream.getLastModified()));
+            return bytes;
+        } catch (IOException e) {
+            XRLog.exception("Can't read font; unexpected problem for URI '" + resolved + "'", e);
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+    
     private ImageResource loadEmbeddedBase64ImageResource(final String uri) {
         try {
             byte[] buffer = ImageUtil.getEmbeddedBase64Image(uri);
@@ -10,9 +10,11 @@ import com.openhtmltopdf.outputdevice.helper.UnicodeImplementation;
 import com.openhtmltopdf.util.XRLog;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.w3c.dom.Document;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 
 public class PdfRendererBuilder extends BaseRendererBuilder<PdfRendererBuilder, PdfRendererBuilderState> {
@@ -88,6 +90,10 @@ public class PdfRendererBuilder extends BaseRendererBuilder<PdfRendererBuilder,
 			}
 		}
 
+		for (AddedFontDirectory fontDirectory : state._fontDirectories) {
+			resolver.addFontDirectory(fontDirectory.index, fontDirectory.subset);
+		}
+
 		return renderer;
 	}
 
@@ -228,6 +234,22 @@ public class PdfRendererBuilder extends BaseRendererBuilder<PdfRendererBuilder,
 	}
 
 
+	/**
+	 * Add all the fonts in an indexed font directory, using the family, weight and style
+	 * read from each font. Fonts are only loaded if the document uses them, so large font
+	 * directories are cheap to add. The index may be shared between renders.
+	 *
+	 * @param index
+	 *            the font directory, see {@link FontDirectoryIndex#load(File, File)}
+	 * @param subset
+	 *            whether to subset the fonts
+	 * @return this for method chaining
+	 */
+	public PdfRendererBuilder useFontDirectory(FontDirectoryIndex index, boolean subset) {
+		state._fontDirectories.add(new AddedFontDirectory(index, subset));
+		return this;
+	}
+
 	/**
 	 * Set a producer on the output document
 	 *
@@ -250,7 +272,27 @@ public class PdfRendererBuilder extends BaseRendererBuilder<PdfRendererBuilder,
 	     * Using this cache avoids loading fallback fonts if the metrics are already in the cache
 	     * and the previous fonts contain the needed characters.
 	     */
-	    PDF_FONT_METRICS;
+	    PDF_FONT_METRICS,
+	    
+	    /**
+	     * Caches parsed stylesheets loaded by URI (not inline style elements), keyed by origin and URI.
+	     * Parsed stylesheets are not changed by a render, so may be shared between concurrent renders.
+	     */
+	    CSS_STYLESHEETS,
+	    
+	    /**
+	     * Caches the bytes and intrinsic size of images loaded by URI (not data URIs), keyed by URI.
+	     * Each document still embeds its own copy of the image.
+	     */
+	    PDF_IMAGES,
+	    
+	    /**
+	     * Caches the bytes of @font-face fonts (not data URIs), keyed by resolved URI.
+	     * If the stream factory for the font gives an entity tag or last modified date, the cached font is
+	     * revalidated for each document, see {@link FSStreamFactory#getUrl(String, String, String)}.
+	     * Use a {@link com.openhtmltopdf.extend.impl.FSBoundedCacheStore} to limit the memory used.
+	     */
+	    PDF_FONT_FACES;
 	}
 	
 	/**
@@ -276,6 +318,110 @@ public class PdfRendererBuilder extends BaseRendererBuilder<PdfRendererBuilder,
 		return this;
 	}
 
+	/**
+	 * Receive stage timings and counters for each render, such as for export to monitoring.
+	 * When not set (the default), metrics are not collected.
+	 * 
+	 * @param listener
+	 *            {@link FSRenderMetricsListener} to report to
+	 * @return this for method chaining.
+	 */
+	public PdfRendererBuilder useRenderMetricsListener(FSRenderMetricsListener listener) {
+		state._renderMetricsListener = listener;
+		return this;
+	}
+
+	/**
+	 * With the fast renderer, collect the display list (paint instructions) for a window of pages at a time
+	 * and discard it once those pages are painted, rather than collecting the whole document before painting
+	 * the first page. This bounds the memory used by display lists for documents with tens of thousands of pages,
+	 * at the cost of walking the layer tree once per window.
+	 * The default, zero, collects all pages at once.
+	 * 
+	 * @param pagesPerWindow
+	 *            number of pages to collect at a time, or zero for all pages
+	 * @return this for method chaining.
+	 */
+	public PdfRendererBuilder useIncrementalDisplayList(int pagesPerWindow) {
+		if (pagesPerWindow < 0) {
+			throw new IllegalArgumentException("pagesPerWindow must be zero or more");
+		}
+		state._displayListWindow = pagesPerWindow;
+		return this;
+	}
+
+	/**
+	 * Compute the style of every element on a pool of threads before building boxes,
+	 * rather than one element at a time as boxes are built. This may speed up large documents
+	 * with large style sheets on multi-core machines, while layout and painting remain on the
+	 * calling thread. The DOM must not be modified by other threads during the render.
+	 * The default, zero, computes styles on the calling thread only, as does one.
+	 * <br><br>
+	 * Each renderer creates its own pool and shuts it down when closed. To share a pool between
+	 * renders, use {@link #useParallelCascade(ForkJoinPool)}.
+	 * <br><br>
+	 * User code called during the cascade then runs on the pool threads, several at a time,
+	 * and so must be thread safe. This is the case for resolving <code>url()</code> values
+	 * of style attributes, which calls the user agent's <code>resolveURI</code> and so the
+	 * resolver given to {@link #useUriResolver(FSUriResolver)}, and for logging, which goes to the
+	 * logger given to {@link XRLog#setLoggerImpl(com.openhtmltopdf.util.XRLogger)}.
+	 * 
+	 * @param threads
+	 *            number of threads to compute styles with, or zero to not use a pool
+	 * @return this for method chaining.
+	 */
+	public PdfRendererBuilder useParallelCascade(int threads) {
+		if (threads < 0) {
+			throw new IllegalArgumentException("threads must be zero or more");
+		}
+		state._cascadeThreads = threads;
+		state._cascadePool = null;
+		return this;
+	}
+
+	/**
+	 * Compute the style of every element on the given pool before building boxes,
+	 * see {@link #useParallelCascade(int)}, including what must be thread safe.
+	 * The pool may be shared by concurrent renders and is not shut down by the renderer.
+	 * For example, {@link ForkJoinPool#commonPool()} may be used.
+	 * 
+	 * @param pool
+	 *            the pool to compute styles on, or null to compute them on the calling thread
+	 * @return this for method chaining.
+	 */
+	public PdfRendererBuilder useParallelCascade(ForkJoinPool pool) {
+		state._cascadePool = pool;
+		state._cascadeThreads = 0;
+		return this;
+	}
+
+	/**
+	 * Whether the document may be rendered one page sequence at a time and the pages merged,
+	 * see {@link PdfBatchRenderer#submitPageSequences(java.util.function.Consumer, OutputStream)}.
+	 * Not if the pages go to a given PDDocument, or must conform to PDF/A or PDF/UA
+	 * which merging would not keep.
+	 */
+	boolean canRenderPageSequences() {
+		return state.pddocument == null &&
+		       state._pdfAConformance == PdfAConformance.NONE &&
+		       !state._pdfUaConform;
+	}
+
+	/**
+	 * Renders one page sequence of a document instead, which has already been through
+	 * the DOM mutators, to the given stream.
+	 */
+	PdfRendererBuilder forPageSequence(Document sequence, String baseUri, OutputStream os) {
+		state._html = null;
+		state._file = null;
+		state._uri = null;
+		state._document = sequence;
+		state._baseUri = baseUri;
+		state._domMutators.clear();
+		state._os = os;
+		return this;
+	}
+
 	static class AddedFont {
 		private final FSSupplier<InputStream> supplier;
 		private final File fontFile;
@@ -295,6 +441,16 @@ public class PdfRendererBuilder extends BaseRendererBuilder<PdfRendererBuilder,
 		}
 	}
 
+	static class AddedFontDirectory {
+		private final FontDirectoryIndex index;
+		private final boolean subset;
+
+		private AddedFontDirectory(FontDirectoryIndex index, boolean subset) {
+			this.index = index;
+			this.subset = subset;
+		}
+	}
+
 	/**
 	 * Various level of PDF/A conformance:
 	 *
@@ -2,6 +2,7 @@ package com.openhtmltopdf.pdfboxout;
 
 import com.openhtmltopdf.extend.FSCacheEx;
 import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSRenderMetricsListener;
 import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.CacheStore;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PdfAConformance;
@@ -13,6 +14,7 @@ import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class is internal. DO NOT USE! Just ignore it!
@@ -23,6 +25,7 @@ public class PdfRendererBuilderState extends BaseRendererBuilder.BaseRendererBui
 	}
 
 	public final List<PdfRendererBuilder.AddedFont> _fonts = new ArrayList<PdfRendererBuilder.AddedFont>();
+	public final List<PdfRendererBuilder.AddedFontDirectory> _fontDirectories = new ArrayList<PdfRendererBuilder.AddedFontDirectory>();
 	public OutputStream _os;
 	public float _pdfVersion = 1.7f;
 	public String _producer;
@@ -32,4 +35,8 @@ public class PdfRendererBuilderState extends BaseRendererBuilder.BaseRendererBui
 	public boolean _pdfUaConform = false;
 	public byte[] _colorProfile;
 	public PageSupplier _pageSupplier;
+	public FSRenderMetricsListener _renderMetricsListener;
+	public int _displayListWindow = 0;
+	public int _cascadeThreads = 0;
+	public ForkJoinPool _cascadePool;
 }
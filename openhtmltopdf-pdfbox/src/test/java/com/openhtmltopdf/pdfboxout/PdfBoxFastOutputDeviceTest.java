@@ -0,0 +1,51 @@
+package com.openhtmltopdf.pdfboxout;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.openhtmltopdf.render.PageBox;
+
+public class PdfBoxFastOutputDeviceTest {
+    @SuppressWarnings("unchecked")
+    private static List<PagePosition> positions(PdfBoxRenderer renderer, String pattern) {
+        return renderer.findPagePositionsByID(Pattern.compile(pattern));
+    }
+
+    @Test
+    public void testPagePositionsAfterRelayoutWithSameIds() throws Exception {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useFastMode();
+        builder.withHtmlContent(
+                "<html><head><style>@page { size: 200px 200px; margin: 10px; }</style></head>" +
+                "<body><div id=\"first\">First</div><div id=\"second\">Second</div></body></html>", null);
+
+        try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+            renderer.layout();
+
+            List<PageBox> pages = renderer.getRootBox().getLayer().getPages();
+            assertEquals(1, pages.size());
+            assertEquals(pages.get(0).getPageNo(), positions(renderer, "^second$").get(0).getPageNo());
+            assertEquals(2, positions(renderer, ".*").size());
+
+            // Relayout with a page break before the second element, but the same ids.
+            Document doc = renderer.getDocument();
+            Element second = (Element) doc.getElementsByTagName("div").item(1);
+            Element pageBreak = doc.createElement("div");
+            pageBreak.setAttribute("style", "page-break-after: always;");
+            second.getParentNode().insertBefore(pageBreak, second);
+
+            renderer.layout();
+
+            pages = renderer.getRootBox().getLayer().getPages();
+            assertEquals(2, pages.size());
+            assertEquals(pages.get(1).getPageNo(), positions(renderer, "^second$").get(0).getPageNo());
+            assertEquals(pages.get(0).getPageNo(), positions(renderer, "^first$").get(0).getPageNo());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.openhtmltopdf.pdfboxout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.openhtmltopdf.css.constants.IdentValue;
+import com.openhtmltopdf.css.value.FontSpecification;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.render.FSFont;
+
+public class PdfBoxFontResolverTest {
+    private static final String KARLA = "/fonts/Karla-Bold.ttf";
+
+    private static PdfBoxRenderer createRenderer() {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.withHtmlContent("<html><body></body></html>", null);
+        return builder.buildPdfRenderer();
+    }
+
+    private static FontSpecification spec(String family, float size) {
+        FontSpecification spec = new FontSpecification();
+        spec.families = new String[] { family, "serif" };
+        spec.size = size;
+        spec.fontWeight = IdentValue.FONT_WEIGHT_400;
+        spec.fontStyle = IdentValue.NORMAL;
+        spec.variant = IdentValue.NORMAL;
+        return spec;
+    }
+
+    private static String fontName(FSFont font) throws Exception {
+        return ((PdfBoxFSFont) font).getFontDescription().get(0).getFont().getName();
+    }
+
+    @Test
+    public void testEqualSpecificationsResolveToSameFont() {
+        try (PdfBoxRenderer renderer = createRenderer()) {
+            SharedContext shared = renderer.getSharedContext();
+            PdfBoxFontResolver resolver = renderer.getFontResolver();
+
+            FSFont font = resolver.resolveFont(shared, spec("sans-serif", 12));
+
+            assertEquals(spec("sans-serif", 12), spec("sans-serif", 12));
+            assertSame(font, resolver.resolveFont(shared, spec("sans-serif", 12)));
+            assertNotSame(font, resolver.resolveFont(shared, spec("sans-serif", 14)));
+        }
+    }
+
+    @Test
+    public void testMutatingSpecificationAfterLookupKeepsCachedKey() {
+        try (PdfBoxRenderer renderer = createRenderer()) {
+            SharedContext shared = renderer.getSharedContext();
+            PdfBoxFontResolver resolver = renderer.getFontResolver();
+
+            FontSpecification spec = spec("sans-serif", 12);
+            FSFont font = resolver.resolveFont(shared, spec);
+
+            // Styles reuse their specification, so the cache must not hold the caller's object.
+            spec.families[0] = "monospace";
+            spec.size = 20;
+
+            assertSame(font, resolver.resolveFont(shared, spec("sans-serif", 12)));
+
+            FSFont mutated = resolver.resolveFont(shared, spec);
+            assertNotSame(font, mutated);
+            assertSame(mutated, resolver.resolveFont(shared, spec("monospace", 20)));
+        }
+    }
+
+    @Test
+    public void testAddingFontInvalidatesResolvedFonts() throws Exception {
+        try (PdfBoxRenderer renderer = createRenderer()) {
+            SharedContext shared = renderer.getSharedContext();
+            PdfBoxFontResolver resolver = renderer.getFontResolver();
+
+            FSFont fallback = resolver.resolveFont(shared, spec("Karla", 12));
+            assertFalse(fontName(fallback).contains("Karla"));
+
+            resolver.addFont(() -> PdfBoxFontResolverTest.class.getResourceAsStream(KARLA), "Karla", 400, IdentValue.NORMAL, true);
+
+            FSFont karla = resolver.resolveFont(shared, spec("Karla", 12));
+            assertNotSame(fallback, karla);
+            assertTrue(fontName(karla).contains("Karla"));
+        }
+    }
+
+    @Test
+    public void testFontRealizedOnThreadWithoutSharedContext() throws Exception {
+        try (PdfBoxRenderer renderer = createRenderer()) {
+            SharedContext shared = renderer.getSharedContext();
+            PdfBoxFontResolver resolver = renderer.getFontResolver();
+
+            resolver.addFont(() -> PdfBoxFontResolverTest.class.getResourceAsStream(KARLA), "Karla", 400, IdentValue.NORMAL, true);
+            FSFont karla = resolver.resolveFont(shared, spec("Karla", 12));
+
+            // Render metrics must not need a shared context registered on the thread realizing the font.
+            AtomicReference<Object> result = new AtomicReference<Object>();
+            Thread thread = new Thread(() -> {
+                try {
+                    result.set(fontName(karla));
+                } catch (Throwable e) {
+                    result.set(e);
+                }
+            });
+            thread.start();
+            thread.join();
+
+            assertEquals("Karla-Bold", String.valueOf(result.get()).replaceFirst("^[A-Z]{6}\\+", ""));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.openhtmltopdf.pdfboxout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Font;
+import java.io.InputStream;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.junit.Test;
+
+import com.openhtmltopdf.css.value.FontSpecification;
+import com.openhtmltopdf.extend.FontResolver;
+import com.openhtmltopdf.layout.SharedContext;
+import com.openhtmltopdf.render.FSFont;
+
+public class PdfBoxGraphics2DFontMapperTest {
+    private static final String KARLA = "/fonts/Karla-Bold.ttf";
+
+    private static class CountingFontResolver implements FontResolver {
+        private final FontResolver delegate;
+        private int resolved;
+
+        private CountingFontResolver(FontResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public FSFont resolveFont(SharedContext renderingContext, FontSpecification spec) {
+            resolved++;
+            return delegate.resolveFont(renderingContext, spec);
+        }
+
+        @Override
+        public void flushCache() {
+            delegate.flushCache();
+        }
+    }
+
+    private static PdfBoxRenderer createRenderer() {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.withHtmlContent("<html><body></body></html>", null);
+        builder.useFont(() -> PdfBoxGraphics2DFontMapperTest.class.getResourceAsStream(KARLA), "Karla");
+        return builder.buildPdfRenderer();
+    }
+
+    private static Font karla(int style, float size) throws Exception {
+        try (InputStream in = PdfBoxGraphics2DFontMapperTest.class.getResourceAsStream(KARLA)) {
+            return Font.createFont(Font.TRUETYPE_FONT, in).deriveFont(style, size);
+        }
+    }
+
+    @Test
+    public void testFontsCachedByFamilyAndStyle() throws Exception {
+        try (PdfBoxRenderer renderer = createRenderer()) {
+            SharedContext shared = renderer.getSharedContext();
+            FontResolver resolver = shared.getFontResolver();
+            CountingFontResolver counting = new CountingFontResolver(resolver);
+            shared.setFontResolver(counting);
+
+            try {
+                PdfBoxGraphics2DFontMapper mapper = new PdfBoxGraphics2DFontMapper(shared);
+
+                PDFont bold = mapper.mapFont(karla(Font.BOLD, 10), null);
+                assertNotNull(bold);
+                assertSame(bold, mapper.mapFont(karla(Font.BOLD, 24), null));
+                assertEquals(1, counting.resolved);
+
+                assertNotNull(mapper.mapFont(karla(Font.PLAIN, 10), null));
+                assertEquals(2, counting.resolved);
+
+                // AWT falls back to another family for a font it doesn't have, which is then cached.
+                Font missing = new Font("No Such Font", Font.PLAIN, 10);
+                PDFont fallback = mapper.mapFont(missing, null);
+                assertSame(fallback, mapper.mapFont(missing.deriveFont(20f), null));
+                assertEquals(3, counting.resolved);
+            } finally {
+                shared.setFontResolver(resolver);
+            }
+        }
+    }
+
+    @Test
+    public void testFontsNotSharedBetweenDocuments() throws Exception {
+        try (PdfBoxRenderer first = createRenderer();
+             PdfBoxRenderer second = createRenderer()) {
+            PDFont firstFont = new PdfBoxGraphics2DFontMapper(first.getSharedContext()).mapFont(karla(Font.BOLD, 10), null);
+            PDFont secondFont = new PdfBoxGraphics2DFontMapper(second.getSharedContext()).mapFont(karla(Font.BOLD, 10), null);
+
+            assertNotNull(firstFont);
+            assertNotNull(secondFont);
+            assertNotSame(firstFont, secondFont);
+            assertNotSame(firstFont.getCOSObject(), secondFont.getCOSObject());
+        }
+    }
+}
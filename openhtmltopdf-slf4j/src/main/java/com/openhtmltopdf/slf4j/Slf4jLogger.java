@@ -85,6 +85,20 @@ public class Slf4jLogger implements XRLogger {
     		logger.info(msg, th);
     }
     
+    @Override
+    public boolean isLogLevelEnabled(String where, Level level) {
+        Logger logger = LoggerFactory.getLogger(getLoggerName(where));
+
+        if (level == Level.SEVERE)
+            return logger.isErrorEnabled();
+        else if (level == Level.WARNING)
+            return logger.isWarnEnabled();
+        else if (level == Level.FINE || level == Level.FINER || level == Level.FINEST)
+            return logger.isDebugEnabled();
+        else
+            return logger.isInfoEnabled();
+    }
+
     private String getLoggerName(String xrLoggerName) {
         String result = _loggerNameMap.get(xrLoggerName);
         if (result != null) {